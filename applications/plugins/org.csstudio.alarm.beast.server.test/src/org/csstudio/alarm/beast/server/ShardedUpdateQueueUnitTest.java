@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.csstudio.alarm.beast.SeverityLevel;
+import org.csstudio.alarm.beast.server.AlarmServer.Update;
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link ShardedUpdateQueue}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ShardedUpdateQueueUnitTest
+{
+    private static AlarmPV createPV(final String name) throws Exception
+    {
+        return new AlarmPV(null, null, 1, name, "", true, true, false, 0, 0, 0, "",
+                SeverityLevel.OK, "", SeverityLevel.OK, "", "", Timestamp.now());
+    }
+
+    private static Update createUpdate(final AlarmPV pv, final SeverityLevel severity)
+    {
+        return new Update(pv, severity, severity.name(), severity, severity.name(), "1", Timestamp.now());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception
+    {
+        final ShardedUpdateQueue queue = new ShardedUpdateQueue(4);
+        final AlarmPV a = createPV("a"), b = createPV("b");
+        queue.add(createUpdate(a, SeverityLevel.MINOR));
+        queue.add(createUpdate(b, SeverityLevel.MINOR));
+        final Update last_a = createUpdate(a, SeverityLevel.MAJOR);
+        queue.add(last_a);
+        assertEquals(3, queue.size());
+        assertEquals(3, queue.getReceivedCount());
+
+        // Drain all shards
+        final List<Update> updates = new ArrayList<Update>();
+        for (int i=0; i<queue.getShardCount(); ++i)
+            for (Update update : queue.drain(i))
+                updates.add(update);
+        assertEquals(0, queue.size());
+        // Only the most recent update of 'a'
+        assertEquals(2, updates.size());
+        assertEquals(1, queue.getCoalescedCount());
+        for (Update update : updates)
+            if (update.pv == a)
+                assertSame(last_a, update);
+
+        queue.sent(updates.toArray(new Update[updates.size()]));
+        assertEquals(2, queue.getSentCount());
+        assertTrue(queue.getMaxLatency() >= queue.getAverageLatency());
+    }
+
+    @Test
+    public void testSharding() throws Exception
+    {
+        final ShardedUpdateQueue queue = new ShardedUpdateQueue(3);
+        final AlarmPV pv = createPV("some_pv");
+        final int shard = queue.getShard(pv.getName());
+        for (int i=0; i<10; ++i)
+            queue.add(createUpdate(pv, SeverityLevel.MINOR));
+        // All updates of a PV are in the same shard
+        for (int i=0; i<queue.getShardCount(); ++i)
+            assertEquals(i == shard ? 10 : 0, queue.size(i));
+        assertEquals(10, queue.getMaxSize(shard));
+        assertEquals(1, queue.drain(shard).length);
+        assertEquals(10, queue.getMaxSize(shard));
+        queue.resetStatistics();
+        assertEquals(0, queue.getMaxSize(shard));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        final ShardedUpdateQueue queue = new ShardedUpdateQueue(4);
+        final int PVS = 100, UPDATES = 1000;
+        final AlarmPV[] pvs = new AlarmPV[PVS];
+        for (int i=0; i<PVS; ++i)
+            pvs[i] = createPV("pv" + i);
+
+        // Several threads add updates while the shards are drained
+        final CountDownLatch done = new CountDownLatch(4);
+        for (int t=0; t<4; ++t)
+        {
+            final int offset = t;
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int u=0; u<UPDATES; ++u)
+                        queue.add(createUpdate(pvs[(u + offset) % PVS], SeverityLevel.MAJOR));
+                    done.countDown();
+                }
+            }).start();
+        }
+        int drained = 0;
+        while (done.getCount() > 0)
+            for (int i=0; i<queue.getShardCount(); ++i)
+                drained += queue.drain(i).length;
+        for (int i=0; i<queue.getShardCount(); ++i)
+            drained += queue.drain(i).length;
+
+        assertEquals(0, queue.size());
+        assertEquals(4*UPDATES, queue.getReceivedCount());
+        assertEquals(4*UPDATES, drained + queue.getCoalescedCount());
+    }
+}
@@ -13,7 +13,9 @@ import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.SQL;
@@ -37,6 +39,9 @@ public class AlarmRDB
     /** Connection to storage for configuration/state */
     final private RDBUtil rdb;
 
+    /** RDB URL, user and password, used to connect {@link StateWriter}s */
+    final private String url, user, password;
+
     /** RDB SQL statements */
     final private SQL sql;
 
@@ -48,7 +53,7 @@ public class AlarmRDB
     /** Map of severities and severity IDs in RDB */
     final private SeverityMapping severity_mapping;
 
-    /** Map of message strings and IDs in RDB */
+    /** Map of message strings and IDs in RDB, using the main RDB connection */
     final private MessageMapping message_mapping;
 
     /** Lazily (re-)created statement for updating the alarm state of a PV */
@@ -57,11 +62,63 @@ public class AlarmRDB
     /** Lazily (re-)created statement for updating the global alarm state of a PV */
     private PreparedStatement updateGlobalStatement;
 
+    /** Alarm tree item read from RDB, added to the tree once all items are read */
+    private static class ItemInfo
+    {
+        final int id;
+        final String name;
+        /** Description of PV, <code>null</code> for components */
+        final String description;
+        final boolean enabled, latch, annunciate;
+        final int min_alarm_delay, count, global_delay;
+        final String filter;
+        final SeverityLevel current_severity, severity;
+        final String current_status, status, value;
+        final org.epics.util.time.Timestamp timestamp;
+
+        /** Initialize component */
+        ItemInfo(final int id, final String name)
+        {
+            this(id, name, null, false, false, false, 0, 0, 0, null,
+                 null, null, null, null, null, null);
+        }
+
+        /** Initialize PV */
+        ItemInfo(final int id, final String name, final String description,
+                final boolean enabled, final boolean latch, final boolean annunciate,
+                final int min_alarm_delay, final int count, final int global_delay,
+                final String filter,
+                final SeverityLevel current_severity, final String current_status,
+                final SeverityLevel severity, final String status,
+                final String value, final org.epics.util.time.Timestamp timestamp)
+        {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.enabled = enabled;
+            this.latch = latch;
+            this.annunciate = annunciate;
+            this.min_alarm_delay = min_alarm_delay;
+            this.count = count;
+            this.global_delay = global_delay;
+            this.filter = filter;
+            this.current_severity = current_severity;
+            this.current_status = current_status;
+            this.severity = severity;
+            this.status = status;
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
     public AlarmRDB(final AlarmServer server, final String url,
             final String user, final String password,
             final String schema, final String root_name) throws Exception
     {
         this.server = server;
+        this.url = url;
+        this.user = user;
+        this.password = password;
         rdb = RDBUtil.connect(url, user, password, true);
         sql = new SQL(rdb, schema);
         connection = rdb.getConnection();
@@ -110,16 +167,16 @@ public class AlarmRDB
             statement.close();
         }
 
-        // Fetch children
-        final PreparedStatement sel_items_by_parent =
-            conn.prepareStatement(sql.sel_items_by_parent);
+        // Fetch all items of the configuration in one query
+        final PreparedStatement sel_tree_items = conn.prepareStatement(sql.sel_tree_items);
         try
         {
-            readChildren(root, sel_items_by_parent);
+            sel_tree_items.setInt(1, root.getID());
+            readItems(root, sel_tree_items);
         }
         finally
         {
-            sel_items_by_parent.close();
+            sel_tree_items.close();
         }
 
         // In transactional mode (Connection.setAutoCommit(false)),
@@ -143,16 +200,22 @@ public class AlarmRDB
     }
 
     /** Read alarm tree hierarchy
-     *  @param parent Parent entry
-     *  @param sel_items_by_parent Prepared statement for fetching child elements
+     *
+     *  <p>Reads all items of the configuration in one query,
+     *  since a query per component is slow for large configurations,
+     *  and then adds them to the tree.
+     *
+     *  @param root Root entry
+     *  @param sel_tree_items Statement for fetching all items of the configuration
      *  @throws Exception on error
      */
-    private void readChildren(final TreeItem parent, final PreparedStatement sel_items_by_parent) throws Exception
+    private void readItems(final TreeItem root, final PreparedStatement sel_tree_items) throws Exception
     {
-        final List<TreeItem> recurse_items = new ArrayList<TreeItem>();
-
-        sel_items_by_parent.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent.executeQuery();
+        final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
+        // Items by parent ID.
+        // Sorted by item ID within each parent, like the result.
+        final Map<Integer, List<ItemInfo>> children = new HashMap<Integer, List<ItemInfo>>();
+        final ResultSet result = sel_tree_items.executeQuery();
         try
         {
             while (result.next())
@@ -160,90 +223,113 @@ public class AlarmRDB
                 final int id = result.getInt(1);
                 if (result.wasNull())
                     throw new Exception("NULL component ID");
-                final String name = result.getString(17);
+                final int parent_id = result.getInt(2);
+                if (result.wasNull())
+                    continue; // Root of some configuration
+                final String name = result.getString(3);
                 if (result.wasNull())
                     throw new Exception("NULL component Name");
-                // Ignoring config. time from result.getTimestamp(2)
+                // Ignoring config. time from result.getTimestamp(4)
 
+                final ItemInfo info;
                 // Check PV's ID. If null, this is a component, not PV
-                final int pv_id = result.getInt(3);
+                final int pv_id = result.getInt(5);
                 if (result.wasNull())
-                {
-                    final TreeItem child = new TreeItem(parent, name, id);
-                    recurse_items.add(child);
-                }
+                    info = new ItemInfo(id, name);
                 else
                 {   // Handle PV
                     if (id != pv_id)
                         throw new Exception("Internal RDB error: Item '" + name + "' as ID " + id + " but also PV ID " + pv_id);
                     // Easy results
-                    String description = result.getString(4);
+                    String description = result.getString(6);
                     // Description should not be empty
                     if (result.wasNull() || description == null || description.length() <= 0)
                         description = name;
                     // Default to most features turned 'on'
-                    boolean enabled = result.getBoolean(5);
+                    boolean enabled = result.getBoolean(7);
                     if (result.wasNull())
                         enabled = true;
-                    boolean annunciate = result.getBoolean(6);
+                    boolean annunciate = result.getBoolean(8);
                     if (result.wasNull())
                         annunciate = true;
-                    boolean latch = result.getBoolean(7);
+                    boolean latch = result.getBoolean(9);
                     if (result.wasNull())
                         latch = true;
                     // 0/null/empty disables these features
-                    final int min_alarm_delay = result.getInt(8);
-                    final int count = result.getInt(9);
-                    final String filter = result.getString(10);
+                    final int min_alarm_delay = result.getInt(10);
+                    final int count = result.getInt(11);
+                    final String filter = result.getString(12);
 
                     // Decode current severity/status IDs, handling NULL as "Ok"
-                    int severity_id = result.getInt(11);
+                    int severity_id = result.getInt(13);
                     final SeverityLevel current_severity = result.wasNull()
                         ? SeverityLevel.OK
                         : severity_mapping.getSeverityLevel(severity_id);
 
-                    int status_id = result.getInt(12);
+                    int status_id = result.getInt(14);
                     final String current_status = result.wasNull()
                         ? ""
                         : message_mapping.findMessageById(status_id);
 
                     // Alarm severity/status
-                    severity_id = result.getInt(13);
+                    severity_id = result.getInt(15);
                     final SeverityLevel severity = result.wasNull()
                         ? SeverityLevel.OK
                         : severity_mapping.getSeverityLevel(severity_id);
 
-                    status_id = result.getInt(14);
+                    status_id = result.getInt(16);
                     final String status = result.wasNull()
                         ? ""
                         : message_mapping.findMessageById(status_id);
 
                     // Alarm value, time
-                    final String value = result.getString(15);
+                    final String value = result.getString(17);
 
-                    final Timestamp time = result.getTimestamp(16);
+                    final Timestamp time = result.getTimestamp(18);
                     final org.epics.util.time.Timestamp timestamp = result.wasNull()
                         ? org.epics.util.time.Timestamp.now()
                         : TimestampHelper.toEPICSTime(time);
 
-                    final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
-
-                    new AlarmPV(server, parent, id, name, description,
+                    info = new ItemInfo(id, name, description,
                             enabled, latch, annunciate, min_alarm_delay, count, global_delay, filter,
                             current_severity, current_status, severity, status, value, timestamp);
                 }
+                List<ItemInfo> siblings = children.get(parent_id);
+                if (siblings == null)
+                {
+                    siblings = new ArrayList<ItemInfo>();
+                    children.put(parent_id, siblings);
+                }
+                siblings.add(info);
             }
         }
         finally
         {
             result.close();
         }
+        addChildren(root, children);
+    }
 
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (TreeItem child : recurse_items)
-            readChildren(child, sel_items_by_parent);
+    /** Add items to the alarm tree
+     *  @param parent Parent entry
+     *  @param children Items by parent ID
+     *  @throws Exception on error
+     */
+    private void addChildren(final TreeItem parent, final Map<Integer, List<ItemInfo>> children) throws Exception
+    {
+        final List<ItemInfo> infos = children.get(parent.getID());
+        if (infos == null)
+            return;
+        for (ItemInfo info : infos)
+        {
+            if (info.description == null)
+                addChildren(new TreeItem(parent, info.name, info.id), children);
+            else
+                new AlarmPV(server, parent, info.id, info.name, info.description,
+                        info.enabled, info.latch, info.annunciate, info.min_alarm_delay, info.count,
+                        info.global_delay, info.filter, info.current_severity, info.current_status,
+                        info.severity, info.status, info.value, info.timestamp);
+        }
     }
 
     /** Read configuration for PV, update it from RDB
@@ -276,6 +362,8 @@ public class AlarmRDB
     }
 
     /** Write updated PV state to RDB
+     *  @param updateStateStatement Statement for updating the alarm state of a PV
+     *  @param messages Message mapping that uses the connection of the statement
      *  @param pv
      *  @param current_severity
      *  @param current_message
@@ -285,7 +373,8 @@ public class AlarmRDB
      *  @param timestamp
      *  @throws Exception on error
      */
-    private void writeStateUpdate(final AlarmPV pv, final SeverityLevel current_severity,
+    private void writeStateUpdate(final PreparedStatement updateStateStatement, final MessageMapping messages,
+            final AlarmPV pv, final SeverityLevel current_severity,
             String current_message, final SeverityLevel severity, String message,
             final String value, final org.epics.util.time.Timestamp timestamp) throws Exception
     {
@@ -319,7 +408,7 @@ public class AlarmRDB
         }
         try
         {
-            current_message_id = message_mapping.findOrAddMessage(current_message);
+            current_message_id = messages.findOrAddMessage(current_message);
         }
         catch (Exception ex)
         {
@@ -327,7 +416,7 @@ public class AlarmRDB
         }
         try
         {
-            message_id = message_mapping.findOrAddMessage(message);
+            message_id = messages.findOrAddMessage(message);
         }
         catch (Exception ex)
         {
@@ -378,6 +467,20 @@ public class AlarmRDB
             updateStateStatement = null;
             updateStateStatement = actual_connection.prepareStatement(sql.update_pv_state);
         }
+        persistStates(actual_connection, updateStateStatement, message_mapping, updates, batchSize);
+    }
+
+    /** Persists updates in batches
+     *  @param actual_connection Connection, auto-commit already disabled
+     *  @param updateStateStatement Statement for updating the alarm state of a PV
+     *  @param messages Message mapping that uses the same connection
+     *  @param updates the updates to persist
+     *  @param batchSize maximum batch size
+     *  @throws Exception on error
+     */
+    private void persistStates(final Connection actual_connection, final PreparedStatement updateStateStatement,
+            final MessageMapping messages, final Update[] updates, final int batchSize) throws Exception
+    {
         try
         {
             int count = 0;
@@ -385,7 +488,7 @@ public class AlarmRDB
             {            
                 try
                 {
-                    writeStateUpdate(u.pv, u.currentSeverity, u.currentMessage, u.alarmSeverity,
+                    writeStateUpdate(updateStateStatement, messages, u.pv, u.currentSeverity, u.currentMessage, u.alarmSeverity,
                             u.alarmMessage, u.value, u.timestamp);
                     count++;
                 }
@@ -533,6 +636,71 @@ public class AlarmRDB
         }
     }
 
+    /** Create a writer for state updates with its own RDB connection
+     *  @return {@link StateWriter}
+     *  @throws Exception on error
+     */
+    public StateWriter createStateWriter() throws Exception
+    {
+        return new StateWriter();
+    }
+
+    /** Writer for alarm state updates that uses its own RDB connection,
+     *  so that several writers can persist updates in parallel.
+     *
+     *  <p>Shares the severity mapping of the {@link AlarmRDB}.
+     *  New messages are added via the writer's own connection,
+     *  sharing the cache of known messages with the {@link AlarmRDB}.
+     *  Each writer must only be used by one thread at a time.
+     */
+    public class StateWriter
+    {
+        /** Connection of this writer */
+        final private RDBUtil writer_rdb;
+
+        /** RDB connection. Used to check if the RDB reconnected */
+        private Connection writer_connection;
+
+        /** Map of message strings and IDs in RDB, using the writer's connection */
+        final private MessageMapping writer_messages;
+
+        /** Lazily (re-)created statement for updating the alarm state of a PV */
+        private PreparedStatement statement;
+
+        private StateWriter() throws Exception
+        {
+            writer_rdb = RDBUtil.connect(url, user, password, true);
+            writer_messages = new MessageMapping(writer_rdb, sql, message_mapping);
+        }
+
+        /** Persists all the updates into DB.
+         *  @param updates the updates to persist
+         *  @param batchSize maximum batch size
+         *  @throws Exception on error
+         *  @see AlarmRDB#persistAllStates(Update[], int)
+         */
+        public void persistAllStates(final Update[] updates, final int batchSize) throws Exception
+        {
+            final Connection actual_connection = writer_rdb.getConnection();
+            actual_connection.setAutoCommit(false);
+
+            // New or changed connection?
+            if (actual_connection != writer_connection  ||  statement == null)
+            {
+                writer_connection = actual_connection;
+                statement = null;
+                statement = actual_connection.prepareStatement(sql.update_pv_state);
+            }
+            persistStates(actual_connection, statement, writer_messages, updates, batchSize);
+        }
+
+        /** Must be called to release resources */
+        public void close()
+        {
+            writer_rdb.close();
+        }
+    }
+
     /** Must be called to release resources */
     public void close()
     {
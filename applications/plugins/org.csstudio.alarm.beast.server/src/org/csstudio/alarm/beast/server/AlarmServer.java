@@ -17,6 +17,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.AlarmTreePath;
@@ -43,7 +44,7 @@ import org.epics.util.time.Timestamp;
 @SuppressWarnings("nls")
 public class AlarmServer implements Runnable 
 {
-	/** BatchUpdater takes care of periodic updates of alarm states into the RDB and
+	/** BatchUpdater takes care of periodic updates of global alarm states into the RDB and
 	 *  to the JMS. This allows for the updates to queue up to sizable number.
 	 *  Then they are sent in batches, which allows for better performance. 
 	 */
@@ -81,6 +82,100 @@ public class AlarmServer implements Runnable
 		}
 	}
 	
+	/** ShardWorker periodically persists the alarm state updates of one shard
+	 *  of the {@link ShardedUpdateQueue} into the RDB and sends them to JMS.
+	 *  Each worker uses its own RDB connection, so shards are written in parallel.
+	 */
+	private class ShardWorker extends Thread
+	{
+		final private int shard;
+		private volatile boolean run = true;
+		/** Writer for the shard, created when first needed */
+		private AlarmRDB.StateWriter writer = null;
+
+		public ShardWorker(final int shard)
+		{
+			super("AlarmServer Shard " + shard);
+			this.shard = shard;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (run)
+				{
+					synchronized (this)
+					{
+						wait(Math.max(1, updatePeriod));
+					}
+					processShard();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// Ignore: Server has been terminated, there is no need for further updates
+			}
+		}
+
+		/** Persist and send queued updates of the shard */
+		public synchronized void processShard()
+		{
+			final Update[] updates = state_updates.drain(shard);
+			if (updates.length <= 0)
+				return;
+			try
+			{
+				if (writer == null)
+					writer = rdb.createStateWriter();
+				writer.persistAllStates(updates, batchSize);
+				if (had_RDB_error.get())
+					scheduleRDBRecovery();
+			}
+			catch (Exception e)
+			{
+				Activator.getLogger().log(Level.SEVERE, "Error committing state update batches.", e);
+				had_RDB_error.set(true);
+			}
+			if (batch_updates)
+				messenger.sendStateUpdates(updates);
+			else
+				for (Update u : updates)
+				{
+					messenger.sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
+							u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+				}
+			state_updates.sent(updates);
+		}
+
+		/** Stop the thread, then send remaining updates and close the RDB connection */
+		public void terminate()
+		{
+			run = false;
+			synchronized (this)
+			{
+				notifyAll();
+			}
+			try
+			{
+				join(10000);
+			}
+			catch (InterruptedException e)
+			{
+				// Ignore, proceed to send remaining updates
+			}
+			synchronized (this)
+			{
+				processShard();
+				if (writer != null)
+					writer.close();
+				writer = null;
+			}
+		}
+	}
+
 	/** Update is a wrapper about a single PV update received by the server.
 	 *  It is used to queue data for later processing.*
 	 */
@@ -93,6 +188,8 @@ public class AlarmServer implements Runnable
     	public final String alarmMessage;
     	public final String value;
     	public final Timestamp timestamp;
+    	/** System.nanoTime() when the update was queued */
+    	public final long queued_nanos = System.nanoTime();
     	
     	public Update(final AlarmPV pv,
     			final SeverityLevel currentSeverity, final String currentMessage,
@@ -109,19 +206,12 @@ public class AlarmServer implements Runnable
     	}
     }
 	
-	/** A list holding all the updates, which have not yet been send to the JMS queue */
-	private List<Update> queuedUpdates = new ArrayList<Update>();
-	
+	/** Updates, sharded by PV, which have not yet been persisted and sent to the JMS queue */
+	final private ShardedUpdateQueue state_updates;
+
 	/** A list holding all the global updates, which have not yet been send to the JMS queue */
 	private List<Update> queuedGlobalUpdates = new ArrayList<Update>();
 	
-    /** Updates to be persisted in the RDB, mapping the 'latest' by PV.
-     *  While queuedUpdates contains all recent updates, the map only
-     *  retains the most recent update for each PV
-     *  because we only need to store the latest updates of the same PV.
-     */
-    private Map<String,Update> queuedRDBUpdates = new HashMap<String,Update>();
-    
     /** Global updates to be persisted in the RDB, mapping the 'latest' by PV */
     private Map<String,Update> queuedRDBGlobalUpdates = new HashMap<String,Update>();
 	
@@ -155,15 +245,19 @@ public class AlarmServer implements Runnable
      */
     private Map<String, AlarmPV> pv_map = new HashMap<String, AlarmPV>();
 
-    /** Indicator for communication errors */
-    private volatile boolean had_RDB_error = false;
+    /** Indicator for communication errors, set by the shard workers and other threads */
+    final private AtomicBoolean had_RDB_error = new AtomicBoolean(false);
 
-    /** Updater thread */
+    /** Updater thread for global updates */
     private BatchUpdater batchExecutor;
+    /** Worker threads for the shards of state_updates */
+    private ShardWorker[] shardWorkers = null;
     /** The period of the updater thread - how frequently it executes message persisting */
     private final long updatePeriod;
     /** The maximum size of batches when persisting messages */
     private final int batchSize;
+    /** Send state updates to clients in batch messages? */
+    private final boolean batch_updates;
 
     /** Initialize
      *  @param talker Talker that'll be used to annunciate
@@ -177,6 +271,8 @@ public class AlarmServer implements Runnable
         this.work_queue = work_queue;
         this.updatePeriod = (long)(Preferences.getBatchUpdatePeriod()*1000);
         this.batchSize = Preferences.getBatchSize();
+        this.state_updates = new ShardedUpdateQueue(AlarmServerPreferences.getUpdateShards());
+        this.batch_updates = AlarmServerPreferences.getBatchUpdates();
         rdb = new AlarmRDB(this, Preferences.getRDB_Url(),
         		Preferences.getRDB_User(),
         		Preferences.getRDB_Password(),
@@ -230,6 +326,7 @@ public class AlarmServer implements Runnable
         }
 
         out.println("Work queue size: " + work_queue.size());
+        state_updates.dump(out);
 
         // Log memory usage in MB
         final double free = Runtime.getRuntime().freeMemory() / (1024.0*1024.0);
@@ -241,6 +338,12 @@ public class AlarmServer implements Runnable
                 format.format(new Date()), max, free, 100.0*free/max, total, 100.0*total/max);
     }
 
+    /** @return Queue of state updates, for statistics */
+    public ShardedUpdateQueue getUpdateQueue()
+    {
+        return state_updates;
+    }
+
     /** @return list of all PVs known to the server */
     public AlarmPV[] getPVs()
     {
@@ -328,6 +431,24 @@ public class AlarmServer implements Runnable
         	batchExecutor.terminate();
         batchExecutor = new BatchUpdater();
         batchExecutor.start();
+
+        stopShardWorkers();
+        shardWorkers = new ShardWorker[state_updates.getShardCount()];
+        for (int i=0; i<shardWorkers.length; ++i)
+        {
+            shardWorkers[i] = new ShardWorker(i);
+            shardWorkers[i].start();
+        }
+    }
+
+    /** Stop shard workers, which sends their pending updates */
+    private void stopShardWorkers()
+    {
+        if (shardWorkers == null)
+            return;
+        for (ShardWorker worker : shardWorkers)
+            worker.terminate();
+        shardWorkers = null;
     }
 
     /** Start PVs */
@@ -376,15 +497,16 @@ public class AlarmServer implements Runnable
         messenger.stop();
         if (batchExecutor != null)
         	batchExecutor.terminate();
+        stopShardWorkers();
         try
         {
         	//send pending updates
-        	sendQueuedUpdates();
+        	sendQueuedGlobalUpdates();
         }
         catch (Exception e)
         {
         	Activator.getLogger().log(Level.SEVERE, "Error committing state update batches.",e);
-        	had_RDB_error = true;
+        	had_RDB_error.set(true);
         } 
     }
 
@@ -538,15 +660,8 @@ public class AlarmServer implements Runnable
             final String message,
             final String value, final Timestamp timestamp)
     {
-    	synchronized(queuedRDBUpdates)
-    	{
-    		final Update u = new Update(pv, current_severity,
-    				current_message, severity, message, value, timestamp);
-    		// We are only interested in the latest update of a particular PV
-    		// the rest don't need to be persisted
-    		queuedRDBUpdates.put(pv.getName(), u);
-    		queuedUpdates.add(u);
-    	}
+    	state_updates.add(new Update(pv, current_severity,
+    			current_message, severity, message, value, timestamp));
     }
 
     /** Update 'global' JMS clients and RDB
@@ -593,7 +708,7 @@ public class AlarmServer implements Runnable
                 catch (Exception ex)
                 {
                     // Remember that there was an error
-                    had_RDB_error = true;
+                    had_RDB_error.set(true);
                     Activator.getLogger().log(Level.SEVERE, "Exception during enablement update", ex);
                 }
             }
@@ -617,53 +732,55 @@ public class AlarmServer implements Runnable
      */
     protected void recoverFromRDBErrors() throws Exception
     {
-        if (! had_RDB_error)
+        if (! had_RDB_error.get())
             return;
 
         // We should be on the work queue thread
         work_queue.assertOnThread();
+        // Clear the error before re-loading, so that an error
+        // reported meanwhile by another thread is not lost
+        if (! had_RDB_error.getAndSet(false))
+            return;
         Activator.getLogger().info("RDB connection recovered, re-loading configuration");
-        updateConfig(null);
+        try
+        {
+            updateConfig(null);
+        }
+        catch (Exception ex)
+        {
+            had_RDB_error.set(true);
+            throw ex;
+        }
 
-        // If that worked out, reset error and inform clients
-        had_RDB_error = false;
+        // If that worked out, inform clients
         messenger.sendReloadMessage();
     }
+
+    /** Perform recoverFromRDBErrors() on the work queue thread */
+    private void scheduleRDBRecovery()
+    {
+        work_queue.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    recoverFromRDBErrors();
+                }
+                catch (Exception ex)
+                {
+                    had_RDB_error.set(true);
+                    Activator.getLogger().log(Level.SEVERE, "Exception during RDB error recovery", ex);
+                }
+            }
+        });
+    }
     
-    /** Send all queue updates to RDB as well as JMS */
-    private void sendQueuedUpdates()
+    /** Send queued global updates to RDB as well as JMS */
+    private void sendQueuedGlobalUpdates()
     {
     	// Create thread-save copy
-    	Update[] updates = null;
-		Update[] rdbUpdates = null;
-		synchronized (queuedRDBUpdates)
-		{
-			rdbUpdates = queuedRDBUpdates.values().toArray(new Update[queuedRDBUpdates.size()]);
-			queuedRDBUpdates.clear();
-			updates = queuedUpdates.toArray(new Update[queuedUpdates.size()]);
-			queuedUpdates.clear();
-		}
-		
-		if (rdbUpdates.length > 0)
-		{					
-			try
-			{
-	        	rdb.persistAllStates(rdbUpdates, batchSize);
-	        	recoverFromRDBErrors();
-	        }
-			catch (Exception e)
-			{
-	        	Activator.getLogger().log(Level.SEVERE, "Error committing state update batches.", e);
-	        	had_RDB_error = true;
-	        }
-		}
-		
-		for (Update u : updates)
-		{
-			messenger.sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
-    	        u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
-		}
-		
 		Update[] rdbGlobals = null;
 		Update[] globals = null;
 		synchronized(queuedRDBGlobalUpdates)
@@ -684,7 +801,7 @@ public class AlarmServer implements Runnable
 			catch (Exception e)
 			{
 	        	Activator.getLogger().log(Level.SEVERE,"Error committing global update batches.",e);
-	        	had_RDB_error = true;
+	        	had_RDB_error.set(true);
 	        }
 		}
 		
@@ -698,6 +815,6 @@ public class AlarmServer implements Runnable
 	@Override
 	public void run()
 	{
-		sendQueuedUpdates();		
+		sendQueuedGlobalUpdates();
 	}
 }
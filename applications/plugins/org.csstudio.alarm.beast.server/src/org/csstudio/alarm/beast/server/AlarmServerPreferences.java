@@ -24,6 +24,8 @@ public class AlarmServerPreferences
 {
     final public static String GLOBAL_ALARM_DELAY = "global_alarm_delay";
     final public static String NAG_PERIOD = "nag_period";
+    final public static String UPDATE_SHARDS = "update_shards";
+    final public static String BATCH_UPDATES = "batch_updates";
 
     /** @return Period for repeated 'There are .. active alarms' annunciations [seconds]
      *  @throws Exception on error in period specification
@@ -45,4 +47,24 @@ public class AlarmServerPreferences
             return 0;
         return service.getInt(Activator.ID, GLOBAL_ALARM_DELAY, 0, null);
     }
+
+    /** @return Number of shards for processing alarm state updates in parallel */
+    public static int getUpdateShards()
+    {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return processors;
+        final int shards = service.getInt(Activator.ID, UPDATE_SHARDS, 0, null);
+        return shards > 0 ? shards : processors;
+    }
+
+    /** @return <code>true</code> to send alarm state updates to clients in binary batches */
+    public static boolean getBatchUpdates()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return false;
+        return service.getBoolean(Activator.ID, BATCH_UPDATES, false, null);
+    }
 }
@@ -66,6 +66,8 @@ public class ConsoleCommands implements CommandProvider
         buf.append("\tpwd                 - Print working 'directory'\n");
         buf.append("\tcd '/path'          - Change working 'directory'\n");
         buf.append("\tprefs               - List all preferences\n");
+        buf.append("\tstats               - Show update queue statistics\n");
+        buf.append("\tstats -r            - Show, then reset update queue statistics\n");
         return buf.toString();
     }
 
@@ -92,6 +94,21 @@ public class ConsoleCommands implements CommandProvider
         return null;
     }
 
+    /** 'stats' command */
+    public Object _stats(final CommandInterpreter intp)
+    {
+        final boolean reset = "-r".equals(intp.nextArgument());
+        final ShardedUpdateQueue queue = server.getUpdateQueue();
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(buf);
+        queue.dump(out);
+        out.close();
+        intp.println(buf.toString());
+        if (reset)
+            queue.resetStatistics();
+        return null;
+    }
+
     /** 'pvs' command */
     public Object _pvs(final CommandInterpreter intp)
     {
@@ -15,27 +15,56 @@ import org.csstudio.platform.utility.rdb.RDBUtil;
 import org.csstudio.platform.utility.rdb.StringIDHelper;
 
 /** Mapper between alarm status messages and RDB IDs
+ *
+ *  <p>Each mapping accesses the RDB via one connection.
+ *  The {@link AlarmRDB.StateWriter}s use their own mapping
+ *  for their connection, sharing the cache of the {@link AlarmRDB}'s mapping.
+ *  Access to the shared cache, and to the RDB for adding new messages
+ *  which determines the next ID from the existing ones, is serialized.
  *  @author Kay Kasemir
  */
 public class MessageMapping
 {
+    /** Cache of messages, shared by mappings for different connections */
+    private static class Cache
+    {
+        /** Cash of Messages by ID to limit RDB lookups */
+        final Map<Integer, String> by_id = new HashMap<Integer, String>();
+
+        /** Cash of Messages by ID to limit RDB lookups */
+        final Map<String, Integer> by_message = new HashMap<String, Integer>();
+    }
+
     /** Helper for Message-to-ID mapping in RDB */
     final private StringIDHelper helper;
-    
-    /** Cash of Messages by ID to limit RDB lookups */
-    final private Map<Integer, String> cache_by_id = new HashMap<Integer, String>();
 
-    /** Cash of Messages by ID to limit RDB lookups */
-    final private Map<String, Integer> cache_by_message = new HashMap<String, Integer>();
-    
+    /** Cache. SYNC on cache for access, and to serialize RDB access */
+    final private Cache cache;
+
     /** Initialize
      *  @param rdb RDBUtil
      *  @param sql SQL statements
      */
     public MessageMapping(final RDBUtil rdb, final SQL sql)
+    {
+        this(rdb, sql, new Cache());
+    }
+
+    /** Initialize mapping for another connection
+     *  @param rdb RDBUtil
+     *  @param sql SQL statements
+     *  @param shared Mapping with which to share the cache
+     */
+    public MessageMapping(final RDBUtil rdb, final SQL sql, final MessageMapping shared)
+    {
+        this(rdb, sql, shared.cache);
+    }
+
+    private MessageMapping(final RDBUtil rdb, final SQL sql, final Cache cache)
     {
         helper = new StringIDHelper(rdb, sql.schema_prefix + sql.message_table,
                                     sql.message_id_col, sql.message_name_col);
+        this.cache = cache;
     }
 
     /** @param id RDB ID of a message
@@ -44,32 +73,40 @@ public class MessageMapping
      */
     public String findMessageById(final int id) throws Exception
     {
-        String message = cache_by_id.get(id);
-        if (message == null)
-        {   // Not cached, get from RDB and remember the result
-            message = helper.find(id).getName();
-            cache_by_id.put(id, message);
-            cache_by_message.put(message, id);
+        synchronized (cache)
+        {
+            String message = cache.by_id.get(id);
+            if (message == null)
+            {   // Not cached, get from RDB and remember the result
+                message = helper.find(id).getName();
+                cache.by_id.put(id, message);
+                cache.by_message.put(message, id);
+            }
+            return message;
         }
-        return message;
     }
 
     /** If message is already in RDB, get its ID.
      *  Otherwise add message to RDB, getting its new ID.
+     *
+     *  <p>A new message is committed on the connection of this mapping.
      *  @param message Message to add
      *  @return RDB ID
      *  @throws Exception on error
      */
     public int findOrAddMessage(final String message) throws Exception
     {
-        // First check local cache
-        Integer id = cache_by_message.get(message);
-        if (id != null)
-            return id.intValue();
-        // Add to RDB, remember in cache
-        id = helper.add(message).getId();
-        cache_by_id.put(id, message);
-        cache_by_message.put(message, id);
-        return id;
+        synchronized (cache)
+        {
+            // First check local cache
+            Integer id = cache.by_message.get(message);
+            if (id != null)
+                return id.intValue();
+            // Add to RDB, remember in cache
+            id = helper.add(message).getId();
+            cache.by_id.put(id, message);
+            cache.by_message.put(message, id);
+            return id;
+        }
     }
 }
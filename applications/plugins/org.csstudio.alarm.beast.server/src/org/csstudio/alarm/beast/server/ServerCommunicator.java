@@ -11,18 +11,21 @@ import java.net.InetAddress;
 import java.text.SimpleDateFormat;
 import java.util.logging.Level;
 
+import javax.jms.BytesMessage;
 import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 
+import org.csstudio.alarm.beast.AlarmUpdateBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.JMSCommunicationWorkQueueThread;
 import org.csstudio.alarm.beast.Preferences;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimeoutTimer;
 import org.csstudio.alarm.beast.WorkQueue;
+import org.csstudio.alarm.beast.server.AlarmServer.Update;
 import org.csstudio.logging.JMSLogMessage;
 import org.epics.util.time.Timestamp;
 
@@ -36,6 +39,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     /** TYPE identifier used for talk messages */
     private static final String TYPE_TALK = "talk";
 
+    /** Maximum number of updates in one batch message */
+    private static final int MAX_BATCH_SIZE = 1000;
+
     /** Format of time stamps */
     final private SimpleDateFormat date_format =
         new SimpleDateFormat(JMSLogMessage.DATE_FORMAT);
@@ -304,6 +310,68 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
         idle_timer.reset();
     }
 
+    /** Notify clients of new alarm states in batch messages.
+     *
+     *  <p>Sends {@link JMSAlarmMessage#TEXT_STATE_BATCH} messages
+     *  with up to {@link #MAX_BATCH_SIZE} updates each,
+     *  which clients apply in one go.
+     *  @param updates Updates to send
+     */
+    protected void sendStateUpdates(final Update[] updates)
+    {
+        execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    final String text = AlarmLogic.getMaintenanceMode()
+                            ? JMSAlarmMessage.TEXT_STATE_BATCH_MAINTENANCE
+                            : JMSAlarmMessage.TEXT_STATE_BATCH;
+                    for (int start=0; start<updates.length; start += MAX_BATCH_SIZE)
+                    {
+                        final int end = Math.min(updates.length, start + MAX_BATCH_SIZE);
+                        final AlarmUpdateBatch batch = new AlarmUpdateBatch();
+                        for (int i=start; i<end; ++i)
+                        {
+                            final Update u = updates[i];
+                            batch.add(u.pv.getName(),
+                                    u.currentSeverity, u.currentMessage,
+                                    u.alarmSeverity, u.alarmMessage,
+                                    u.value, u.timestamp);
+                        }
+                        final BytesMessage message = createBatchMessage(text);
+                        message.writeBytes(batch.toByteArray());
+                        server_producer.send(message);
+                    }
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Cannot send state update batch", ex);
+                }
+            }
+        });
+        idle_timer.reset();
+    }
+
+    /** Create bytes message with the basic alarm & application info as properties
+     *  @param text TEXT property
+     *  @return BytesMessage
+     *  @throws Exception on error.
+     */
+    private BytesMessage createBatchMessage(final String text) throws Exception
+    {
+        final BytesMessage message = createBytesMessage();
+        message.setStringProperty(JMSLogMessage.TYPE, JMSAlarmMessage.TYPE_ALARM);
+        message.setStringProperty(JMSAlarmMessage.CONFIG, server.getRootName());
+        message.setStringProperty(JMSLogMessage.TEXT, text);
+        message.setStringProperty(JMSLogMessage.APPLICATION_ID, Application.APPLICATION_NAME);
+        message.setStringProperty(JMSLogMessage.HOST, host);
+        message.setStringProperty(JMSLogMessage.USER, user);
+        return message;
+    }
+
     /** Notify 'global' clients of new alarm state.
      *  @param pv PV that changes alarm state
      *  @param alarm_severity Alarm severity
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.csstudio.alarm.beast.server.AlarmServer.Update;
+
+/** Queue for alarm state updates, sharded by PV name
+ *
+ *  <p>Updates of a PV always go to the same shard,
+ *  so their order is preserved while the shards
+ *  are processed in parallel.
+ *  Each shard uses a lock-free queue:
+ *  PVs that add updates don't block each other nor the
+ *  thread that drains the shard.
+ *  When a shard is drained, repeated updates of a PV
+ *  are coalesced into the most recent one.
+ *
+ *  <p>Keeps statistics about the queue depth,
+ *  coalesced updates and the latency from queuing to sending an update.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ShardedUpdateQueue
+{
+    /** One shard of the queue */
+    private static class Shard
+    {
+        final ConcurrentLinkedQueue<Update> queue = new ConcurrentLinkedQueue<Update>();
+        /** Size of queue, since ConcurrentLinkedQueue.size() needs to traverse the queue */
+        final AtomicInteger size = new AtomicInteger();
+        /** Maximum size of queue */
+        final AtomicInteger max_size = new AtomicInteger();
+    }
+
+    final private Shard[] shards;
+
+    /** Number of received, coalesced and sent updates */
+    final private AtomicLong received = new AtomicLong();
+    final private AtomicLong coalesced = new AtomicLong();
+    final private AtomicLong sent = new AtomicLong();
+
+    /** Latency statistics
+     *  <p>Synchronize on 'this'
+     */
+    private long latency_count = 0;
+    private long latency_total_nanos = 0;
+    private long latency_max_nanos = 0;
+
+    /** Initialize
+     *  @param shard_count Number of shards
+     */
+    public ShardedUpdateQueue(final int shard_count)
+    {
+        if (shard_count < 1)
+            throw new IllegalArgumentException("Need at least one shard, got " + shard_count);
+        shards = new Shard[shard_count];
+        for (int i=0; i<shard_count; ++i)
+            shards[i] = new Shard();
+    }
+
+    /** @return Number of shards */
+    public int getShardCount()
+    {
+        return shards.length;
+    }
+
+    /** @param pv_name PV name
+     *  @return Index of shard that handles the PV
+     */
+    public int getShard(final String pv_name)
+    {
+        return (pv_name.hashCode() & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /** Add an update
+     *  @param update Update to queue in the shard of its PV
+     */
+    public void add(final Update update)
+    {
+        final Shard shard = shards[getShard(update.pv.getName())];
+        shard.queue.add(update);
+        received.incrementAndGet();
+        final int size = shard.size.incrementAndGet();
+        int max = shard.max_size.get();
+        while (size > max  &&  !shard.max_size.compareAndSet(max, size))
+            max = shard.max_size.get();
+    }
+
+    /** Remove the queued updates of a shard
+     *
+     *  <p>Only removes the updates that were queued when called,
+     *  so a shard that keeps receiving updates will still be drained.
+     *
+     *  @param index Index of the shard
+     *  @return Most recent update for each PV in the shard
+     */
+    public Update[] drain(final int index)
+    {
+        final Shard shard = shards[index];
+        final Map<String, Update> latest = new LinkedHashMap<String, Update>();
+        final int count = shard.size.get();
+        int removed = 0;
+        Update update;
+        while (removed < count  &&  (update = shard.queue.poll()) != null)
+        {
+            ++removed;
+            latest.put(update.pv.getName(), update);
+        }
+        shard.size.addAndGet(-removed);
+        coalesced.addAndGet(removed - latest.size());
+        return latest.values().toArray(new Update[latest.size()]);
+    }
+
+    /** Note that updates were sent, recording their latency
+     *  @param updates Updates that were sent
+     */
+    public void sent(final Update[] updates)
+    {
+        final long now = System.nanoTime();
+        synchronized (this)
+        {
+            for (Update update : updates)
+            {
+                final long nanos = now - update.queued_nanos;
+                ++latency_count;
+                latency_total_nanos += nanos;
+                if (nanos > latency_max_nanos)
+                    latency_max_nanos = nanos;
+            }
+        }
+        sent.addAndGet(updates.length);
+    }
+
+    /** @return Number of updates currently queued in all shards */
+    public int size()
+    {
+        int size = 0;
+        for (Shard shard : shards)
+            size += shard.size.get();
+        return size;
+    }
+
+    /** @param index Index of the shard
+     *  @return Number of updates currently queued in the shard
+     */
+    public int size(final int index)
+    {
+        return shards[index].size.get();
+    }
+
+    /** @param index Index of the shard
+     *  @return Maximum number of updates that were queued in the shard
+     */
+    public int getMaxSize(final int index)
+    {
+        return shards[index].max_size.get();
+    }
+
+    /** @return Number of received updates */
+    public long getReceivedCount()
+    {
+        return received.get();
+    }
+
+    /** @return Number of updates that were replaced by a more recent update of the same PV */
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    /** @return Number of sent updates */
+    public long getSentCount()
+    {
+        return sent.get();
+    }
+
+    /** @return Average time from queuing to sending an update in milliseconds */
+    public synchronized double getAverageLatency()
+    {
+        return latency_count > 0 ? latency_total_nanos / 1e6 / latency_count : 0.0;
+    }
+
+    /** @return Maximum time from queuing to sending an update in milliseconds */
+    public synchronized double getMaxLatency()
+    {
+        return latency_max_nanos / 1e6;
+    }
+
+    /** Reset the statistics, i.e. maximum queue sizes and latencies */
+    public void resetStatistics()
+    {
+        for (Shard shard : shards)
+            shard.max_size.set(shard.size.get());
+        received.set(0);
+        coalesced.set(0);
+        sent.set(0);
+        synchronized (this)
+        {
+            latency_count = latency_total_nanos = latency_max_nanos = 0;
+        }
+    }
+
+    /** Dump statistics
+     *  @param out {@link PrintStream}
+     */
+    public void dump(final PrintStream out)
+    {
+        out.format("Updates: %d received, %d coalesced, %d sent, %d queued\n",
+                   getReceivedCount(), getCoalescedCount(), getSentCount(), size());
+        out.format("Latency: avg. %.1f ms, max. %.1f ms\n", getAverageLatency(), getMaxLatency());
+        for (int i=0; i<shards.length; ++i)
+            out.format("Shard %2d: %6d queued, max. %6d\n", i, size(i), getMaxSize(i));
+    }
+}
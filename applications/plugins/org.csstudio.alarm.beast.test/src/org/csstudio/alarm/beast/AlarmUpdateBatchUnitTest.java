@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmUpdateBatch} encoding
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmUpdateBatchUnitTest
+{
+    /** Decoded update */
+    private static class Update
+    {
+        final String name_or_path, current_message, message, value;
+        final SeverityLevel current_severity, severity;
+        final Timestamp timestamp;
+
+        Update(final String name_or_path,
+               final SeverityLevel current_severity, final String current_message,
+               final SeverityLevel severity, final String message,
+               final String value, final Timestamp timestamp)
+        {
+            this.name_or_path = name_or_path;
+            this.current_severity = current_severity;
+            this.current_message = current_message;
+            this.severity = severity;
+            this.message = message;
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static List<Update> decode(final byte[] data) throws IOException
+    {
+        final List<Update> updates = new ArrayList<Update>();
+        final int count = AlarmUpdateBatch.decode(data, new AlarmUpdateBatch.Handler()
+        {
+            @Override
+            public void handleUpdate(final String name_or_path,
+                    final SeverityLevel current_severity, final String current_message,
+                    final SeverityLevel severity, final String message,
+                    final String value, final Timestamp timestamp)
+            {
+                updates.add(new Update(name_or_path, current_severity, current_message,
+                                       severity, message, value, timestamp));
+            }
+        });
+        assertEquals(count, updates.size());
+        return updates;
+    }
+
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final Timestamp time = Timestamp.of(1234567890L, 123456789);
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch();
+        batch.add("pv1", SeverityLevel.MAJOR, "HIHI_ALARM",
+                SeverityLevel.MAJOR, "HIHI_ALARM", "42.0", time);
+        batch.add("/Area/System/pv2", SeverityLevel.OK, "NO_ALARM",
+                SeverityLevel.MINOR_ACK, "LOW_ALARM", null, time);
+        assertEquals(2, batch.size());
+
+        final List<Update> infos = decode(batch.toByteArray());
+        assertEquals(2, infos.size());
+        assertEquals("pv1", infos.get(0).name_or_path);
+        assertEquals(SeverityLevel.MAJOR, infos.get(0).current_severity);
+        assertEquals("HIHI_ALARM", infos.get(0).current_message);
+        assertEquals(SeverityLevel.MAJOR, infos.get(0).severity);
+        assertEquals("HIHI_ALARM", infos.get(0).message);
+        assertEquals("42.0", infos.get(0).value);
+        assertEquals(time, infos.get(0).timestamp);
+
+        assertEquals("/Area/System/pv2", infos.get(1).name_or_path);
+        assertEquals(SeverityLevel.OK, infos.get(1).current_severity);
+        assertEquals("NO_ALARM", infos.get(1).current_message);
+        assertEquals(SeverityLevel.MINOR_ACK, infos.get(1).severity);
+        assertEquals("LOW_ALARM", infos.get(1).message);
+        assertNull(infos.get(1).value);
+    }
+
+    @Test
+    public void testSize() throws Exception
+    {
+        final Timestamp time = Timestamp.now();
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch();
+        final int N = 1000;
+        for (int i=0; i<N; ++i)
+            batch.add("Some:PV:Name" + i, SeverityLevel.MAJOR, "HIHI_ALARM",
+                    SeverityLevel.MAJOR, "HIHI_ALARM", Integer.toString(i), time);
+        final byte[] data = batch.toByteArray();
+        System.out.println(N + " updates: " + data.length + " bytes");
+        // Shared severities and messages only take one byte after their first use
+        assertTrue(data.length < N * 50);
+
+        final List<Update> infos = decode(data);
+        assertEquals(N, infos.size());
+        assertEquals("Some:PV:Name999", infos.get(N-1).name_or_path);
+        assertEquals("HIHI_ALARM", infos.get(N-1).message);
+        assertEquals("999", infos.get(N-1).value);
+    }
+
+    @Test
+    public void testLongText() throws Exception
+    {
+        // Value of a large waveform, beyond the 64k limit of writeUTF,
+        // with characters that need more than one byte in UTF-8
+        final StringBuilder buf = new StringBuilder();
+        while (buf.length() < 100000)
+            buf.append("3.14\u00b0, ");
+        final String value = buf.toString();
+        final Timestamp time = Timestamp.now();
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch();
+        batch.add("waveform", SeverityLevel.MAJOR, "HIHI_ALARM",
+                SeverityLevel.MAJOR, "HIHI_ALARM", value, time);
+        batch.add("pv1", SeverityLevel.OK, "NO_ALARM",
+                SeverityLevel.OK, "NO_ALARM", "1.0", time);
+
+        final List<Update> infos = decode(batch.toByteArray());
+        assertEquals(2, infos.size());
+        assertEquals(value, infos.get(0).value);
+        assertEquals("pv1", infos.get(1).name_or_path);
+        assertEquals("1.0", infos.get(1).value);
+    }
+
+    @Test(expected=IOException.class)
+    public void testTruncated() throws Exception
+    {
+        final AlarmUpdateBatch batch = new AlarmUpdateBatch();
+        batch.add("pv1", SeverityLevel.MAJOR, "HIHI_ALARM",
+                SeverityLevel.MAJOR, "HIHI_ALARM", "42.0", Timestamp.now());
+        final byte[] data = batch.toByteArray();
+        final byte[] truncated = new byte[data.length - 4];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        decode(truncated);
+    }
+}
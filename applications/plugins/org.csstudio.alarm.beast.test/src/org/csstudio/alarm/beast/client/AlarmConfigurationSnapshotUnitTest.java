@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.util.time.Timestamp;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmConfigurationSnapshot}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmConfigurationSnapshotUnitTest
+{
+    final private static String URL = "jdbc:mysql://prod/ALARM";
+
+    private AlarmConfigurationSnapshot createSnapshot()
+    {
+        final List<AlarmConfigurationSnapshot.Item> items = new ArrayList<AlarmConfigurationSnapshot.Item>();
+        final AlarmConfigurationSnapshot.Item root = new AlarmConfigurationSnapshot.Item(1, -1, "Test", null, false);
+        root.guidance = new GDCDataStructure[] { new GDCDataStructure("Root", "Root guidance") };
+        items.add(root);
+        final AlarmConfigurationSnapshot.Item area = new AlarmConfigurationSnapshot.Item(2, 1, "Area",
+                Timestamp.of(1234567890L, 42), false);
+        area.displays = new GDCDataStructure[]
+        {
+            new GDCDataStructure("Overview", "/overview.opi"),
+            new GDCDataStructure("Details", "/details.opi"),
+        };
+        items.add(area);
+        final AlarmConfigurationSnapshot.Item pv = new AlarmConfigurationSnapshot.Item(3, 2, "pv1", null, true);
+        pv.description = "Some PV";
+        pv.enabled = true;
+        pv.latching = true;
+        pv.delay = 5;
+        pv.count = 2;
+        pv.filter = null;
+        pv.commands = new GDCDataStructure[] { new GDCDataStructure("Reset", "reset.sh") };
+        pv.automated_actions = new AADataStructure[] { new AADataStructure("Mail", "mailto:someone", 30) };
+        items.add(pv);
+        return new AlarmConfigurationSnapshot(URL, "Test", 1, 7, items);
+    }
+
+    @Test
+    public void testFile() throws Exception
+    {
+        final File file = File.createTempFile("snapshot", ".dat");
+        file.deleteOnExit();
+        createSnapshot().write(file);
+        final AlarmConfigurationSnapshot snapshot = AlarmConfigurationSnapshot.read(file);
+        assertEquals(3, snapshot.size());
+        assertTrue(snapshot.matches(URL, "Test", 1, 7));
+        // Configuration changed, or root was re-created
+        assertFalse(snapshot.matches(URL, "Test", 1, 8));
+        assertFalse(snapshot.matches(URL, "Test", 2, 7));
+        assertFalse(snapshot.matches(URL, "Other", 1, 7));
+        // Same configuration name and version in another RDB
+        assertFalse(snapshot.matches("jdbc:mysql://test/ALARM", "Test", 1, 7));
+
+        final AlarmTreeRoot root = new AlarmTreeRoot("Test", 1);
+        final Map<String, AlarmTreePV> pvs = new HashMap<String, AlarmTreePV>();
+        snapshot.createItems(root, pvs);
+        assertEquals("Root guidance", root.getGuidance()[0].getDetails());
+        assertEquals(1, root.getChildCount());
+
+        final AlarmTreeItem area = root.getChild("Area");
+        assertEquals(2, area.getID());
+        assertEquals(2, area.getDisplays().length);
+        assertEquals("/details.opi", area.getDisplays()[1].getDetails());
+
+        assertEquals(1, pvs.size());
+        final AlarmTreePV pv = pvs.get("pv1");
+        assertSame(pv, area.getChild("pv1"));
+        assertEquals(3, pv.getID());
+        assertEquals("Some PV", pv.getDescription());
+        assertTrue(pv.isEnabled());
+        assertFalse(pv.isAnnunciating());
+        assertTrue(pv.isLatching());
+        assertEquals(5, pv.getDelay());
+        assertEquals(2, pv.getCount());
+        assertEquals("", pv.getFilter());
+        assertEquals("reset.sh", pv.getCommands()[0].getDetails());
+        assertEquals(30, pv.getAutomatedActions()[0].getDelay());
+    }
+
+    @Test
+    public void testFileName() throws Exception
+    {
+        final File dir = new File("/tmp");
+        assertEquals(AlarmConfigurationSnapshot.getFile(dir, URL, "Test"),
+                     AlarmConfigurationSnapshot.getFile(dir, URL, "Test"));
+        // Snapshots of same configuration name in different RDBs use different files
+        assertFalse(AlarmConfigurationSnapshot.getFile(dir, URL, "Test").equals(
+                    AlarmConfigurationSnapshot.getFile(dir, "jdbc:mysql://test/ALARM", "Test")));
+    }
+
+    @Test(expected=Exception.class)
+    public void testWrongRoot() throws Exception
+    {
+        createSnapshot().createItems(new AlarmTreeRoot("Test", 42), new HashMap<String, AlarmTreePV>());
+    }
+}
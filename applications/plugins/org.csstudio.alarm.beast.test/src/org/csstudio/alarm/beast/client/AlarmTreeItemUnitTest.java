@@ -8,9 +8,11 @@
 package org.csstudio.alarm.beast.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.epics.util.time.Timestamp;
@@ -117,4 +119,87 @@ public class AlarmTreeItemUnitTest
         System.out.println("Total tree element count: " + tree.getElementCount());
         assertEquals(11, tree.getElementCount());
     }
+
+    /** Check severity of item against maximum of its child elements
+     *  @param item Item to check, recursing into child elements
+     */
+    private void checkSeverity(final AlarmTreeItem item)
+    {
+        final int n = item.getChildCount();
+        if (n <= 0)
+            return;
+        SeverityLevel current = SeverityLevel.OK, severity = SeverityLevel.OK;
+        final List<String> messages = new ArrayList<String>();
+        int alarms = 0;
+        for (int i=0; i<n; ++i)
+        {
+            final AlarmTreeItem child = item.getChild(i);
+            checkSeverity(child);
+            if (child.getCurrentSeverity().ordinal() > current.ordinal())
+                current = child.getCurrentSeverity();
+            if (child.getSeverity().ordinal() > severity.ordinal())
+            {
+                severity = child.getSeverity();
+                messages.clear();
+            }
+            if (child.getSeverity() == severity)
+                messages.add(child.getMessage());
+            if (child.getSeverity().ordinal() > 0)
+                ++alarms;
+        }
+        assertEquals(item.getPathName(), current, item.getCurrentSeverity());
+        assertEquals(item.getPathName(), severity, item.getSeverity());
+        if (severity == SeverityLevel.OK)
+            assertEquals(SeverityLevel.OK.getDisplayName(), item.getMessage());
+        else
+            assertTrue(item.getPathName(), messages.contains(item.getMessage()));
+        assertEquals(item.getPathName(), alarms, item.getAlarmChildCount());
+    }
+
+    @Test
+    public void testIncrementalSeverity() throws Exception
+    {
+        // Root, 4 areas with 5 systems with 100 PVs each
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final List<AlarmTreePV> pvs = new ArrayList<AlarmTreePV>();
+        for (int a=0; a<4; ++a)
+        {
+            final AlarmTreeItem area = new AlarmTreeItem(tree, "Area" + a, 0);
+            for (int s=0; s<5; ++s)
+            {
+                final AlarmTreeItem system = new AlarmTreeItem(area, "System" + s, 0);
+                for (int p=0; p<100; ++p)
+                    pvs.add(new AlarmTreePV(system, "PV" + a + "_" + s + "_" + p, 0));
+            }
+        }
+
+        final SeverityLevel[] levels = SeverityLevel.values();
+        final Random random = new Random(42);
+        for (int i=0; i<20000; ++i)
+        {
+            final AlarmTreePV pv = pvs.get(random.nextInt(pvs.size()));
+            final SeverityLevel severity = levels[random.nextInt(levels.length)];
+            final SeverityLevel current = levels[random.nextInt(levels.length)];
+            pv.setAlarmState(current, "Current " + i, severity, severity.name() + " " + i,
+                             "Value", Timestamp.now());
+            if (i % 1000 == 0)
+                checkSeverity(tree);
+        }
+        checkSeverity(tree);
+
+        // Remove PVs, then whole system
+        final AlarmTreeItem system = pvs.get(0).getParent();
+        for (int i=0; i<50; ++i)
+            pvs.get(i).detachFromParent();
+        checkSeverity(tree);
+        system.detachFromParent();
+        checkSeverity(tree);
+
+        // Clear all alarms of the remaining PVs
+        for (AlarmTreePV pv : pvs.subList(100, pvs.size()))
+            pv.setAlarmState(SeverityLevel.OK, "OK", SeverityLevel.OK, "OK", "Value", Timestamp.now());
+        checkSeverity(tree);
+        assertEquals(SeverityLevel.OK, tree.getSeverity());
+        assertEquals(0, tree.getAlarmChildCount());
+    }
 }
@@ -21,7 +21,7 @@ import org.csstudio.alarm.beast.ui.SeverityColorProvider;
 import org.csstudio.alarm.beast.ui.actions.AlarmPerspectiveAction;
 import org.csstudio.alarm.beast.ui.actions.ConfigureItemAction;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
-import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelBatchListener;
 import org.csstudio.apputil.text.RegExHelper;
 import org.csstudio.ui.util.MinSizeTableColumnLayout;
 import org.csstudio.ui.util.dnd.ControlSystemDragSource;
@@ -65,7 +65,7 @@ import org.eclipse.ui.IWorkbenchPartSite;
 /** Alarm table GUI
  *  @author Kay Kasemir
  */
-public class GUI implements AlarmClientModelListener
+public class GUI implements AlarmClientModelBatchListener
 {
     /** Persistence: Tags within dialog settings, actually written to
      *  WORKSPACE/.metadata/.plugins/org.csstudio.alarm.beast.ui.alarmtable/dialog_settings.xml
@@ -591,4 +591,13 @@ public class GUI implements AlarmClientModelListener
             });
         }
     }
+
+    // @see AlarmClientModelBatchListener
+    @Override
+    public void newAlarmStates(final AlarmClientModel model,
+            final AlarmTreePV[] pvs, final boolean parent_changed)
+    {
+        // Table is refreshed as a whole, so one update for the batch
+        newAlarmState(model, null, parent_changed);
+    }
 }
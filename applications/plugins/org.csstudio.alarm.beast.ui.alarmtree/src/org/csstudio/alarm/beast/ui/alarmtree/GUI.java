@@ -27,6 +27,7 @@ import org.csstudio.alarm.beast.ui.actions.MoveItemAction;
 import org.csstudio.alarm.beast.ui.actions.RemoveComponentAction;
 import org.csstudio.alarm.beast.ui.actions.RenameItemAction;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelBatchListener;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
 import org.csstudio.security.SecuritySupport;
 import org.csstudio.ui.util.dnd.ControlSystemDragSource;
@@ -66,8 +67,11 @@ import org.eclipse.ui.IWorkbenchPartSite;
 /** GUI for the alarm tree viewer
  *  @author Kay Kasemir
  */
-public class GUI implements AlarmClientModelListener
+public class GUI implements AlarmClientModelBatchListener
 {
+    /** Batches with more PVs refresh the whole tree */
+    final private static int MAX_BATCH_ITEM_REFRESH = 100;
+
     /** Model for this GUI */
     final private AlarmClientModel model;
 
@@ -472,33 +476,68 @@ public class GUI implements AlarmClientModelListener
                 // but be quite slow, so try to determine what
                 // needs to be refreshed
                 if (pv != null)
-                {	// Update tree item for PV
-                	final boolean pv_hidden = show_only_alarms  &&
-    			                              pv.getSeverity() == SeverityLevel.OK;
-                	if (pv_hidden)
-                		tree_viewer.remove(pv);
-                	else
-                		tree_viewer.refresh(pv, true);
-                	if (parent_changed)
-            		{	// Update parents up to root
-            			AlarmTreeItem item = pv.getParent();
-            			while (! (item instanceof AlarmTreeRoot))
-	                	{
-	            			// Parent could become hidden with its PV
-            				if (pv_hidden && item.getSeverity() == SeverityLevel.OK)
-	            				tree_viewer.remove(item);
-	            			else
-	            				tree_viewer.refresh(item);
-	                		item = item.getParent();
-	                	}
-            		}
-                }
+                    refreshPV(pv, parent_changed);
                 else // Refresh whole tree
                     tree_viewer.refresh();
             }
         });
     }
 
+    /** Alarm state of several PVs changed, refresh the display
+     *  @see AlarmClientModelBatchListener
+     */
+    @Override
+    public void newAlarmStates(final AlarmClientModel model,
+            final AlarmTreePV[] pvs, final boolean parent_changed)
+    {
+        display.asyncExec(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Tree tree = tree_viewer.getTree();
+                if (tree.isDisposed())
+                    return;
+                if (model.isServerAlive())
+                    setErrorMessage(null);
+                // One refresh of the whole tree is faster than many item updates
+                if (pvs.length > MAX_BATCH_ITEM_REFRESH)
+                    tree_viewer.refresh();
+                else
+                    for (AlarmTreePV pv : pvs)
+                        refreshPV(pv, parent_changed);
+            }
+        });
+    }
+
+    /** Refresh tree item of a PV
+     *  <p>Must be called on UI thread
+     *  @param pv PV that changed state
+     *  @param parent_changed true if a parent item was updated as well
+     */
+    private void refreshPV(final AlarmTreePV pv, final boolean parent_changed)
+    {
+        final boolean pv_hidden = show_only_alarms  &&
+                                  pv.getSeverity() == SeverityLevel.OK;
+        if (pv_hidden)
+            tree_viewer.remove(pv);
+        else
+            tree_viewer.refresh(pv, true);
+        if (parent_changed)
+        {   // Update parents up to root
+            AlarmTreeItem item = pv.getParent();
+            while (! (item instanceof AlarmTreeRoot))
+            {
+                // Parent could become hidden with its PV
+                if (pv_hidden && item.getSeverity() == SeverityLevel.OK)
+                    tree_viewer.remove(item);
+                else
+                    tree_viewer.refresh(item);
+                item = item.getParent();
+            }
+        }
+    }
+
     /** Acknowledge currently selected alarms */
     @SuppressWarnings("unchecked")
     public void acknowledgeSelectedAlarms()
@@ -14,9 +14,9 @@ import org.csstudio.alarm.beast.client.AlarmTreeItem;
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.csstudio.alarm.beast.client.AlarmTreeRoot;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
-import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelBatchListener;
 
-public class AreaAlarmModel implements AlarmClientModelListener
+public class AreaAlarmModel implements AlarmClientModelBatchListener
 {
 	final private AreaAlarmModelListener listener;
 	private AlarmClientModel model;
@@ -106,6 +106,15 @@ public class AreaAlarmModel implements AlarmClientModelListener
 		listener.alarmsChanged();
     }
 
+	/** {@inheritDoc} */
+	@Override
+    public void newAlarmStates(final AlarmClientModel model, final AlarmTreePV[] pvs,
+    		final boolean parent_changed)
+    {
+		// One check of the panel items for the whole batch
+		newAlarmState(model, null, parent_changed);
+    }
+
 	/** Must be called when model no longer used to release resources */
 	public void close()
     {
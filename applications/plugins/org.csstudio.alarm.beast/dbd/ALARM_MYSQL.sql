@@ -35,6 +35,18 @@ CREATE TABLE ALARM.ALARM_TREE(
 COMMENT=''
 ;
 
+-- 
+-- TABLE: ALARM.CONFIG_VERSION 
+--
+
+CREATE TABLE ALARM.CONFIG_VERSION(
+    COMPONENT_ID       INT            NOT NULL COMMENT 'Component Identifier: The id of the root component of a configuration.',
+    VERSION            BIGINT         NOT NULL COMMENT 'Version: Incremented on each change of the configuration.',
+    PRIMARY KEY (COMPONENT_ID)
+)ENGINE=INNODB
+COMMENT='Version of each alarm configuration, used to validate cached copies.'
+;
+
 -- 
 -- TABLE: ALARM.COMMAND 
 --
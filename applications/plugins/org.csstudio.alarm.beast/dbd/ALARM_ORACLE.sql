@@ -26,6 +26,21 @@ COMMENT ON COLUMN ALARM.ALARM_TREE.NAME IS 'Name: Component name.'
 COMMENT ON COLUMN ALARM.ALARM_TREE.CONFIG_TIME IS 'Configuration Time: Time of last configuration update. '
 ;
 -- 
+-- TABLE: ALARM.CONFIG_VERSION 
+--
+
+CREATE TABLE ALARM.CONFIG_VERSION(
+    COMPONENT_ID       NUMBER(38, 0)    NOT NULL,
+    VERSION            NUMBER(38, 0)    NOT NULL,
+    CONSTRAINT PK_CONFIG_VERSION PRIMARY KEY (COMPONENT_ID)
+)
+;
+
+COMMENT ON COLUMN ALARM.CONFIG_VERSION.COMPONENT_ID IS 'Component Identifier: The id of the root component of a configuration.'
+;
+COMMENT ON COLUMN ALARM.CONFIG_VERSION.VERSION IS 'Version: Incremented on each change of the configuration.'
+;
+-- 
 -- TABLE: ALARM.COMMAND 
 --
 
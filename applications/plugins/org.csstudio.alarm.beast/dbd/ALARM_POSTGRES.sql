@@ -59,6 +59,20 @@ COMMENT ON COLUMN ALARM_TREE.NAME IS 'Name: Component name.'
 COMMENT ON COLUMN ALARM_TREE.CONFIG_TIME IS 'Configuration Time: Time of last configuration update. '
 ;
 -- 
+-- TABLE: ALARM.CONFIG_VERSION 
+--
+
+CREATE TABLE CONFIG_VERSION(
+    COMPONENT_ID       INT           NOT NULL,
+    VERSION            BIGINT        NOT NULL,
+    PRIMARY KEY (COMPONENT_ID)
+);
+
+COMMENT ON COLUMN CONFIG_VERSION.COMPONENT_ID IS 'Component Identifier: The id of the root component of a configuration.'
+;
+COMMENT ON COLUMN CONFIG_VERSION.VERSION IS 'Version: Incremented on each change of the configuration.'
+;
+-- 
 -- TABLE: ALARM.COMMAND 
 --
 
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.util.time.Timestamp;
+
+/** Batch of alarm updates in compact binary encoding
+ *
+ *  <p>Used as the body of {@link JMSAlarmMessage#TEXT_STATE_BATCH}
+ *  messages to send many PV updates in one JMS message.
+ *  The alarm server adds updates to a batch,
+ *  clients decode the batch with a {@link Handler}.
+ *
+ *  <p>Encoding:
+ *  <pre>
+ *  byte    version
+ *  count   number of updates
+ *  for each update:
+ *     string  name or path
+ *     string  current severity
+ *     string  current message
+ *     string  alarm severity
+ *     string  alarm message
+ *     string  value, may be null
+ *     long    seconds of time stamp
+ *     int     nanoseconds of time stamp
+ *  </pre>
+ *  A 'count' is written in 7-bit groups, lowest first,
+ *  with the high bit set on all but the last byte.
+ *  A 'string' is a count. 0 indicates a <code>null</code> string,
+ *  otherwise it is 1 + the index of the string in the table of strings
+ *  already seen in this batch.
+ *  A string that is not in the table, yet, uses the next index
+ *  and is followed by the count of bytes in its UTF-8 encoding
+ *  and those bytes.
+ *  Since PVs in a batch tend to share their severities and messages,
+ *  most strings only take one byte.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmUpdateBatch
+{
+    /** Version of the encoding */
+    final private static byte VERSION = 2;
+
+    /** Handler for decoded updates */
+    public interface Handler
+    {
+        /** Invoked for each update in a batch
+         *  @param name_or_path PV name or path
+         *  @param current_severity Current severity of the PV
+         *  @param current_message Current message of the PV
+         *  @param severity Alarm severity
+         *  @param message Alarm message
+         *  @param value Value that triggered the alarm, may be <code>null</code>
+         *  @param timestamp Time of the alarm
+         */
+        public void handleUpdate(String name_or_path,
+                SeverityLevel current_severity, String current_message,
+                SeverityLevel severity, String message,
+                String value, Timestamp timestamp);
+    }
+
+    /** Encoded updates, without the header */
+    final private ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+    final private DataOutputStream out = new DataOutputStream(buf);
+
+    /** Index of strings in this batch */
+    final private Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    /** Number of updates in batch */
+    private int count = 0;
+
+    /** Add an update to the batch
+     *  @param name_or_path PV name or path
+     *  @param current_severity Current severity of the PV
+     *  @param current_message Current message of the PV
+     *  @param severity Alarm severity
+     *  @param message Alarm message
+     *  @param value Value that triggered the alarm, may be <code>null</code>
+     *  @param timestamp Time of the alarm
+     *  @throws IOException on error
+     */
+    public void add(final String name_or_path,
+            final SeverityLevel current_severity, final String current_message,
+            final SeverityLevel severity, final String message,
+            final String value, final Timestamp timestamp) throws IOException
+    {
+        writeString(name_or_path);
+        writeString(current_severity.name());
+        writeString(current_message);
+        writeString(severity.name());
+        writeString(message);
+        writeString(value);
+        out.writeLong(timestamp.getSec());
+        out.writeInt(timestamp.getNanoSec());
+        ++count;
+    }
+
+    /** @return Number of updates in batch */
+    public int size()
+    {
+        return count;
+    }
+
+    /** @return Encoded batch
+     *  @throws IOException on error
+     */
+    public byte[] toByteArray() throws IOException
+    {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(buf.size() + 6);
+        final DataOutputStream header = new DataOutputStream(result);
+        header.writeByte(VERSION);
+        writeCount(header, count);
+        out.flush();
+        buf.writeTo(result);
+        return result.toByteArray();
+    }
+
+    /** @param text String to write, may be <code>null</code>
+     *  @throws IOException on error
+     */
+    private void writeString(final String text) throws IOException
+    {
+        if (text == null)
+        {
+            writeCount(out, 0);
+            return;
+        }
+        final Integer index = strings.get(text);
+        if (index != null)
+        {
+            writeCount(out, index + 1);
+            return;
+        }
+        final int new_index = strings.size();
+        strings.put(text, new_index);
+        writeCount(out, new_index + 1);
+        // Unlike writeUTF, not limited to 64k
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeCount(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /** @param out Stream
+     *  @param count Non-negative count to write
+     *  @throws IOException on error
+     */
+    private static void writeCount(final DataOutputStream out, int count) throws IOException
+    {
+        while (count > 0x7F)
+        {
+            out.writeByte((count & 0x7F) | 0x80);
+            count >>>= 7;
+        }
+        out.writeByte(count);
+    }
+
+    /** @param in Stream
+     *  @return Count
+     *  @throws IOException on error
+     */
+    private static int readCount(final DataInputStream in) throws IOException
+    {
+        int count = 0, shift = 0, b;
+        do
+        {
+            if (shift > 28)
+                throw new IOException("Invalid count");
+            b = in.readUnsignedByte();
+            count |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return count;
+    }
+
+    /** @param in Stream
+     *  @param table Strings seen so far
+     *  @return String, may be <code>null</code>
+     *  @throws IOException on error
+     */
+    private static String readString(final DataInputStream in, final List<String> table) throws IOException
+    {
+        final int ref = readCount(in);
+        if (ref == 0)
+            return null;
+        final int index = ref - 1;
+        if (index < table.size())
+            return table.get(index);
+        if (index != table.size())
+            throw new IOException("Invalid string index " + index);
+        final byte[] bytes = new byte[readCount(in)];
+        in.readFully(bytes);
+        final String text = new String(bytes, StandardCharsets.UTF_8);
+        table.add(text);
+        return text;
+    }
+
+    /** Decode batch
+     *  @param data Encoded batch
+     *  @param handler Handler that is invoked for each update
+     *  @return Number of updates
+     *  @throws IOException on error, for example unknown version or truncated data
+     */
+    public static int decode(final byte[] data, final Handler handler) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        final byte version = in.readByte();
+        if (version != VERSION)
+            throw new IOException("Cannot decode alarm update batch version " + version);
+        final int count = readCount(in);
+        final List<String> table = new ArrayList<String>();
+        for (int i=0; i<count; ++i)
+        {
+            final String name = readString(in, table);
+            final SeverityLevel current_severity = SeverityLevel.parse(readString(in, table));
+            final String current_message = readString(in, table);
+            final SeverityLevel severity = SeverityLevel.parse(readString(in, table));
+            final String message = readString(in, table);
+            final String value = readString(in, table);
+            final long secs = in.readLong();
+            final int nanos = in.readInt();
+            handler.handleUpdate(name, current_severity, current_message,
+                    severity, message, value, Timestamp.of(secs, nanos));
+        }
+        return count;
+    }
+}
@@ -54,6 +54,18 @@ public class JMSAlarmMessage
      */
     final public static String TEXT_STATE_MAINTENANCE = "STATE_MAINTENANCE";
 
+    /** Value for TEXT that indicates a batch of state changes.
+     *  Sent as a BytesMessage with TYPE, CONFIG, TEXT, ... as string properties,
+     *  the body holds the binary encoding of the updates.
+     *  @see AlarmUpdateBatch
+     */
+    final public static String TEXT_STATE_BATCH = "STATE_BATCH";
+
+    /** Value for TEXT that indicates a batch of state changes while in maintenance mode
+     *  @see #TEXT_STATE_BATCH
+     */
+    final public static String TEXT_STATE_BATCH_MAINTENANCE = "STATE_BATCH_MAINTENANCE";
+
     /** Value for TEXT that indicates a configuration change.
      *  NAME will contain path to item that was added, removed,
      *  reconfigured, or null for an overall change.
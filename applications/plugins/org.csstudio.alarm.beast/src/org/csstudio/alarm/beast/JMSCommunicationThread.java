@@ -9,6 +9,7 @@ package org.csstudio.alarm.beast;
 
 import java.util.logging.Level;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
 import javax.jms.ExceptionListener;
@@ -158,6 +159,15 @@ abstract public class JMSCommunicationThread
         return session.createMapMessage();
     }
 
+    /** Create empty bytes message on the communicator's session
+     *  @return BytesMessage
+     *  @throws JMSException on error
+     */
+    protected synchronized BytesMessage createBytesMessage() throws JMSException
+    {
+        return session.createBytesMessage();
+    }
+
     /** Perform communication.
      *  To be implemented by derived classes.
      *  Default simply waits a short time for
@@ -28,7 +28,15 @@ public class SQL
 	final public String sel_displays_by_id;
 	final public String sel_commands_by_id;
 	final public String sel_auto_actions_by_id;
-    final public String sel_items_by_parent;
+    final public String sel_tree_items;
+    final public String sel_tree_guidance;
+    final public String sel_tree_displays;
+    final public String sel_tree_commands;
+    final public String sel_tree_auto_actions;
+    final public String sel_tree_pv_states;
+    final public String sel_config_version;
+    final public String update_config_version;
+    final public String insert_config_version;
     final public String sel_item_by_parent_and_name;
     final public String sel_last_item_id;
     final public String insert_item;
@@ -97,30 +105,70 @@ public class SQL
             "select TITLE, DETAIL FROM " + schema_prefix + "COMMAND WHERE COMPONENT_ID=? ORDER BY COMMAND_ORDER";
         sel_auto_actions_by_id =
                 "select TITLE, DETAIL, DELAY FROM " + schema_prefix + "AUTOMATED_ACTION WHERE COMPONENT_ID=? ORDER BY AUTO_ACTION_ORDER";
-        // Selects components or PVs by parent ID. For PVs, all the p.* columns are null.
+        // Bulk selects of one configuration, used to read the alarm tree
+        // with a few queries instead of several queries per item.
+        // The only parameter is the component ID of the configuration's root.
         //
-        // Components are ordered by ID, assuming they are originally
+        // IDs of the root and all components and PVs below it,
+        // using a hierarchical query because the tables hold all configurations.
+        // MySQL supports the recursive query since version 8.0.
+        final String tree_ids = rdb.getDialect() == Dialect.Oracle
+            ? "SELECT COMPONENT_ID FROM " + schema_prefix + "ALARM_TREE" +
+              " START WITH COMPONENT_ID=? CONNECT BY PRIOR COMPONENT_ID = PARENT_CMPNT_ID"
+            : "WITH RECURSIVE tree(COMPONENT_ID) AS" +
+              " (SELECT COMPONENT_ID FROM " + schema_prefix + "ALARM_TREE WHERE COMPONENT_ID=?" +
+              " UNION ALL SELECT a.COMPONENT_ID FROM " + schema_prefix + "ALARM_TREE a" +
+              " JOIN tree ON a.PARENT_CMPNT_ID = tree.COMPONENT_ID)" +
+              " SELECT COMPONENT_ID FROM tree";
+        // Selects components and PVs. For components, all the p.* columns are null.
+        // Items are ordered by ID, assuming they are originally
         // added in some divine order.
         //
-        // Except for the additional 't.NAME', the columns must match
-        // sel_item_by_parent_and_name!
-        sel_items_by_parent =
-            //        1               2
-            "SELECT t.COMPONENT_ID, t.CONFIG_TIME," +
-            //  3               4        5              6
+        // Columns 5 to 18 match columns 3 to 16 of sel_item_by_parent_and_name.
+        sel_tree_items =
+            //        1               2                  3       4
+            "SELECT t.COMPONENT_ID, t.PARENT_CMPNT_ID, t.NAME, t.CONFIG_TIME," +
+            //  5               6        7              8
             " p.COMPONENT_ID, p.DESCR, p.ENABLED_IND, p.ANNUNCIATE_IND," +
-            //  7            8        9              10        11
+            //  9            10       11             12        13
             " p.LATCH_IND, p.DELAY, p.DELAY_COUNT, p.FILTER, p.CUR_SEVERITY_ID," +
-            //  12               13             14           15          16
-            " p.CUR_STATUS_ID, p.SEVERITY_ID, p.STATUS_ID, p.PV_VALUE, p.ALARM_TIME," +
-            //  17
-            " t.NAME " +
+            //  14               15             16           17          18
+            " p.CUR_STATUS_ID, p.SEVERITY_ID, p.STATUS_ID, p.PV_VALUE, p.ALARM_TIME" +
             " FROM " + schema_prefix + "ALARM_TREE t" +
             " LEFT JOIN " + schema_prefix + "PV p ON p.COMPONENT_ID = t.COMPONENT_ID" +
-            " WHERE t.PARENT_CMPNT_ID=? ORDER BY t.COMPONENT_ID";
+            " WHERE t.COMPONENT_ID IN (" + tree_ids + ")" +
+            " ORDER BY t.COMPONENT_ID";
+        sel_tree_guidance =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "GUIDANCE" +
+            " WHERE COMPONENT_ID IN (" + tree_ids + ") ORDER BY COMPONENT_ID, GUIDANCE_ORDER";
+        sel_tree_displays =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "DISPLAY" +
+            " WHERE COMPONENT_ID IN (" + tree_ids + ") ORDER BY COMPONENT_ID, DISPLAY_ORDER";
+        sel_tree_commands =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "COMMAND" +
+            " WHERE COMPONENT_ID IN (" + tree_ids + ") ORDER BY COMPONENT_ID, COMMAND_ORDER";
+        sel_tree_auto_actions =
+            "SELECT COMPONENT_ID, TITLE, DETAIL, DELAY FROM " + schema_prefix + "AUTOMATED_ACTION" +
+            " WHERE COMPONENT_ID IN (" + tree_ids + ") ORDER BY COMPONENT_ID, AUTO_ACTION_ORDER";
+        // Enablement is part of the PV configuration, but also updated
+        // by the alarm server, so it's read with the alarm state
+        sel_tree_pv_states =
+            //        1             2            3                4
+            "SELECT COMPONENT_ID, ENABLED_IND, CUR_SEVERITY_ID, CUR_STATUS_ID," +
+            //  5            6          7         8
+            " SEVERITY_ID, STATUS_ID, PV_VALUE, ALARM_TIME" +
+            " FROM " + schema_prefix + "PV" +
+            " WHERE COMPONENT_ID IN (" + tree_ids + ")";
+
+        // Version of a configuration, incremented on each change
+        sel_config_version =
+            "SELECT VERSION FROM " + schema_prefix + "CONFIG_VERSION WHERE COMPONENT_ID=?";
+        update_config_version =
+            "UPDATE " + schema_prefix + "CONFIG_VERSION SET VERSION=VERSION+1 WHERE COMPONENT_ID=?";
+        insert_config_version =
+            "INSERT INTO " + schema_prefix + "CONFIG_VERSION(COMPONENT_ID, VERSION) VALUES (?,1)";
 
-        // Selects component or PV by parent ID and name. For PV, all the p.* columns are null.
-        // Columns must match sel_items_by_parent except for the t.NAME that's not in here!
+        // Selects component or PV by parent ID and name. For components, all the p.* columns are null.
         sel_item_by_parent_and_name =
             //        1               2
             "SELECT t.COMPONENT_ID, t.CONFIG_TIME," +
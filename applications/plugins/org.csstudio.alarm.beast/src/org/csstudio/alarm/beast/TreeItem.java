@@ -174,9 +174,20 @@ public class TreeItem
             parent = null;
         }
         p.removeChild(this);
+        p.childRemoved(this);
         return true;
     }
 
+    /** Called after a child element was detached from this item.
+     *  Derived classes can override to update information
+     *  that they keep about their child elements.
+     *  @param child Child element that was removed
+     */
+    protected void childRemoved(final TreeItem child)
+    {
+        // NOP
+    }
+
     /** Remove child
      *  @param child
      *  @throws Error if child not known
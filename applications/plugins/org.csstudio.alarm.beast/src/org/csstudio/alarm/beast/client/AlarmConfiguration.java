@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.client;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -18,7 +19,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Activator;
@@ -26,7 +27,6 @@ import org.csstudio.alarm.beast.AlarmTreePath;
 import org.csstudio.alarm.beast.Messages;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.TimestampHelper;
-import org.csstudio.apputil.time.DelayCheck;
 import org.csstudio.platform.utility.rdb.RDBUtil;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -73,7 +73,16 @@ public class AlarmConfiguration
     private HashMap<String, AlarmTreePV> pvs = new HashMap<String, AlarmTreePV>();
 
     /** Re-used statements */
-    private PreparedStatement sel_items_by_parent_statement, sel_pv_by_id_statement;
+    private PreparedStatement sel_pv_by_id_statement;
+
+    /** RDB URL and schema, identifies the RDB of configuration snapshots */
+    final private String database;
+
+    /** Does the RDB have the CONFIG_VERSION table? */
+    final private boolean have_config_version;
+
+    /** Directory for configuration snapshots, <code>null</code> to always read the RDB */
+    private File snapshot_directory = null;
 
 
     /** Initialize
@@ -89,6 +98,7 @@ public class AlarmConfiguration
     {
         // Allow auto-reconnect?
         this.auto_reconnect = auto_reconnect;
+        database = (schema == null  ||  schema.isEmpty()) ? url : url + " " + schema;
         try
         {
         	rdb = RDBUtil.connect(url, user, password, auto_reconnect);
@@ -106,6 +116,8 @@ public class AlarmConfiguration
         severity_mapping = new SeverityReader(rdb, sql);
         message_mapping = new MessageReader(rdb, sql);
         config_reader = new AlarmConfigurationReader(rdb, sql);
+        // Check while not in a transaction, since the query fails without the table
+        have_config_version = config_reader.haveConfigVersion();
 
         // Re-enable auto-connect if that was requested
         if (auto_reconnect)
@@ -126,6 +138,22 @@ public class AlarmConfiguration
     }
 
 
+    /** Enable snapshots of the configuration
+     *
+     *  <p>When reading the configuration, a snapshot file that matches
+     *  the current configuration version in the RDB is used instead
+     *  of reading the configuration from the RDB.
+     *  Otherwise the configuration is read from the RDB and saved
+     *  as a new snapshot.
+     *  Alarm states are always read from the RDB.
+     *
+     *  @param directory Directory for snapshot files, <code>null</code> to disable snapshots
+     */
+    public void setSnapshotDirectory(final File directory)
+    {
+        snapshot_directory = directory;
+    }
+
     /** List all configuration 'root' element names
      *  @return Array of 'root' elements
      *  @throws Exception on error
@@ -162,10 +190,9 @@ public class AlarmConfiguration
         if (auto_reconnect)
             rdb.setAutoReconnect(false);
         final AlarmTreeRoot new_config;
-        final DelayCheck monitor_update_delay = new DelayCheck(1, TimeUnit.SECONDS);
         try
         {
-            new_config = readAlarmTree(root_name, create, monitor, monitor_update_delay);
+            new_config = readAlarmTree(root_name, create, monitor);
             closeStatements();
         }
         finally
@@ -221,14 +248,13 @@ public class AlarmConfiguration
      *  @param root_name Name of root component
      *  @param create Create empty alarm tree?
      *  @param monitor Progress monitor
-     *  @param monitor_update_delay Delay for updates to monitor
      *  @return AlarmTreeRoot
      *  @throws Exception on error
      */
     @SuppressWarnings("nls")
     private AlarmTreeRoot readAlarmTree(final String root_name,
             final boolean create,
-            final IProgressMonitor monitor, final DelayCheck monitor_update_delay) throws Exception
+            final IProgressMonitor monitor) throws Exception
     {
         final Connection connection = rdb.getConnection();
         final PreparedStatement statement =
@@ -246,8 +272,17 @@ public class AlarmConfiguration
             }
             final int id = result.getInt(1);
             final AlarmTreeRoot root = createAlarmTreeRoot(id, root_name);
-            config_reader.readGuidanceDisplaysCommands(root);
-            readChildren(root, monitor, monitor_update_delay);
+            final AlarmConfigurationSnapshot snapshot = readSnapshot(root_name, id);
+            if (monitor.isCanceled())
+                return root;
+            snapshot.createItems(root, pvs);
+            monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, pvs.size()));
+
+            // Alarm state is not in the snapshot, always read it
+            final Map<Integer, AlarmTreePV> pvs_by_id = new HashMap<Integer, AlarmTreePV>(pvs.size());
+            for (AlarmTreePV pv : pvs.values())
+                pvs_by_id.put(pv.getID(), pv);
+            config_reader.readPVStates(id, pvs_by_id, severity_mapping, message_mapping);
             return root;
         }
         finally
@@ -257,60 +292,70 @@ public class AlarmConfiguration
         }
     }
 
-    /** Read configuration for child elements
-     *  @param parent Parent node. Children get added to it.
-     *  @param monitor Progress monitor
-     *  @param monitor_update_delay Delay for updates to monitor
+    /** Get configuration snapshot, either from file or RDB
+     *  @param root_name Name of root component
+     *  @param root_id RDB ID of root component
+     *  @return {@link AlarmConfigurationSnapshot}
      *  @throws Exception on error
      */
-    private void readChildren(final AlarmTreeItem parent,
-            final IProgressMonitor monitor, final DelayCheck monitor_update_delay) throws Exception
+    @SuppressWarnings("nls")
+    private AlarmConfigurationSnapshot readSnapshot(final String root_name, final int root_id) throws Exception
     {
-        if (sel_items_by_parent_statement == null)
-            sel_items_by_parent_statement =
-                rdb.getConnection().prepareStatement(sql.sel_items_by_parent);
-        sel_items_by_parent_statement.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent_statement.executeQuery();
-
-        final List<AlarmTreeItem> recurse_items = new ArrayList<AlarmTreeItem>();
-        while (result.next()  &&  !monitor.isCanceled())
+        // Read version before the configuration, see AlarmConfigurationReader.readSnapshot
+        final long version = (snapshot_directory == null  ||  !have_config_version)
+                           ? -1 : config_reader.readConfigVersion(root_id);
+        final File file = version < 0 ? null : AlarmConfigurationSnapshot.getFile(snapshot_directory, database, root_name);
+        if (file != null  &&  file.canRead())
         {
-            final int id = result.getInt(1);
-            final String name = result.getString(17);
-            final Timestamp config_time = result.getTimestamp(2);
-            final AlarmTreeItem item;
-            // Check PV's ID. If null, this is a component, not PV
-            result.getInt(3);
-            if (result.wasNull())
-            {   // Component (area, system), not a PV
-                item = new AlarmTreeItem(parent, name, id);
-                recurse_items.add(item);
-            }
-            else
+            try
             {
-                final AlarmTreePV pv = new AlarmTreePV(parent, name, id);
-                pvs.put(name, pv);
-                // Periodically update progress monitor
-                if (monitor_update_delay.expired())
+                final AlarmConfigurationSnapshot snapshot = AlarmConfigurationSnapshot.read(file);
+                if (snapshot.matches(database, root_name, root_id, version))
                 {
-                    final int count = pvs.size();
-                    monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, count));
+                    Activator.getLogger().log(Level.FINE, "Using alarm configuration snapshot {0}", file);
+                    return snapshot;
                 }
-                config_reader.configurePVfromResult(pv, result, severity_mapping, message_mapping);
-                item = pv;
             }
-            if (config_time != null)
-                item.setConfigTime(TimestampHelper.toEPICSTime(config_time));
-            config_reader.readGuidanceDisplaysCommands(item);
-        }
-        result.close();
-
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (AlarmTreeItem item : recurse_items)
-            readChildren(item, monitor, monitor_update_delay);
-        recurse_items.clear();
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot read alarm configuration snapshot " + file, ex);
+            }
+        }
+        final AlarmConfigurationSnapshot snapshot = config_reader.readSnapshot(database, root_name, root_id, version);
+        if (file != null)
+        {
+            try
+            {
+                snapshot_directory.mkdirs();
+                snapshot.write(file);
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot write alarm configuration snapshot " + file, ex);
+            }
+        }
+        return snapshot;
+    }
+
+    /** Note a change of the configuration in the RDB,
+     *  which invalidates snapshots of the configuration.
+     *
+     *  <p>To be called within the transaction that changes the configuration,
+     *  so the version is committed or rolled back together with the change.
+     *
+     *  @throws SQLException on error, to be handled by rolling back the change
+     */
+    private void updateConfigVersion() throws SQLException
+    {
+        if (! have_config_version)
+            return;
+        final AlarmTreeRoot root;
+        synchronized (this)
+        {
+            root = config_tree;
+        }
+        if (root != null)
+            config_reader.updateConfigVersion(root.getID());
     }
 
     /** Add a component to the model and RDB
@@ -380,6 +425,9 @@ public class AlarmConfiguration
                 statement.setInt(2, parent.getID());
             statement.setString(3, name);
             statement.executeUpdate();
+            // New root has no snapshot to invalidate
+            if (parent != null)
+                updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -461,6 +509,7 @@ public class AlarmConfiguration
             insert_pv_statement.setBoolean(4, latch);
             insert_pv_statement.executeUpdate();
 
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -512,6 +561,7 @@ public class AlarmConfiguration
             updateGDC(item.getID(), displays, delete_displays_by_id, insert_display);
             updateGDC(item.getID(), commands, delete_commands_by_id, insert_command);
             updateAA(item.getID(), automated_actions, delete_auto_actions_by_id, insert_auto_actions);
+            updateConfigVersion();
             connection.commit();
         }
         catch (Exception ex)
@@ -541,6 +591,7 @@ public class AlarmConfiguration
             update_item_config_time.setTimestamp(1, config_time);
             update_item_config_time.setInt(2, item.getID());
             update_item_config_time.executeUpdate();
+            updateConfigVersion();
             connection.commit();
             item.setConfigTime(TimestampHelper.toEPICSTime(config_time));
         }
@@ -591,6 +642,7 @@ public class AlarmConfiguration
             update_pv_config_statement.setString(7, filter);
             update_pv_config_statement.setInt(8, pv.getID());
             update_pv_config_statement.executeUpdate();
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -628,6 +680,7 @@ public class AlarmConfiguration
             statement.setString(1, new_name);
             statement.setInt(2, item.getID());
             statement.executeUpdate();
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -668,6 +721,7 @@ public class AlarmConfiguration
             statement.setInt(1, parent.getID());
             statement.setInt(2, item.getID());
             statement.executeUpdate();
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -732,6 +786,7 @@ public class AlarmConfiguration
             deleteAAWithoutCommit(item.getID());
             statement.setInt(1, item.getID());
             statement.executeUpdate();
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -773,6 +828,7 @@ public class AlarmConfiguration
             delCMPNTStatement.setInt(1, pv.getID());
             delCMPNTStatement.executeUpdate();
 
+            updateConfigVersion();
             rdb.getConnection().commit();
         }
         catch (SQLException ex)
@@ -936,11 +992,6 @@ public class AlarmConfiguration
     {
         try
         {
-            if (sel_items_by_parent_statement != null)
-            {
-                sel_items_by_parent_statement.close();
-                sel_items_by_parent_statement = null;
-            }
             if (sel_pv_by_id_statement != null)
             {
                 sel_pv_by_id_statement.close();
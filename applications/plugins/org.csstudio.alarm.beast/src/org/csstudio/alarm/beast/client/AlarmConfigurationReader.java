@@ -12,7 +12,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Activator;
@@ -120,6 +122,293 @@ public class AlarmConfigurationReader
         }
     }
 
+    /** Read version of a configuration
+     *
+     *  <p>The version is incremented whenever the configuration changes.
+     *  RDBs that predate the CONFIG_VERSION table do not
+     *  provide a version.
+     *
+     *  @param root_id RDB ID of the configuration's root
+     *  @return Configuration version or -1 if not available
+     */
+    public long readConfigVersion(final int root_id)
+    {
+        try
+        {
+            final PreparedStatement statement =
+                rdb.getConnection().prepareStatement(sql.sel_config_version);
+            try
+            {
+                statement.setInt(1, root_id);
+                final ResultSet result = statement.executeQuery();
+                // No entry: Configuration has not been changed since the table was added
+                if (!result.next())
+                    return 0;
+                return result.getLong(1);
+            }
+            finally
+            {
+                statement.close();
+            }
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.FINE, "Cannot read configuration version", ex);
+            return -1;
+        }
+    }
+
+    /** Check if the RDB provides configuration versions
+     *
+     *  <p>Must be called outside of a transaction:
+     *  For RDBs that predate the CONFIG_VERSION table the query fails,
+     *  which would abort an ongoing transaction on some RDBs.
+     *
+     *  @return <code>true</code> if the CONFIG_VERSION table is available
+     */
+    public boolean haveConfigVersion()
+    {
+        // No configuration has ID -1, but the query needs the table
+        return readConfigVersion(-1) >= 0;
+    }
+
+    /** Increment version of a configuration
+     *
+     *  <p>To be called within the transaction that changes the configuration,
+     *  before it is committed, and only if {@link #haveConfigVersion()}.
+     *
+     *  @param root_id RDB ID of the configuration's root
+     *  @throws SQLException on error
+     */
+    public void updateConfigVersion(final int root_id) throws SQLException
+    {
+        final PreparedStatement update =
+            rdb.getConnection().prepareStatement(sql.update_config_version);
+        try
+        {
+            update.setInt(1, root_id);
+            if (update.executeUpdate() > 0)
+                return;
+        }
+        finally
+        {
+            update.close();
+        }
+        // First change of this configuration
+        final PreparedStatement insert =
+            rdb.getConnection().prepareStatement(sql.insert_config_version);
+        try
+        {
+            insert.setInt(1, root_id);
+            insert.executeUpdate();
+        }
+        finally
+        {
+            insert.close();
+        }
+    }
+
+    /** Read the configuration of all items in an alarm tree
+     *
+     *  <p>Reads each configuration table with one query
+     *  and assembles the tree in memory.
+     *  Alarm state is not included, see {@link #readPVStates(int, Map, SeverityReader, MessageReader)}.
+     *
+     *  @param database RDB URL and schema to record in the snapshot
+     *  @param root_name Name of the configuration
+     *  @param root_id RDB ID of the configuration's root
+     *  @param version Configuration version to record in the snapshot.
+     *                 Must be read <u>before</u> the configuration,
+     *                 so a concurrent change results in an outdated version
+     *                 instead of an outdated configuration.
+     *  @return {@link AlarmConfigurationSnapshot}
+     *  @throws Exception on error
+     */
+    public AlarmConfigurationSnapshot readSnapshot(final String database,
+            final String root_name, final int root_id, final long version) throws Exception
+    {
+        // Collect the items of the requested root, then order them by parent
+        final Map<Integer, AlarmConfigurationSnapshot.Item> items =
+            new HashMap<Integer, AlarmConfigurationSnapshot.Item>();
+        final Map<Integer, List<AlarmConfigurationSnapshot.Item>> children =
+            new HashMap<Integer, List<AlarmConfigurationSnapshot.Item>>();
+        PreparedStatement statement = prepareTreeQuery(sql.sel_tree_items, root_id);
+        try
+        {
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                int parent = result.getInt(2);
+                if (result.wasNull())
+                    parent = -1;
+                final String name = result.getString(3);
+                final Timestamp config_time = result.getTimestamp(4);
+                // Check PV's ID. If null, this is a component, not PV
+                result.getInt(5);
+                final boolean is_pv = !result.wasNull();
+                final AlarmConfigurationSnapshot.Item item = new AlarmConfigurationSnapshot.Item(id, parent, name,
+                        config_time == null ? null : TimestampHelper.toEPICSTime(config_time), is_pv);
+                if (is_pv)
+                {
+                    item.description = result.getString(6);
+                    item.enabled = result.getBoolean(7);
+                    item.annunciating = result.getBoolean(8);
+                    item.latching = result.getBoolean(9);
+                    item.delay = result.getInt(10);
+                    item.count = result.getInt(11);
+                    item.filter = result.getString(12);
+                }
+                items.put(id, item);
+                List<AlarmConfigurationSnapshot.Item> siblings = children.get(parent);
+                if (siblings == null)
+                {
+                    siblings = new ArrayList<AlarmConfigurationSnapshot.Item>();
+                    children.put(parent, siblings);
+                }
+                siblings.add(item);
+            }
+            result.close();
+        }
+        finally
+        {
+            statement.close();
+        }
+
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_tree_guidance, root_id, items).entrySet())
+            items.get(entry.getKey()).guidance = toArray(entry.getValue());
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_tree_displays, root_id, items).entrySet())
+            items.get(entry.getKey()).displays = toArray(entry.getValue());
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_tree_commands, root_id, items).entrySet())
+            items.get(entry.getKey()).commands = toArray(entry.getValue());
+
+        statement = prepareTreeQuery(sql.sel_tree_auto_actions, root_id);
+        try
+        {
+            final ResultSet result = statement.executeQuery();
+            final Map<Integer, List<AADataStructure>> actions = new HashMap<Integer, List<AADataStructure>>();
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (! items.containsKey(id))
+                    continue;
+                List<AADataStructure> list = actions.get(id);
+                if (list == null)
+                {
+                    list = new ArrayList<AADataStructure>();
+                    actions.put(id, list);
+                }
+                list.add(new AADataStructure(result.getString(2), result.getString(3), result.getInt(4)));
+            }
+            result.close();
+            for (Map.Entry<Integer, List<AADataStructure>> entry : actions.entrySet())
+                items.get(entry.getKey()).automated_actions =
+                    entry.getValue().toArray(new AADataStructure[entry.getValue().size()]);
+        }
+        finally
+        {
+            statement.close();
+        }
+
+        // Order the items of this configuration, parents before children
+        final AlarmConfigurationSnapshot.Item root = items.get(root_id);
+        if (root == null)
+            throw new Exception("Unknown alarm tree root " + root_name);
+        final List<AlarmConfigurationSnapshot.Item> tree = new ArrayList<AlarmConfigurationSnapshot.Item>();
+        tree.add(root);
+        for (int i=0; i<tree.size(); ++i)
+        {
+            final List<AlarmConfigurationSnapshot.Item> item_children = children.get(tree.get(i).id);
+            if (item_children != null)
+                tree.addAll(item_children);
+        }
+        return new AlarmConfigurationSnapshot(database, root_name, root_id, version, tree);
+    }
+
+    /** @param query Query for the items of a configuration
+     *  @param root_id RDB ID of the configuration's root
+     *  @return Statement for the query
+     *  @throws SQLException on error
+     */
+    private PreparedStatement prepareTreeQuery(final String query, final int root_id) throws SQLException
+    {
+        final PreparedStatement statement = rdb.getConnection().prepareStatement(query);
+        statement.setInt(1, root_id);
+        return statement;
+    }
+
+    /** @param query Guidance, display or command query for the items of a configuration
+     *  @param root_id RDB ID of the configuration's root
+     *  @param items Known items
+     *  @return Entries of known items by item ID
+     *  @throws Exception on error
+     */
+    private Map<Integer, List<GDCDataStructure>> readAllGDC(final String query, final int root_id,
+            final Map<Integer, AlarmConfigurationSnapshot.Item> items) throws Exception
+    {
+        final Map<Integer, List<GDCDataStructure>> gdc = new HashMap<Integer, List<GDCDataStructure>>();
+        final PreparedStatement statement = prepareTreeQuery(query, root_id);
+        try
+        {
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (! items.containsKey(id))
+                    continue;
+                List<GDCDataStructure> list = gdc.get(id);
+                if (list == null)
+                {
+                    list = new ArrayList<GDCDataStructure>();
+                    gdc.put(id, list);
+                }
+                list.add(new GDCDataStructure(result.getString(2), result.getString(3)));
+            }
+            result.close();
+        }
+        finally
+        {
+            statement.close();
+        }
+        return gdc;
+    }
+
+    private static GDCDataStructure[] toArray(final List<GDCDataStructure> list)
+    {
+        return list.toArray(new GDCDataStructure[list.size()]);
+    }
+
+    /** Read enablement and alarm state of all PVs in a configuration
+     *  @param root_id RDB ID of the configuration's root
+     *  @param pvs Map of PV IDs to PVs that will be updated
+     *  @param severity_mapping
+     *  @param message_mapping
+     *  @throws Exception on error
+     */
+    public void readPVStates(final int root_id, final Map<Integer, AlarmTreePV> pvs,
+            final SeverityReader severity_mapping,
+            final MessageReader message_mapping) throws Exception
+    {
+        final PreparedStatement statement = prepareTreeQuery(sql.sel_tree_pv_states, root_id);
+        try
+        {
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+            {
+                final AlarmTreePV pv = pvs.get(result.getInt(1));
+                if (pv == null)
+                    continue;
+                pv.setEnabled(result.getBoolean(2));
+                setStateFromResult(pv, result, 3, severity_mapping, message_mapping);
+            }
+            result.close();
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
     /**Get guidance from RDB by id
      * @param id The id of the item in alarmtree
      * @return the guidance messages, never <code>null</code>
@@ -347,31 +636,48 @@ public class AlarmConfigurationReader
         pv.setCount(result.getInt(9));
         pv.setFilter(result.getString(10));
 
+        setStateFromResult(pv, result, 11, severity_mapping, message_mapping);
+    }
+
+    /** Set alarm state of a PV from RDB columns
+     *  @param pv PV to update
+     *  @param result ResultSet with alarm state
+     *  @param column Column of current severity ID, followed by current status ID,
+     *                severity ID, status ID, value and alarm time
+     *  @param severity_mapping
+     *  @param message_mapping
+     *  @throws Exception on error
+     */
+    private void setStateFromResult(final AlarmTreePV pv,
+            final ResultSet result, final int column,
+            final SeverityReader severity_mapping,
+            final MessageReader message_mapping) throws Exception
+    {
         // If there is severity/status info, use it.
         // Otherwise leave PV "OK" as it was initialized.
-        int severity_id = result.getInt(11);
+        int severity_id = result.getInt(column);
         final SeverityLevel current_severity = result.wasNull()
             ? SeverityLevel.OK
             : severity_mapping.getSeverity(severity_id);
 
         // Current message was added later, so assume "" if not set
-        int status_id = result.getInt(12);
+        int status_id = result.getInt(column + 1);
         final String current_message = result.wasNull()
             ? ""
             : message_mapping.getMessage(status_id);
 
-        severity_id = result.getInt(13);
+        severity_id = result.getInt(column + 2);
         final SeverityLevel severity = result.wasNull()
             ? SeverityLevel.OK
             : severity_mapping.getSeverity(severity_id);
 
-        status_id = result.getInt(14);
+        status_id = result.getInt(column + 3);
         final String message =  result.wasNull()
             ? ""
             : message_mapping.getMessage(status_id);
 
-        final String value = result.getString(15); // OK to have null value
-        final Timestamp sql_time = result.getTimestamp(16);
+        final String value = result.getString(column + 4); // OK to have null value
+        final Timestamp sql_time = result.getTimestamp(column + 5);
         if (!result.wasNull())
         {
             final org.epics.util.time.Timestamp timestamp = TimestampHelper.toEPICSTime(sql_time);
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.epics.util.time.Timestamp;
+
+/** Snapshot of an alarm configuration
+ *
+ *  <p>Holds the configuration of all items in an alarm tree,
+ *  but not their alarm state.
+ *  Can be read from the RDB in bulk, see {@link AlarmConfigurationReader},
+ *  and saved to a local file.
+ *  The configuration version, which the RDB increments
+ *  on each change of the configuration, is used to check if
+ *  a saved snapshot is still valid.
+ *  Since different RDBs may hold configurations of the same name,
+ *  a snapshot also identifies the RDB from which it was read.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmConfigurationSnapshot
+{
+    /** Start of a snapshot file, "BEAC" */
+    final private static int MAGIC = 0x42454143;
+
+    /** Version of the file format */
+    final private static int FORMAT_VERSION = 2;
+
+    final private static GDCDataStructure[] NO_GDC = new GDCDataStructure[0];
+
+    final private static AADataStructure[] NO_AA = new AADataStructure[0];
+
+    /** Configuration of one alarm tree item */
+    static class Item
+    {
+        final int id;
+        /** Parent ID, -1 for the root */
+        final int parent;
+        final String name;
+        /** Time of last configuration change, may be <code>null</code> */
+        final Timestamp config_time;
+        final boolean is_pv;
+        String description;
+        boolean enabled, annunciating, latching;
+        int delay, count;
+        String filter;
+        GDCDataStructure[] guidance = NO_GDC, displays = NO_GDC, commands = NO_GDC;
+        AADataStructure[] automated_actions = NO_AA;
+
+        Item(final int id, final int parent, final String name,
+             final Timestamp config_time, final boolean is_pv)
+        {
+            this.id = id;
+            this.parent = parent;
+            this.name = name;
+            this.config_time = config_time;
+            this.is_pv = is_pv;
+        }
+    }
+
+    /** RDB URL and schema */
+    final private String database;
+
+    final private String root_name;
+
+    final private int root_id;
+
+    final private long version;
+
+    /** Items, starting with the root, parents before their children */
+    final private List<Item> items;
+
+    /** Initialize
+     *  @param database RDB URL and schema
+     *  @param root_name Name of the configuration
+     *  @param root_id RDB ID of the root
+     *  @param version Configuration version
+     *  @param items Items, starting with the root, parents before their children
+     */
+    AlarmConfigurationSnapshot(final String database, final String root_name, final int root_id,
+            final long version, final List<Item> items)
+    {
+        this.database = database;
+        this.root_name = root_name;
+        this.root_id = root_id;
+        this.version = version;
+        this.items = items;
+    }
+
+    /** @param directory Directory for snapshot files
+     *  @param database RDB URL and schema
+     *  @param root_name Name of the configuration
+     *  @return Snapshot file for the configuration
+     */
+    public static File getFile(final File directory, final String database, final String root_name)
+    {
+        return new File(directory, "alarm_config_" + root_name.replaceAll("[^A-Za-z0-9_.-]", "_") +
+                                   String.format("_%08x", database.hashCode()) + ".dat");
+    }
+
+    /** @param database RDB URL and schema
+     *  @param root_name Name of the configuration
+     *  @param root_id RDB ID of the root
+     *  @param version Current configuration version in the RDB
+     *  @return <code>true</code> if this snapshot holds that configuration
+     */
+    public boolean matches(final String database, final String root_name, final int root_id, final long version)
+    {
+        return this.database.equals(database)  &&
+               this.root_name.equals(root_name)  &&
+               this.root_id == root_id  &&
+               this.version == version;
+    }
+
+    /** @return Number of items, including the root */
+    public int size()
+    {
+        return items.size();
+    }
+
+    /** Create alarm tree items
+     *
+     *  <p>Items are configured, but remain in their initial alarm state.
+     *
+     *  @param root Root of the alarm tree, must have the ID of this snapshot
+     *  @param pvs Map of PV names to PVs, will be updated with the created PVs
+     *  @throws Exception on error
+     */
+    public void createItems(final AlarmTreeRoot root, final Map<String, AlarmTreePV> pvs) throws Exception
+    {
+        if (root.getID() != root_id)
+            throw new Exception("Snapshot of " + root_name + " (" + root_id +
+                                ") does not match " + root.getName() + " (" + root.getID() + ")");
+        final Map<Integer, AlarmTreeItem> created = new HashMap<Integer, AlarmTreeItem>(items.size());
+        created.put(root_id, root);
+        for (Item info : items)
+        {
+            final AlarmTreeItem item;
+            if (info.id == root_id)
+                item = root;
+            else
+            {
+                final AlarmTreeItem parent = created.get(info.parent);
+                if (parent == null)
+                    throw new Exception("Missing parent " + info.parent + " of " + info.name);
+                if (info.is_pv)
+                {
+                    final AlarmTreePV pv = new AlarmTreePV(parent, info.name, info.id);
+                    pv.setDescription(info.description);
+                    pv.setEnabled(info.enabled);
+                    pv.setAnnunciating(info.annunciating);
+                    pv.setLatching(info.latching);
+                    pv.setDelay(info.delay);
+                    pv.setCount(info.count);
+                    pv.setFilter(info.filter);
+                    pvs.put(info.name, pv);
+                    item = pv;
+                }
+                else
+                {
+                    item = new AlarmTreeItem(parent, info.name, info.id);
+                    created.put(info.id, item);
+                }
+            }
+            if (info.config_time != null)
+                item.setConfigTime(info.config_time);
+            item.setGuidance(info.guidance);
+            item.setDisplays(info.displays);
+            item.setCommands(info.commands);
+            item.setAutomatedActions(info.automated_actions);
+        }
+    }
+
+    /** Write snapshot to file
+     *
+     *  <p>Writes a temporary file which then replaces the file,
+     *  so readers never see a partially written snapshot.
+     *
+     *  @param file File
+     *  @throws IOException on error
+     */
+    public void write(final File file) throws IOException
+    {
+        final File tmp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(database);
+            out.writeUTF(root_name);
+            out.writeInt(root_id);
+            out.writeLong(version);
+            out.writeInt(items.size());
+            for (Item item : items)
+                writeItem(out, item);
+        }
+        finally
+        {
+            out.close();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeItem(final DataOutputStream out, final Item item) throws IOException
+    {
+        out.writeInt(item.id);
+        out.writeInt(item.parent);
+        out.writeUTF(item.name);
+        out.writeBoolean(item.config_time != null);
+        if (item.config_time != null)
+        {
+            out.writeLong(item.config_time.getSec());
+            out.writeInt(item.config_time.getNanoSec());
+        }
+        out.writeBoolean(item.is_pv);
+        if (item.is_pv)
+        {
+            writeString(out, item.description);
+            out.writeBoolean(item.enabled);
+            out.writeBoolean(item.annunciating);
+            out.writeBoolean(item.latching);
+            out.writeInt(item.delay);
+            out.writeInt(item.count);
+            writeString(out, item.filter);
+        }
+        writeGDC(out, item.guidance);
+        writeGDC(out, item.displays);
+        writeGDC(out, item.commands);
+        out.writeInt(item.automated_actions.length);
+        for (AADataStructure aa : item.automated_actions)
+        {
+            writeString(out, aa.getTitle());
+            writeString(out, aa.getDetails());
+            out.writeInt(aa.getDelay());
+        }
+    }
+
+    private static void writeGDC(final DataOutputStream out, final GDCDataStructure[] gdc) throws IOException
+    {
+        out.writeInt(gdc.length);
+        for (GDCDataStructure entry : gdc)
+        {
+            writeString(out, entry.getTitle());
+            writeString(out, entry.getDetails());
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String text) throws IOException
+    {
+        out.writeBoolean(text != null);
+        if (text != null)
+            out.writeUTF(text);
+    }
+
+    /** Read snapshot from file
+     *  @param file File
+     *  @return {@link AlarmConfigurationSnapshot}
+     *  @throws IOException on error, for example unknown file format
+     */
+    public static AlarmConfigurationSnapshot read(final File file) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not an alarm configuration snapshot: " + file);
+            final int format = in.readInt();
+            if (format != FORMAT_VERSION)
+                throw new IOException("Cannot read alarm configuration snapshot format " + format);
+            final String database = in.readUTF();
+            final String root_name = in.readUTF();
+            final int root_id = in.readInt();
+            final long version = in.readLong();
+            final int count = in.readInt();
+            if (count < 0)
+                throw new IOException("Invalid item count " + count);
+            final List<Item> items = new ArrayList<Item>(count);
+            for (int i=0; i<count; ++i)
+                items.add(readItem(in));
+            return new AlarmConfigurationSnapshot(database, root_name, root_id, version, items);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static Item readItem(final DataInputStream in) throws IOException
+    {
+        final int id = in.readInt();
+        final int parent = in.readInt();
+        final String name = in.readUTF();
+        final Timestamp config_time = in.readBoolean()
+            ? Timestamp.of(in.readLong(), in.readInt())
+            : null;
+        final Item item = new Item(id, parent, name, config_time, in.readBoolean());
+        if (item.is_pv)
+        {
+            item.description = readString(in);
+            item.enabled = in.readBoolean();
+            item.annunciating = in.readBoolean();
+            item.latching = in.readBoolean();
+            item.delay = in.readInt();
+            item.count = in.readInt();
+            item.filter = readString(in);
+        }
+        item.guidance = readGDC(in);
+        item.displays = readGDC(in);
+        item.commands = readGDC(in);
+        final int aa_count = in.readInt();
+        if (aa_count > 0)
+        {
+            item.automated_actions = new AADataStructure[aa_count];
+            for (int i=0; i<aa_count; ++i)
+            {
+                final String title = readString(in);
+                final String details = readString(in);
+                item.automated_actions[i] = new AADataStructure(title, details, in.readInt());
+            }
+        }
+        return item;
+    }
+
+    private static GDCDataStructure[] readGDC(final DataInputStream in) throws IOException
+    {
+        final int count = in.readInt();
+        if (count <= 0)
+            return NO_GDC;
+        final GDCDataStructure[] gdc = new GDCDataStructure[count];
+        for (int i=0; i<count; ++i)
+        {
+            final String title = readString(in);
+            gdc[i] = new GDCDataStructure(title, readString(in));
+        }
+        return gdc;
+    }
+
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -38,9 +38,23 @@ import org.epics.util.time.Timestamp;
  */
 public class AlarmTreeItem extends TreeItem
 {
-    /** Sub-tree elements of this item which are currently in alarm */
+    /** Sub-tree elements of this item which are currently in alarm.
+     *  Rebuilt when needed, see alarm_children_changed
+     */
     final private List<AlarmTreeItem> alarm_children = new ArrayList<AlarmTreeItem>();
 
+    /** Set when children entered or left the alarm state, so alarm_children needs to be rebuilt */
+    private boolean alarm_children_changed = false;
+
+    /** Number of child elements for each 'current' severity, indexed by ordinal. OK is not counted */
+    final private int[] current_severity_counts = new int[SeverityLevel.values().length];
+
+    /** Number of child elements for each latched severity, indexed by ordinal. OK is not counted */
+    final private int[] severity_counts = new int[SeverityLevel.values().length];
+
+    /** Child element with the highest severity that provided the message, or <code>null</code> */
+    private AlarmTreeItem message_source = null;
+
     // Using arrays for guidance, ..., commands to be thread-safe
 
     /** Guidance messages */
@@ -64,6 +78,9 @@ public class AlarmTreeItem extends TreeItem
     /**  Highest/latched alarm message of this item/subtree */
     private String message = SeverityLevel.OK.getDisplayName();
 
+    /** Number of changes to severity or message of this item */
+    private long state_updates = 0;
+
     /** Time of last configuration change */
     private Timestamp config_time;
 
@@ -228,6 +245,7 @@ public class AlarmTreeItem extends TreeItem
      */
     public synchronized int getAlarmChildCount()
     {
+        updateAlarmChildren();
         return alarm_children.size();
     }
 
@@ -237,9 +255,26 @@ public class AlarmTreeItem extends TreeItem
      */
     public synchronized AlarmTreeItem getAlarmChild(final int index)
     {
+        updateAlarmChildren();
         return alarm_children.get(index);
     }
 
+    /** Rebuild list of child elements in alarm, keeping their order in the tree */
+    private void updateAlarmChildren()
+    {
+        if (! alarm_children_changed)
+            return;
+        alarm_children_changed = false;
+        alarm_children.clear();
+        final int n = getChildCount();
+        for (int i=0; i<n; ++i)
+        {
+            final AlarmTreeItem child = getChild(i);
+            if (child.getSeverity().ordinal() > 0)
+                alarm_children.add(child);
+        }
+    }
+
     /** @return Current severity */
     public synchronized SeverityLevel getCurrentSeverity()
     {
@@ -258,6 +293,14 @@ public class AlarmTreeItem extends TreeItem
         return message;
     }
 
+    /** @return Number of changes to the severity or message of this item,
+     *          which allows checking if an update changed the item
+     */
+    public synchronized long getStateUpdateCount()
+    {
+        return state_updates;
+    }
+
     /** Update alarm state of this item, maximize alarm tree severities.
      *  @param current_severity Current severity of PV
      *  @param severity Alarm severity
@@ -273,12 +316,15 @@ public class AlarmTreeItem extends TreeItem
             getSeverity() == severity  &&
             getMessage().equals(message))
             return false;
+        final SeverityLevel old_current_severity = this.current_severity;
+        final SeverityLevel old_severity = this.severity;
         this.current_severity = current_severity;
         this.severity = severity;
         this.message = message;
+        ++state_updates;
         final AlarmTreeItem parent = getParent();
         if (parent != null)
-            parent.maximizeSeverity();
+            parent.updateSeverity(this, old_current_severity, old_severity);
         return true;
     }
 
@@ -310,47 +356,139 @@ public class AlarmTreeItem extends TreeItem
 
     /** Set severity/status of this item by maximizing over its child
      *  severities.
-     *  Recursively updates parent items.
+     *  Counts the child severities, which are then updated incrementally
+     *  by {@link #updateSeverity(AlarmTreeItem, SeverityLevel, SeverityLevel)}.
+     *  To be called when child elements were added or removed.
+     *  Updates parent items if this item changed.
      */
     public synchronized void maximizeSeverity()
     {
-    	// Get maximum child severity and its status
-    	SeverityLevel new_current_severity = SeverityLevel.OK;
-    	SeverityLevel new_severity = SeverityLevel.OK;
-        String new_message = SeverityLevel.OK.getDisplayName();
-        alarm_children.clear();
+        Arrays.fill(current_severity_counts, 0);
+        Arrays.fill(severity_counts, 0);
+        alarm_children_changed = true;
+        message_source = null;
+        int max_severity = 0;
         final int n = getChildCount();
         for (int i=0; i<n; ++i)
         {
             final AlarmTreeItem child = getChild(i);
-            // Maximize 'current' severity
-            if (child.getCurrentSeverity().ordinal() > new_current_severity.ordinal())
-            	new_current_severity = child.getCurrentSeverity();
-            // Maximize latched severity/status
+            count(current_severity_counts, child.getCurrentSeverity(), 1);
             final SeverityLevel child_sevr = child.getSeverity();
-            final int level = child_sevr.ordinal();
-            if (level > 0)
-                alarm_children.add(child);
-            if (level > new_severity.ordinal())
+            count(severity_counts, child_sevr, 1);
+            // Message of first child with highest severity
+            if (child_sevr.ordinal() > max_severity)
             {
-            	new_severity = child_sevr;
-            	new_message = child.getMessage();
+                max_severity = child_sevr.ordinal();
+                message_source = child;
             }
         }
+        updateFromCounts();
+    }
 
-        if (new_current_severity != current_severity  ||
-            new_severity != severity  ||
-            !new_message.equals(message))
-        {
-            current_severity = new_current_severity;
-            severity = new_severity;
-            message = new_message;
+    /** Update severity/status of this item after the severity of a child changed.
+     *
+     *  <p>Adjusts the per-severity child counts, so the new
+     *  severity is known without inspecting all child elements.
+     *  Only when the child that provided the message drops its severity
+     *  are the other child elements searched for the new message.
+     *  Updates parent items only if this item changed,
+     *  so a change propagates towards the root until it reaches
+     *  an item that remains unchanged.
+     *
+     *  <p>Caller must hold the lock of the child.
+     *
+     *  @param child Child element that changed
+     *  @param old_current_severity Previous 'current' severity of the child
+     *  @param old_severity Previous severity of the child
+     */
+    protected synchronized void updateSeverity(final AlarmTreeItem child,
+            final SeverityLevel old_current_severity, final SeverityLevel old_severity)
+    {
+        final SeverityLevel child_sevr = child.getSeverity();
+        count(current_severity_counts, old_current_severity, -1);
+        count(current_severity_counts, child.getCurrentSeverity(), 1);
+        count(severity_counts, old_severity, -1);
+        count(severity_counts, child_sevr, 1);
+        if ((old_severity.ordinal() > 0) != (child_sevr.ordinal() > 0))
+            alarm_children_changed = true;
+
+        final int max_severity = getMaxOrdinal(severity_counts);
+        if (max_severity == 0)
+            message_source = null;
+        else if (child_sevr.ordinal() == max_severity  &&
+                 (message_source == null  ||  max_severity > severity.ordinal()))
+            message_source = child;
+        else if (message_source == child  &&  child_sevr.ordinal() != max_severity)
+        {   // Child that provided the message dropped: Find first child with highest severity
+            message_source = null;
+            final int n = getChildCount();
+            for (int i=0; i<n  &&  message_source == null; ++i)
+            {
+                final AlarmTreeItem other = getChild(i);
+                if (other.getSeverity().ordinal() == max_severity)
+                    message_source = other;
+            }
         }
+        updateFromCounts();
+    }
+
+    /** Update severity/status of this item from the child counts and message source,
+     *  then percolate changes towards root
+     */
+    private void updateFromCounts()
+    {
+        final SeverityLevel[] levels = SeverityLevel.values();
+        final SeverityLevel new_current_severity = levels[getMaxOrdinal(current_severity_counts)];
+        final SeverityLevel new_severity = levels[getMaxOrdinal(severity_counts)];
+        final String new_message = message_source == null
+                                 ? SeverityLevel.OK.getDisplayName()
+                                 : message_source.getMessage();
+        if (new_current_severity == current_severity  &&
+            new_severity == severity  &&
+            new_message.equals(message))
+            return;
+        final SeverityLevel old_current_severity = current_severity;
+        final SeverityLevel old_severity = severity;
+        current_severity = new_current_severity;
+        severity = new_severity;
+        message = new_message;
+        ++state_updates;
 
         // Percolate changes towards root
         final AlarmTreeItem parent = getParent();
         if (parent != null)
-            parent.maximizeSeverity();
+            parent.updateSeverity(this, old_current_severity, old_severity);
+    }
+
+    /** @param counts Counts by severity ordinal
+     *  @param level Severity to count
+     *  @param delta Change in count. OK is not counted.
+     */
+    private static void count(final int[] counts, final SeverityLevel level, final int delta)
+    {
+        final int ordinal = level.ordinal();
+        if (ordinal > 0)
+            counts[ordinal] += delta;
+    }
+
+    /** @param counts Counts by severity ordinal
+     *  @return Highest ordinal with a non-zero count, 0 for OK
+     */
+    private static int getMaxOrdinal(final int[] counts)
+    {
+        for (int ordinal = counts.length-1; ordinal > 0; --ordinal)
+            if (counts[ordinal] > 0)
+                return ordinal;
+        return 0;
+    }
+
+    /** Update severity/status after a child element was removed
+     *  {@inheritDoc}
+     */
+    @Override
+    protected void childRemoved(final TreeItem child)
+    {
+        maximizeSeverity();
     }
 
     /** {@inheritDoc} */
@@ -202,29 +202,57 @@ public class AlarmTreePV extends AlarmTreeLeaf
             final SeverityLevel severity, final String message,
             final String value,
             final Timestamp timestamp)
+    {
+        final boolean parent_changed = updateAlarmState(current_severity, current_message,
+                                                        severity, message, value, timestamp);
+        // Send events outside of lock
+        getRoot().notifyListeners(this, parent_changed);
+    }
+
+    /** Update status/message/time stamp and maximize
+     *  severities of parent entries, without notifying listeners.
+     *
+     *  <p>Allows applying several updates while holding the lock of the root,
+     *  then notifying listeners once.
+     *
+     *  @param current_severity Current severity of PV
+     *  @param current_message Current message of the PV
+     *  @param severity Alarm severity
+     *  @param message Alarm message
+     *  @param value Value that triggered the update
+     *  @param timestamp Time stamp for this update
+     *  @return <code>true</code> if a parent item was updated as well
+     *  @see #setAlarmState(SeverityLevel, String, SeverityLevel, String, String, Timestamp)
+     */
+    public boolean updateAlarmState(final SeverityLevel current_severity,
+            final String current_message,
+            final SeverityLevel severity, final String message,
+            final String value,
+            final Timestamp timestamp)
     {
     	// Changing the alarm state will eventually recurse up to the root
     	// to maximize the severities.
     	// To prevent deadlock, first lock the root, then this and other affected items
     	final AlarmTreeRoot root = getRoot();
-    	final boolean parent_changed;
     	synchronized (root)
         {
         	synchronized (this)
             {
+                // Most updates, for example of many PVs under the same parent
+                // that's already in alarm, don't change the parent
+                final AlarmTreeItem parent = getParent();
+                final long parent_updates = parent == null ? 0 : parent.getStateUpdateCount();
                 if (setAlarmState(current_severity, severity, message, timestamp)  ||
                     ! current_message.equals(this.current_message) )
                 {   // Alarm state or at least message changed
                     this.current_message = current_message;
                     this.value = value;
-                    parent_changed = true;
+                    return parent != null  &&
+                           parent.getStateUpdateCount() != parent_updates;
                 }
-                else
-                    parent_changed = false;
+                return false;
             }
         }
-    	// Send events outside of lock
-    	root.notifyListeners(this, parent_changed);
     }
 
     /** Called either directly or recursively from parent item.
@@ -8,8 +8,11 @@
 package org.csstudio.alarm.beast.ui.clientmodel;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
+import javax.jms.BytesMessage;
 import javax.jms.MapMessage;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
@@ -18,14 +21,17 @@ import javax.jms.MessageProducer;
 import javax.security.auth.Subject;
 
 import org.csstudio.alarm.beast.Activator;
+import org.csstudio.alarm.beast.AlarmUpdateBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.JMSCommunicationWorkQueueThread;
 import org.csstudio.alarm.beast.Preferences;
+import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimeoutTimer;
 import org.csstudio.alarm.beast.WorkQueue;
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.csstudio.logging.JMSLogMessage;
 import org.csstudio.security.SecuritySupport;
+import org.epics.util.time.Timestamp;
 
 /** Receives alarm updates, sends acknowledgments.
  *  <p>
@@ -70,6 +76,29 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
         }
     }
 
+    /** Action to update the state of several PVs */
+    private class BatchUpdateAction implements Runnable
+    {
+        final private AlarmUpdateInfo[] infos;
+
+        public BatchUpdateAction(final AlarmUpdateInfo[] infos)
+        {
+            this.infos = infos;
+        }
+
+        @Override
+        public void run()
+        {
+            model.updatePVs(infos);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Batch of " + infos.length + " updates";
+        }
+    }
+
     /** Action to enable/disable a PV */
     private class EnableAction implements Runnable
     {
@@ -157,7 +186,7 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
         // Read messages from server
         server_consumer = createConsumer(Preferences.getJMS_AlarmServerTopic(configuration));
 
-        // Handle MapMessages
+        // Handle MapMessages and BytesMessages with update batches
         final MessageListener message_listener = new MessageListener()
         {
             @Override
@@ -165,6 +194,8 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
             {
                 if (message instanceof MapMessage)
                     handleMapMessage((MapMessage) message);
+                else if (message instanceof BytesMessage)
+                    handleBytesMessage((BytesMessage) message);
                 else
                     Activator.getLogger().log(Level.WARNING,
                             "Message type {0} not handled", message.getClass().getName());
@@ -405,21 +436,69 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
 
             if (action == null)
                 return;
-            // Queue or dispatch?
-            synchronized (queue)
+            dispatch(action);
+        }
+        catch (Throwable ex)
+        {
+            Activator.getLogger().log(Level.SEVERE, "Message handler error", ex);
+        }
+    }
+
+    /** Invoked for received batch messages */
+    private void handleBytesMessage(final BytesMessage message)
+    {
+        try
+        {
+            final String text = message.getStringProperty(JMSLogMessage.TEXT);
+            final boolean maintenance;
+            if (JMSAlarmMessage.TEXT_STATE_BATCH.equals(text))
+                maintenance = false;
+            else if (JMSAlarmMessage.TEXT_STATE_BATCH_MAINTENANCE.equals(text))
+                maintenance = true;
+            else
             {
-                if (use_queue)
+                Activator.getLogger().log(Level.WARNING, "Bytes message {0} not handled", text);
+                return;
+            }
+            timeout_timer.reset();
+            final byte[] data = new byte[(int) message.getBodyLength()];
+            message.readBytes(data);
+            final List<AlarmUpdateInfo> infos = new ArrayList<AlarmUpdateInfo>();
+            AlarmUpdateBatch.decode(data, new AlarmUpdateBatch.Handler()
+            {
+                @Override
+                public void handleUpdate(final String name_or_path,
+                        final SeverityLevel current_severity, final String current_message,
+                        final SeverityLevel severity, final String message,
+                        final String value, final Timestamp timestamp)
                 {
-                    queue.execute(action);
-                    return;
+                    infos.add(new AlarmUpdateInfo(name_or_path, current_severity, current_message,
+                                                  severity, message, value, timestamp));
                 }
-            }
-            // else: Not using queue, and queue no longer locked
-            action.run();
+            });
+            model.updateServerState(maintenance);
+            dispatch(new BatchUpdateAction(infos.toArray(new AlarmUpdateInfo[infos.size()])));
         }
         catch (Throwable ex)
         {
             Activator.getLogger().log(Level.SEVERE, "Message handler error", ex);
         }
     }
+
+    /** Queue or dispatch action
+     *  @param action Action for received message
+     */
+    private void dispatch(final Runnable action)
+    {
+        synchronized (queue)
+        {
+            if (use_queue)
+            {
+                queue.execute(action);
+                return;
+            }
+        }
+        // else: Not using queue, and queue no longer locked
+        action.run();
+    }
 }
@@ -7,7 +7,10 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.ui.clientmodel;
 
+import java.io.File;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -371,6 +374,9 @@ public class AlarmClientModel
                                                     AlarmClientModel.this);
                 }
             };
+            final String snapshot_directory = Preferences.getConfigSnapshotDirectory();
+            if (snapshot_directory != null)
+                new_config.setSnapshotDirectory(new File(snapshot_directory));
 
             // Read names of available configurations
             final String new_root_names[] = new_config.listConfigurations();
@@ -931,6 +937,56 @@ public class AlarmClientModel
             "Received update for unknown PV {0}", name);
     }
 
+    /** Update the state of several PVs in model.
+     *  <p>
+     *  Applies all updates while holding the lock of the alarm tree once,
+     *  then notifies listeners once for the whole batch.
+     *  Called by AlarmUpdateCommunicator, i.e. from JMS thread.
+     *
+     *  @param infos Alarm update infos
+     */
+    void updatePVs(final AlarmUpdateInfo[] infos)
+    {
+        server_alive = true;
+        // Locate PVs before locking the tree
+        final AlarmTreePV[] pvs = new AlarmTreePV[infos.length];
+        AlarmTreeRoot root = null;
+        for (int i=0; i<infos.length; ++i)
+        {
+            String name = infos[i].getNameOrPath();
+            if (AlarmTreePath.isPath(name))
+                name = AlarmTreePath.getName(name);
+            pvs[i] = findPV(name);
+            if (pvs[i] == null)
+                Activator.getLogger().log(Level.WARNING,
+                    "Received update for unknown PV {0}", name);
+            else if (root == null)
+                root = pvs[i].getRoot();
+        }
+        if (root == null)
+            return;
+        // Updated PVs and whether their parent changed
+        final Map<AlarmTreePV, Boolean> changes = new LinkedHashMap<AlarmTreePV, Boolean>();
+        synchronized (root)
+        {
+            for (int i=0; i<infos.length; ++i)
+            {
+                final AlarmTreePV pv = pvs[i];
+                if (pv == null)
+                    continue;
+                final AlarmUpdateInfo info = infos[i];
+                boolean parent_changed = pv.updateAlarmState(info.getCurrentSeverity(),
+                        info.getCurrentMessage(), info.getSeverity(), info.getMessage(),
+                        info.getValue(), info.getTimestamp());
+                final Boolean previous = changes.get(pv);
+                if (previous != null  &&  previous)
+                    parent_changed = true;
+                changes.put(pv, parent_changed);
+            }
+        }
+        fireNewAlarmStates(changes);
+    }
+
     /** Locate PV by name
      *  @param name Name of PV to locate. May be <code>null</code>.
      *  @return PV or <code>null</code> when not found
@@ -1045,25 +1101,7 @@ public class AlarmClientModel
         {
             synchronized (this)
             {
-                final SeverityLevel severity = pv.getSeverity();
-                if (severity.ordinal() > 0)
-                {
-                    if (severity.isActive())
-                    {
-                    	active_alarms.add(pv);
-                        acknowledged_alarms.remove(pv);
-                    }
-                    else
-                    {
-                    	acknowledged_alarms.add(pv);
-                        active_alarms.remove(pv);
-                    }
-                }
-                else
-                {
-                    active_alarms.remove(pv);
-                    acknowledged_alarms.remove(pv);
-                }
+                updateAlarmLists(pv);
                 if (!notify_listeners )
                     return;
             }
@@ -1082,6 +1120,72 @@ public class AlarmClientModel
         }
     }
 
+    /** Inform listeners about change in alarm state of several PVs.
+     *  <p>
+     *  {@link AlarmClientModelBatchListener}s are notified once,
+     *  other listeners once per PV.
+     *  @param changes PVs that might have changed the alarm state,
+     *                 and whether a parent item was updated as well
+     */
+    private void fireNewAlarmStates(final Map<AlarmTreePV, Boolean> changes)
+    {
+        if (changes.isEmpty())
+            return;
+        final AlarmTreePV[] pvs = changes.keySet().toArray(new AlarmTreePV[changes.size()]);
+        final boolean parent_changed = changes.containsValue(Boolean.TRUE);
+        synchronized (this)
+        {
+            for (AlarmTreePV pv : pvs)
+                updateAlarmLists(pv);
+            if (!notify_listeners )
+                return;
+        }
+        for (AlarmClientModelListener listener : listeners)
+        {
+            try
+            {
+                if (listener instanceof AlarmClientModelBatchListener)
+                    ((AlarmClientModelBatchListener) listener).newAlarmStates(this, pvs, parent_changed);
+                else
+                    for (AlarmTreePV pv : pvs)
+                        listener.newAlarmState(this, pv, changes.get(pv));
+            }
+            catch (Throwable ex)
+            {
+                Activator.getLogger().log(Level.WARNING,
+                    "Alarm update notification error", ex);
+            }
+        }
+    }
+
+    /** Update list of active and acknowledged alarms
+     *  <p>
+     *  Caller must synchronize on <code>this</code>
+     *  @param pv PV that might have changed the alarm state
+     */
+    private void updateAlarmLists(final AlarmTreePV pv)
+    {
+        final SeverityLevel severity = pv.getSeverity();
+        if (severity.ordinal() > 0)
+        {
+            if (severity.isActive())
+            {
+            	active_alarms.add(pv);
+                acknowledged_alarms.remove(pv);
+            }
+            else
+            {
+            	acknowledged_alarms.add(pv);
+                active_alarms.remove(pv);
+            }
+        }
+        else
+        {
+            active_alarms.remove(pv);
+            acknowledged_alarms.remove(pv);
+        }
+    }
+
     /** @return Debug string */
     @Override
     public String toString()
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.clientmodel;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+
+/** Listener to the AlarmClientModel that handles batches of alarm updates.
+ *
+ *  <p>When the model receives a batch of updates,
+ *  it notifies this type of listener once for the whole batch,
+ *  while other {@link AlarmClientModelListener}s
+ *  receive one notification per PV.
+ *
+ *  @author Kay Kasemir
+ */
+public interface AlarmClientModelBatchListener extends AlarmClientModelListener
+{
+    /** Notification which indicates change in alarm state of several PVs.
+     *  No items were added or removed, but PVs changed their state
+     *  <p>
+     *  May originate from non-UI thread
+     *
+     *  @param model Model
+     *  @param pvs   PVs that changed state
+     *  @param parent_changed true if a parent item was updated as well
+     */
+    void newAlarmStates(AlarmClientModel model, AlarmTreePV[] pvs, boolean parent_changed);
+}
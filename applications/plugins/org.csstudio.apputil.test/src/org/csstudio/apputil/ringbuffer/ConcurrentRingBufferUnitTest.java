@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.ringbuffer;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/** JUnit test of the ConcurrentRingBuffer
+ *  @author Kay Kasemir
+ */
+public class ConcurrentRingBufferUnitTest
+{
+    @Test
+    public void testRingBuffer() throws Exception
+    {
+        final ConcurrentRingBuffer<Integer> ring = new ConcurrentRingBuffer<Integer>(5);
+        assertTrue(ring.isEmpty());
+        assertFalse(ring.isFull());
+
+        // Add/remove one item
+        assertFalse(ring.add(1));
+        assertFalse(ring.isEmpty());
+        assertEquals(Integer.valueOf(1), ring.remove());
+        assertNull(ring.remove());
+        assertTrue(ring.isEmpty());
+
+        // Fill
+        for (int i=1; i<=5; ++i)
+            assertFalse(ring.add(i));
+        assertTrue(ring.isFull());
+
+        // Fill to 9, but ring only remembers the last 5 items
+        for (int i=6; i<10; ++i)
+            assertTrue(ring.add(i));
+        assertTrue(ring.isFull());
+        assertEquals(5, ring.size());
+
+        // Remove in batches
+        final List<Integer> items = new ArrayList<Integer>();
+        assertEquals(3, ring.drainTo(items, 3));
+        assertEquals(2, ring.size());
+        assertEquals(2, ring.drainTo(items, 3));
+        assertEquals(0, ring.drainTo(items, 3));
+        assertTrue(ring.isEmpty());
+        for (int i=0; i<5; ++i)
+            assertEquals(Integer.valueOf(5+i), items.get(i));
+    }
+
+    /** Producer and consumer in different threads
+     *  @throws Exception on error
+     */
+    @Test(timeout=20000)
+    public void testThreads() throws Exception
+    {
+        final ConcurrentRingBuffer<Integer> ring = new ConcurrentRingBuffer<Integer>(10);
+        final int runs = 1000000;
+        final int[] dropped = new int[1];
+        final Thread producer = new Thread("Producer")
+        {
+            @Override
+            public void run()
+            {
+                for (int i=0; i<runs; ++i)
+                    if (ring.add(i))
+                        ++dropped[0];
+            }
+        };
+        producer.start();
+
+        // Values must arrive in order, with possible gaps from overruns
+        int received = 0;
+        int last = -1;
+        final List<Integer> items = new ArrayList<Integer>();
+        while (producer.isAlive()  ||  !ring.isEmpty())
+        {
+            ring.drainTo(items, 5);
+            for (Integer item : items)
+            {
+                assertTrue(item.intValue() > last);
+                last = item.intValue();
+                ++received;
+            }
+            items.clear();
+        }
+        producer.join();
+        assertEquals(runs-1, last);
+        assertEquals(runs, received + dropped[0]);
+    }
+}
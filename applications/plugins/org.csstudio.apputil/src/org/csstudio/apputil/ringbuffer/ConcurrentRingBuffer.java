@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.ringbuffer;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Lock-free ring buffer for one producer and one consumer thread.
+ *  <p>
+ *  Like the {@link RingBuffer}, the oldest element is dropped
+ *  when adding to a full buffer.
+ *  Unlike the {@link RingBuffer}, no external synchronization is needed
+ *  as long as only one thread calls {@link #add(Object)}
+ *  and only one (other) thread calls {@link #remove()} or {@link #drainTo(Collection, int)}.
+ *  Several producer threads must synchronize among themselves,
+ *  but never block the consumer.
+ *
+ *  @author Kay Kasemir
+ *  @param <T> Element type
+ */
+public class ConcurrentRingBuffer<T>
+{
+    //  The circular buffer implementation:
+    //
+    //  'head' and 'tail' are ever increasing counters.
+    //  Indices of valid entries:
+    //  [head % capacity], ..., [(tail-1) % capacity]
+    //
+    //  Only the producer updates 'tail'.
+    //  'head' is updated by the consumer when removing an element,
+    //  but also by the producer when it drops the oldest element
+    //  of a full buffer. Both use compare-and-set on 'head',
+    //  and the consumer only keeps an element it read
+    //  if it succeeded to move 'head' past it.
+    final private AtomicReferenceArray<T> ring;
+    final private int capacity;
+    final private AtomicLong head = new AtomicLong();
+    final private AtomicLong tail = new AtomicLong();
+
+    /** Initialize
+     *  @param capacity Capacity
+     */
+    public ConcurrentRingBuffer(final int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive"); //$NON-NLS-1$
+        ring = new AtomicReferenceArray<T>(capacity);
+        this.capacity = capacity;
+    }
+
+    /** @return Maximum number of entries in ring buffer */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** @return Number of valid entries in ring buffer.
+     *          Snapshot that may already be outdated when producer
+     *          or consumer are active.
+     */
+    public int size()
+    {
+        // Read head first: tail can only grow while we read it,
+        // so the result is never negative
+        final long h = head.get();
+        final long size = tail.get() - h;
+        if (size > capacity)
+            return capacity;
+        return (int) size;
+    }
+
+    /** @return <code>true</code> if ring buffer is empty */
+    public boolean isEmpty()
+    {
+        return size() <= 0;
+    }
+
+    /** @return <code>true</code> if ring buffer is full,
+     *          i.e. the next addition will override the oldest element
+     */
+    public boolean isFull()
+    {
+        return size() >= capacity;
+    }
+
+    /** Add item to ring buffer.
+     *  <p>
+     *  To be called by the producer thread.
+     *  @param item Item to add, must not be <code>null</code>
+     *  @return <code>true</code> if the oldest item was dropped
+     *          to make room for the new item
+     */
+    public boolean add(final T item)
+    {
+        final long t = tail.get();
+        boolean dropped = false;
+        // Full? Drop oldest element, unless consumer removes one concurrently
+        long h = head.get();
+        while (t - h >= capacity)
+        {
+            if (head.compareAndSet(h, h+1))
+            {
+                dropped = true;
+                break;
+            }
+            h = head.get();
+        }
+        ring.set((int) (t % capacity), item);
+        // Publish the new element
+        tail.lazySet(t + 1);
+        return dropped;
+    }
+
+    /** Remove the oldest ring buffer element.
+     *  <p>
+     *  To be called by the consumer thread.
+     *  @return Oldest ring buffer element or <code>null</code>
+     */
+    public T remove()
+    {
+        while (true)
+        {
+            final long h = head.get();
+            if (h >= tail.get())
+                return null;
+            final T result = ring.get((int) (h % capacity));
+            // If producer dropped that element while we read it, try again.
+            // The slot is not cleared since the producer
+            // may already re-use it; it'll be overwritten.
+            if (head.compareAndSet(h, h+1))
+                return result;
+        }
+    }
+
+    /** Remove up to a maximum number of elements
+     *  <p>
+     *  To be called by the consumer thread.
+     *  @param collection Collection to which the oldest elements are added
+     *  @param max Maximum number of elements to remove
+     *  @return Number of elements that were added to the collection
+     */
+    public int drainTo(final Collection<? super T> collection, final int max)
+    {
+        int count = 0;
+        while (count < max)
+        {
+            final T item = remove();
+            if (item == null)
+                break;
+            collection.add(item);
+            ++count;
+        }
+        return count;
+    }
+
+    /** Remove all ring buffer elements
+     *  <p>
+     *  To be called by the consumer thread.
+     */
+    public void clear()
+    {
+        while (remove() != null)
+        {
+            // Keep removing
+        }
+    }
+}
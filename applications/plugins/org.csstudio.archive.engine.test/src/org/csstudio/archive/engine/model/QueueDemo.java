@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.concurrent.ArrayBlockingQueue;
 
+import org.csstudio.apputil.ringbuffer.ConcurrentRingBuffer;
 import org.csstudio.apputil.ringbuffer.RingBuffer;
 import org.junit.Test;
 
@@ -27,6 +28,10 @@ import org.junit.Test;
  * ArrayList         :     48088144 values in 10.00 sec =    4808814.4 vals/sec
  * RingBuffer        :     48864698 values in 10.00 sec =    4886469.8 vals/sec
  *  </pre>
+ *  <p>
+ *  With separate producer and consumer threads, as used by the
+ *  SampleBuffer, the lock-free ConcurrentRingBuffer avoids the contention
+ *  on the RingBuffer's lock.
  *
  * @author Kay Kasemir
  */
@@ -149,4 +154,97 @@ public class QueueDemo
                 i, secs, i / secs);
     }
 
+    /** Producer thread that adds to queue until time runs out */
+    private abstract static class Producer extends Thread
+    {
+        private volatile boolean run = true;
+        private long added = 0;
+
+        abstract void add(Integer value);
+
+        @Override
+        public void run()
+        {
+            int i = 0;
+            while (run)
+            {
+                add(Integer.valueOf(i++));
+                ++added;
+            }
+        }
+
+        long finish() throws InterruptedException
+        {
+            run = false;
+            join();
+            return added;
+        }
+    }
+
+    /** RingBuffer with producer and consumer thread, locking */
+    @Test
+    public void testRingBufferThreads() throws Exception
+    {
+        final RingBuffer<Integer> queue = new RingBuffer<Integer>(100);
+        final Producer producer = new Producer()
+        {
+            @Override
+            void add(final Integer value)
+            {
+                synchronized (queue)
+                {
+                    queue.add(value);
+                }
+            }
+        };
+        final long start = System.currentTimeMillis();
+        final long run = start + RUNTIME;
+        producer.start();
+        long removed = 0;
+        while (run > System.currentTimeMillis())
+        {
+            synchronized (queue)
+            {
+                if (queue.remove() != null)
+                    ++removed;
+            }
+        }
+        final long added = producer.finish();
+        final long end = System.currentTimeMillis();
+        final double secs = (end - start) / 1000.0;
+        System.out.format(
+                "RingBuffer, 2 thr.: %12d values in %.2f sec = %12.1f vals/sec, %12d removed\n",
+                added, secs, added / secs, removed);
+    }
+
+    /** ConcurrentRingBuffer with producer and consumer thread, lock-free */
+    @Test
+    public void testConcurrentRingBufferThreads() throws Exception
+    {
+        final ConcurrentRingBuffer<Integer> queue = new ConcurrentRingBuffer<Integer>(100);
+        final Producer producer = new Producer()
+        {
+            @Override
+            void add(final Integer value)
+            {
+                queue.add(value);
+            }
+        };
+        final long start = System.currentTimeMillis();
+        final long run = start + RUNTIME;
+        producer.start();
+        final ArrayList<Integer> batch = new ArrayList<Integer>(100);
+        long removed = 0;
+        while (run > System.currentTimeMillis())
+        {
+            removed += queue.drainTo(batch, 100);
+            batch.clear();
+        }
+        final long added = producer.finish();
+        final long end = System.currentTimeMillis();
+        final double secs = (end - start) / 1000.0;
+        System.out.format(
+                "ConcurrentRB, 2 t.: %12d values in %.2f sec = %12.1f vals/sec, %12d removed\n",
+                added, secs, added / secs, removed);
+    }
 }
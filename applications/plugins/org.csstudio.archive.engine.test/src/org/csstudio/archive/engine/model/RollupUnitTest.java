@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.writer.ArchiveRollupWriter;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link Rollup}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RollupUnitTest
+{
+    /** Writer that remembers the rollups */
+    static class TestWriter implements ArchiveRollupWriter
+    {
+        final List<String> rollups = new ArrayList<String>();
+        final List<Double> stddevs = new ArrayList<Double>();
+
+        @Override
+        public int[] getRollupPeriods()
+        {
+            return new int[] { 60 };
+        }
+
+        @Override
+        public void addRollup(final WriteChannel channel, final int period, final Timestamp start,
+                final double min, final double max, final double average, final double stddev,
+                final long count)
+        {
+            final String rollup = String.format("%s %d %d: %.1f %.1f %.1f %d",
+                    channel.getName(), period, start.getSec(), min, max, average, count);
+            System.out.println(rollup);
+            rollups.add(rollup);
+            stddevs.add(stddev);
+        }
+    }
+
+    final private static WriteChannel channel = new WriteChannel()
+    {
+        @Override
+        public String getName()
+        {
+            return "test";
+        }
+    };
+
+    private static VType newValue(final long secs, final double value)
+    {
+        return new ArchiveVNumber(Timestamp.of(secs, 0), AlarmSeverity.NONE, "OK", TestHelper.display, value);
+    }
+
+    @Test
+    public void testRollup() throws Exception
+    {
+        final TestWriter writer = new TestWriter();
+        final Rollup rollup = new Rollup(60);
+
+        // Three values in the first minute
+        rollup.add(writer, channel, newValue(600, 1.0));
+        rollup.add(writer, channel, newValue(610, 3.0));
+        rollup.add(writer, channel, newValue(659, 2.0));
+        // Strings don't count
+        rollup.add(writer, channel, new ArchiveVString(Timestamp.of(620, 0), AlarmSeverity.NONE, "OK", "Text"));
+        assertEquals(0, writer.rollups.size());
+
+        // Next minute completes the first one
+        rollup.add(writer, channel, newValue(660, 5.0));
+        assertEquals(1, writer.rollups.size());
+        assertEquals("test 60 600: 1.0 3.0 2.0 3", writer.rollups.get(0));
+        assertEquals(Math.sqrt(2.0/3), writer.stddevs.get(0), 1e-9);
+
+        // Skip a few minutes, completing the second one
+        rollup.add(writer, channel, newValue(1000, 7.0));
+        assertEquals(2, writer.rollups.size());
+        assertEquals("test 60 660: 5.0 5.0 5.0 1", writer.rollups.get(1));
+        assertEquals(0.0, writer.stddevs.get(1), 1e-9);
+
+        // Back-in-time values are ignored
+        rollup.add(writer, channel, newValue(700, 0.0));
+        rollup.add(writer, channel, newValue(1100, 8.0));
+        assertEquals(3, writer.rollups.size());
+        assertEquals("test 60 960: 7.0 7.0 7.0 1", writer.rollups.get(2));
+    }
+
+    @Test
+    public void testPartialFirstPeriod() throws Exception
+    {
+        final TestWriter writer = new TestWriter();
+        final Rollup rollup = new Rollup(60);
+
+        // Started within a minute: Samples from its start are missing
+        rollup.add(writer, channel, newValue(630, 1.0));
+        rollup.add(writer, channel, newValue(650, 2.0));
+        // Next minute would complete the first one, which is skipped
+        rollup.add(writer, channel, newValue(660, 3.0));
+        assertEquals(0, writer.rollups.size());
+
+        // Following minutes are complete
+        rollup.add(writer, channel, newValue(720, 4.0));
+        assertEquals(1, writer.rollups.size());
+        assertEquals("test 60 660: 3.0 3.0 3.0 1", writer.rollups.get(0));
+    }
+}
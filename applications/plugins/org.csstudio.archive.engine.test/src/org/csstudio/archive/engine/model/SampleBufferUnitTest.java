@@ -9,6 +9,9 @@ package org.csstudio.archive.engine.model;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.csstudio.archive.vtype.VTypeHelper;
 import org.epics.vtype.VType;
 import org.junit.Test;
@@ -53,6 +56,22 @@ public class SampleBufferUnitTest
 		assertEquals(1.0, VTypeHelper.toDouble(value), 0.01);
 	}
 
+	/** Remove several values */
+	@Test
+	public void testDrain()
+	{
+		for (int i=0; i<5; ++i)
+			buffer.add(TestHelper.newValue(i));
+		final List<VType> values = new ArrayList<VType>();
+		assertEquals(3, buffer.drainTo(values, 3));
+		assertEquals(2, buffer.getQueueSize());
+		assertEquals(2, buffer.drainTo(values, 3));
+		assertEquals(0, buffer.drainTo(values, 3));
+		assertEquals(5, values.size());
+		for (int i=0; i<5; ++i)
+			assertEquals((double)i, VTypeHelper.toDouble(values.get(i)), 0.01);
+	}
+
 	final private static long TEST_RUNS = 1000L;
 
 	class FillThread extends Thread
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.apputil.time.BenchmarkTimer;
+import org.junit.Test;
+
+/** Unit test of the ScanWheel
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScanWheelUnitTest
+{
+    final private static double period = 3.0;
+    final private static double fast_period = 1.0;
+
+    /** Scannable item that counts invocations */
+    static class ScanItem implements Runnable
+    {
+        final String name;
+        final long delay;
+        final AtomicInteger scans = new AtomicInteger();
+
+        ScanItem(final String name, final long delay)
+        {
+            this.name = name;
+            this.delay = delay;
+        }
+
+        ScanItem(final String name)
+        {
+            this(name, 0);
+        }
+
+        @Override
+        public void run()
+        {
+            System.out.format("%s scans: %d\n", name, scans.incrementAndGet());
+            if (delay > 0)
+            {
+                try
+                {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    /** Add, re-add, remove items */
+    @Test
+    public void testConfig() throws Exception
+    {
+        final ScanWheel scanner = new ScanWheel();
+        assertEquals(0, scanner.size());
+
+        final ScanItem item1 = new ScanItem("Item1");
+        scanner.add(item1, period);
+        assertEquals(1, scanner.size());
+        double delay = scanner.getDelay(item1);
+        System.out.println("Due in " + delay + " sec...");
+        assertEquals(period, delay, 0.1);
+
+        // Now due at fast period, replacing the previous entry
+        scanner.add(item1, fast_period);
+        assertEquals(1, scanner.size());
+        delay = scanner.getDelay(item1);
+        assertEquals(fast_period, delay, 0.1);
+
+        // Items far in the future end up in outer wheels
+        final ScanItem item2 = new ScanItem("Item2");
+        scanner.add(item2, 24*60*60.0);
+        assertEquals(2, scanner.size());
+        assertEquals(24*60*60.0, scanner.getDelay(item2), 0.1);
+
+        scanner.remove(item1);
+        assertEquals(1, scanner.size());
+        assertEquals(-1.0, scanner.getDelay(item1), 0.01);
+
+        scanner.clear();
+        assertEquals(0, scanner.size());
+    }
+
+    /** Periods that are multiples of the wheel size are due when an
+     *  outer wheel cascades. They must run on that tick, without drift.
+     */
+    @Test
+    public void testCascadeWithoutDrift() throws Exception
+    {
+        final ScanWheel scanner = new ScanWheel();
+        final List<Long> ticks = new ArrayList<Long>();
+        final List<Long> slow_ticks = new ArrayList<Long>();
+        // 64 ticks: Level 1 wheel
+        scanner.add(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ticks.add(scanner.getCurrentTick());
+            }
+        }, 6.4);
+        // 64*64 ticks: Level 2 wheel
+        scanner.add(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                slow_ticks.add(scanner.getCurrentTick());
+            }
+        }, 409.6);
+
+        for (int i=0; i<3*4096; ++i)
+            scanner.runTick();
+
+        assertEquals(3*64, ticks.size());
+        for (int i=0; i<ticks.size(); ++i)
+            assertEquals(64L*(i+1), ticks.get(i).longValue());
+        assertEquals(3, slow_ticks.size());
+        for (int i=0; i<slow_ticks.size(); ++i)
+            assertEquals(4096L*(i+1), slow_ticks.get(i).longValue());
+        assertEquals(0, scanner.getMissedScans());
+    }
+
+    /** Run scanner, check period and jitter */
+    @Test(timeout=20000)
+    public void testScan() throws Exception
+    {
+        final ScanWheel scanner = new ScanWheel(2);
+        final ScanItem item = new ScanItem("Item");
+        final ScanItem slow = new ScanItem("Slow");
+        scanner.add(item, fast_period);
+        scanner.add(slow, period);
+
+        scanner.start();
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        while (item.scans.get() < 3)
+            Thread.sleep(100);
+        timer.stop();
+        System.out.format("Elapsed: %.2f secs\n", timer.getSeconds());
+        // Should take about 3 seconds...
+        assertTrue(timer.getSeconds() > 2.0);
+        assertTrue(timer.getSeconds() < 4.0);
+        assertTrue(slow.scans.get() <= 1);
+
+        scanner.stop();
+        final int scans = item.scans.get();
+        Thread.sleep(2000);
+        assertEquals("Unexpected scans", scans, item.scans.get());
+
+        System.out.format("Idle: %.2f %%\n", scanner.getIdlePercentage());
+        System.out.format("Jitter: %.3f sec avg, %.3f sec max\n",
+                          scanner.getAverageJitter(), scanner.getMaxJitter());
+        assertTrue(scanner.getMaxJitter() < 0.5);
+        assertEquals(0, scanner.getMissedScans());
+    }
+
+    /** Scans that take longer than their period */
+    @Test(timeout=20000)
+    public void testMissedScans() throws Exception
+    {
+        final ScanWheel scanner = new ScanWheel(1);
+        final ScanItem item = new ScanItem("Busy", 350);
+        scanner.add(item, 0.1);
+        scanner.start();
+        Thread.sleep(2000);
+        scanner.stop();
+        System.out.format("Scans: %d, missed: %d, idle %.2f %%\n",
+                          item.scans.get(), scanner.getMissedScans(), scanner.getIdlePercentage());
+        assertTrue(scanner.getMissedScans() > 0);
+        assertTrue(scanner.getIdlePercentage() < 50.0);
+    }
+
+    /** Many items, checking that all are scanned in parallel */
+    @Test(timeout=30000)
+    public void testManyItems() throws Exception
+    {
+        final ScanWheel scanner = new ScanWheel(4);
+        final int count = 20000;
+        final ScanItem[] items = new ScanItem[count];
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        for (int i=0; i<count; ++i)
+        {
+            items[i] = new ScanItem("Item" + i)
+            {
+                @Override
+                public void run()
+                {
+                    scans.incrementAndGet();
+                }
+            };
+            scanner.add(items[i], 0.5 + (i % 10) * 0.1);
+        }
+        timer.stop();
+        System.out.format("Added %d items in %.3f secs\n", count, timer.getSeconds());
+        scanner.start();
+        Thread.sleep(2000);
+        scanner.stop();
+        for (ScanItem item : items)
+            assertTrue(item.scans.get() >= 1);
+        System.out.format("Jitter: %.3f sec avg, %.3f sec max, idle %.2f %%\n",
+                          scanner.getAverageJitter(), scanner.getMaxJitter(), scanner.getIdlePercentage());
+    }
+}
@@ -45,6 +45,9 @@ public class Messages
     final public static String HTTP_QueueCapacity = "Capacity";
     final public static String HTTP_QueueOverruns = "Overruns";
     final public static String HTTP_ReceivedValues = "Received Values";
+    final public static String HTTP_ScanJitter = "Scan Jitter (Avg/Max)";
+    final public static String HTTP_ScanMissed = "Missed Scans";
+    final public static String HTTP_ScanThreads = "Scan Threads";
     final public static String HTTP_StartTime = "Start Time";
     final public static String HTTP_State = "State";
     final public static String HTTP_Status = "Status";
@@ -54,7 +57,10 @@ public class Messages
     final public static String HTTP_Workspace = "Workspace";
     final public static String HTTP_WriteCount = "Write Count";
     final public static String HTTP_WriteDuration = "Write Duration";
+    final public static String HTTP_WriteStages = "Assemble/Execute/Commit";
     final public static String HTTP_WriteError = "Write Error";
     final public static String HTTP_WritePeriod = "Write Period";
     final public static String HTTP_WriteState = "Write State";
+    final public static String HTTP_WriteThread = "Write Thread";
+    final public static String HTTP_WriteThreads = "Write Threads";
 }
@@ -49,6 +49,24 @@ public class Preferences
         return prefs.getInt(Activator.ID, "batch_size", batch_size, null);
 	}
 	
+	public static int getWriteThreads()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int write_threads = 1;
+        if (prefs == null)
+        	return write_threads;
+        return prefs.getInt(Activator.ID, "write_threads", write_threads, null);
+	}
+
+	public static int getScanThreads()
+	{
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int scan_threads = 2;
+        if (prefs == null)
+        	return scan_threads;
+        return prefs.getInt(Activator.ID, "scan_threads", scan_threads, null);
+	}
+
 	public static double getBufferReserve()
 	{
         final IPreferencesService prefs = Platform.getPreferencesService();
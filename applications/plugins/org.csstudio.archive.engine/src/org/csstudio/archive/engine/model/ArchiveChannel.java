@@ -456,8 +456,10 @@ abstract public class ArchiveChannel extends PVListenerAdapter
             }
             // else ...
 	        last_archived_value = value;
+	        // Add while holding the channel lock:
+	        // Sample buffer expects one thread at a time to add
+	        buffer.add(value);
         }
-        buffer.add(value);
         if (SampleBuffer.isInErrorState())
             need_write_error_sample = true;
         return true;
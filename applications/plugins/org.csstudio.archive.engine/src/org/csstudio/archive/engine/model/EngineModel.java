@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.csstudio.archive.config.ArchiveConfig;
 import org.csstudio.archive.config.ChannelConfig;
@@ -19,8 +20,7 @@ import org.csstudio.archive.config.GroupConfig;
 import org.csstudio.archive.config.SampleMode;
 import org.csstudio.archive.engine.Activator;
 import org.csstudio.archive.engine.Preferences;
-import org.csstudio.archive.engine.scanner.ScanThread;
-import org.csstudio.archive.engine.scanner.Scanner;
+import org.csstudio.archive.engine.scanner.ScanWheel;
 import org.csstudio.archive.vtype.ArchiveVString;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.epics.util.time.Timestamp;
@@ -40,8 +40,10 @@ public class EngineModel
     /** Name of this model */
     private String name = "Archive Engine";  //$NON-NLS-1$
 
-    /** Thread that writes to the <code>archive</code> */
-    final private WriteThread writer;
+    /** Threads that write to the <code>archive</code>,
+     *  each handling a subset of the channels
+     */
+    final private WriteThread[] writers;
 
     /** All the channels.
      *  <p>
@@ -62,10 +64,7 @@ public class EngineModel
     final List<ArchiveGroup> groups = new ArrayList<ArchiveGroup>();
 
     /** Scanner for scanned channels */
-    final Scanner scanner = new Scanner();
-
-    /** Thread that runs the scanner */
-    final ScanThread scan_thread = new ScanThread(scanner);
+    final ScanWheel scanner = new ScanWheel(Preferences.getScanThreads());
 
     /** Engine states */
     public enum State
@@ -97,6 +96,9 @@ public class EngineModel
     /** Write batch size */
     final private static int batch_size = Preferences.getBatchSize();
 
+    /** Number of write threads */
+    final private static int write_threads = Preferences.getWriteThreads();
+
     /** Buffer reserve (N times what's ideally needed) */
     final private static double buffer_reserve = Preferences.getBufferReserve();
 
@@ -106,7 +108,14 @@ public class EngineModel
     /** Construct model that writes to archive */
     public EngineModel()
     {
-        writer = new WriteThread();
+        if (write_threads <= 1)
+            writers = new WriteThread[] { new WriteThread() };
+        else
+        {
+            writers = new WriteThread[write_threads];
+            for (int i=0; i<writers.length; ++i)
+                writers[i] = new WriteThread("WriteThread " + (i+1)); //$NON-NLS-1$
+        }
     }
 
     /** @return Name (description) */
@@ -277,7 +286,7 @@ public class EngineModel
             channels.add(channel);
             channel_by_name.put(channel.getName(), channel);
         }
-        writer.addChannel(channel);
+        getWriteThread(channel.getName()).addChannel(channel);
 
         // Connect new or old channel to group
         channel.addGroup(group);
@@ -291,7 +300,8 @@ public class EngineModel
     {
         start_time = Timestamp.now();
         state = State.RUNNING;
-        writer.start(write_period, batch_size);
+        for (WriteThread writer : writers)
+            writer.start(write_period, batch_size);
         for (ArchiveGroup group : groups)
         {
             group.start();
@@ -301,33 +311,133 @@ public class EngineModel
             if (state == State.SHUTDOWN_REQUESTED)
                 break;
         }
-        scan_thread.start();
+        scanner.start();
+    }
+
+    /** @return Number of write threads */
+    public int getWriteThreadCount()
+    {
+        return writers.length;
+    }
+
+    /** @param i Write thread index, 0 ... <code>getWriteThreadCount()-1</code>
+     *  @return Write thread
+     */
+    public WriteThread getWriteThread(final int i)
+    {
+        return writers[i];
     }
 
-    /** @return Timestamp of end of last write run */
+    /** @param channel_name Name of a channel
+     *  @return Write thread that handles the channel
+     */
+    private WriteThread getWriteThread(final String channel_name)
+    {
+        // Mask sign bit, Math.abs(Integer.MIN_VALUE) would remain negative
+        final int hash = channel_name.hashCode() & Integer.MAX_VALUE;
+        return writers[hash % writers.length];
+    }
+
+    /** @return Timestamp of end of last write run
+     *          (latest of all write threads)
+     */
     public Timestamp getLastWriteTime()
     {
-        return writer.getLastWriteTime();
+        Timestamp last = null;
+        for (WriteThread writer : writers)
+        {
+            final Timestamp time = writer.getLastWriteTime();
+            if (last == null  ||  (time != null  &&  time.compareTo(last) > 0))
+                last = time;
+        }
+        return last;
     }
 
-    /** @return Average number of values per write run */
+    /** @return Average number of values per write run
+     *          (sum over all write threads)
+     */
     public double getWriteCount()
     {
-        return writer.getWriteCount();
+        double count = 0.0;
+        for (WriteThread writer : writers)
+            count += writer.getWriteCount();
+        return count;
     }
 
-    /** @return  Average duration of write run in seconds */
+    /** @return  Average duration of write run in seconds
+     *           (slowest of all write threads)
+     */
     public double getWriteDuration()
     {
-        return writer.getWriteDuration();
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getWriteDuration());
+        return duration;
+    }
+
+    /** @return Average time spent assembling batches per write run in seconds
+     *          (slowest of all write threads)
+     */
+    public double getAssembleDuration()
+    {
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getAssembleDuration());
+        return duration;
     }
 
-    /** @see Scanner#getIdlePercentage() */
+    /** @return Average time spent executing batches per write run in seconds
+     *          (slowest of all write threads)
+     */
+    public double getExecuteDuration()
+    {
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getExecuteDuration());
+        return duration;
+    }
+
+    /** @return Average time spent committing batches per write run in seconds
+     *          (slowest of all write threads)
+     */
+    public double getCommitDuration()
+    {
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getCommitDuration());
+        return duration;
+    }
+
+    /** @see ScanWheel#getIdlePercentage() */
     public double getIdlePercentage()
     {
         return scanner.getIdlePercentage();
     }
 
+    /** @return Number of scan worker threads */
+    public int getScanThreadCount()
+    {
+        return scanner.getWorkerCount();
+    }
+
+    /** @see ScanWheel#getAverageJitter() */
+    public double getAverageScanJitter()
+    {
+        return scanner.getAverageJitter();
+    }
+
+    /** @see ScanWheel#getMaxJitter() */
+    public double getMaxScanJitter()
+    {
+        return scanner.getMaxJitter();
+    }
+
+    /** @see ScanWheel#getMissedScans() */
+    public long getMissedScans()
+    {
+        return scanner.getMissedScans();
+    }
+
     /** Ask the model to stop.
      *  Merely updates the model state.
      *  @see #getState()
@@ -352,7 +462,8 @@ public class EngineModel
     /** Reset engine statistics */
     public void reset()
     {
-        writer.reset();
+        for (WriteThread writer : writers)
+            writer.reset();
         scanner.reset();
         synchronized (this)
         {
@@ -367,17 +478,34 @@ public class EngineModel
     {
         state = State.STOPPING;
         Activator.getLogger().info("Stopping scanner");
-        // Stop scanning
-        scan_thread.stop();
-        // Assert that scanning has stopped before we add 'off' events
-        scan_thread.join();
+        // Stop scanning.
+        // Returns once scans in progress have completed,
+        // assert that scanning has stopped before we add 'off' events
+        scanner.stop();
         // Disconnect from network
         Activator.getLogger().info("Stopping archive groups");
         for (ArchiveGroup group : groups)
             group.stop();
         // Flush all values out
         Activator.getLogger().info("Stopping writer");
-        writer.shutdown();
+        // Shut down all write threads, then report the first error
+        Exception error = null;
+        for (WriteThread writer : writers)
+        {
+            try
+            {
+                writer.shutdown();
+            }
+            catch (Exception ex)
+            {
+                if (error == null)
+                    error = ex;
+                else
+                    Activator.getLogger().log(Level.WARNING, writer.getName() + " shutdown error", ex);
+            }
+        }
+        if (error != null)
+            throw error;
         // Update state
         state = State.IDLE;
         start_time = null;
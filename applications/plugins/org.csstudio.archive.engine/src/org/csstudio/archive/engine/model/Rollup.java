@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.archive.writer.ArchiveRollupWriter;
+import org.csstudio.archive.writer.WriteChannel;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+
+/** Accumulates min/max/average/std. deviation/count of a channel's samples
+ *  for one rollup period.
+ *  <p>
+ *  Periods are aligned to multiples of the period length
+ *  since 1970-01-01 UTC.
+ *  A period is added to the {@link ArchiveRollupWriter}
+ *  once a sample for a later period arrives,
+ *  so the last, incomplete period is never written.
+ *  The first period is also skipped unless its first sample
+ *  is at the start of the period, because samples from before
+ *  for example a restart of the engine would be missing.
+ *  <p>
+ *  Only accessed by the {@link WriteThread}.
+ *  @author Kay Kasemir
+ */
+class Rollup
+{
+    /** Period in seconds */
+    final private int period;
+
+    /** Start of current period in epoch seconds, or -1 */
+    private long start = -1;
+
+    /** Is the current period missing samples from its start? */
+    private boolean partial = false;
+
+    private double min, max, sum, sum_squares;
+    private long count;
+
+    /** @param period Period in seconds */
+    Rollup(final int period)
+    {
+        this.period = period;
+    }
+
+    /** @return Period in seconds */
+    int getPeriod()
+    {
+        return period;
+    }
+
+    /** Add a sample
+     *  @param writer Writer for completed rollup periods
+     *  @param channel Channel
+     *  @param sample Sample. Non-numeric samples are ignored.
+     *  @throws Exception on error
+     */
+    void add(final ArchiveRollupWriter writer, final WriteChannel channel,
+             final VType sample) throws Exception
+    {
+        final double value = VTypeHelper.toDouble(sample);
+        if (Double.isNaN(value)  ||  Double.isInfinite(value))
+            return;
+        final Timestamp time = VTypeHelper.getTimestamp(sample);
+        final long secs = time.getSec();
+        final long sample_start = secs - (secs % period);
+        if (sample_start < start)
+            return; // Back in time
+        if (sample_start > start)
+        {
+            if (count > 0  &&  !partial)
+            {
+                final double average = sum / count;
+                final double stddev = Math.sqrt(Math.max(0.0, sum_squares / count - average*average));
+                writer.addRollup(channel, period, Timestamp.of(start, 0),
+                                 min, max, average, stddev, count);
+            }
+            partial = start < 0  &&  (secs > sample_start  ||  time.getNanoSec() > 0);
+            start = sample_start;
+            min = max = value;
+            sum = sum_squares = 0.0;
+            count = 0;
+        }
+        else
+        {
+            if (value < min)
+                min = value;
+            if (value > max)
+                max = value;
+        }
+        sum += value;
+        sum_squares += value * value;
+        ++count;
+    }
+}
@@ -7,9 +7,13 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
-import org.csstudio.apputil.ringbuffer.RingBuffer;
+import org.csstudio.apputil.ringbuffer.ConcurrentRingBuffer;
 import org.csstudio.archive.engine.ThrottledLogger;
 import org.epics.vtype.VType;
 
@@ -18,6 +22,11 @@ import org.epics.vtype.VType;
  *  Assumes that one thread adds samples, while a different
  *  thread removes them.
  *  When the queue size is reached, older samples get dropped.
+ *  <p>
+ *  The queue is lock-free, so the thread that adds samples
+ *  is never blocked by the thread that removes samples.
+ *  Threads that add samples for the same channel must synchronize
+ *  among themselves, which the {@link ArchiveChannel} does.
  *
  *  @author Kay Kasemir
  */
@@ -29,8 +38,8 @@ public class SampleBuffer
      */
     final private String channel_name;
 
-    /** The actual samples in a thread-save queue. */
-    final private RingBuffer<VType> samples;
+    /** The actual samples in a lock-free queue. */
+    final private ConcurrentRingBuffer<VType> samples;
 
     /** Statistics */
     final private BufferStats stats = new BufferStats();
@@ -42,16 +51,17 @@ public class SampleBuffer
     final private static ThrottledLogger overrun_msg =
         new ThrottledLogger(Level.WARNING, "log_overrun"); //$NON-NLS-1$
 
-    /** Is the buffer in an error state because of RDB write errors?
+    /** Write threads that are in an error state because of RDB write errors.
      *  Note that this is global for all buffers, not per instance!
      */
-    private static volatile boolean error = false;
+    private static final Set<WriteThread> errors =
+        Collections.newSetFromMap(new ConcurrentHashMap<WriteThread, Boolean>());
 
     /** Create sample buffer of given capacity */
     SampleBuffer(final String channel_name, final int capacity)
     {
         this.channel_name = channel_name;
-        samples = new RingBuffer<VType>(capacity);
+        samples = new ConcurrentRingBuffer<VType>(capacity);
     }
 
     /** @return channel name of this buffer */
@@ -63,62 +73,65 @@ public class SampleBuffer
     /** @return Queue capacity, i.e. maximum queue size. */
     public int getCapacity()
     {
-    	synchronized (samples)
-        {
-    		return samples.getCapacity();
-        }
+        return samples.getCapacity();
     }
 
     /** @return Current queue size, i.e. number of samples in the queue. */
     public int getQueueSize()
     {
-    	synchronized (samples)
-        {
-    		return samples.size();
-        }
+        return samples.size();
     }
 
     /** @return <code>true</code> if currently experiencing write errors */
     public static boolean isInErrorState()
     {
-        return error;
+        return ! errors.isEmpty();
     }
 
-    /** Set the error state. */
-    static void setErrorState(final boolean error)
+    /** Set the error state.
+     *  @param writer Write thread that reports its state
+     *  @param error <code>true</code> if that write thread has write errors
+     */
+    static void setErrorState(final WriteThread writer, final boolean error)
     {
-        SampleBuffer.error = error;
+        if (error)
+            errors.add(writer);
+        else
+            errors.remove(writer);
     }
 
     /** Add a sample to the queue, maybe dropping older samples */
     @SuppressWarnings("nls")
     void add(final VType value)
     {
-    	synchronized (samples)
-        {
-            if (samples.isFull())
-            {   // Note start of overruns, then drop older sample
-                if (start_of_overruns == null)
-                    start_of_overruns = Integer.valueOf(stats.getOverruns());
-                stats.addOverrun();
-            }
-            else if (start_of_overruns != null)
-            {   // Ending a string of overruns. Maybe log it.
-                final int overruns = stats.getOverruns() - start_of_overruns;
-                overrun_msg.log(channel_name + ": " + overruns + " overruns");
-                start_of_overruns = null;
-            }
-            samples.add(value);
+        if (samples.add(value))
+        {   // Note start of overruns, older sample was dropped
+            if (start_of_overruns == null)
+                start_of_overruns = Integer.valueOf(stats.getOverruns());
+            stats.addOverrun();
+        }
+        else if (start_of_overruns != null)
+        {   // Ending a string of overruns. Maybe log it.
+            final int overruns = stats.getOverruns() - start_of_overruns;
+            overrun_msg.log(channel_name + ": " + overruns + " overruns");
+            start_of_overruns = null;
         }
     }
 
     /** @return latest sample in queue or <code>null</code> if empty */
     VType remove()
     {
-    	synchronized (samples)
-        {
-            return samples.remove();
-        }
+        return samples.remove();
+    }
+
+    /** Remove several samples
+     *  @param collection Collection to which the oldest samples are added
+     *  @param max Maximum number of samples to remove
+     *  @return Number of samples that were removed
+     */
+    int drainTo(final Collection<? super VType> collection, final int max)
+    {
+        return samples.drainTo(collection, max);
     }
 
     /** Update stats with current values */
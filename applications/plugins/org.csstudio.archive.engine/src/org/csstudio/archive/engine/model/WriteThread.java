@@ -8,12 +8,17 @@
 package org.csstudio.archive.engine.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
 import org.csstudio.archive.engine.Activator;
+import org.csstudio.archive.writer.ArchiveRollupWriter;
 import org.csstudio.archive.writer.ArchiveWriter;
 import org.csstudio.archive.writer.ArchiveWriterFactory;
+import org.csstudio.archive.writer.ArchiveWriterStatistics;
 import org.csstudio.archive.writer.WriteChannel;
 import org.csstudio.util.stats.Average;
 import org.epics.util.time.Timestamp;
@@ -29,6 +34,12 @@ import org.epics.vtype.VType;
  *  be lost.
  *  The channels that add samples to the sample buffer supposedly notice
  *  the error condition and add a special indicator once we recover.
+ *  <p>
+ *  The engine may use several write threads, each with its own
+ *  <code>ArchiveWriter</code> and its own subset of sample buffers.
+ *  <p>
+ *  When the writer supports it, the thread also computes
+ *  and writes the rollups of the samples.
  *
  *  @author Kay Kasemir
  */
@@ -37,6 +48,9 @@ public class WriteThread implements Runnable
     /** Minimum write period [seconds] */
     private static final double MIN_WRITE_PERIOD = 5.0;
 
+    /** Name of this write thread */
+    final private String name;
+
     /** Server to which this thread writes. */
     private ArchiveWriter writer;
 
@@ -44,6 +58,10 @@ public class WriteThread implements Runnable
     final private ArrayList<SampleBuffer> buffers =
         new ArrayList<SampleBuffer>();
 
+    /** Rollups of each sample buffer, only used when writer supports them */
+    final private Map<SampleBuffer, Rollup[]> rollups =
+        new HashMap<SampleBuffer, Rollup[]>();
+
     /** Flag that tells the write thread to run or quit. */
     private boolean do_run;
 
@@ -67,9 +85,42 @@ public class WriteThread implements Runnable
     /** Average duration of write run */
     private Average write_time = new Average();
 
+    /** Average duration of the write stages per write run, if writer provides them */
+    private Average assemble_time = new Average(),
+                    execute_time = new Average(),
+                    commit_time = new Average();
+
+    /** Total duration of the write stages reported by the current writer
+     *  at the end of the previous write run
+     */
+    private double last_assemble = 0.0, last_execute = 0.0, last_commit = 0.0;
+
+    /** Did the last write run fail? */
+    private volatile boolean write_error = false;
+
     /** Thread the executes this.run() */
     private Thread thread;
 
+    /** Initialize */
+    public WriteThread()
+    {
+        this("WriteThread"); //$NON-NLS-1$
+    }
+
+    /** Initialize
+     *  @param name Name of the write thread
+     */
+    public WriteThread(final String name)
+    {
+        this.name = name;
+    }
+
+    /** @return Name of the write thread */
+    public String getName()
+    {
+        return name;
+    }
+
     /** Add a channel's buffer that this thread reads */
     public void addChannel(final ArchiveChannel channel)
     {
@@ -82,6 +133,12 @@ public class WriteThread implements Runnable
         buffers.add(buffer);
     }
 
+    /** @return Number of sample buffers that this thread reads */
+    public int getChannelCount()
+    {
+        return buffers.size();
+    }
+
     /** Start the write thread.
      *  @param write_period Period between writes in seconds
      *  @param batch_size Number of values to batch
@@ -97,7 +154,7 @@ public class WriteThread implements Runnable
         }
         millisec_delay = (int)(1000.0 * write_period);
         this.batch_size = batch_size;
-        thread = new Thread(this, "WriteThread");
+        thread = new Thread(this, name);
         thread.start();
     }
 
@@ -106,6 +163,9 @@ public class WriteThread implements Runnable
     {
         write_count.reset();
         write_time.reset();
+        assemble_time.reset();
+        execute_time.reset();
+        commit_time.reset();
     }
 
     /** Ask the write thread to stop ASAP. */
@@ -136,6 +196,30 @@ public class WriteThread implements Runnable
         return write_time.get();
     }
 
+    /** @return Average time spent assembling batches per write run in seconds */
+    public double getAssembleDuration()
+    {
+        return assemble_time.get();
+    }
+
+    /** @return Average time spent executing batches per write run in seconds */
+    public double getExecuteDuration()
+    {
+        return execute_time.get();
+    }
+
+    /** @return Average time spent committing batches per write run in seconds */
+    public double getCommitDuration()
+    {
+        return commit_time.get();
+    }
+
+    /** @return <code>true</code> if the last write run failed */
+    public boolean isInErrorState()
+    {
+        return write_error;
+    }
+
     /** 'Main loop' of the write thread.
      *  <p>
      *  Writes all values out, then waits.
@@ -153,9 +237,8 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void run()
     {
-        Activator.getLogger().info("WriteThread starts");
+        Activator.getLogger().info(name + " starts");
         final BenchmarkTimer timer = new BenchmarkTimer();
-        boolean write_error = false;
         do_run = true;
         while (do_run)
         {
@@ -175,7 +258,11 @@ public class WriteThread implements Runnable
                     // .. and we continue to write.
                 }
                 if (writer == null)
+                {
                 	writer = ArchiveWriterFactory.getArchiveWriter();
+                	// New writer starts its statistics at zero
+                	last_assemble = last_execute = last_commit = 0.0;
+                }
                 timer.start();
                 // In case of a network problem, we can hang in here
                 // for a long time...
@@ -184,6 +271,20 @@ public class WriteThread implements Runnable
                 last_write_stamp = Timestamp.now();
                 write_count.update(written);
                 write_time.update(timer.getSeconds());
+                if (writer instanceof ArchiveWriterStatistics)
+                {
+                    // Writer reports totals for all flushes, use this run's share
+                    final ArchiveWriterStatistics stats = (ArchiveWriterStatistics) writer;
+                    final double assemble = stats.getAssembleSeconds(),
+                                 execute = stats.getExecuteSeconds(),
+                                 commit = stats.getCommitSeconds();
+                    assemble_time.update(assemble - last_assemble);
+                    execute_time.update(execute - last_execute);
+                    commit_time.update(commit - last_commit);
+                    last_assemble = assemble;
+                    last_execute = execute;
+                    last_commit = commit;
+                }
                 // How much of the scheduled delay is left after write()?
                 delay = millisec_delay - timer.getMilliseconds();
             }
@@ -194,7 +295,7 @@ public class WriteThread implements Runnable
                 delay = millisec_delay;
                 write_error = true;
             }
-            SampleBuffer.setErrorState(write_error);
+            SampleBuffer.setErrorState(this, write_error);
             // See if there's any time left to wait,
             // or if we already used all that time in the last 'write'
             if (delay > 0)
@@ -212,7 +313,7 @@ public class WriteThread implements Runnable
                 }
             }
         }
-        Activator.getLogger().info("WriteThread exists");
+        Activator.getLogger().info(name + " exists");
     }
 
     /** Stop the write thread, performing a final write. */
@@ -238,6 +339,28 @@ public class WriteThread implements Runnable
         }
     }
 
+    /** @param rollup_writer Writer for rollups or <code>null</code>
+     *  @param buffer Sample buffer
+     *  @return Rollups for the sample buffer or <code>null</code>
+     */
+    private Rollup[] getRollups(final ArchiveRollupWriter rollup_writer, final SampleBuffer buffer)
+    {
+        if (rollup_writer == null)
+            return null;
+        final int[] periods = rollup_writer.getRollupPeriods();
+        if (periods.length <= 0)
+            return null;
+        Rollup[] result = rollups.get(buffer);
+        if (result == null)
+        {
+            result = new Rollup[periods.length];
+            for (int i=0; i<periods.length; ++i)
+                result[i] = new Rollup(periods[i]);
+            rollups.put(buffer, result);
+        }
+        return result;
+    }
+
     /** Write right now until all sample buffers are empty
      *  @return number of samples written
      */
@@ -245,6 +368,10 @@ public class WriteThread implements Runnable
     {
         int total_count = 0;
         int count = 0;
+        final List<VType> samples = new ArrayList<VType>(batch_size);
+        final ArchiveRollupWriter rollup_writer = (writer instanceof ArchiveRollupWriter)
+            ? (ArchiveRollupWriter) writer
+            : null;
         for (SampleBuffer buffer : buffers)
         {
             // Update max buffer length etc. before we start to remove samples
@@ -252,20 +379,25 @@ public class WriteThread implements Runnable
             // Write samples for one channel
             final String name = buffer.getChannelName();
             final WriteChannel channel = writer.getChannel(name);
-            VType sample = buffer.remove();
-            while (sample != null)
-            {   // Write one value
-                writer.addSample(channel, sample);
-                // Note: count across different sample buffers!
-                ++count;
-                if (count > batch_size)
-                {
-                    total_count += count;
-                    count = 0;
-                    writer.flush();
+            final Rollup[] channel_rollups = getRollups(rollup_writer, buffer);
+            while (buffer.drainTo(samples, batch_size) > 0)
+            {
+                for (VType sample : samples)
+                {   // Write one value
+                    writer.addSample(channel, sample);
+                    if (channel_rollups != null)
+                        for (Rollup rollup : channel_rollups)
+                            rollup.add(rollup_writer, channel, sample);
+                    // Note: count across different sample buffers!
+                    ++count;
+                    if (count > batch_size)
+                    {
+                        total_count += count;
+                        count = 0;
+                        writer.flush();
+                    }
                 }
-                // next
-                sample = buffer.remove();
+                samples.clear();
             }
         }
         // Flush remaining samples (less than batch_size)
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.csstudio.archive.engine.Activator;
+import org.csstudio.util.stats.Average;
+
+/** Hierarchical timer wheel for scanning many items at various periods.
+ *  <p>
+ *  Time advances in 'ticks' of {@link #GRANULARITY}.
+ *  Items that are due within the next {@link #SLOTS} ticks
+ *  are kept in the slots of the innermost wheel,
+ *  items due later are kept in coarser outer wheels
+ *  and cascade inward as their due time approaches.
+ *  Each slot is a doubly linked list, so adding or removing an item
+ *  does not depend on the number of items or scan periods.
+ *  <p>
+ *  A timer thread advances the wheel and hands due items
+ *  to a pool of worker threads.
+ *  An item is re-scheduled once its scan completed,
+ *  so the same item never runs in parallel with itself.
+ *  When a scan takes so long that scheduled runs pass,
+ *  those are counted as 'missed'.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScanWheel
+{
+    /** Granularity in seconds, the duration of one 'tick' */
+    final private static double GRANULARITY = 0.1;
+
+    /** Duration of one tick in nanoseconds */
+    final private static long TICK_NANOS = Math.round(GRANULARITY * 1e9);
+
+    /** Bits per wheel level */
+    final private static int SLOT_BITS = 6;
+
+    /** Slots per wheel level */
+    final private static int SLOTS = 1 << SLOT_BITS;
+
+    /** Mask for slot index */
+    final private static int SLOT_MASK = SLOTS - 1;
+
+    /** Number of wheel levels.
+     *  With 0.1 second ticks, 4 levels of 64 slots cover ~19 days.
+     *  Items further out are parked in the outermost level
+     *  and re-inserted when that slot cascades.
+     */
+    final private static int LEVELS = 4;
+
+    /** Scheduled item, also the node in a slot's list */
+    private class Task implements Runnable
+    {
+        final Runnable item;
+        final long period_ticks;
+        /** Tick when this task is due to run */
+        long due_tick;
+        /** Neighbors in slot list, <code>null</code> when not in a slot */
+        Task prev, next;
+        /** Set when removed from the scanner */
+        volatile boolean removed = false;
+
+        /** Sentinel */
+        Task()
+        {
+            item = null;
+            period_ticks = 0;
+            prev = next = this;
+        }
+
+        Task(final Runnable item, final long period_ticks)
+        {
+            this.item = item;
+            this.period_ticks = period_ticks;
+        }
+
+        /** Executed by worker thread */
+        @Override
+        public void run()
+        {
+            updateJitter(System.nanoTime() - (start_nanos + due_tick * TICK_NANOS));
+            busy_workers.incrementAndGet();
+            try
+            {
+                item.run();
+            }
+            catch (Throwable ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Scan failed for " + item, ex);
+            }
+            finally
+            {
+                busy_workers.decrementAndGet();
+            }
+            reschedule(this);
+        }
+    }
+
+    /** Number of worker threads */
+    final private int worker_count;
+
+    /** Slot lists, each with a sentinel node.
+     *  Synchronize on <code>this</code> for access.
+     */
+    final private Task[][] wheels = new Task[LEVELS][SLOTS];
+
+    /** Items and their tasks for O(1) lookup when removing */
+    final private Map<Runnable, Task> tasks = new HashMap<Runnable, Task>();
+
+    /** Reference time for tick 0 */
+    private volatile long start_nanos = System.nanoTime();
+
+    /** Tick that's currently handled */
+    private long current_tick = 0;
+
+    /** Timer thread */
+    private Thread timer;
+
+    /** Lock that the timer thread waits on until the next tick */
+    final private Object timer_lock = new Object();
+
+    /** Pool of worker threads */
+    private ExecutorService workers;
+
+    /** Flag, set <code>false</code> to cause timer to exit */
+    private volatile boolean do_run;
+
+    /** Number of workers that are currently running a scan */
+    final private AtomicInteger busy_workers = new AtomicInteger();
+
+    /** Number of scheduled runs that passed before the item could run */
+    final private AtomicLong missed_scans = new AtomicLong();
+
+    /** Average idle time in percent. */
+    final private Average idle_percentage = new Average();
+
+    /** Average delay of scans past their scheduled time in seconds.
+     *  Synchronize on the average for access.
+     */
+    final private Average jitter = new Average();
+
+    /** Maximum delay of scans past their scheduled time in seconds */
+    private volatile double max_jitter = 0.0;
+
+    /** Construct scanner
+     *  @param worker_count Number of worker threads
+     */
+    public ScanWheel(final int worker_count)
+    {
+        this.worker_count = Math.max(1, worker_count);
+        for (int level=0; level<LEVELS; ++level)
+            for (int slot=0; slot<SLOTS; ++slot)
+                wheels[level][slot] = new Task();
+    }
+
+    /** Construct scanner with one worker thread */
+    public ScanWheel()
+    {
+        this(1);
+    }
+
+    /** @return Number of worker threads */
+    public int getWorkerCount()
+    {
+        return worker_count;
+    }
+
+    /** Add an item to the scanner.
+     *  @param item Item to scan
+     *  @param period Scan period in seconds
+     */
+    public synchronized void add(final Runnable item, final double period)
+    {
+        // Avoid duplicates by removing what might be there
+        remove(item);
+        final Task task = new Task(item, Math.max(1, Math.round(period / GRANULARITY)));
+        task.due_tick = current_tick + task.period_ticks;
+        tasks.put(item, task);
+        insert(task, false);
+    }
+
+    /** Remove an item from the scanner
+     *  @param item Item to remove
+     */
+    public synchronized void remove(final Runnable item)
+    {
+        final Task task = tasks.remove(item);
+        if (task == null)
+            return;
+        task.removed = true;
+        unlink(task);
+    }
+
+    /** Remove all items from this scanner */
+    public synchronized void clear()
+    {
+        for (Task task : tasks.values())
+        {
+            task.removed = true;
+            unlink(task);
+        }
+        tasks.clear();
+    }
+
+    /** @return Number of items in the scanner */
+    public synchronized int size()
+    {
+        return tasks.size();
+    }
+
+    /** @param item Item that might be in the scanner
+     *  @return Seconds until next scan of the item or -1 when not scheduled
+     */
+    public synchronized double getDelay(final Runnable item)
+    {
+        final Task task = tasks.get(item);
+        if (task == null)
+            return -1;
+        final long due_nanos = start_nanos + task.due_tick * TICK_NANOS;
+        return (due_nanos - System.nanoTime()) / 1e9;
+    }
+
+    /** Place task in the wheel according to its due tick
+     *  @param task Task to insert
+     *  @param cascading <code>true</code> when called while advancing to the
+     *                   current tick, before its slot is handled
+     */
+    private void insert(final Task task, final boolean cascading)
+    {
+        long delta = task.due_tick - current_tick;
+        long tick = task.due_tick;
+        if (delta < 1)
+        {
+            if (cascading)
+            {   // Due now: Place in slot of current tick, which is handled next
+                tick = current_tick;
+                delta = 0;
+            }
+            else
+            {   // Slot of current tick has already been handled
+                task.due_tick = tick = current_tick + 1;
+                delta = 1;
+            }
+        }
+        int level = 0;
+        while (level < LEVELS-1  &&  delta >= (1L << (SLOT_BITS * (level+1))))
+            ++level;
+        if (level == LEVELS-1  &&  delta >= (1L << (SLOT_BITS * LEVELS)))
+            tick = current_tick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        final int slot = (int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK);
+        final Task head = wheels[level][slot];
+        task.prev = head.prev;
+        task.next = head;
+        head.prev.next = task;
+        head.prev = task;
+    }
+
+    /** Remove task from its slot, if it's in one */
+    private void unlink(final Task task)
+    {
+        if (task.next == null)
+            return;
+        task.prev.next = task.next;
+        task.next.prev = task.prev;
+        task.prev = task.next = null;
+    }
+
+    /** Re-insert all tasks of an outer wheel slot
+     *  @param level Wheel level
+     *  @param slot Slot index
+     */
+    private void cascade(final int level, final int slot)
+    {
+        final Task head = wheels[level][slot];
+        Task task = head.next;
+        head.next = head.prev = head;
+        while (task != head)
+        {
+            final Task next = task.next;
+            task.prev = task.next = null;
+            insert(task, true);
+            task = next;
+        }
+    }
+
+    /** Advance to the next tick
+     *  @param due Tasks that are due on the new tick
+     */
+    private synchronized void advance(final List<Task> due)
+    {
+        ++current_tick;
+        // When a level wraps, cascade the next slot of the level above
+        for (int level=1; level<LEVELS; ++level)
+        {
+            if ((current_tick & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+                break;
+            cascade(level, (int) ((current_tick >> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+        final Task head = wheels[0][(int) (current_tick & SLOT_MASK)];
+        Task task = head.next;
+        head.next = head.prev = head;
+        while (task != head)
+        {
+            final Task next = task.next;
+            task.prev = task.next = null;
+            due.add(task);
+            task = next;
+        }
+    }
+
+    /** Advance to the next tick and run the due tasks on the calling thread.
+     *  <p>
+     *  Allows tests to step through ticks without the timer thread.
+     *  @return Number of tasks that ran
+     */
+    int runTick()
+    {
+        final List<Task> due = new ArrayList<Task>();
+        advance(due);
+        for (Task task : due)
+            task.run();
+        return due.size();
+    }
+
+    /** @return Tick that's currently handled */
+    synchronized long getCurrentTick()
+    {
+        return current_tick;
+    }
+
+    /** Schedule task for its next run
+     *  @param task Task that just completed a run
+     */
+    private synchronized void reschedule(final Task task)
+    {
+        if (task.removed)
+            return;
+        long next = task.due_tick + task.period_ticks;
+        if (next <= current_tick)
+        {   // Skip runs that have already passed
+            final long missed = (current_tick - next) / task.period_ticks + 1;
+            missed_scans.addAndGet(missed);
+            next += missed * task.period_ticks;
+        }
+        task.due_tick = next;
+        insert(task, false);
+    }
+
+    /** @param delay_nanos Delay of a scan past its scheduled time */
+    private void updateJitter(final long delay_nanos)
+    {
+        final double delay = Math.max(0, delay_nanos) / 1e9;
+        synchronized (jitter)
+        {
+            jitter.update(delay);
+            if (delay > max_jitter)
+                max_jitter = delay;
+        }
+    }
+
+    /** Start the timer and worker threads */
+    public void start()
+    {
+        final AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(worker_count, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "ScanWorker" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        synchronized (this)
+        {   // Keep the tick that items were scheduled for,
+            // moving the reference time to 'now'
+            start_nanos = System.nanoTime() - current_tick * TICK_NANOS;
+        }
+        do_run = true;
+        timer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runTimer();
+            }
+        }, "ScanThread");
+        timer.start();
+    }
+
+    /** Timer thread: Advance the wheel, submit due tasks */
+    private void runTimer()
+    {
+        Activator.getLogger().info("Scan Thread runs");
+        final List<Task> due = new ArrayList<Task>();
+        long next_tick;
+        synchronized (this)
+        {
+            next_tick = start_nanos + (current_tick + 1) * TICK_NANOS;
+        }
+        while (do_run)
+        {
+            final long wait = next_tick - System.nanoTime();
+            if (wait > 0)
+            {
+                synchronized (timer_lock)
+                {
+                    if (! do_run)
+                        break;
+                    try
+                    {
+                        TimeUnit.NANOSECONDS.timedWait(timer_lock, wait);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Activator.getLogger().log(Level.WARNING, "Scan Thread interrupted", ex);
+                        break;
+                    }
+                }
+                continue;
+            }
+            next_tick += TICK_NANOS;
+            advance(due);
+            for (Task task : due)
+                workers.execute(task);
+            due.clear();
+            updateIdle();
+        }
+        Activator.getLogger().info("Scan Thread ends");
+    }
+
+    /** Update idle percentage from number of busy workers at this tick */
+    private void updateIdle()
+    {
+        final double busy = busy_workers.get() * 100.0 / worker_count;
+        idle_percentage.update(Math.max(0.0, 100.0 - busy));
+    }
+
+    /** Stop the timer thread, wait for scans in progress to complete */
+    public void stop()
+    {
+        do_run = false;
+        if (timer == null)
+            return;
+        synchronized (timer_lock)
+        {
+            timer_lock.notifyAll();
+        }
+        try
+        {
+            timer.join();
+            workers.shutdown();
+            if (! workers.awaitTermination(10, TimeUnit.SECONDS))
+                Activator.getLogger().log(Level.WARNING, "Scan workers did not stop");
+        }
+        catch (InterruptedException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Scan Thread join attempt", ex);
+        }
+        timer = null;
+    }
+
+    /** Average idle time in percent.
+     *  <p>
+     *  100 means: Nothing to do, workers always waiting.<br>
+     *   50 means: using about half the worker time for the scan<br>
+     *    0 means: Busy all the time, likely missing scans<br>
+     */
+    public double getIdlePercentage()
+    {
+        return idle_percentage.get();
+    }
+
+    /** @return Average delay of scans past their scheduled time in seconds */
+    public double getAverageJitter()
+    {
+        synchronized (jitter)
+        {
+            return jitter.get();
+        }
+    }
+
+    /** @return Maximum delay of scans past their scheduled time in seconds */
+    public double getMaxJitter()
+    {
+        return max_jitter;
+    }
+
+    /** @return Number of scheduled scans that were skipped
+     *          because the previous scan of the item was late
+     */
+    public long getMissedScans()
+    {
+        return missed_scans.get();
+    }
+
+    /** Reset statistics */
+    public void reset()
+    {
+        idle_percentage.reset();
+        synchronized (jitter)
+        {
+            jitter.reset();
+            max_jitter = 0.0;
+        }
+        missed_scans.set(0);
+    }
+}
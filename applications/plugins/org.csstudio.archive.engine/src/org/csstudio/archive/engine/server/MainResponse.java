@@ -17,6 +17,7 @@ import org.csstudio.archive.engine.Messages;
 import org.csstudio.archive.engine.model.ArchiveGroup;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.SampleBuffer;
+import org.csstudio.archive.engine.model.WriteThread;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.eclipse.core.runtime.Platform;
 import org.epics.util.time.Timestamp;
@@ -128,6 +129,11 @@ class MainResponse extends AbstractResponse
             Messages.HTTP_WritePeriod,
             model.getWritePeriod() + " sec"
         });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_WriteThreads,
+            Integer.toString(model.getWriteThreadCount())
+        });
 
         // Currently in 'Write Error' state?
         html.tableLine(new String[]
@@ -157,10 +163,35 @@ class MainResponse extends AbstractResponse
             String.format("%.1f sec", model.getWriteDuration())
         });
         html.tableLine(new String[]
+        {
+            Messages.HTTP_WriteStages,
+            String.format("%.3f / %.3f / %.3f sec",
+                          model.getAssembleDuration(),
+                          model.getExecuteDuration(),
+                          model.getCommitDuration())
+        });
+        html.tableLine(new String[]
         {
             Messages.HTTP_Idletime,
             String.format("%.1f %%", model.getIdlePercentage())
         });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_ScanThreads,
+            Integer.toString(model.getScanThreadCount())
+        });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_ScanJitter,
+            String.format("%.3f / %.3f sec",
+                          model.getAverageScanJitter(),
+                          model.getMaxScanJitter())
+        });
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_ScanMissed,
+            Long.toString(model.getMissedScans())
+        });
 
         final Runtime runtime = Runtime.getRuntime();
         final double used_mem = runtime.totalMemory() / MB;
@@ -176,6 +207,42 @@ class MainResponse extends AbstractResponse
 
         html.closeTable();
 
+        if (model.getWriteThreadCount() > 1)
+        {
+            html.h2(Messages.HTTP_WriteThreads);
+            html.openTable(1, new String[]
+            {
+                Messages.HTTP_WriteThread,
+                Messages.HTTP_ChannelCount,
+                Messages.HTTP_WriteState,
+                Messages.HTTP_LastWriteTime,
+                Messages.HTTP_WriteCount,
+                Messages.HTTP_WriteDuration,
+                Messages.HTTP_WriteStages,
+            });
+            for (int i=0; i<model.getWriteThreadCount(); ++i)
+            {
+                final WriteThread writer = model.getWriteThread(i);
+                final Timestamp last = writer.getLastWriteTime();
+                html.tableLine(new String[]
+                {
+                    writer.getName(),
+                    Integer.toString(writer.getChannelCount()),
+                    writer.isInErrorState()
+                    ? HTMLWriter.makeRedText(Messages.HTTP_WriteError)
+                    : "OK",
+                    last == null ? Messages.HTTP_Never : TimestampHelper.format(last),
+                    (int)writer.getWriteCount() + " samples",
+                    String.format("%.1f sec", writer.getWriteDuration()),
+                    String.format("%.3f / %.3f / %.3f sec",
+                                  writer.getAssembleDuration(),
+                                  writer.getExecuteDuration(),
+                                  writer.getCommitDuration()),
+                });
+            }
+            html.closeTable();
+        }
+
         html.close();
     }
 }
@@ -7,6 +7,12 @@
  ******************************************************************************/
 package org.csstudio.archive.rdb;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.csstudio.security.preferences.SecurePreferences;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
@@ -23,6 +29,7 @@ public class RDBArchivePreferences
     public static final String PASSWORD = "password";
     public static final String SQL_TIMEOUT = "sql_timeout";
     public static final String USE_ARRAY_BLOB = "use_array_blob";
+    public static final String ROLLUP_PERIODS = "rollup_periods";
 
     /** @return URL of RDB archive server */
     public static String getURL()
@@ -69,6 +76,54 @@ public class RDBArchivePreferences
         return prefs.getBoolean(Activator.ID, USE_ARRAY_BLOB, true, null);
     }
 
+    /** @return Periods in seconds of the rollups in the 'sample_rollup' table,
+     *          sorted from longest to shortest period.
+     *          Empty if rollups are not used.
+     */
+    public static int[] getRollupPeriods()
+    {
+        return parseRollupPeriods(getString(ROLLUP_PERIODS));
+    }
+
+    /** Parse rollup periods
+     *
+     *  <p>Invalid and non-positive periods are logged and skipped,
+     *  duplicate periods are removed.
+     *
+     *  @param setting Comma-separated periods in seconds, may be <code>null</code>
+     *  @return Periods sorted from longest to shortest period, may be empty
+     */
+    public static int[] parseRollupPeriods(final String setting)
+    {
+        if (setting == null  ||  setting.trim().isEmpty())
+            return new int[0];
+        final Set<Integer> periods = new TreeSet<>(Collections.reverseOrder());
+        for (String item : setting.split(","))
+        {
+            item = item.trim();
+            try
+            {
+                final int period = Integer.parseInt(item);
+                if (period > 0)
+                {
+                    periods.add(period);
+                    continue;
+                }
+            }
+            catch (NumberFormatException ex)
+            {
+                // Log below
+            }
+            Logger.getLogger(Activator.ID).log(Level.WARNING,
+                "Ignoring invalid " + ROLLUP_PERIODS + " entry ''{0}''", item);
+        }
+        final int[] result = new int[periods.size()];
+        int i = 0;
+        for (Integer period : periods)
+            result[i++] = period;
+        return result;
+    }
+
     /** Get string preference
      *  @param key Preference key
      *  @return String or <code>null</code>
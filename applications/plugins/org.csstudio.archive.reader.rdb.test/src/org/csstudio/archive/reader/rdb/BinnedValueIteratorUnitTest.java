@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.TimeDuration;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+import org.junit.Test;
+
+/** Unit test of the {@link BinnedValueIterator} that does not require an RDB
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class BinnedValueIteratorUnitTest
+{
+    final private static Timestamp START = Timestamp.of(1000, 0);
+
+    /** Bin size in seconds */
+    final private static double SECONDS = 10.0;
+
+    private static VType bin(final double seconds, final double value)
+    {
+        return new ArchiveVNumber(START.plus(TimeDuration.ofSeconds(seconds)),
+                                  AlarmSeverity.NONE, "", null, value);
+    }
+
+    private static VType info(final double seconds, final String status)
+    {
+        return new ArchiveVString(START.plus(TimeDuration.ofSeconds(seconds)),
+                                  AlarmSeverity.INVALID, status, status);
+    }
+
+    private static double secs(final VType value)
+    {
+        return VTypeHelper.getTimestamp(value).durationFrom(START).toSeconds();
+    }
+
+    @Test
+    public void testInterleave() throws Exception
+    {
+        final List<VType> bins = new ArrayList<VType>();
+        bins.add(bin(5, 1.0));
+        bins.add(bin(15, 2.0));
+        bins.add(bin(55, 3.0));
+        bins.add(bin(65, 4.0));
+
+        final List<VType> samples = new ArrayList<VType>();
+        // Disconnected within first bin, before the bin's time stamp
+        samples.add(info(4, "Disconnected"));
+        // Archive off in bin without numeric samples
+        samples.add(info(30, "Archive_Off"));
+        // Disconnected within bin, after the bin's time stamp
+        samples.add(info(57, "Disconnected"));
+
+        final List<VType> values = BinnedValueIterator.interleave(START, SECONDS, bins, samples);
+        for (VType value : values)
+            System.out.println(value);
+        assertEquals(7, values.size());
+
+        // Each non-numeric sample follows the bin that contains it,
+        // so the bin is not connected to the next bin
+        assertSame(bins.get(0), values.get(0));
+        assertTrue(values.get(1) instanceof VString);
+        assertEquals("Disconnected", ((VString) values.get(1)).getValue());
+        assertEquals(5.0, secs(values.get(1)), 0.001);
+
+        assertSame(bins.get(1), values.get(2));
+        assertSame(samples.get(1), values.get(3));
+        assertSame(bins.get(2), values.get(4));
+        assertSame(samples.get(2), values.get(5));
+        assertSame(bins.get(3), values.get(6));
+
+        // Time stamps remain ordered
+        for (int i=1; i<values.size(); ++i)
+            assertTrue(secs(values.get(i-1)) <= secs(values.get(i)));
+    }
+
+    @Test
+    public void testNoSamples() throws Exception
+    {
+        final List<VType> bins = new ArrayList<VType>();
+        bins.add(bin(5, 1.0));
+        bins.add(bin(15, 2.0));
+        final List<VType> values = BinnedValueIterator.interleave(START, SECONDS, bins, new ArrayList<VType>());
+        assertEquals(bins, values);
+        assertEquals(1.0, ((VNumber) values.get(0)).getValue().doubleValue(), 0.001);
+    }
+}
@@ -21,9 +21,11 @@ import org.csstudio.archive.reader.ArchiveInfo;
 import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.epics.util.time.TimeDuration;
 import org.epics.util.time.Timestamp;
 import org.epics.vtype.Display;
+import org.epics.vtype.VString;
 import org.epics.vtype.VType;
 import org.epics.vtype.ValueUtil;
 import org.junit.After;
@@ -288,6 +290,45 @@ public class RDBArchiveReaderTest
         values.close();
     }
 
+    /** Get optimized data for scalar, using the server-side {@link BinnedValueIterator} */
+    @Test
+    public void testServerBinning() throws Exception
+    {
+    	if (reader == null)
+    		return;
+    	if (reader.getSQL().sample_sel_bins_by_id_start_end == null)
+    	{
+    		System.out.println("No server-side binning for " + reader.getRDB().getDialect());
+    		return;
+    	}
+    	final int channel_id = reader.getChannelID(name);
+        System.out.println("Optimized samples for " + name + " (" + channel_id + "):");
+        System.out.println("-- Server-side bins --");
+
+        final Timestamp end = Timestamp.now();
+        final Timestamp start = end.minus(TIMERANGE);
+        final BenchmarkTimer timer = new BenchmarkTimer();
+		final ValueIterator values = new BinnedValueIterator(reader, channel_id, start, end, BUCKETS);
+        int count = 0;
+        Timestamp last = null;
+        while (values.hasNext())
+        {
+        	final VType value = values.next();
+            System.out.println(value);
+            final Timestamp time = VTypeHelper.getTimestamp(value);
+            if (last != null)
+                assertTrue(time.compareTo(last) >= 0);
+            last = time;
+            // Non-numeric samples like 'disconnected' are passed through in addition to the bins
+            if (! (value instanceof VString))
+                ++count;
+        }
+        values.close();
+        timer.stop();
+        System.out.println(count + " bins in " + timer.getSeconds() + " seconds");
+        assertTrue(count <= BUCKETS);
+    }
+
 //    /** Directly call the stored procedure */
 //    @Test
 //    @Ignore
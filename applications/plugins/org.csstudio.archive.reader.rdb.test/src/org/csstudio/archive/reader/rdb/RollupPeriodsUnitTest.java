@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.csstudio.archive.rdb.RDBArchivePreferences;
+import org.junit.Test;
+
+/** Unit test of parsing the rollup periods preference
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RollupPeriodsUnitTest
+{
+    @Test
+    public void testPeriods()
+    {
+        assertArrayEquals(new int[0], RDBArchivePreferences.parseRollupPeriods(null));
+        assertArrayEquals(new int[0], RDBArchivePreferences.parseRollupPeriods("  "));
+        assertArrayEquals(new int[] { 3600, 60 }, RDBArchivePreferences.parseRollupPeriods("60,3600"));
+        assertArrayEquals(new int[] { 3600, 60 }, RDBArchivePreferences.parseRollupPeriods(" 3600 , 60 "));
+    }
+
+    @Test
+    public void testInvalidPeriods()
+    {
+        // Typo, duplicates, non-positive and empty entries are skipped
+        assertArrayEquals(new int[] { 60 }, RDBArchivePreferences.parseRollupPeriods("60, 1h"));
+        assertArrayEquals(new int[] { 3600, 60 }, RDBArchivePreferences.parseRollupPeriods("60, 3600, 60, 0, -10,, 3600"));
+        assertArrayEquals(new int[0], RDBArchivePreferences.parseRollupPeriods("none"));
+    }
+}
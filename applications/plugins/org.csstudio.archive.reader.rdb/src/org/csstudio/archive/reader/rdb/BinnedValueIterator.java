@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.rdb;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.TimeDuration;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+
+/** Value Iterator that provides 'optimized' data by having the RDB
+ *  compute min/max/average/std.dev./count for time bins.
+ *  <p>
+ *  Unlike the {@link StoredProcedureValueIterator}, this only
+ *  uses plain <code>GROUP BY</code> SQL that's supported by
+ *  PostgreSQL and MySQL, so nothing needs to be installed in the RDB.
+ *  Only one row per bin is transferred from the RDB.
+ *  <p>
+ *  The bins can be computed from the raw samples
+ *  or from the pre-aggregated rollups.
+ *  When using rollups, the time before the first rollup
+ *  and after the last rollup is filled from the raw samples.
+ *  <p>
+ *  Only numeric samples are considered for the bins.
+ *  Bins with a single sample return that sample,
+ *  bins with more samples return {@link ArchiveVStatistics}.
+ *  Severity and status are not aggregated.
+ *  <p>
+ *  Samples without a numeric value, for example
+ *  'disconnected' or 'archive off', are returned after
+ *  the bin that contains them, so that a plot still shows the gap.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class BinnedValueIterator extends AbstractRDBValueIterator
+{
+    /** Values received from the RDB */
+    private List<VType> values = null;
+
+    /** Iteration index into <code>values</code>, points to what
+     *  <code>next()</code> will return or -1
+     */
+    private int index = -1;
+
+    /** Start of the first bin */
+    final private Timestamp start;
+
+    /** Bin size in seconds */
+    final private double seconds;
+
+    /** Statistics of one bin */
+    private static class Bin
+    {
+        final long bin;
+        final double min, max, avg, stddev;
+        final long cnt;
+
+        Bin(final long bin, final double min, final double max,
+            final double avg, final double stddev, final long cnt)
+        {
+            this.bin = bin;
+            this.min = min;
+            this.max = max;
+            this.avg = avg;
+            this.stddev = stddev;
+            this.cnt = cnt;
+        }
+    }
+
+    /** Start of first rollup and end of last rollup found by <code>queryBins</code>,
+     *  <code>null</code> if no rollups found
+     */
+    private Timestamp rollup_start = null, rollup_end = null;
+
+    /** Initialize for bins computed from raw samples
+     *  @param reader RDBArchiveReader
+     *  @param channel_id ID of channel
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Desired value count
+     *  @throws Exception on error
+     */
+    public BinnedValueIterator(final RDBArchiveReader reader,
+            final int channel_id, final Timestamp start, final Timestamp end,
+            final int count) throws Exception
+    {
+        this(reader, channel_id, start, end, count, 0);
+    }
+
+    /** Initialize
+     *  @param reader RDBArchiveReader
+     *  @param channel_id ID of channel
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Desired value count
+     *  @param rollup_period Period of rollups to use, 0 for raw samples
+     *  @throws Exception on error
+     */
+    public BinnedValueIterator(final RDBArchiveReader reader,
+            final int channel_id, final Timestamp start, final Timestamp end,
+            final int count, final int rollup_period) throws Exception
+    {
+        super(reader, channel_id);
+        this.start = start;
+        seconds = end.durationFrom(start).toSeconds() / count;
+        values = new ArrayList<VType>();
+        try
+        {
+            final SQL sql = reader.getSQL();
+            if (sql.sample_sel_bins_by_id_start_end == null)
+                throw new Exception("Binned data readout not supported for " + reader.getRDB().getDialect());
+            final List<Bin> bins = new ArrayList<Bin>();
+            if (rollup_period > 0)
+            {
+                final List<Bin> rollups = queryBins(sql.rollup_sel_bins_by_id_period_start_end,
+                                                    start, end, rollup_period);
+                // Without any rollups, leave it to caller to use raw samples
+                if (rollup_start != null)
+                {
+                    // Fill time before first rollup from raw samples,
+                    // for example when rollups were only enabled recently.
+                    // Raw sample query includes its end time, which is already in the rollup.
+                    if (rollup_start.compareTo(start) > 0)
+                        merge(bins, queryBins(sql.sample_sel_bins_by_id_start_end,
+                                              start, rollup_start.minus(TimeDuration.ofNanos(1000)), 0));
+                    merge(bins, rollups);
+                    // Fill time after last rollup from raw samples
+                    if (rollup_end.compareTo(end) < 0)
+                        merge(bins, queryBins(sql.sample_sel_bins_by_id_start_end, rollup_end, end, 0));
+                }
+            }
+            else
+                merge(bins, queryBins(sql.sample_sel_bins_by_id_start_end, start, end, 0));
+            if (bins.size() > 0)
+            {
+                final List<VType> bin_values = new ArrayList<VType>(bins.size());
+                for (Bin bin : bins)
+                    bin_values.add(createValue(bin));
+                values = interleave(start, seconds, bin_values,
+                                    queryNonNumericSamples(sql.sample_sel_non_numeric_by_id_start_end, start, end));
+            }
+            // else: Without any numeric samples, leave it to caller to use raw samples
+        }
+        catch (Exception ex)
+        {
+            if (! RDBArchiveReader.isCancellation(ex))
+                throw ex;
+            // Else: Not a real error; return empty iterator
+            Activator.getLogger().log(Level.FINE, "Binned query cancelled", ex);
+        }
+        // Initialize iterator for first value
+        if (values.size() > 0)
+            index = 0;
+        // else: No data, leave as -1
+    }
+
+    /** Query bins
+     *
+     *  <p>For rollups, <code>rollup_start</code> and <code>rollup_end</code>
+     *  are updated with the time covered by the rollups.
+     *
+     *  @param sql SQL for raw samples or rollups
+     *  @param from Start of time range to query
+     *  @param to End of time range to query
+     *  @param rollup_period Period of rollups, 0 for raw samples
+     *  @return Bins, ordered by bin number
+     *  @throws Exception on error
+     */
+    private List<Bin> queryBins(final String sql, final Timestamp from, final Timestamp to,
+            final int rollup_period) throws Exception
+    {
+        final List<Bin> bins = new ArrayList<Bin>();
+        final PreparedStatement statement =
+                reader.getRDB().getConnection().prepareStatement(sql);
+        reader.addForCancellation(statement);
+        try
+        {
+            int p = 1;
+            statement.setTimestamp(p++, TimestampHelper.toSQLTimestamp(start));
+            statement.setDouble(p++, seconds);
+            statement.setInt(p++, channel_id);
+            if (rollup_period > 0)
+                statement.setInt(p++, rollup_period);
+            statement.setTimestamp(p++, TimestampHelper.toSQLTimestamp(from));
+            statement.setTimestamp(p++, TimestampHelper.toSQLTimestamp(to));
+            statement.setFetchSize(Preferences.getFetchSize());
+            // Columns 1 BIN, 2 MIN_VAL, 3 MAX_VAL, 4 AVG_VAL, 5 STDDEV, 6 CNT,
+            // and for rollups 7 start of last rollup in bin, 8 start of first rollup in bin
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+            {
+                final long cnt = result.getLong(6);
+                // Bin that only contained non-numeric samples
+                if (cnt <= 0)
+                    continue;
+                if (rollup_period > 0)
+                {
+                    final Timestamp last = TimestampHelper.fromSQLTimestamp(result.getTimestamp(7))
+                                                          .plus(TimeDuration.ofSeconds(rollup_period));
+                    if (rollup_end == null  ||  last.compareTo(rollup_end) > 0)
+                        rollup_end = last;
+                    final Timestamp first = TimestampHelper.fromSQLTimestamp(result.getTimestamp(8));
+                    if (rollup_start == null  ||  first.compareTo(rollup_start) < 0)
+                        rollup_start = first;
+                }
+                bins.add(new Bin(result.getLong(1), result.getDouble(2), result.getDouble(3),
+                                 result.getDouble(4), result.getDouble(5), cnt));
+            }
+        }
+        finally
+        {
+            reader.removeFromCancellation(statement);
+            statement.close();
+        }
+        return bins;
+    }
+
+    /** Query samples without numeric value
+     *  @param sql SQL for non-numeric samples
+     *  @param from Start of time range to query
+     *  @param to End of time range to query
+     *  @return Samples, ordered by time
+     *  @throws Exception on error
+     */
+    private List<VType> queryNonNumericSamples(final String sql, final Timestamp from, final Timestamp to) throws Exception
+    {
+        final List<VType> samples = new ArrayList<VType>();
+        final PreparedStatement statement =
+                reader.getRDB().getConnection().prepareStatement(sql);
+        reader.addForCancellation(statement);
+        try
+        {
+            statement.setInt(1, channel_id);
+            statement.setTimestamp(2, TimestampHelper.toSQLTimestamp(from));
+            statement.setTimestamp(3, TimestampHelper.toSQLTimestamp(to));
+            final ResultSet result = statement.executeQuery();
+            while (result.next())
+                samples.add(decodeSampleTableValue(result, false));
+        }
+        finally
+        {
+            reader.removeFromCancellation(statement);
+            statement.close();
+        }
+        return samples;
+    }
+
+    /** Combine bins and non-numeric samples
+     *
+     *  <p>A non-numeric sample is placed after the bin that contains it.
+     *  If the time of that bin is later than the sample,
+     *  the sample is moved to the time of the bin,
+     *  so the plot ends the line at the bin and shows the gap until the next bin.
+     *
+     *  @param start Start of the first bin
+     *  @param seconds Bin size in seconds
+     *  @param bins Bin values, ordered by time
+     *  @param samples Non-numeric samples, ordered by time
+     *  @return Bins and samples, ordered by time
+     */
+    static List<VType> interleave(final Timestamp start, final double seconds,
+            final List<VType> bins, final List<VType> samples)
+    {
+        final List<VType> result = new ArrayList<VType>(bins.size() + samples.size());
+        int b = 0;
+        for (VType sample : samples)
+        {
+            final Timestamp time = VTypeHelper.getTimestamp(sample);
+            final long bin = getBin(start, seconds, time);
+            Timestamp last = null;
+            while (b < bins.size()  &&  getBin(start, seconds, VTypeHelper.getTimestamp(bins.get(b))) <= bin)
+            {
+                result.add(bins.get(b));
+                last = VTypeHelper.getTimestamp(bins.get(b));
+                ++b;
+            }
+            if (last != null  &&  last.compareTo(time) > 0  &&  sample instanceof VString)
+            {
+                final VString text = (VString) sample;
+                result.add(new ArchiveVString(last, text.getAlarmSeverity(), text.getAlarmName(), text.getValue()));
+            }
+            else
+                result.add(sample);
+        }
+        result.addAll(bins.subList(b, bins.size()));
+        return result;
+    }
+
+    /** @param start Start of the first bin
+     *  @param seconds Bin size in seconds
+     *  @param time Time stamp
+     *  @return Number of the bin that contains the time stamp
+     */
+    private static long getBin(final Timestamp start, final double seconds, final Timestamp time)
+    {
+        return (long) Math.floor(time.durationFrom(start).toSeconds() / seconds);
+    }
+
+    /** Append bins, merging the first added bin with the last existing bin if they have the same number
+     *  @param bins Bins, ordered by bin number
+     *  @param added Bins to add, following the existing bins
+     */
+    private static void merge(final List<Bin> bins, final List<Bin> added)
+    {
+        for (Bin bin : added)
+        {
+            final int last = bins.size() - 1;
+            if (last >= 0  &&  bins.get(last).bin == bin.bin)
+                bins.set(last, merge(bins.get(last), bin));
+            else
+                bins.add(bin);
+        }
+    }
+
+    /** @param a Bin
+     *  @param b Bin with the same number
+     *  @return Combined statistics of both bins
+     */
+    private static Bin merge(final Bin a, final Bin b)
+    {
+        final long cnt = a.cnt + b.cnt;
+        final double avg = (a.avg * a.cnt + b.avg * b.cnt) / cnt;
+        // Combine the mean of squares of both bins
+        final double squares = (a.cnt * (a.stddev*a.stddev + a.avg*a.avg) +
+                                b.cnt * (b.stddev*b.stddev + b.avg*b.avg)) / cnt;
+        final double stddev = Math.sqrt(Math.max(0.0, squares - avg*avg));
+        return new Bin(a.bin, Math.min(a.min, b.min), Math.max(a.max, b.max), avg, stddev, cnt);
+    }
+
+    /** @param bin Bin
+     *  @return Value for the bin
+     */
+    private VType createValue(final Bin bin)
+    {
+        // Time stamp in center of bin
+        final Timestamp time = start.plus(TimeDuration.ofSeconds((bin.bin + 0.5) * seconds));
+        if (bin.cnt == 1)
+        {
+            if (labels != null)
+                return new ArchiveVEnum(time, AlarmSeverity.NONE, "", labels, (int) bin.avg);
+            return new ArchiveVNumber(time, AlarmSeverity.NONE, "", display, bin.avg);
+        }
+        return new ArchiveVStatistics(time, AlarmSeverity.NONE, "", display,
+                bin.avg, bin.min, bin.max, bin.stddev, (int) bin.cnt);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return index >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        final VType result = values.get(index);
+        ++index;
+        if (index >= values.size())
+            index = -1;
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        super.close();
+        index = -1;
+        values = null;
+    }
+}
@@ -20,6 +20,7 @@ public class Messages extends NLS
     public static String Password;
     public static String PreferenceTitle;
     public static String Schema;
+    public static String ServerBinning;
     public static String StoredProcedure;
     public static String UseBLOB;
 	public static String User;
@@ -104,6 +104,16 @@ public class PreferencePage extends FieldEditorPreferencePage
             }
         };
         addField(editor);
+        final BooleanFieldEditor binning =
+                new BooleanFieldEditor(Preferences.SERVER_BINNING, Messages.ServerBinning, parent)
+        {
+            @Override
+            public void setPreferenceStore(final IPreferenceStore ignored)
+            {
+                super.setPreferenceStore(reader_prefs);
+            }
+        };
+        addField(binning);
 
         addField(new BooleanFieldEditor(RDBArchivePreferences.USE_ARRAY_BLOB, Messages.UseBLOB, parent));
     }
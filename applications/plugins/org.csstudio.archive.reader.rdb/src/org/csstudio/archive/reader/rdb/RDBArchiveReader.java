@@ -51,6 +51,12 @@ public class RDBArchiveReader implements ArchiveReader
     /** Name of stored procedure or "" */
     final private String stored_procedure;
 
+    /** Compute 'optimized' data with GROUP BY SQL? */
+    final private boolean server_binning;
+
+    /** Periods of rollups in the RDB, longest first. May be empty */
+    final private int[] rollup_periods;
+
     final private RDBUtil rdb;
     final private SQL sql;
     final private boolean is_oracle;
@@ -124,6 +130,11 @@ public class RDBArchiveReader implements ArchiveReader
             throw new Exception("Unknown database dialect " + dialect);
         }
         sql = new SQL(dialect, schema);
+        server_binning = sql.sample_sel_bins_by_id_start_end != null  &&
+                         Preferences.useServerBinning();
+        rollup_periods = sql.rollup_sel_bins_by_id_period_start_end != null
+                       ? RDBArchivePreferences.getRollupPeriods()
+                       : new int[0];
         stati = getStatusValues();
         severities = getSeverityValues();
     }
@@ -376,6 +387,20 @@ public class RDBArchiveReader implements ArchiveReader
         if (stored_procedure.length() > 0)
             return new StoredProcedureValueIterator(this, stored_procedure, channel_id, start, end, count);
 
+        // Use the coarsest rollup that still provides the requested bins
+        final double seconds = end.durationFrom(start).toSeconds() / count;
+        for (int period : rollup_periods)
+        {
+            if (period > seconds)
+                continue;
+            final ValueIterator bins = new BinnedValueIterator(this, channel_id, start, end, count, period);
+            if (bins.hasNext())
+                return bins;
+            // No rollups for this channel, fall back to raw samples
+            bins.close();
+            break;
+        }
+
         // Else: Determine how many samples there are
         final int counted;
         try
@@ -392,15 +417,22 @@ public class RDBArchiveReader implements ArchiveReader
 	        	throw new Exception("Cannot count samples");
 	        counted = result.getInt(1);
         }
-        // Fetch raw data and perform averaging
-        final ValueIterator raw_data = getRawValues(channel_id, start, end);
-        
-        // If there weren't that many, that's it
+        // If there weren't that many, return raw data
         if (counted < count)
-        	return raw_data;
-        
-        // Else: Perform averaging to reduce sample count
-        final double seconds = end.durationFrom(start).toSeconds() / count;
+        	return getRawValues(channel_id, start, end);
+
+        // Have RDB compute bins?
+        if (server_binning)
+        {
+            final ValueIterator bins = new BinnedValueIterator(this, channel_id, start, end, count);
+            if (bins.hasNext())
+                return bins;
+            // No numeric samples, fall back to client-side handling
+            bins.close();
+        }
+
+        // Else: Fetch raw data and perform averaging to reduce sample count
+        final ValueIterator raw_data = getRawValues(channel_id, start, end);
         return new AveragedValueIterator(raw_data, seconds);
     }
 
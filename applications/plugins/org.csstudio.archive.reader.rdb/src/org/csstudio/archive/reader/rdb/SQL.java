@@ -38,6 +38,14 @@ public class SQL
     final public String sample_sel_by_id_start_end_with_blob;
     final public String sample_sel_array_vals;
 	final public String sample_count_by_id_start_end;
+	/** Min/max/avg/stddev/count per time bin, <code>null</code> if not supported */
+	final public String sample_sel_bins_by_id_start_end;
+	/** Samples without numeric value, for example 'disconnected', <code>null</code> if binning is not supported */
+	final public String sample_sel_non_numeric_by_id_start_end;
+
+	// 'sample_rollup' table
+	/** Min/max/avg/count per time bin from rollups, <code>null</code> if not supported */
+	final public String rollup_sel_bins_by_id_period_start_end;
     
     /** Initialize SQL statements
      *  @param dialect RDB dialect
@@ -128,5 +136,55 @@ public class SQL
         // Rough count, ignoring nanosecs for the non-Oracle dialects
         sample_count_by_id_start_end = "SELECT COUNT(*) FROM " + prefix + "sample" +
           "   WHERE channel_id=? AND smpl_time BETWEEN ? AND ?";
+
+        // Server-side binning.
+        // Parameters: start time, bin seconds, channel_id, start, end.
+        // Bin number is computed from the offset to the start time,
+        // ignoring nanosecs.
+        final String bin;
+        if (dialect == RDBUtil.Dialect.PostgreSQL)
+            bin = "FLOOR(EXTRACT(EPOCH FROM (smpl_time - CAST(? AS TIMESTAMP))) / ?)";
+        else if (dialect == RDBUtil.Dialect.MySQL)
+            bin = "FLOOR(TIMESTAMPDIFF(MICROSECOND, ?, smpl_time) / 1000000.0 / ?)";
+        else
+            bin = null;
+        if (bin == null)
+        {
+            sample_sel_bins_by_id_start_end = null;
+            sample_sel_non_numeric_by_id_start_end = null;
+            rollup_sel_bins_by_id_period_start_end = null;
+        }
+        else
+        {
+            final String value = "COALESCE(float_val, num_val)";
+            sample_sel_bins_by_id_start_end =
+                "SELECT " + bin + " AS bin," +
+                " MIN(" + value + "), MAX(" + value + "), AVG(" + value + ")," +
+                " STDDEV_POP(" + value + "), COUNT(" + value + ")" +
+                "   FROM " + prefix + "sample" +
+                "   WHERE channel_id=?" +
+                "     AND smpl_time>=? AND smpl_time<=?" +
+                "   GROUP BY bin ORDER BY bin";
+            // Samples that the bins skip, same columns as sample_sel_by_id_start_end
+            sample_sel_non_numeric_by_id_start_end =
+                "SELECT smpl_time, severity_id, status_id, num_val, float_val, str_val, nanosecs FROM " + prefix + "sample" +
+                "   WHERE channel_id=?" +
+                "     AND smpl_time>=? AND smpl_time<=?" +
+                "     AND float_val IS NULL AND num_val IS NULL" +
+                "   ORDER BY smpl_time, nanosecs";
+            // Same columns, plus start of last and first rollup in bin.
+            // Std. deviation is combined from the mean of squares of the rollups.
+            // Parameters: start time, bin seconds, channel_id, period, start, end.
+            rollup_sel_bins_by_id_period_start_end =
+                "SELECT " + bin + " AS bin," +
+                " MIN(min_val), MAX(max_val), SUM(avg_val * cnt) / SUM(cnt)," +
+                " SQRT(GREATEST(0, SUM(cnt * (stddev_val * stddev_val + avg_val * avg_val)) / SUM(cnt)" +
+                "                  - POWER(SUM(avg_val * cnt) / SUM(cnt), 2)))," +
+                " SUM(cnt), MAX(smpl_time), MIN(smpl_time)" +
+                "   FROM " + prefix + "sample_rollup" +
+                "   WHERE channel_id=? AND period=?" +
+                "     AND smpl_time>=? AND smpl_time<?" +
+                "   GROUP BY bin ORDER BY bin";
+        }
     }
 }
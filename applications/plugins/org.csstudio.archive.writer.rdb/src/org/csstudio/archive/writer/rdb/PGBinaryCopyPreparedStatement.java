@@ -0,0 +1,1023 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * PreparedStatement that turns batched INSERTs into a PostgreSQL
+ * <code>COPY ... FROM STDIN WITH BINARY</code>.
+ * <p>
+ * Unlike the {@link PGCopyPreparedStatement}, parameters are kept as
+ * primitives and encoded straight into a re-used buffer in the binary COPY
+ * format, without formatting each value as text. The buffer is a heap buffer
+ * because the PostgreSQL COPY API reads from a <code>byte[]</code>.
+ * <p>
+ * Columns are written in the order of the INSERT statement. The binary
+ * format requires the exact column types, which are read from the database
+ * meta data.
+ * 
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PGBinaryCopyPreparedStatement implements PreparedStatement {
+
+	/** Binary COPY file signature */
+	private static final byte[] HEADER = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n',
+			(byte) 0xFF, '\r', '\n', 0 };
+
+	/** Seconds from 1970-01-01 to 2000-01-01 */
+	private static final long POSTGRES_EPOCH_SECS = 946684800L;
+
+	/** Initial buffer size */
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	/** Binary representation used for a column */
+	private enum Kind {
+		INT2, INT4, INT8, BOOL, FLOAT4, FLOAT8, TIMESTAMP, TEXT, BYTEA
+	}
+
+	private Connection connection;
+
+	private final String copySql;
+
+	private final TimeZone timeZone = TimeZone.getDefault();
+
+	/** Column kinds in order of the INSERT parameters */
+	private Kind[] kinds;
+
+	/** Current parameters of the row */
+	private boolean[] isNull;
+	private long[] longValues;
+	private double[] doubleValues;
+	private Object[] objectValues;
+
+	/** Batched rows in binary COPY format */
+	private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+	/** Number of batched rows */
+	private int rows = 0;
+
+	public PGBinaryCopyPreparedStatement(Connection connection,
+			String insertSqlQuery) throws SQLException {
+		this.connection = connection;
+
+		// Analyze query string to get table name and list of column
+		final Pattern p = Pattern.compile(
+				"^INSERT[ ]+INTO[ ]+([^ (]+)[ ]*\\(([^)]+)\\)",
+				Pattern.CASE_INSENSITIVE);
+		final Matcher m = p.matcher(insertSqlQuery.trim());
+		if (!m.find()) {
+			throw new SQLException("Cannot parse " + insertSqlQuery);
+		}
+		final String tableName = m.group(1);
+		final String[] columns = m.group(2).split(",");
+
+		// Get the column types as stored in the database
+		String schema = null;
+		String table = tableName;
+		final int sep = tableName.indexOf('.');
+		if (sep > 0) {
+			schema = tableName.substring(0, sep);
+			table = tableName.substring(sep + 1);
+		}
+		final Map<String, Integer> columnTypes = new HashMap<String, Integer>();
+		final ResultSet columnsRs = connection.getMetaData().getColumns(
+				connection.getCatalog(), schema, table, null);
+		try {
+			while (columnsRs.next()) {
+				columnTypes.put(columnsRs.getString("COLUMN_NAME"),
+						columnsRs.getInt("DATA_TYPE"));
+			}
+		} finally {
+			columnsRs.close();
+		}
+
+		final StringBuilder copy = new StringBuilder("COPY ");
+		copy.append(tableName).append(" (");
+		kinds = new Kind[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			final String columnName = columns[i].trim();
+			final Integer type = columnTypes.get(columnName);
+			if (type == null) {
+				throw new SQLException("Unable to find column " + columnName
+						+ "  in table " + tableName);
+			}
+			kinds[i] = getKind(columnName, type.intValue());
+			if (i > 0) {
+				copy.append(", ");
+			}
+			copy.append(columnName);
+		}
+		copy.append(") FROM STDIN WITH BINARY");
+		copySql = copy.toString();
+
+		isNull = new boolean[columns.length];
+		longValues = new long[columns.length];
+		doubleValues = new double[columns.length];
+		objectValues = new Object[columns.length];
+		clearParameters();
+		resetBuffer();
+	}
+
+	/**
+	 * @param columnName
+	 * @param sqlType
+	 *            {@link Types}
+	 * @return Binary representation for that column
+	 * @throws SQLException
+	 *             for unsupported column types
+	 */
+	private static Kind getKind(final String columnName, final int sqlType)
+			throws SQLException {
+		switch (sqlType) {
+		case Types.SMALLINT:
+			return Kind.INT2;
+		case Types.INTEGER:
+			return Kind.INT4;
+		case Types.BIGINT:
+			return Kind.INT8;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return Kind.BOOL;
+		case Types.REAL:
+			return Kind.FLOAT4;
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return Kind.FLOAT8;
+		case Types.TIMESTAMP:
+			return Kind.TIMESTAMP;
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+			return Kind.TEXT;
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+			return Kind.BYTEA;
+		default:
+			throw new SQLException("Column " + columnName + " has type "
+					+ sqlType + ", not supported by binary COPY");
+		}
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		// Tuple: Field count, then length and data for each field
+		ensureCapacity(2);
+		buffer.putShort((short) kinds.length);
+		for (int i = 0; i < kinds.length; i++) {
+			if (isNull[i]) {
+				ensureCapacity(4);
+				buffer.putInt(-1);
+				continue;
+			}
+			switch (kinds[i]) {
+			case INT2:
+				ensureCapacity(6);
+				buffer.putInt(2);
+				buffer.putShort((short) longValues[i]);
+				break;
+			case INT4:
+				ensureCapacity(8);
+				buffer.putInt(4);
+				buffer.putInt((int) longValues[i]);
+				break;
+			case INT8:
+				ensureCapacity(12);
+				buffer.putInt(8);
+				buffer.putLong(longValues[i]);
+				break;
+			case BOOL:
+				ensureCapacity(5);
+				buffer.putInt(1);
+				buffer.put((byte) (longValues[i] != 0 ? 1 : 0));
+				break;
+			case FLOAT4:
+				ensureCapacity(8);
+				buffer.putInt(4);
+				buffer.putFloat((float) doubleValues[i]);
+				break;
+			case FLOAT8:
+				ensureCapacity(12);
+				buffer.putInt(8);
+				buffer.putDouble(doubleValues[i]);
+				break;
+			case TIMESTAMP:
+				ensureCapacity(12);
+				buffer.putInt(8);
+				buffer.putLong(toPostgresMicros((Timestamp) objectValues[i]));
+				break;
+			case TEXT:
+				putText((String) objectValues[i]);
+				break;
+			case BYTEA:
+				final byte[] bytes = (byte[]) objectValues[i];
+				ensureCapacity(4 + bytes.length);
+				buffer.putInt(bytes.length);
+				buffer.put(bytes);
+				break;
+			}
+		}
+		++rows;
+		clearParameters();
+	}
+
+	/**
+	 * Add length and UTF-8 bytes of text to buffer, without creating an
+	 * intermediate byte array.
+	 * 
+	 * @param text
+	 */
+	private void putText(final String text) {
+		final int n = text.length();
+		// Worst case 3 bytes per char (surrogate pair: 4 bytes for 2 chars)
+		ensureCapacity(4 + 3 * n);
+		final int lengthPosition = buffer.position();
+		buffer.putInt(0);
+		for (int i = 0; i < n; i++) {
+			final char c = text.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < n
+					&& Character.isLowSurrogate(text.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, text.charAt(++i));
+				buffer.put((byte) (0xF0 | (cp >> 18)));
+				buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (cp & 0x3F)));
+			} else if (c >= Character.MIN_SURROGATE
+					&& c <= Character.MAX_SURROGATE) {
+				// Unpaired surrogate
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+	}
+
+	/**
+	 * Convert time stamp into PostgreSQL 'timestamp without time zone' binary
+	 * representation, i.e. microseconds since 2000-01-01 00:00:00 local time,
+	 * matching the local time that JDBC and the text COPY would write.
+	 * 
+	 * @param stamp
+	 * @return microseconds since PostgreSQL epoch
+	 */
+	private long toPostgresMicros(final Timestamp stamp) {
+		final long millis = stamp.getTime();
+		final long localMillis = millis + timeZone.getOffset(millis);
+		long secs = localMillis / 1000;
+		if (localMillis % 1000 < 0) {
+			--secs;
+		}
+		return (secs - POSTGRES_EPOCH_SECS) * 1000000L + stamp.getNanos()
+				/ 1000;
+	}
+
+	/**
+	 * Grow buffer to have room for given number of additional bytes
+	 * 
+	 * @param bytes
+	 */
+	private void ensureCapacity(final int bytes) {
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+		final int needed = buffer.position() + bytes;
+		final ByteBuffer larger = ByteBuffer.allocate(Math.max(needed,
+				2 * buffer.capacity()));
+		buffer.flip();
+		larger.put(buffer);
+		buffer = larger;
+	}
+
+	/** Reset buffer to only contain the COPY header */
+	private void resetBuffer() {
+		buffer.clear();
+		buffer.put(HEADER);
+		// Flags, header extension length
+		buffer.putInt(0);
+		buffer.putInt(0);
+		rows = 0;
+	}
+
+	@Override
+	public void addBatch(String arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		resetBuffer();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void close() throws SQLException {
+		kinds = null;
+		isNull = null;
+		longValues = null;
+		doubleValues = null;
+		objectValues = null;
+		buffer = null;
+		connection = null;
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public boolean execute(String arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean execute(String arg0, int arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean execute(String arg0, int[] arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean execute(String arg0, String[] arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		if (rows <= 0) {
+			return new int[0];
+		}
+		long res = 0;
+		try {
+			// File trailer
+			ensureCapacity(2);
+			buffer.putShort((short) -1);
+			res = copyIn(copySql, buffer.array(), buffer.position());
+		} finally {
+			resetBuffer();
+		}
+		return new int[] { (int) res };
+	}
+
+	/**
+	 * Send binary COPY data to the database
+	 * 
+	 * @param sql
+	 *            <code>COPY ... FROM STDIN WITH BINARY</code> command
+	 * @param data
+	 *            Buffer with header, rows and trailer
+	 * @param length
+	 *            Number of bytes in buffer to send
+	 * @return Number of rows copied
+	 * @throws SQLException
+	 */
+	protected long copyIn(final String sql, final byte[] data,
+			final int length) throws SQLException {
+		final CopyManager cpManager = ((PGConnection) connection)
+				.getCopyAPI();
+		final CopyIn copy = cpManager.copyIn(sql);
+		try {
+			copy.writeToCopy(data, 0, length);
+			return copy.endCopy();
+		} finally {
+			if (copy.isActive()) {
+				copy.cancelCopy();
+			}
+		}
+	}
+
+	@Override
+	public ResultSet executeQuery(String arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public int executeUpdate(String arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int executeUpdate(String arg0, int arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int executeUpdate(String arg0, int[] arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int executeUpdate(String arg0, String[] arg1) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return connection;
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public boolean getMoreResults() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean getMoreResults(int arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public int getQueryTimeout() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public int getUpdateCount() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public void setCursorName(String arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setFetchDirection(int arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setFetchSize(int arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setMaxFieldSize(int arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setMaxRows(int arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setPoolable(boolean arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setQueryTimeout(int arg0) throws SQLException {
+
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> arg0) throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+		Arrays.fill(isNull, true);
+		Arrays.fill(objectValues, null);
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return false;
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return 0;
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		throw new SQLException("Not implemented");
+		// return null;
+	}
+
+	@Override
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, int length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, long length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBigDecimal(int parameterIndex, BigDecimal x)
+			throws SQLException {
+		if (x == null) {
+			setNull(parameterIndex, Types.NUMERIC);
+		} else {
+			setDouble(parameterIndex, x.doubleValue());
+		}
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, int length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, long length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream inputStream, long length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+		setLong(parameterIndex, x ? 1 : 0);
+	}
+
+	@Override
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+		setObject(parameterIndex, x, Kind.BYTEA);
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader, int length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader reader,
+			long length) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader reader, long length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x, Calendar cal)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+		final int i = parameterIndex - 1;
+		doubleValues[i] = x;
+		longValues[i] = (long) x;
+		isNull[i] = false;
+	}
+
+	@Override
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+		setDouble(parameterIndex, x);
+	}
+
+	@Override
+	public void setInt(int parameterIndex, int x) throws SQLException {
+		setLong(parameterIndex, x);
+	}
+
+	@Override
+	public void setLong(int parameterIndex, long x) throws SQLException {
+		final int i = parameterIndex - 1;
+		longValues[i] = x;
+		doubleValues[i] = x;
+		isNull[i] = false;
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader value,
+			long length) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, NClob value) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader reader, long length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setNString(int parameterIndex, String value)
+			throws SQLException {
+		setString(parameterIndex, value);
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+		isNull[parameterIndex - 1] = true;
+		objectValues[parameterIndex - 1] = null;
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType, String typeName)
+			throws SQLException {
+		setNull(parameterIndex, sqlType);
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType,
+			int scaleOrLength) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setSQLXML(int parameterIndex, SQLXML xmlObject)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setShort(int parameterIndex, short x) throws SQLException {
+		setLong(parameterIndex, x);
+	}
+
+	@Override
+	public void setString(int parameterIndex, String x) throws SQLException {
+		setObject(parameterIndex, x, Kind.TEXT);
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x, Calendar cal)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x)
+			throws SQLException {
+		setObject(parameterIndex, x, Kind.TIMESTAMP);
+	}
+
+	/**
+	 * Set text, binary or time stamp parameter
+	 * 
+	 * @param parameterIndex
+	 * @param x
+	 * @param kind
+	 *            Kind of column that the parameter must match
+	 * @throws SQLException
+	 */
+	private void setObject(final int parameterIndex, final Object x,
+			final Kind kind) throws SQLException {
+		final int i = parameterIndex - 1;
+		if (x == null) {
+			setNull(parameterIndex, Types.NULL);
+			return;
+		}
+		if (kinds[i] != kind) {
+			throw new SQLException("Cannot write " + kind + " to "
+					+ kinds[i] + " column " + parameterIndex);
+		}
+		objectValues[i] = x;
+		isNull[i] = false;
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+
+	@Override
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length)
+			throws SQLException {
+		throw new SQLException("Not implemented");
+
+	}
+}
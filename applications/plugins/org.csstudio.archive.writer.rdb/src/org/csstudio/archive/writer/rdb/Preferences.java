@@ -21,6 +21,10 @@ public class Preferences
     public static final String MAX_TEXT_SAMPLE_LENGTH = "max_text_sample_length";
     
     public static final String USE_POSTGRES_COPY = "use_postgres_copy";
+
+    public static final String USE_POSTGRES_BINARY_COPY = "use_postgres_binary_copy";
+
+    public static final String PIPELINED_FLUSH = "pipelined_flush";
     
     /** @return # Name of sample table for writing */
     public static String getWriteSampleTable()
@@ -49,4 +53,22 @@ public class Preferences
             return false;
         return prefs.getBoolean(Activator.ID, USE_POSTGRES_COPY, false, null);
     }
+
+    /** @return true to use the binary format for postgres copy */
+    public static boolean isUsePostgresBinaryCopy()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return true;
+        return prefs.getBoolean(Activator.ID, USE_POSTGRES_BINARY_COPY, true, null);
+    }
+
+    /** @return true to write batches in background thread */
+    public static boolean isPipelinedFlush()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return false;
+        return prefs.getBoolean(Activator.ID, PIPELINED_FLUSH, false, null);
+    }
 }
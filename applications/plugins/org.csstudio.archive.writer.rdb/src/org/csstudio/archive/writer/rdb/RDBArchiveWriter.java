@@ -7,98 +7,91 @@
  ******************************************************************************/
 package org.csstudio.archive.writer.rdb;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 
 import org.csstudio.archive.rdb.RDBArchivePreferences;
 import org.csstudio.archive.vtype.MetaDataHelper;
 import org.csstudio.archive.vtype.TimestampHelper;
-import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.archive.writer.ArchiveRollupWriter;
 import org.csstudio.archive.writer.ArchiveWriter;
+import org.csstudio.archive.writer.ArchiveWriterStatistics;
 import org.csstudio.archive.writer.WriteChannel;
 import org.csstudio.platform.utility.rdb.RDBUtil;
-import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
-import org.epics.util.array.ListNumber;
-import org.epics.vtype.AlarmSeverity;
+import org.epics.util.time.Timestamp;
 import org.epics.vtype.Display;
-import org.epics.vtype.VDouble;
 import org.epics.vtype.VEnum;
-import org.epics.vtype.VNumber;
-import org.epics.vtype.VNumberArray;
-import org.epics.vtype.VString;
 import org.epics.vtype.VType;
 
 /** ArchiveWriter implementation for RDB
+ *
+ *  <p>Samples are collected until <code>flush()</code>,
+ *  which then inserts them via a {@link SampleBatchWriter}.
+ *  When configured to be 'pipelined', the batch is written
+ *  in a background thread on a separate RDB connection,
+ *  while the next batch is assembled.
+ *
+ *  <p>When 'rollup_periods' are configured,
+ *  rollups are written to the 'sample_rollup' table.
+ *
  *  @author Kay Kasemir
  *  @author Lana Abadie - PostgreSQL for original RDBArchive code. Disable autocommit as needed.
  *  @author Laurent Philippe (Use read-only connection when possible for MySQL load balancing)
  */
 @SuppressWarnings("nls")
-public class RDBArchiveWriter implements ArchiveWriter
+public class RDBArchiveWriter implements ArchiveWriter, ArchiveWriterStatistics, ArchiveRollupWriter
 {
-    /** Status string for <code>Double.NaN</code> samples */
-    final private static String NOT_A_NUMBER_STATUS = "NaN";
-
-    final private int SQL_TIMEOUT_SECS = RDBArchivePreferences.getSQLTimeoutSecs();
-
-    final private int MAX_TEXT_SAMPLE_LENGTH = Preferences.getMaxStringSampleLength();
-
-    final private boolean use_array_blob;
-
     /** RDB connection */
     final private RDBUtil rdb;
 
+    /** RDB connection for writing batches of samples.
+     *  Same as <code>rdb</code> unless pipelined
+     */
+    final private RDBUtil batch_rdb;
+
     /** SQL statements */
     final private SQL sql;
 
     /** Cache of channels by name */
     final private Map<String, RDBWriteChannel> channels = new HashMap<String, RDBWriteChannel>();
 
-    /** Severity (ID, name) cache */
-    private SeverityCache severities;
-
-    /** Status (ID, name) cache */
-    private StatusCache stati;
-
-    /** Prepared statement for inserting 'double' samples */
-    private PreparedStatement insert_double_sample = null;
-
-    /** Prepared statement for inserting array samples */
-    private PreparedStatement insert_array_sample = null;
+    /** Writes batches of samples */
+    final private SampleBatchWriter batch_writer;
 
-    /** Prepared statement for inserting 'long' samples */
-    private PreparedStatement insert_long_sample = null;
+    /** Executes batch_writer in background thread when pipelined, otherwise <code>null</code> */
+    final private ExecutorService executor;
 
-    /** Prepared statement for inserting 'String' samples */
-    private PreparedStatement insert_txt_sample = null;
+    /** Batch that's written in background thread, or <code>null</code> */
+    private Future<Object> pending = null;
 
-    /** Counter for accumulated samples in 'double' batch */
-    private int batched_double_inserts = 0;
+    /** Samples of the batch that's being assembled */
+    private List<RDBWriteChannel> batched_channel = new ArrayList<RDBWriteChannel>();
+    private List<VType> batched_samples = new ArrayList<VType>();
 
-    /** Counter for accumulated samples in 'double array' batch */
-    private int batched_double_array_inserts = 0;
+    /** Samples of the batch that's written in background thread */
+    private List<RDBWriteChannel> pending_channel = new ArrayList<RDBWriteChannel>();
+    private List<VType> pending_samples = new ArrayList<VType>();
 
-    /** Counter for accumulated samples in 'long' batch */
-    private int batched_long_inserts = 0;
+    /** Rollup periods in seconds, may be empty */
+    final private int[] rollup_periods;
 
-    /** Counter for accumulated samples in 'String' batch */
-    private int batched_txt_inserts = 0;
+    /** Insert for rollups, created when first needed */
+    private PreparedStatement insert_rollup = null;
 
-    /** Copy of batched samples, used to display batch errors */
-    private final List<RDBWriteChannel> batched_channel = new ArrayList<RDBWriteChannel>();
-    private final List<VType> batched_samples = new ArrayList<VType>();
+    /** Number of rollups added to <code>insert_rollup</code> batch */
+    private int rollup_count = 0;
 
     /** Initialize from preferences.
      *  This constructor will be invoked when an {@link ArchiveWriter}
@@ -123,11 +116,8 @@ public class RDBArchiveWriter implements ArchiveWriter
     public RDBArchiveWriter(final String url, final String user, final String password,
             final String schema, boolean use_array_blob) throws Exception
     {
-        this.use_array_blob = use_array_blob;
         rdb = RDBUtil.connect(url, user, password, false);
         sql = new SQL(rdb.getDialect(), schema);
-        severities = new SeverityCache(rdb, sql);
-        stati = new StatusCache(rdb, sql);
 
         // JDBC and RDBUtil default to auto-commit being on.
         //
@@ -136,6 +126,29 @@ public class RDBArchiveWriter implements ArchiveWriter
         // auto-commit is off, then enables it briefly as needed,
         // and otherwise commits/rolls back.
         rdb.getConnection().setAutoCommit(false);
+
+        if (Preferences.isPipelinedFlush())
+        {   // Separate connection for writing batches in background
+            batch_rdb = RDBUtil.connect(url, user, password, false);
+            batch_rdb.getConnection().setAutoCommit(false);
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "RDBArchiveWriter Batch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        else
+        {
+            batch_rdb = rdb;
+            executor = null;
+        }
+        batch_writer = new SampleBatchWriter(batch_rdb, sql, use_array_blob);
+        rollup_periods = RDBArchivePreferences.getRollupPeriods();
     }
 
     @Override
@@ -174,7 +187,6 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         final RDBWriteChannel rdb_channel = (RDBWriteChannel) channel;
         writeMetaData(rdb_channel, sample);
-        batchSample(rdb_channel, sample);
         batched_channel.add(rdb_channel);
         batched_samples.add(sample);
     }
@@ -219,507 +231,212 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
     }
     
-	/**
-	 * Create a new prepared statement. For PostgreSQL connections, this method
-	 * create a PGCopyPreparedStatement to improve insert speed using COPY
-	 * insetad of INSERT.
-	 * 
-	 * @param sqlQuery
-	 * @return
-	 * @throws SQLException
-	 * @throws Exception
-	 */
-	@SuppressWarnings("resource")
-	private PreparedStatement createInsertPrepareStatement(String sqlQuery)
-			throws SQLException, Exception {
-		PreparedStatement statement = null;
-		if (rdb.getDialect() == Dialect.PostgreSQL
-				&& Preferences.isUsePostgresCopy()) {
-			statement = new PGCopyPreparedStatement(rdb.getConnection(),
-					sqlQuery);
-		} else {
-			statement = rdb.getConnection().prepareStatement(sqlQuery);
-		}
-		if (SQL_TIMEOUT_SECS > 0)
-			statement.setQueryTimeout(SQL_TIMEOUT_SECS);
-		return statement;
-	}
-
-    /** Perform 'batched' insert for sample.
-     *  <p>Needs eventual flush()
-     *  @param channel Channel
-     *  @param sample Sample to insert
-     *  @throws Exception on error
+    /** {@inheritDoc}
+     *  RDB implementation completes pending batches.
+     *  <p>
+     *  When pipelined, the batch is written in a background thread,
+     *  and this call only waits for the previous batch to complete.
+     *  Errors in the background write are reported
+     *  by the next call to <code>flush()</code>.
+     *  The samples of the failed batch are kept,
+     *  ahead of those added meanwhile,
+     *  and the following <code>flush()</code> tries to write them again.
      */
-    private void batchSample(final RDBWriteChannel channel, final VType sample) throws Exception
+    @Override
+    public void flush() throws Exception
     {
-        final Timestamp stamp = TimestampHelper.toSQLTimestamp(VTypeHelper.getTimestamp(sample));
-        final int severity = severities.findOrCreate(VTypeHelper.getSeverity(sample));
-        final Status status = stati.findOrCreate(VTypeHelper.getMessage(sample));
-
-        // Severity/status cache may enable auto-commit
-        if (rdb.getConnection().getAutoCommit() == true)
-        	rdb.getConnection().setAutoCommit(false);
-
-        // Start with most likely cases and highest precision: Double, ...
-        // Then going down in precision to integers, finally strings...
-        if (sample instanceof VDouble)
-            batchDoubleSamples(channel, stamp, severity, status, ((VDouble)sample).getValue(), null);
-        else if (sample instanceof VNumber)
-        {	// Write as double or integer?
-        	final Number number = ((VNumber)sample).getValue();
-        	if (number instanceof Double)
-        		batchDoubleSamples(channel, stamp, severity, status, number.doubleValue(), null);
-        	else
-        		batchLongSample(channel, stamp, severity, status, number.longValue());
-        }
-        else if (sample instanceof VNumberArray)
+        flushRollups();
+        if (executor == null)
         {
-        	final ListNumber data = ((VNumberArray)sample).getData();
-            batchDoubleSamples(channel, stamp, severity, status, data.getDouble(0), data);
+            try
+            {
+                batch_writer.insert(batched_channel, batched_samples);
+            }
+            finally
+            {
+                batched_channel.clear();
+                batched_samples.clear();
+            }
+            return;
         }
-        else if (sample instanceof VEnum)
-            batchLongSample(channel, stamp, severity, status, ((VEnum)sample).getIndex());
-        else if (sample instanceof VString)
-            batchTextSamples(channel, stamp, severity, status, ((VString)sample).getValue());
-        else // Handle possible other types as strings
-            batchTextSamples(channel, stamp, severity, status, sample.toString());
+
+        // Wait for previous batch, which may throw an error
+        waitForPendingBatch();
+        if (batched_samples.isEmpty())
+            return;
+
+        // Swap batches: Write current one in background,
+        // assemble next batch in the previous one
+        final List<RDBWriteChannel> channels = batched_channel;
+        final List<VType> samples = batched_samples;
+        batched_channel = pending_channel;
+        batched_samples = pending_samples;
+        pending_channel = channels;
+        pending_samples = samples;
+        pending = executor.submit(new Callable<Object>()
+        {
+            @Override
+            public Object call() throws Exception
+            {
+                batch_writer.insert(channels, samples);
+                return null;
+            }
+        });
     }
 
-    /** Helper for batchSample: Add double sample(s) to batch. */
-    private void batchDoubleSamples(final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status, final double dbl, final ListNumber additional) throws Exception
+    /** {@inheritDoc} */
+    @Override
+    public int[] getRollupPeriods()
     {
-        if (use_array_blob)
-            batchBlobbedDoubleSample(channel, stamp, severity, status, dbl, additional);
-        else
-            oldBatchDoubleSamples(channel, stamp, severity, status, dbl, additional);
+        return rollup_periods;
     }
 
-    /** Helper for batchSample: Add double sample(s) to batch, using
-     *  blob to store array elements.
+    /** {@inheritDoc} */
+    @Override
+    public void addRollup(final WriteChannel channel, final int period, final Timestamp start,
+            final double min, final double max, final double average, final double stddev,
+            final long count) throws Exception
+    {
+        if (insert_rollup == null)
+            insert_rollup = rdb.getConnection().prepareStatement(sql.rollup_insert);
+        insert_rollup.setInt(1, ((RDBWriteChannel) channel).getId());
+        insert_rollup.setInt(2, period);
+        insert_rollup.setTimestamp(3, TimestampHelper.toSQLTimestamp(start));
+        insert_rollup.setDouble(4, min);
+        insert_rollup.setDouble(5, max);
+        insert_rollup.setDouble(6, average);
+        insert_rollup.setDouble(7, stddev);
+        insert_rollup.setLong(8, count);
+        insert_rollup.addBatch();
+        ++rollup_count;
+    }
+
+    /** Write rollups that were added since last call.
+     *
+     *  <p>Errors are logged but not passed up
+     *  because rollups are secondary to the samples:
+     *  A problem with the rollup table must not stop
+     *  the samples from being written.
      */
-    private void batchBlobbedDoubleSample(final RDBWriteChannel channel,
-            final Timestamp stamp, int severity,
-            Status status, final double dbl, final ListNumber additional) throws Exception
+    private void flushRollups()
     {
-        if (insert_double_sample == null)
+        if (rollup_count <= 0)
+            return;
+        final int count = rollup_count;
+        rollup_count = 0;
+        try
         {
-        	insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double_blob);
+            insert_rollup.executeBatch();
+            rdb.getConnection().commit();
         }
-        // Set scalar or 1st element of a waveform.
-        // Catch not-a-number, which JDBC (at least Oracle) can't handle.
-        if (Double.isNaN(dbl))
+        catch (Exception ex)
         {
-            insert_double_sample.setDouble(5, 0.0);
-            severity = severities.findOrCreate(AlarmSeverity.UNDEFINED);
-            status = stati.findOrCreate(NOT_A_NUMBER_STATUS);
-        }
-        else
-            insert_double_sample.setDouble(5, dbl);
-
-        if (additional == null)
-        {    // No more array elements, only scalar
-            switch (rdb.getDialect())
-            {
-            case Oracle:
-                insert_double_sample.setString(6, " ");
-                insert_double_sample.setNull(7, Types.BLOB);
-                break;
-            case PostgreSQL:
-                insert_double_sample.setString(7, " ");
-                insert_double_sample.setBytes(8, null);
-                break;
-            default:
-                // Types.BINARY?
-                insert_double_sample.setString(7, " ");
-                insert_double_sample.setNull(8, Types.BLOB);
-            }
-        }
-        else
-        {   // More array elements
-            final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            final DataOutputStream dout = new DataOutputStream(bout);
-            // Indicate 'Double' as data type
-            final int N = additional.size();
-            dout.writeInt(N);
-            // Write binary data for array elements
-            for (int i=0; i<N; ++i)
-                dout.writeDouble(additional.getDouble(i));
-            dout.close();
-            final byte[] asBytes = bout.toByteArray();
-            if (rdb.getDialect() == Dialect.Oracle)
+            Activator.getLogger().log(Level.WARNING, "Cannot write " + count + " rollups", ex);
+            try
             {
-                insert_double_sample.setString(6, "d");
-                insert_double_sample.setBytes(7, asBytes);
+                insert_rollup.clearBatch();
+                rdb.getConnection().rollback();
             }
-            else
+            catch (Exception e)
             {
-                insert_double_sample.setString(7, "d");
-                insert_double_sample.setBytes(8, asBytes);
+                // Ignore, report original error
             }
         }
-        // Batch
-        completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
-        ++batched_double_inserts;
     }
 
-    /** Add 'insert' for double samples to batch, handling arrays
-     *  via the original array_val table
+    /** Wait for batch that's written in background thread
+     *
+     *  <p>When the batch failed, its samples are moved
+     *  to the start of the batch that's being assembled.
+     *
+     *  @throws Exception on error from the background thread
      */
-    private void oldBatchDoubleSamples(final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status, final double dbl, final ListNumber additional) throws Exception
+    private void waitForPendingBatch() throws Exception
     {
-        if (insert_double_sample == null)
-        {
-        	insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double);
-        }
-        // Catch not-a-number, which JDBC (at least Oracle) can't handle.
-        if (Double.isNaN(dbl))
-        {
-            insert_double_sample.setDouble(5, 0.0);
-            completeAndBatchInsert(insert_double_sample,
-                    channel, stamp,
-                    severities.findOrCreate(AlarmSeverity.UNDEFINED),
-                    stati.findOrCreate(NOT_A_NUMBER_STATUS));
-        }
-        else
+        if (pending == null)
+            return;
+        try
         {
-            insert_double_sample.setDouble(5, dbl);
-            completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
+            pending.get();
         }
-        ++batched_double_inserts;
-        // More array elements?
-        if (additional != null)
+        catch (ExecutionException ex)
         {
-            if (insert_array_sample == null)
-                insert_array_sample =
-                    rdb.getConnection().prepareStatement(
-                        sql.sample_insert_double_array_element);
-            final int N = additional.size();
-            for (int i = 1; i < N; i++)
-            {
-                insert_array_sample.setInt(1, channel.getId());
-                insert_array_sample.setTimestamp(2, stamp);
-                insert_array_sample.setInt(3, i);
-                // Patch NaN.
-                // Conundrum: Should we set the status/severity to indicate NaN?
-                // Would be easy if we wrote the main sample with overall
-                // stat/sevr at the end.
-                // But we have to write it first to avoid index (key) errors
-                // with the array sample time stamp....
-                // Go back and update the main sample after the fact??
-                if (Double.isNaN(additional.getDouble(i)))
-                    insert_array_sample.setDouble(4, 0.0);
-                else
-                    insert_array_sample.setDouble(4, additional.getDouble(i));
-                // MySQL nanosecs
-                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-                    insert_array_sample.setInt(5, stamp.getNanos());
-                // Batch
-                insert_array_sample.addBatch();
-                ++batched_double_array_inserts;
-            }
+            pending = null;
+            // Keep samples of failed batch, followed by those added meanwhile
+            pending_channel.addAll(batched_channel);
+            pending_samples.addAll(batched_samples);
+            batched_channel.clear();
+            batched_samples.clear();
+            final List<RDBWriteChannel> channels = batched_channel;
+            final List<VType> samples = batched_samples;
+            batched_channel = pending_channel;
+            batched_samples = pending_samples;
+            pending_channel = channels;
+            pending_samples = samples;
+
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw ex;
         }
+        pending = null;
+        pending_channel.clear();
+        pending_samples.clear();
     }
 
-    /** Helper for batchSample: Add long sample to batch.  */
-    private void batchLongSample(final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status, final long num) throws Exception
+    /** {@inheritDoc} */
+    @Override
+    public double getAssembleSeconds()
     {
-        if (insert_long_sample == null)
-        {
-        	insert_long_sample = createInsertPrepareStatement(sql.sample_insert_int);
-        }
-        insert_long_sample.setLong(5, num);
-        completeAndBatchInsert(insert_long_sample, channel, stamp, severity, status);
-        ++batched_long_inserts;
+        return batch_writer.getAssembleSeconds();
     }
 
-    /** Helper for batchSample: Add text sample to batch. */
-    private void batchTextSamples(final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status, String txt) throws Exception
+    /** {@inheritDoc} */
+    @Override
+    public double getExecuteSeconds()
     {
-        if (insert_txt_sample == null)
-        {
-        	insert_txt_sample = createInsertPrepareStatement(sql.sample_insert_string);
-        }
-        if (txt.length() > MAX_TEXT_SAMPLE_LENGTH)
-        {
-            Activator.getLogger().log(Level.INFO,
-                "Value of {0} exceeds {1} chars: {2}",
-                new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
-            txt = txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
-        }
-        insert_txt_sample.setString(5, txt);
-        completeAndBatchInsert(insert_txt_sample, channel, stamp, severity, status);
-        ++batched_txt_inserts;
+        return batch_writer.getExecuteSeconds();
     }
 
-    /** Helper for batchSample:
-     *  Set the parameters common to all insert statements, add to batch.
-     */
-    private void completeAndBatchInsert(
-            final PreparedStatement insert_xx, final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status) throws Exception
+    /** {@inheritDoc} */
+    @Override
+    public double getCommitSeconds()
     {
-        // Set the stuff that's common to each type
-        insert_xx.setInt(1, channel.getId());
-        insert_xx.setTimestamp(2, stamp);
-        insert_xx.setInt(3, severity);
-        insert_xx.setInt(4, status.getId());
-        // MySQL nanosecs
-        if (rdb.getDialect() == Dialect.MySQL  ||  rdb.getDialect() == Dialect.PostgreSQL)
-            insert_xx.setInt(6, stamp.getNanos());
-        // Batch
-        insert_xx.addBatch();
+        return batch_writer.getCommitSeconds();
     }
 
-    /** {@inheritDoc}
-     *  RDB implementation completes pending batches
-     */
+    /** {@inheritDoc} */
     @Override
-    public void flush() throws Exception
+    public void close()
     {
-        try
+        if (executor != null)
         {
-            if (batched_double_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_double_sample);
-                }
-                finally
-                {
-                    batched_double_inserts = 0;
-                }
-            }
-            if (batched_long_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_long_sample);
-                }
-                finally
-                {
-                    batched_long_inserts = 0;
-                }
-            }
-            if (batched_txt_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_txt_sample);
-                }
-                finally
-                {
-                    batched_txt_inserts = 0;
-                }
-            }
-            if (batched_double_array_inserts > 0)
+            try
             {
-                try
-                {
-                    checkBatchExecution(insert_array_sample);
-                }
-                finally
-                {
-                    batched_double_array_inserts = 0;
-                }
+                waitForPendingBatch();
             }
-        }
-        catch (final Exception ex)
-        {
-            if (ex.getMessage().contains("unique"))
+            catch (Exception ex)
             {
-                System.out.println(new Date().toString() + " Unique constraint error in these samples: " + ex.getMessage()); //$NON-NLS-1$
-                if (batched_samples.size() != batched_channel.size())
-                    System.out.println("Inconsistent batch history");
-                final int N = Math.min(batched_samples.size(), batched_channel.size());
-                for (int i=0; i<N; ++i)
-                    attemptSingleInsert(batched_channel.get(i), batched_samples.get(i));
+                Activator.getLogger().log(Level.WARNING, "Error writing last batch", ex);
             }
-            throw ex;
-        }
-        finally
-        {
-            batched_channel.clear();
-            batched_samples.clear();
+            executor.shutdown();
         }
-    }
-
-    /** Submit and clear the batch, or roll back on error */
-    private void checkBatchExecution(final PreparedStatement insert) throws Exception
-    {
-        try
-        {   // Try to perform the inserts
-            // In principle this could return update counts for
-            // each batched insert, but Oracle 10g and 11g just throw
-            // an exception
-            insert.executeBatch();
-            rdb.getConnection().commit();
-        }
-        catch (final Exception ex)
+        channels.clear();
+        if (insert_rollup != null)
         {
             try
             {
-                // On failure, roll back.
-                // With Oracle 10g, the BatchUpdateException doesn't
-                // indicate which of the batched commands faulted...
-                insert.clearBatch();
-                // Still: Commit what's committable.
-                // Unfortunately no way to know what failed,
-                // and no way to re-submit the 'remaining' inserts.
-                rdb.getConnection().commit();
+                insert_rollup.close();
             }
-            catch (Exception nested)
+            catch (Exception ex)
             {
-                Activator.getLogger().log(Level.WARNING,
-                        "clearBatch(), commit() error after batch issue", nested);
+                // Ignore
             }
-            throw ex;
+            insert_rollup = null;
         }
-    }
-
-    /** The batched insert failed, so try to insert this channel's sample
-     *  individually, mostly to debug errors
-     *  @param channel
-     *  @param sample
-     */
-    private void attemptSingleInsert(final RDBWriteChannel channel, final VType sample)
-    {
-        System.out.println("Individual insert of " + channel.getName() + " = " + sample.toString());
-//        try
-//        {
-//            final Timestamp stamp = TimestampHelper.toSQLTimestamp(VTypeHelper.getTimestamp(sample));
-//            final int severity = severities.findOrCreate(VTypeHelper.getSeverity(sample));
-//            final Status status = stati.findOrCreate(VTypeHelper.getMessage(sample));
-//            if (sample instanceof VNumber)
-//            {
-//                final IDoubleValue dbl = (IDoubleValue) sample;
-//                if (dbl.getValues().length > 1)
-//                    throw new Exception("Not checking array samples");
-//                if (Double.isNaN(dbl.getValue()))
-//                    throw new Exception("Not checking NaN values");
-//                insert_double_sample.setInt(1, channel.getId());
-//                insert_double_sample.setTimestamp(2, stamp);
-//                insert_double_sample.setInt(3, severity.getId());
-//                insert_double_sample.setInt(4, status.getId());
-//                insert_double_sample.setDouble(5, dbl.getValue());
-//                //always false as we don't insert arrays in this function
-//                insert_double_sample.setBoolean(6, false);
-//                // MySQL nanosecs
-//                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-//                    insert_double_sample.setInt(7, stamp.getNanos());
-//                insert_double_sample.executeUpdate();
-//            }
-//            else if (sample instanceof ILongValue)
-//            {
-//                final ILongValue num = (ILongValue) sample;
-//                if (num.getValues().length > 1)
-//                    throw new Exception("Not checking array samples");
-//                insert_long_sample.setInt(1, channel.getId());
-//                insert_long_sample.setTimestamp(2, stamp);
-//                insert_long_sample.setInt(3, severity.getId());
-//                insert_long_sample.setInt(4, status.getId());
-//                insert_long_sample.setLong(5, num.getValue());
-//                insert_long_sample.setBoolean(6, false);
-//                // MySQL nanosecs
-//                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-//                    insert_long_sample.setInt(7, stamp.getNanos());
-//                insert_long_sample.executeUpdate();
-//            }
-//            else if (sample instanceof IEnumeratedValue)
-//            {   // Enum handled just like (long) integer
-//                final IEnumeratedValue num = (IEnumeratedValue) sample;
-//                if (num.getValues().length > 1)
-//                    throw new Exception("Not checking array samples");
-//                insert_long_sample.setInt(1, channel.getId());
-//                insert_long_sample.setTimestamp(2, stamp);
-//                insert_long_sample.setInt(3, severity.getId());
-//                insert_long_sample.setInt(4, status.getId());
-//                insert_long_sample.setLong(5, num.getValue());
-//                insert_long_sample.setBoolean(6, false);
-//                // MySQL nanosecs
-//                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-//                    insert_long_sample.setInt(7, stamp.getNanos());
-//                insert_long_sample.executeUpdate();
-//            }
-//            else
-//            {   // Handle string and possible other types as strings
-//                final String txt = sample.format();
-//                insert_txt_sample.setInt(1, channel.getId());
-//                insert_txt_sample.setTimestamp(2, stamp);
-//                insert_txt_sample.setInt(3, severity.getId());
-//                insert_txt_sample.setInt(4, status.getId());
-//                insert_txt_sample.setString(5, txt);
-//                insert_txt_sample.setBoolean(6, false);
-//                // MySQL nanosecs
-//                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-//                    insert_txt_sample.setInt(7, stamp.getNanos());
-//                insert_txt_sample.executeUpdate();
-//            }
-//            rdb.getConnection().commit();
-//        }
-//        catch (Exception ex)
-//        {
-//            System.out.println("Individual insert failed: " + ex.getMessage());
-//        }
-    }
-
-    /** {@inheritDoc} */
-    @Override
-    public void close()
-    {
-        channels.clear();
-        if (severities != null)
-        {
-            severities.dispose();
-            severities = null;
-        }
-        if (stati != null)
-        {
-            stati.dispose();
-            stati = null;
-        }
-
-		if (insert_double_sample != null) {
-			try {
-				insert_double_sample.close();
-			} catch (SQLException e) {
-				Activator.getLogger().log(Level.WARNING, "close() error", e);
-			}
-			insert_double_sample = null;
-		}
-		if (insert_array_sample != null) {
-			try {
-				insert_array_sample.close();
-			} catch (SQLException e) {
-				Activator.getLogger().log(Level.WARNING, "close() error", e);
-			}
-			insert_array_sample = null;
-		}
-		if (insert_long_sample != null) {
-			try {
-				insert_long_sample.close();
-			} catch (SQLException e) {
-				Activator.getLogger().log(Level.WARNING, "close() error", e);
-			}
-			insert_long_sample = null;
-		}
-		if (insert_txt_sample != null) {
-			try {
-				insert_txt_sample.close();
-			} catch (SQLException e) {
-				Activator.getLogger().log(Level.WARNING, "close() error", e);
-			}
-			insert_txt_sample = null;
-		}
-		rdb.close();
+        batch_writer.close();
+        if (batch_rdb != rdb)
+            batch_rdb.close();
+        rdb.close();
     }
 }
@@ -46,6 +46,9 @@ public class SQL
 	final public String sample_insert_int;
 	final public String sample_insert_string;
 
+	// 'sample_rollup' table
+	final public String rollup_insert;
+
 	/** Initialize
 	 *  @param dialect RDB Dialect
 	 *  @param schema Schema prefix (May be ""), not including "."
@@ -82,6 +85,19 @@ public class SQL
         status_name_column = "name";
 	    status_id_column = "status_id";
 	    
+		// 'sample_rollup' table.
+	    // A rollup that is already in the table, for example
+	    // written by an engine before it was restarted, is kept
+	    final String rollup_columns = "sample_rollup" +
+	        " (channel_id, period, smpl_time, min_val, max_val, avg_val, stddev_val, cnt)" +
+	        " VALUES (?,?,?,?,?,?,?,?)";
+	    if (dialect == Dialect.MySQL)
+	        rollup_insert = "INSERT IGNORE INTO " + schema + rollup_columns;
+	    else if (dialect == Dialect.PostgreSQL)
+	        rollup_insert = "INSERT INTO " + schema + rollup_columns + " ON CONFLICT DO NOTHING";
+	    else
+	        rollup_insert = "INSERT INTO " + schema + rollup_columns;
+
 		// 'sample' table
 	    final String sample = Preferences.getWriteSampleTable();
 	    Logger.getLogger(getClass().getName()).fine("Writing to table '" + sample + "'");
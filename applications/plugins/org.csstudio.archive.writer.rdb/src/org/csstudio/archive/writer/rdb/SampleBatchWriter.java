@@ -0,0 +1,626 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.csstudio.archive.rdb.RDBArchivePreferences;
+import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
+import org.epics.util.array.ListNumber;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.VDouble;
+import org.epics.vtype.VEnum;
+import org.epics.vtype.VNumber;
+import org.epics.vtype.VNumberArray;
+import org.epics.vtype.VString;
+import org.epics.vtype.VType;
+
+/** Batched insert of samples into the RDB
+ *
+ *  <p>Assembles the JDBC batches for a list of samples,
+ *  then executes and commits them.
+ *  When a batch fails because of bad data, it is rolled back and bisected
+ *  to isolate the bad samples, which are then skipped.
+ *  Other errors, for example timeouts, missing tables or permissions,
+ *  are passed up because they would affect every sample.
+ *
+ *  <p>Used by the {@link RDBArchiveWriter}, either on the writer's
+ *  RDB connection or with a separate connection in a background thread.
+ *  Not thread-safe, each instance must only be used by one thread at a time.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class SampleBatchWriter
+{
+    /** Status string for <code>Double.NaN</code> samples */
+    final private static String NOT_A_NUMBER_STATUS = "NaN";
+
+    final private int SQL_TIMEOUT_SECS = RDBArchivePreferences.getSQLTimeoutSecs();
+
+    final private int MAX_TEXT_SAMPLE_LENGTH = Preferences.getMaxStringSampleLength();
+
+    /** Maximum number of failed batch attempts while bisecting the samples of one insert() */
+    final private static int MAX_BISECT_FAILURES = 64;
+
+    final private boolean use_array_blob;
+
+    /** RDB connection */
+    final private RDBUtil rdb;
+
+    /** SQL statements */
+    final private SQL sql;
+
+    /** Severity (ID, name) cache */
+    private SeverityCache severities;
+
+    /** Status (ID, name) cache */
+    private StatusCache stati;
+
+    /** Prepared statement for inserting 'double' samples */
+    private PreparedStatement insert_double_sample = null;
+
+    /** Prepared statement for inserting array samples */
+    private PreparedStatement insert_array_sample = null;
+
+    /** Prepared statement for inserting 'long' samples */
+    private PreparedStatement insert_long_sample = null;
+
+    /** Prepared statement for inserting 'String' samples */
+    private PreparedStatement insert_txt_sample = null;
+
+    /** Counter for accumulated samples in 'double' batch */
+    private int batched_double_inserts = 0;
+
+    /** Counter for accumulated samples in 'double array' batch */
+    private int batched_double_array_inserts = 0;
+
+    /** Counter for accumulated samples in 'long' batch */
+    private int batched_long_inserts = 0;
+
+    /** Counter for accumulated samples in 'String' batch */
+    private int batched_txt_inserts = 0;
+
+    /** Nanoseconds spent in the stages of all insert() calls */
+    private long assemble_nanos = 0, execute_nanos = 0, commit_nanos = 0;
+
+    /** Seconds spent in the stages of all completed insert() calls */
+    private volatile double assemble_secs = 0.0, execute_secs = 0.0, commit_secs = 0.0;
+
+    /** Remaining failed batch attempts for the current insert() */
+    private int bisect_failures;
+
+    /** Initialize
+     *  @param rdb RDB connection
+     *  @param sql SQL statements
+     *  @param use_array_blob Use BLOB for array elements?
+     */
+    SampleBatchWriter(final RDBUtil rdb, final SQL sql, final boolean use_array_blob)
+    {
+        this.rdb = rdb;
+        this.sql = sql;
+        this.use_array_blob = use_array_blob;
+        severities = new SeverityCache(rdb, sql);
+        stati = new StatusCache(rdb, sql);
+    }
+
+    /** @return Total seconds spent assembling the batches */
+    double getAssembleSeconds()
+    {
+        return assemble_secs;
+    }
+
+    /** @return Total seconds spent executing the batches */
+    double getExecuteSeconds()
+    {
+        return execute_secs;
+    }
+
+    /** @return Total seconds spent committing the batches */
+    double getCommitSeconds()
+    {
+        return commit_secs;
+    }
+
+    /** Insert samples
+     *
+     *  <p>Samples that cannot be inserted because of problems
+     *  with the sample itself are logged and skipped.
+     *
+     *  @param channels Channels of the samples
+     *  @param samples Samples to insert, same size as <code>channels</code>
+     *  @throws Exception on error that prevents inserting any samples,
+     *          for example RDB connection error, timeout, missing table
+     */
+    void insert(final List<RDBWriteChannel> channels, final List<VType> samples) throws Exception
+    {
+        bisect_failures = MAX_BISECT_FAILURES;
+        try
+        {
+            insert(channels, samples, 0, Math.min(channels.size(), samples.size()));
+        }
+        finally
+        {
+            assemble_secs = assemble_nanos * 1e-9;
+            execute_secs = execute_nanos * 1e-9;
+            commit_secs = commit_nanos * 1e-9;
+        }
+    }
+
+    /** Insert a range of samples, bisecting the range on error
+     *  @param channels Channels of the samples
+     *  @param samples Samples to insert
+     *  @param start Index of first sample to insert
+     *  @param end Index after last sample to insert
+     *  @throws Exception on error that prevents inserting any samples
+     */
+    private void insert(final List<RDBWriteChannel> channels, final List<VType> samples,
+                        final int start, final int end) throws Exception
+    {
+        if (start >= end)
+            return;
+        try
+        {
+            final long t0 = System.nanoTime();
+            for (int i=start; i<end; ++i)
+                batchSample(channels.get(i), samples.get(i));
+            final long t1 = System.nanoTime();
+            executeBatches();
+            final long t2 = System.nanoTime();
+            rdb.getConnection().commit();
+            final long t3 = System.nanoTime();
+            assemble_nanos += t1 - t0;
+            execute_nanos += t2 - t1;
+            commit_nanos += t3 - t2;
+        }
+        catch (Exception ex)
+        {
+            rollback();
+            // Bisecting only helps with problems caused by the samples,
+            // not when the connection is gone, the table is missing, ...
+            if (! isDataError(ex)  ||  ! isConnectionValid())
+                throw ex;
+            if (--bisect_failures <= 0)
+                throw new Exception("Giving up on batch of " + (end - start) +
+                                    " samples after " + MAX_BISECT_FAILURES + " failed attempts", ex);
+            if (end - start == 1)
+            {
+                Activator.getLogger().log(Level.WARNING,
+                    "Skipping sample of " + channels.get(start).getName() + ": " + samples.get(start), ex);
+                return;
+            }
+            final int middle = (start + end) / 2;
+            insert(channels, samples, start, middle);
+            insert(channels, samples, middle, end);
+        }
+    }
+
+    /** @param ex Error from inserting a batch
+     *  @return <code>true</code> if error was caused by the data of a sample,
+     *          so other samples can be inserted
+     */
+    static boolean isDataError(final Throwable ex)
+    {
+        // Error in assembling the batch for an empty array, which has no first element.
+        // Other runtime errors like NullPointerException are not specific to one sample
+        if (ex instanceof IndexOutOfBoundsException)
+            return true;
+        // SQL error with SQLState class 22 (data exception)
+        // or 23 (integrity constraint violation).
+        // The cause of a BatchUpdateException is in the 'next' exception
+        for (Throwable error = ex;  error != null;  error = error.getCause())
+        {
+            if (error instanceof SQLException)
+            {
+                for (SQLException sql_ex = (SQLException) error;  sql_ex != null;  sql_ex = sql_ex.getNextException())
+                {
+                    final String state = sql_ex.getSQLState();
+                    if (state != null  &&  (state.startsWith("22")  ||  state.startsWith("23")))
+                        return true;
+                    // Avoid loop if next exception points back
+                    if (sql_ex.getNextException() == sql_ex)
+                        break;
+                }
+            }
+            if (error.getCause() == error)
+                break;
+        }
+        return false;
+    }
+
+    /** @return <code>true</code> if RDB connection is still usable */
+    private boolean isConnectionValid()
+    {
+        try
+        {
+            return rdb.getConnection().isValid(SQL_TIMEOUT_SECS);
+        }
+        catch (Exception ex)
+        {
+            return false;
+        }
+    }
+
+	/**
+	 * Create a new prepared statement. For PostgreSQL connections, this method
+	 * create a PGBinaryCopyPreparedStatement or PGCopyPreparedStatement
+	 * to improve insert speed using COPY insetad of INSERT.
+	 * 
+	 * @param sqlQuery
+	 * @return
+	 * @throws SQLException
+	 * @throws Exception
+	 */
+	@SuppressWarnings("resource")
+	private PreparedStatement createInsertPrepareStatement(String sqlQuery)
+			throws SQLException, Exception {
+		PreparedStatement statement = null;
+		if (rdb.getDialect() == Dialect.PostgreSQL
+				&& Preferences.isUsePostgresCopy()) {
+			if (Preferences.isUsePostgresBinaryCopy())
+				statement = new PGBinaryCopyPreparedStatement(
+						rdb.getConnection(), sqlQuery);
+			else
+				statement = new PGCopyPreparedStatement(rdb.getConnection(),
+						sqlQuery);
+		} else {
+			statement = rdb.getConnection().prepareStatement(sqlQuery);
+		}
+		if (SQL_TIMEOUT_SECS > 0)
+			statement.setQueryTimeout(SQL_TIMEOUT_SECS);
+		return statement;
+	}
+
+    /** Perform 'batched' insert for sample.
+     *  <p>Needs eventual flush()
+     *  @param channel Channel
+     *  @param sample Sample to insert
+     *  @throws Exception on error
+     */
+    private void batchSample(final RDBWriteChannel channel, final VType sample) throws Exception
+    {
+        final Timestamp stamp = TimestampHelper.toSQLTimestamp(VTypeHelper.getTimestamp(sample));
+        final int severity = severities.findOrCreate(VTypeHelper.getSeverity(sample));
+        final Status status = stati.findOrCreate(VTypeHelper.getMessage(sample));
+
+        // Severity/status cache may enable auto-commit
+        if (rdb.getConnection().getAutoCommit() == true)
+        	rdb.getConnection().setAutoCommit(false);
+
+        // Start with most likely cases and highest precision: Double, ...
+        // Then going down in precision to integers, finally strings...
+        if (sample instanceof VDouble)
+            batchDoubleSamples(channel, stamp, severity, status, ((VDouble)sample).getValue(), null);
+        else if (sample instanceof VNumber)
+        {	// Write as double or integer?
+        	final Number number = ((VNumber)sample).getValue();
+        	if (number instanceof Double)
+        		batchDoubleSamples(channel, stamp, severity, status, number.doubleValue(), null);
+        	else
+        		batchLongSample(channel, stamp, severity, status, number.longValue());
+        }
+        else if (sample instanceof VNumberArray)
+        {
+        	final ListNumber data = ((VNumberArray)sample).getData();
+            batchDoubleSamples(channel, stamp, severity, status, data.getDouble(0), data);
+        }
+        else if (sample instanceof VEnum)
+            batchLongSample(channel, stamp, severity, status, ((VEnum)sample).getIndex());
+        else if (sample instanceof VString)
+            batchTextSamples(channel, stamp, severity, status, ((VString)sample).getValue());
+        else // Handle possible other types as strings
+            batchTextSamples(channel, stamp, severity, status, sample.toString());
+    }
+
+    /** Helper for batchSample: Add double sample(s) to batch. */
+    private void batchDoubleSamples(final RDBWriteChannel channel,
+            final Timestamp stamp, final int severity,
+            final Status status, final double dbl, final ListNumber additional) throws Exception
+    {
+        if (use_array_blob)
+            batchBlobbedDoubleSample(channel, stamp, severity, status, dbl, additional);
+        else
+            oldBatchDoubleSamples(channel, stamp, severity, status, dbl, additional);
+    }
+
+    /** Helper for batchSample: Add double sample(s) to batch, using
+     *  blob to store array elements.
+     */
+    private void batchBlobbedDoubleSample(final RDBWriteChannel channel,
+            final Timestamp stamp, int severity,
+            Status status, final double dbl, final ListNumber additional) throws Exception
+    {
+        if (insert_double_sample == null)
+        {
+        	insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double_blob);
+        }
+        // Set scalar or 1st element of a waveform.
+        // Catch not-a-number, which JDBC (at least Oracle) can't handle.
+        if (Double.isNaN(dbl))
+        {
+            insert_double_sample.setDouble(5, 0.0);
+            severity = severities.findOrCreate(AlarmSeverity.UNDEFINED);
+            status = stati.findOrCreate(NOT_A_NUMBER_STATUS);
+        }
+        else
+            insert_double_sample.setDouble(5, dbl);
+
+        if (additional == null)
+        {    // No more array elements, only scalar
+            switch (rdb.getDialect())
+            {
+            case Oracle:
+                insert_double_sample.setString(6, " ");
+                insert_double_sample.setNull(7, Types.BLOB);
+                break;
+            case PostgreSQL:
+                insert_double_sample.setString(7, " ");
+                insert_double_sample.setBytes(8, null);
+                break;
+            default:
+                // Types.BINARY?
+                insert_double_sample.setString(7, " ");
+                insert_double_sample.setNull(8, Types.BLOB);
+            }
+        }
+        else
+        {   // More array elements
+            final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            final DataOutputStream dout = new DataOutputStream(bout);
+            // Indicate 'Double' as data type
+            final int N = additional.size();
+            dout.writeInt(N);
+            // Write binary data for array elements
+            for (int i=0; i<N; ++i)
+                dout.writeDouble(additional.getDouble(i));
+            dout.close();
+            final byte[] asBytes = bout.toByteArray();
+            if (rdb.getDialect() == Dialect.Oracle)
+            {
+                insert_double_sample.setString(6, "d");
+                insert_double_sample.setBytes(7, asBytes);
+            }
+            else
+            {
+                insert_double_sample.setString(7, "d");
+                insert_double_sample.setBytes(8, asBytes);
+            }
+        }
+        // Batch
+        completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
+        ++batched_double_inserts;
+    }
+
+    /** Add 'insert' for double samples to batch, handling arrays
+     *  via the original array_val table
+     */
+    private void oldBatchDoubleSamples(final RDBWriteChannel channel,
+            final Timestamp stamp, final int severity,
+            final Status status, final double dbl, final ListNumber additional) throws Exception
+    {
+        if (insert_double_sample == null)
+        {
+        	insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double);
+        }
+        // Catch not-a-number, which JDBC (at least Oracle) can't handle.
+        if (Double.isNaN(dbl))
+        {
+            insert_double_sample.setDouble(5, 0.0);
+            completeAndBatchInsert(insert_double_sample,
+                    channel, stamp,
+                    severities.findOrCreate(AlarmSeverity.UNDEFINED),
+                    stati.findOrCreate(NOT_A_NUMBER_STATUS));
+        }
+        else
+        {
+            insert_double_sample.setDouble(5, dbl);
+            completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
+        }
+        ++batched_double_inserts;
+        // More array elements?
+        if (additional != null)
+        {
+            if (insert_array_sample == null)
+            {   // Text-based COPY only supports the sample table
+                if (Preferences.isUsePostgresBinaryCopy())
+                    insert_array_sample =
+                        createInsertPrepareStatement(sql.sample_insert_double_array_element);
+                else
+                    insert_array_sample =
+                        rdb.getConnection().prepareStatement(
+                            sql.sample_insert_double_array_element);
+            }
+            final int N = additional.size();
+            for (int i = 1; i < N; i++)
+            {
+                insert_array_sample.setInt(1, channel.getId());
+                insert_array_sample.setTimestamp(2, stamp);
+                insert_array_sample.setInt(3, i);
+                // Patch NaN.
+                // Conundrum: Should we set the status/severity to indicate NaN?
+                // Would be easy if we wrote the main sample with overall
+                // stat/sevr at the end.
+                // But we have to write it first to avoid index (key) errors
+                // with the array sample time stamp....
+                // Go back and update the main sample after the fact??
+                if (Double.isNaN(additional.getDouble(i)))
+                    insert_array_sample.setDouble(4, 0.0);
+                else
+                    insert_array_sample.setDouble(4, additional.getDouble(i));
+                // MySQL nanosecs
+                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
+                    insert_array_sample.setInt(5, stamp.getNanos());
+                // Batch
+                insert_array_sample.addBatch();
+                ++batched_double_array_inserts;
+            }
+        }
+    }
+
+    /** Helper for batchSample: Add long sample to batch.  */
+    private void batchLongSample(final RDBWriteChannel channel,
+            final Timestamp stamp, final int severity,
+            final Status status, final long num) throws Exception
+    {
+        if (insert_long_sample == null)
+        {
+        	insert_long_sample = createInsertPrepareStatement(sql.sample_insert_int);
+        }
+        insert_long_sample.setLong(5, num);
+        completeAndBatchInsert(insert_long_sample, channel, stamp, severity, status);
+        ++batched_long_inserts;
+    }
+
+    /** Helper for batchSample: Add text sample to batch. */
+    private void batchTextSamples(final RDBWriteChannel channel,
+            final Timestamp stamp, final int severity,
+            final Status status, String txt) throws Exception
+    {
+        if (insert_txt_sample == null)
+        {
+        	insert_txt_sample = createInsertPrepareStatement(sql.sample_insert_string);
+        }
+        if (txt.length() > MAX_TEXT_SAMPLE_LENGTH)
+        {
+            Activator.getLogger().log(Level.INFO,
+                "Value of {0} exceeds {1} chars: {2}",
+                new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
+            txt = txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
+        }
+        insert_txt_sample.setString(5, txt);
+        completeAndBatchInsert(insert_txt_sample, channel, stamp, severity, status);
+        ++batched_txt_inserts;
+    }
+
+    /** Helper for batchSample:
+     *  Set the parameters common to all insert statements, add to batch.
+     */
+    private void completeAndBatchInsert(
+            final PreparedStatement insert_xx, final RDBWriteChannel channel,
+            final Timestamp stamp, final int severity,
+            final Status status) throws Exception
+    {
+        // Set the stuff that's common to each type
+        insert_xx.setInt(1, channel.getId());
+        insert_xx.setTimestamp(2, stamp);
+        insert_xx.setInt(3, severity);
+        insert_xx.setInt(4, status.getId());
+        // MySQL nanosecs
+        if (rdb.getDialect() == Dialect.MySQL  ||  rdb.getDialect() == Dialect.PostgreSQL)
+            insert_xx.setInt(6, stamp.getNanos());
+        // Batch
+        insert_xx.addBatch();
+    }
+
+    /** Execute the batches of all statements */
+    private void executeBatches() throws Exception
+    {
+        if (batched_double_inserts > 0)
+        {
+            insert_double_sample.executeBatch();
+            batched_double_inserts = 0;
+        }
+        if (batched_long_inserts > 0)
+        {
+            insert_long_sample.executeBatch();
+            batched_long_inserts = 0;
+        }
+        if (batched_txt_inserts > 0)
+        {
+            insert_txt_sample.executeBatch();
+            batched_txt_inserts = 0;
+        }
+        if (batched_double_array_inserts > 0)
+        {
+            insert_array_sample.executeBatch();
+            batched_double_array_inserts = 0;
+        }
+    }
+
+    /** Clear the batches of all statements, roll back */
+    private void rollback()
+    {
+        batched_double_inserts = 0;
+        batched_long_inserts = 0;
+        batched_txt_inserts = 0;
+        batched_double_array_inserts = 0;
+        try
+        {
+            for (PreparedStatement insert : new PreparedStatement[]
+                 { insert_double_sample, insert_long_sample, insert_txt_sample, insert_array_sample })
+                if (insert != null)
+                    insert.clearBatch();
+            rdb.getConnection().rollback();
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING,
+                    "clearBatch(), rollback() error after batch issue", ex);
+        }
+    }
+
+    /** Close prepared statements and caches.
+     *  Does not close the RDB connection.
+     */
+    void close()
+    {
+        if (severities != null)
+        {
+            severities.dispose();
+            severities = null;
+        }
+        if (stati != null)
+        {
+            stati.dispose();
+            stati = null;
+        }
+
+		if (insert_double_sample != null) {
+			try {
+				insert_double_sample.close();
+			} catch (SQLException e) {
+				Activator.getLogger().log(Level.WARNING, "close() error", e);
+			}
+			insert_double_sample = null;
+		}
+		if (insert_array_sample != null) {
+			try {
+				insert_array_sample.close();
+			} catch (SQLException e) {
+				Activator.getLogger().log(Level.WARNING, "close() error", e);
+			}
+			insert_array_sample = null;
+		}
+		if (insert_long_sample != null) {
+			try {
+				insert_long_sample.close();
+			} catch (SQLException e) {
+				Activator.getLogger().log(Level.WARNING, "close() error", e);
+			}
+			insert_long_sample = null;
+		}
+		if (insert_txt_sample != null) {
+			try {
+				insert_txt_sample.close();
+			} catch (SQLException e) {
+				Activator.getLogger().log(Level.WARNING, "close() error", e);
+			}
+			insert_txt_sample = null;
+		}
+    }
+}
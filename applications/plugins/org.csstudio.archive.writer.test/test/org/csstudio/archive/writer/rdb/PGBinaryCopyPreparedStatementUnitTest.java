@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/** Byte-level JUnit test of the {@link PGBinaryCopyPreparedStatement} encoding
+ *
+ *  <p>Column types are provided by a fake connection,
+ *  and the COPY data is captured instead of sent,
+ *  so no database is required.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PGBinaryCopyPreparedStatementUnitTest
+{
+    /** Columns of the sample table and their {@link Types} */
+    final private static String[] SAMPLE_COLUMNS =
+    {
+        "channel_id", "smpl_time", "severity_id", "status_id",
+        "float_val", "nanosecs", "datatype", "array_val"
+    };
+    final private static int[] SAMPLE_TYPES =
+    {
+        Types.INTEGER, Types.TIMESTAMP, Types.INTEGER, Types.INTEGER,
+        Types.DOUBLE, Types.BIGINT, Types.CHAR, Types.BINARY
+    };
+
+    final private static String INSERT_SAMPLE =
+        "INSERT INTO archive.sample (channel_id, smpl_time, severity_id, status_id, float_val, nanosecs, datatype, array_val) VALUES (?,?,?,?,?,?,?,?)";
+
+    /** Statement that captures the COPY data */
+    private static class CapturingStatement extends PGBinaryCopyPreparedStatement
+    {
+        String sql;
+        byte[] data;
+
+        public CapturingStatement(final Connection connection, final String insert) throws SQLException
+        {
+            super(connection, insert);
+        }
+
+        @Override
+        protected long copyIn(final String sql, final byte[] data, final int length) throws SQLException
+        {
+            this.sql = sql;
+            this.data = Arrays.copyOf(data, length);
+            return 1;
+        }
+    }
+
+    /** @param names Column names
+     *  @param types Column types
+     *  @return {@link Connection} that only provides the column meta data
+     */
+    private static Connection createConnection(final String[] names, final int[] types)
+    {
+        final ResultSet columns = (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            new InvocationHandler()
+            {
+                private int row = -1;
+
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+                {
+                    final String name = method.getName();
+                    if (name.equals("next"))
+                        return ++row < names.length;
+                    if (name.equals("getString")  &&  "COLUMN_NAME".equals(args[0]))
+                        return names[row];
+                    if (name.equals("getInt")  &&  "DATA_TYPE".equals(args[0]))
+                        return types[row];
+                    if (name.equals("close"))
+                        return null;
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+        final DatabaseMetaData meta = (DatabaseMetaData) Proxy.newProxyInstance(
+            DatabaseMetaData.class.getClassLoader(), new Class<?>[] { DatabaseMetaData.class },
+            new InvocationHandler()
+            {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+                {
+                    if (method.getName().equals("getColumns"))
+                    {
+                        assertEquals("archive", args[1]);
+                        assertEquals("sample", args[2]);
+                        return columns;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            new InvocationHandler()
+            {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+                {
+                    final String name = method.getName();
+                    if (name.equals("getMetaData"))
+                        return meta;
+                    if (name.equals("getCatalog"))
+                        return null;
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+    }
+
+    /** @param data COPY data
+     *  @return Buffer positioned after the checked header
+     */
+    private static ByteBuffer checkHeader(final byte[] data)
+    {
+        final ByteBuffer buf = ByteBuffer.wrap(data);
+        final byte[] signature = new byte[11];
+        buf.get(signature);
+        assertArrayEquals(new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 },
+                          signature);
+        // Flags, header extension length
+        assertEquals(0, buf.getInt());
+        assertEquals(0, buf.getInt());
+        return buf;
+    }
+
+    /** @param buf Buffer, positioned at the trailer */
+    private static void checkTrailer(final ByteBuffer buf)
+    {
+        assertEquals(-1, buf.getShort());
+        assertEquals(0, buf.remaining());
+    }
+
+    /** @param buf Buffer positioned on text field
+     *  @return Text
+     */
+    private static String getText(final ByteBuffer buf) throws Exception
+    {
+        final byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    @Test
+    public void testSamples() throws Exception
+    {
+        final CapturingStatement statement =
+            new CapturingStatement(createConnection(SAMPLE_COLUMNS, SAMPLE_TYPES), INSERT_SAMPLE);
+        // Nothing batched, nothing sent
+        assertEquals(0, statement.executeBatch().length);
+        assertEquals(null, statement.data);
+
+        // Scalar with 'null' array
+        statement.setInt(1, 42);
+        statement.setTimestamp(2, Timestamp.valueOf("2000-01-02 00:00:00.5"));
+        statement.setInt(3, 3);
+        statement.setInt(4, 4);
+        statement.setDouble(5, 3.14);
+        statement.setLong(6, 500000000L);
+        statement.setString(7, " ");
+        statement.setBytes(8, null);
+        statement.addBatch();
+
+        // Array, as written by the SampleBatchWriter: Count, then doubles
+        final ByteBuffer array = ByteBuffer.allocate(4 + 2*8);
+        array.putInt(2);
+        array.putDouble(1.0);
+        array.putDouble(-2.5);
+        statement.setInt(1, 43);
+        statement.setTimestamp(2, Timestamp.valueOf("1999-12-31 23:59:59.25"));
+        statement.setInt(3, 1);
+        statement.setNull(4, Types.INTEGER);
+        statement.setBigDecimal(5, new BigDecimal("0.5"));
+        statement.setLong(6, 250000000L);
+        statement.setString(7, "d");
+        statement.setBytes(8, array.array());
+        statement.addBatch();
+
+        assertArrayEquals(new int[] { 1 }, statement.executeBatch());
+        assertEquals("COPY archive.sample (channel_id, smpl_time, severity_id, status_id, float_val, nanosecs, datatype, array_val) FROM STDIN WITH BINARY",
+                     statement.sql);
+
+        final ByteBuffer buf = checkHeader(statement.data);
+
+        // Each row: field count, then length and data for each field
+        assertEquals(8, buf.getShort());
+        assertEquals(4, buf.getInt());
+        assertEquals(42, buf.getInt());
+        // Local time in microseconds since 2000-01-01
+        assertEquals(8, buf.getInt());
+        assertEquals(24L*60*60*1000000 + 500000, buf.getLong());
+        assertEquals(4, buf.getInt());
+        assertEquals(3, buf.getInt());
+        assertEquals(4, buf.getInt());
+        assertEquals(4, buf.getInt());
+        assertEquals(8, buf.getInt());
+        assertEquals(3.14, buf.getDouble(), 0.0);
+        assertEquals(8, buf.getInt());
+        assertEquals(500000000L, buf.getLong());
+        assertEquals(" ", getText(buf));
+        // NULL
+        assertEquals(-1, buf.getInt());
+
+        assertEquals(8, buf.getShort());
+        assertEquals(4, buf.getInt());
+        assertEquals(43, buf.getInt());
+        // Before the PostgreSQL epoch
+        assertEquals(8, buf.getInt());
+        assertEquals(-750000L, buf.getLong());
+        assertEquals(4, buf.getInt());
+        assertEquals(1, buf.getInt());
+        assertEquals(-1, buf.getInt());
+        assertEquals(8, buf.getInt());
+        assertEquals(0.5, buf.getDouble(), 0.0);
+        assertEquals(8, buf.getInt());
+        assertEquals(250000000L, buf.getLong());
+        assertEquals("d", getText(buf));
+        // Array bytes are passed as-is
+        assertEquals(array.capacity(), buf.getInt());
+        final byte[] bytes = new byte[array.capacity()];
+        buf.get(bytes);
+        assertArrayEquals(array.array(), bytes);
+
+        checkTrailer(buf);
+
+        // Buffer was reset
+        statement.setInt(1, 44);
+        statement.addBatch();
+        statement.executeBatch();
+        final ByteBuffer next = checkHeader(statement.data);
+        assertEquals(8, next.getShort());
+        assertEquals(4, next.getInt());
+        assertEquals(44, next.getInt());
+        // Parameters were cleared by previous addBatch
+        for (int i=1; i<8; ++i)
+            assertEquals(-1, next.getInt());
+        checkTrailer(next);
+        statement.close();
+    }
+
+    @Test
+    public void testNumbersAndText() throws Exception
+    {
+        final CapturingStatement statement = new CapturingStatement(
+            createConnection(new String[] { "s", "r", "b", "t" },
+                             new int[] { Types.SMALLINT, Types.REAL, Types.BOOLEAN, Types.VARCHAR }),
+            "INSERT INTO archive.sample (s, r, b, t) VALUES (?, ?, ?, ?)");
+        // Text with 2, 3 and 4 byte UTF-8 characters, long enough to grow the buffer
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < 100000)
+            text.append("3.14\u00b0 \u20ac \ud83d\ude00 ");
+        statement.setShort(1, (short) -7);
+        statement.setFloat(2, 2.5f);
+        statement.setBoolean(3, true);
+        statement.setString(4, text.toString());
+        statement.addBatch();
+        statement.executeBatch();
+
+        final ByteBuffer buf = checkHeader(statement.data);
+        assertEquals(4, buf.getShort());
+        assertEquals(2, buf.getInt());
+        assertEquals(-7, buf.getShort());
+        assertEquals(4, buf.getInt());
+        assertEquals(2.5f, buf.getFloat(), 0.0f);
+        assertEquals(1, buf.getInt());
+        assertEquals(1, buf.get());
+        final int length = buf.getInt();
+        assertEquals(text.toString().getBytes("UTF-8").length, length);
+        buf.position(buf.position() - 4);
+        assertEquals(text.toString(), getText(buf));
+        checkTrailer(buf);
+    }
+
+    @Test(expected=SQLException.class)
+    public void testTypeMismatch() throws Exception
+    {
+        final CapturingStatement statement =
+            new CapturingStatement(createConnection(SAMPLE_COLUMNS, SAMPLE_TYPES), INSERT_SAMPLE);
+        // smpl_time is not a text column
+        statement.setString(2, "2015-01-01");
+    }
+}
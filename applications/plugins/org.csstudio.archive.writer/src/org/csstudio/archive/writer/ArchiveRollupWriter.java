@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer;
+
+import org.epics.util.time.Timestamp;
+
+/** Optional interface for an {@link ArchiveWriter} that
+ *  can store pre-aggregated 'rollups' of the samples.
+ *
+ *  <p>A rollup holds the minimum, maximum, average, standard deviation and count
+ *  of the numeric samples of one channel within a period,
+ *  for example one minute or one hour,
+ *  so that readers can fetch long time ranges without
+ *  having to aggregate the raw samples.
+ *
+ *  <p>The client of the writer computes the rollups
+ *  while it adds samples, and adds each completed rollup.
+ *
+ *  @author Kay Kasemir
+ */
+public interface ArchiveRollupWriter
+{
+	/** @return Rollup periods in seconds that the writer stores.
+	 *          Empty if the writer is not configured to store rollups.
+	 */
+	public int[] getRollupPeriods();
+
+	/** Add a rollup to the archive.
+	 *
+	 *  <p>Like samples, rollups might only be written on <code>flush()</code>.
+	 *  @param channel Channel to which to add the rollup
+	 *  @param period Rollup period in seconds, one of {@link #getRollupPeriods()}
+	 *  @param start Start of the rollup period
+	 *  @param min Minimum of the samples
+	 *  @param max Maximum of the samples
+	 *  @param average Average of the samples
+	 *  @param stddev Standard deviation of the samples
+	 *  @param count Number of samples
+	 *  @throws Exception on error
+	 */
+	public void addRollup(WriteChannel channel, int period, Timestamp start,
+	        double min, double max, double average, double stddev, long count) throws Exception;
+}
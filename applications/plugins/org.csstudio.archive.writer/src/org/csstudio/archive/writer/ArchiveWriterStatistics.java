@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer;
+
+/** Optional interface for an {@link ArchiveWriter} that
+ *  reports how long the stages of writing samples take.
+ *
+ *  <p>Values are totals for all batches that the writer completed
+ *  since it was created.
+ *  A caller can compute the time spent for a number of <code>flush()</code>
+ *  calls from the difference of the totals.
+ *  For a pipelined writer, the batch submitted by the last <code>flush()</code>
+ *  may not be included, yet.
+ *
+ *  @author Kay Kasemir
+ */
+public interface ArchiveWriterStatistics
+{
+	/** @return Total seconds spent assembling the samples into batches */
+	public double getAssembleSeconds();
+
+	/** @return Total seconds spent executing the batches */
+	public double getExecuteSeconds();
+
+	/** @return Total seconds spent committing the batches */
+	public double getCommitSeconds();
+}
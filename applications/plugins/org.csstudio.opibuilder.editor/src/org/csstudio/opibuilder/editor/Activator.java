@@ -1,10 +1,58 @@
 package org.csstudio.opibuilder.editor;
 
+import org.csstudio.opibuilder.script.CompiledScriptCache;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.osgi.framework.BundleContext;
 
 
 public class Activator extends AbstractUIPlugin {
 	// The plug-in ID
 		public static final String PLUGIN_ID = "org.csstudio.opibuilder.editor"; //$NON-NLS-1$
 
+	/**
+	 * Removes compiled scripts from the {@link CompiledScriptCache}
+	 * when their script file is edited or deleted.
+	 */
+	private final IResourceChangeListener scriptFileListener = new IResourceChangeListener() {
+		public void resourceChanged(IResourceChangeEvent event) {
+			if(event.getDelta() == null)
+				return;
+			try {
+				event.getDelta().accept(new IResourceDeltaVisitor() {
+					public boolean visit(IResourceDelta delta) throws CoreException {
+						if(delta.getResource().getType() != IResource.FILE)
+							return true;
+						if(delta.getKind() == IResourceDelta.REMOVED ||
+								(delta.getKind() == IResourceDelta.CHANGED &&
+								 (delta.getFlags() & IResourceDelta.CONTENT) != 0))
+							CompiledScriptCache.getInstance().invalidate(
+									delta.getResource().getFullPath().toString());
+						return false;
+					}
+				});
+			} catch (CoreException e) {
+				// Changed content still results in a new compiled script
+			}
+		}
+	};
+
+	@Override
+	public void start(BundleContext context) throws Exception {
+		super.start(context);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(
+				scriptFileListener, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(scriptFileListener);
+		super.stop(context);
+	}
 }
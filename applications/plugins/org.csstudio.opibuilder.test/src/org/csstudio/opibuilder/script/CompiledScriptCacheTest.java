@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**JUnit test of the {@link CompiledScriptCache}
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledScriptCacheTest {
+
+	final private AtomicInteger compilations = new AtomicInteger();
+
+	/** 'Compiler' that returns a new object for each compilation */
+	final private CompiledScriptCache.Compiler compiler = new CompiledScriptCache.Compiler() {
+		public Object compile(String script) throws Exception {
+			compilations.incrementAndGet();
+			return new StringBuilder(script);
+		}
+	};
+
+	@Test
+	public void testSharing() throws Exception {
+		final CompiledScriptCache cache = new CompiledScriptCache(10);
+		final Object a = cache.getCompiledScript("js", "/x.js", "a()", compiler);
+		assertSame(a, cache.getCompiledScript("js", "/x.js", "a()", compiler));
+		// Different engine
+		assertNotSame(a, cache.getCompiledScript("py", "/x.js", "a()", compiler));
+		// Embedded scripts with same text are also shared
+		final Object b = cache.getCompiledScript("js", null, "b()", compiler);
+		assertSame(b, cache.getCompiledScript("js", null, "b()", compiler));
+		assertEquals(3, compilations.get());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void testChangedFile() throws Exception {
+		final CompiledScriptCache cache = new CompiledScriptCache(10);
+		final Object a = cache.getCompiledScript("js", "/x.js", "a()", compiler);
+		final Object changed = cache.getCompiledScript("js", "/x.js", "changed()", compiler);
+		assertNotSame(a, changed);
+		// Previous content of file was removed
+		assertEquals(1, cache.size());
+		cache.invalidate("/x.js");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLRU() throws Exception {
+		final CompiledScriptCache cache = new CompiledScriptCache(2);
+		final Object a = cache.getCompiledScript("js", "/a.js", "a()", compiler);
+		cache.getCompiledScript("js", "/b.js", "b()", compiler);
+		// Use 'a', so 'b' is the least recently used
+		cache.getCompiledScript("js", "/a.js", "a()", compiler);
+		cache.getCompiledScript("js", "/c.js", "c()", compiler);
+		assertEquals(2, cache.size());
+		assertSame(a, cache.getCompiledScript("js", "/a.js", "a()", compiler));
+		compilations.set(0);
+		cache.getCompiledScript("js", "/b.js", "b()", compiler);
+		assertEquals(1, compilations.get());
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.csstudio.opibuilder.model.AbstractWidgetModel;
+import org.csstudio.opibuilder.model.DisplayModel;
+import org.junit.Test;
+
+/**JUnit test of the {@link RuleEvaluator}
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleEvaluatorTest {
+
+	private RuleData createRule(final boolean output_exp_value, final String... expressions) {
+		final DisplayModel model = new DisplayModel();
+		model.setPropertyValue(AbstractWidgetModel.PROP_NAME, "Initial");
+		final RuleData rule = new RuleData(model);
+		rule.setPropId(AbstractWidgetModel.PROP_NAME);
+		rule.setOutputExpValue(output_exp_value);
+		rule.addPV(new PVTuple("loc://a", true));
+		rule.addPV(new PVTuple("loc://b", true));
+		for(int i=0; i<expressions.length; i+=2)
+			rule.addExpression(new Expression(expressions[i], expressions[i+1]));
+		return rule;
+	}
+
+	@Test
+	public void testConditions() throws Exception {
+		final RuleEvaluator rule = new RuleEvaluator(createRule(false,
+				"pv0 > 5 && pvSev0 == 0", "High",
+				"pv0 + 2*pv1 <= -1 || !(pvInt1 != 3)", "Low",
+				"pvStr1 == 'Off'", "Off",
+				"Math.abs(pv0) >= 1e3", "Huge"));
+		rule.setInputs(0, 10, 0, "");
+		assertEquals("High", rule.evaluate());
+		rule.setInputs(0, 10, 2, "");
+		assertEquals("Initial", rule.evaluate());
+		rule.setInputs(0, 0, 0, "");
+		rule.setInputs(1, 3.7, 0, "");
+		assertEquals("Low", rule.evaluate());
+		rule.setInputs(1, 1, 0, "Off");
+		assertEquals("Off", rule.evaluate());
+		rule.setInputs(0, -2000, 0, "");
+		assertEquals("Low", rule.evaluate());
+		rule.setInputs(1, 2000, 0, "");
+		assertEquals("Huge", rule.evaluate());
+	}
+
+	@Test
+	public void testOutputValue() throws Exception {
+		final RuleEvaluator rule = new RuleEvaluator(createRule(true,
+				"pv0 < 0", "pvStr1",
+				"pv0 == 0", "pv1 > 1",
+				"true", "pvInt1"));
+		rule.setInputs(0, -1, 0, "");
+		rule.setInputs(1, 2.5, 0, "Text");
+		assertEquals("Text", rule.evaluate());
+		rule.setInputs(0, 0, 0, "");
+		assertEquals(Boolean.TRUE, rule.evaluate());
+		rule.setInputs(0, 1, 0, "");
+		assertEquals(Long.valueOf(2), rule.evaluate());
+	}
+
+	/** Like JavaScript, NaN is false for '!', '&&', '||' */
+	@Test
+	public void testNaN() throws Exception {
+		final RuleEvaluator rule = new RuleEvaluator(createRule(false,
+				"!pv0", "Not",
+				"pv0 && pv1", "And",
+				"pv0 || pv1", "Or"));
+		rule.setInputs(0, Double.NaN, 0, "");
+		rule.setInputs(1, 0, 0, "");
+		assertEquals("Not", rule.evaluate());
+
+		final RuleEvaluator and_or = new RuleEvaluator(createRule(false,
+				"pv0 && pv1", "And",
+				"pv0 || pv1", "Or"));
+		and_or.setInputs(0, Double.NaN, 0, "");
+		and_or.setInputs(1, 1, 0, "");
+		assertEquals("Or", and_or.evaluate());
+		and_or.setInputs(1, Double.NaN, 0, "");
+		assertEquals("Initial", and_or.evaluate());
+		and_or.setInputs(0, 1, 0, "");
+		assertEquals("Or", and_or.evaluate());
+		and_or.setInputs(1, 2, 0, "");
+		assertEquals("And", and_or.evaluate());
+	}
+
+	/** Like JavaScript, '&&' and '||' result in an operand */
+	@Test
+	public void testLogicValue() throws Exception {
+		final RuleEvaluator rule = new RuleEvaluator(createRule(true,
+				"true", "pv0 || pv1"));
+		rule.setInputs(0, 0, 0, "");
+		rule.setInputs(1, 3, 0, "");
+		assertEquals(Double.valueOf(3), rule.evaluate());
+		rule.setInputs(0, 2, 0, "");
+		assertEquals(Double.valueOf(2), rule.evaluate());
+
+		final RuleEvaluator bool = new RuleEvaluator(createRule(true,
+				"true", "pv0 > 1 && pv1 > 1"));
+		bool.setInputs(0, 2, 0, "");
+		bool.setInputs(1, 3, 0, "");
+		assertEquals(Boolean.TRUE, bool.evaluate());
+		bool.setInputs(1, Double.NaN, 0, "");
+		assertEquals(Boolean.FALSE, bool.evaluate());
+	}
+
+	@Test
+	public void testUnsupported() throws Exception {
+		final String[][] unsupported = {
+			{ "pv2 > 0", "Unknown variable 'pv2'" },
+			{ "pvs[0] > 0", "Unknown variable 'pvs'" },
+			{ "pv0 = 1", "at '= 1'" },
+			{ "pv0 > 0 ? 1 : 0", "at '? 1 : 0'" },
+			{ "pv0 & 1", "at '& 1'" },
+			{ "pvStr0 + 1 == 2", "Unsupported use of string" },
+			{ "pvStr0.length > 2", "at '.length > 2'" },
+			{ "Math.round(pv0) == 1", "Unsupported function Math.round" },
+			{ "widget.getValue() > 1", "Unsupported name 'widget'" },
+		};
+		for(String[] test : unsupported){
+			try {
+				new RuleEvaluator(createRule(false, test[0], "X"));
+				fail("Parsed " + test[0]);
+			} catch (Exception ex) {
+				assertTrue(ex.getMessage(), ex.getMessage().contains(test[1]));
+			}
+		}
+	}
+}
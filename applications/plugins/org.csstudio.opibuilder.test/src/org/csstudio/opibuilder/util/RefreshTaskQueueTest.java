@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.opibuilder.datadefinition.WidgetIgnorableUITask;
+import org.junit.Test;
+
+/**JUnit test of the {@link RefreshTaskQueue}
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RefreshTaskQueueTest {
+
+	/** Deadline that leaves plenty of time for a frame */
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	final private List<String> executed = new ArrayList<String>();
+
+	/** @return Task for identify object that logs the text when executed */
+	private WidgetIgnorableUITask createTask(final Object id, final String text) {
+		return new WidgetIgnorableUITask(id, new Runnable() {
+			public void run() {
+				executed.add(text);
+			}
+		}, null);
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		final RefreshTaskQueue queue = new RefreshTaskQueue();
+		final Object a = new Object(), b = new Object();
+		queue.add(createTask(a, "a1"));
+		queue.add(createTask(b, "b1"));
+		queue.add(createTask(a, "a2"));
+		queue.add(createTask(a, "a3"));
+		assertFalse(queue.runFrame(NO_DEADLINE));
+		// Only the latest task for 'a', in the position where 'a' was first added
+		assertEquals("[a3, b1]", executed.toString());
+		assertTrue(queue.isEmpty());
+		assertEquals(1, queue.getStatistics().getFrameCount());
+		assertEquals(2, queue.getStatistics().getMaxTasksPerFrame());
+
+		// After execution, task for 'a' is queued again
+		queue.add(createTask(a, "a4"));
+		assertFalse(queue.runFrame(NO_DEADLINE));
+		assertEquals("[a3, b1, a4]", executed.toString());
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		final RefreshTaskQueue queue = new RefreshTaskQueue();
+		final Object a = new Object(), b = new Object(), c = new Object();
+		queue.add(createTask(a, "a1"));
+		queue.add(createTask(b, "b1"));
+		queue.add(createTask(c, "c1"));
+		// Deadline has passed: Execute one task, defer the rest
+		assertTrue(queue.runFrame(System.nanoTime()));
+		assertEquals("[a1]", executed.toString());
+		assertFalse(queue.isEmpty());
+
+		// Deferred task is updated while waiting for next frame,
+		// and keeps its position ahead of tasks added later
+		queue.add(createTask(c, "c2"));
+		queue.add(createTask(a, "a2"));
+		assertTrue(queue.runFrame(System.nanoTime()));
+		assertEquals("[a1, b1]", executed.toString());
+		assertFalse(queue.runFrame(NO_DEADLINE));
+		assertEquals("[a1, b1, c2, a2]", executed.toString());
+		assertTrue(queue.isEmpty());
+
+		assertEquals(3, queue.getStatistics().getFrameCount());
+		assertEquals(2, queue.getStatistics().getOverrunCount());
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		final RefreshTaskQueue queue = new RefreshTaskQueue();
+		queue.add(new WidgetIgnorableUITask("error", new Runnable() {
+			public void run() {
+				throw new AssertionError("Test error");
+			}
+		}, null));
+		queue.add(createTask("ok", "ok"));
+		// Error in one task does not prevent the others
+		assertFalse(queue.runFrame(NO_DEADLINE));
+		assertEquals("[ok]", executed.toString());
+		assertTrue(queue.isEmpty());
+	}
+}
@@ -645,19 +645,23 @@ public class XYGraphEditPart extends AbstractPVWidgetEditPart {
 	
 	public double[] getXBuffer(int i){
 		CircularBufferDataProvider dataProvider = (CircularBufferDataProvider)traceList.get(i).getDataProvider();
-		double[] XBuffer = new double[dataProvider.getSize()];
-		for (int j = 0; j < dataProvider.getSize(); j++) {
-			XBuffer[j] = dataProvider.getSample(j).getXValue();
+		synchronized (dataProvider) {
+			double[] XBuffer = new double[dataProvider.getSize()];
+			for (int j = 0; j < XBuffer.length; j++) {
+				XBuffer[j] = dataProvider.getXValue(j);
+			}
+			return XBuffer;
 		}
-		return XBuffer;
 	}
 	
 	public double[] getYBuffer(int i){
 		CircularBufferDataProvider dataProvider = (CircularBufferDataProvider)traceList.get(i).getDataProvider();
-		double[] YBuffer = new double[dataProvider.getSize()];
-		for (int j = 0; j < dataProvider.getSize(); j++) {
-			YBuffer[j] = dataProvider.getSample(j).getYValue();
+		synchronized (dataProvider) {
+			double[] YBuffer = new double[dataProvider.getSize()];
+			for (int j = 0; j < YBuffer.length; j++) {
+				YBuffer[j] = dataProvider.getYValue(j);
+			}
+			return YBuffer;
 		}
-		return YBuffer;
 	}
 }
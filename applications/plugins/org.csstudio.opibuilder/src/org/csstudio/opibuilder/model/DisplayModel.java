@@ -84,6 +84,13 @@ public class DisplayModel extends AbstractContainerModel {
 	 */
 	public static final String PROP_FRAME_RATE = "frame_rate"; //$NON-NLS-1$
 
+	/**
+	 * Time in seconds spent on compiling the scripts and rules of this display.
+	 * This is the hidden property which can be referred only from scripts. 
+	 * The value is valid only when running mode. In edit mode, it is always 0.
+	 */
+	public static final String PROP_SCRIPT_COMPILE_TIME = "script_compile_time"; //$NON-NLS-1$
+
 	private GraphicalViewer viewer;
 	
 	private IOPIRuntime opiRuntime;
@@ -140,6 +147,8 @@ public class DisplayModel extends AbstractContainerModel {
 		
 		addProperty(new DoubleProperty(PROP_FRAME_RATE, "Frame Rate",
 				WidgetPropertyCategory.Display, -1.0));
+		addProperty(new DoubleProperty(PROP_SCRIPT_COMPILE_TIME, "Script Compile Time",
+				WidgetPropertyCategory.Display, 0.0));
 
 		setPropertyVisible(PROP_BORDER_COLOR, false);
 		setPropertyVisible(PROP_BORDER_STYLE, false);
@@ -150,6 +159,7 @@ public class DisplayModel extends AbstractContainerModel {
 		setPropertyVisible(PROP_ACTIONS, false);
 		setPropertyVisible(PROP_FONT, false);
 		setPropertyVisibleAndSavable(PROP_FRAME_RATE, false, false);
+		setPropertyVisibleAndSavable(PROP_SCRIPT_COMPILE_TIME, false, false);
 		setPropertyVisibleAndSavable(PROP_BOY_VERSION, false, true);
 		addProperty(new ActionsProperty(PROP_ACTIONS, "Actions",
 				WidgetPropertyCategory.Behavior, false));
@@ -335,4 +345,23 @@ public class DisplayModel extends AbstractContainerModel {
 	public void setFrameRate(double rate) {
 		setPropertyValue(PROP_FRAME_RATE, rate);
 	}
+	
+	/**
+	 * When a script or rule of this display was compiled, this method
+	 * shall be called to add the time spent on compiling it.
+	 * @param nanos Compile time in nanoseconds
+	 * @return Total script compile time of this display in seconds
+	 */
+	public double addScriptCompileTime(long nanos) {
+		final double total = getScriptCompileTime() + nanos / 1e9;
+		setPropertyValue(PROP_SCRIPT_COMPILE_TIME, total);
+		return total;
+	}
+	
+	/**
+	 * @return Time in seconds spent on compiling the scripts and rules of this display
+	 */
+	public double getScriptCompileTime() {
+		return (Double) getPropertyValue(PROP_SCRIPT_COMPILE_TIME);
+	}
 }
@@ -60,6 +60,7 @@ public class PreferencesHelper {
 	public static final String SHOW_OPI_RUNTIME_PERSPECTIVE_DIALOG = "show_opi_runtime_perspective_dialog";//$NON-NLS-1$
 	public static final String START_WINDOW_IN_COMPACT_MODE = "start_window_in_compact_mode";//$NON-NLS-1$
 	public static final String URL_FILE_LOADING_TIMEOUT = "url_file_loading_timeout";//$NON-NLS-1$
+	public static final String SCRIPT_CACHE_SIZE = "script_cache_size";//$NON-NLS-1$
 	public static final String PULSING_ALARM_MINOR_PERIOD = "pulsing_alarm_minor_period";//$NON-NLS-1$
 	public static final String PULSING_ALARM_MAJOR_PERIOD = "pulsing_alarm_major_period";//$NON-NLS-1$		
 	public static final String OPI_SEARCH_PATH="opi_search_path"; //$NON-NLS-1$
@@ -352,6 +353,14 @@ public class PreferencesHelper {
     	final IPreferencesService service = Platform.getPreferencesService();
     	return service.getInt(OPIBuilderPlugin.PLUGIN_ID, URL_FILE_LOADING_TIMEOUT, 8000, null);
     }
+
+    /**
+     * @return Maximum number of compiled scripts to keep in the script cache.
+     */
+    public static int getScriptCacheSize(){
+    	final IPreferencesService service = Platform.getPreferencesService();
+    	return service.getInt(OPIBuilderPlugin.PLUGIN_ID, SCRIPT_CACHE_SIZE, 500, null);
+    }
     
     /**
      * @return the absolute path of the startup opi. null if not configured.
@@ -7,8 +7,11 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.script;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +20,7 @@ import java.util.logging.Level;
 import org.csstudio.opibuilder.OPIBuilderPlugin;
 import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
 import org.csstudio.opibuilder.editparts.DisplayEditpart;
+import org.csstudio.opibuilder.model.DisplayModel;
 import org.csstudio.opibuilder.util.ConsoleService;
 import org.csstudio.opibuilder.util.ResourceUtil;
 import org.csstudio.simplepv.IPV;
@@ -88,6 +92,7 @@ public abstract class AbstractScriptStore implements IScriptStore{
 						editpart.getWidgetModel().getName() ;
 		
 
+		final long start = System.nanoTime();
 		if(scriptData instanceof RuleScriptData){
 			compileString(((RuleScriptData)scriptData).getScriptString());
 		}else if(scriptData.isEmbedded())
@@ -100,6 +105,13 @@ public abstract class AbstractScriptStore implements IScriptStore{
 			compileInputStream(inputStream);
 			inputStream.close();
 		}		
+		final long nanos = System.nanoTime() - start;
+		final DisplayModel display = editpart.getWidgetModel().getRootDisplayModel();
+		if(display != null){
+			final double total = display.addScriptCompileTime(nanos);
+			OPIBuilderPlugin.getLogger().log(Level.FINE, "Compiled {0} in {1} ms, total for display {2}: {3} ms", //$NON-NLS-1$
+					new Object[] { errorSource, nanos / 1000000, display.getOpiFilePath(), Math.round(total * 1000) });
+		}
 
 
 		pvListenerMap = new HashMap<IPV, IPVListener>();
@@ -170,11 +182,39 @@ public abstract class AbstractScriptStore implements IScriptStore{
 	protected abstract void compileString(String string) throws Exception;
 
 	/**Compile InputStream with script engine. The stream will be closed by this method.
+	 * By default, the script text is compiled via {@link #compileString(String)}.
 	 * @param reader
 	 * @throws Exception
 	 */
-	protected abstract void compileInputStream(InputStream s) throws Exception;
+	protected void compileInputStream(InputStream s) throws Exception {
+		compileString(readScript(s));
+	}
 	
+	/**Read the script text, for example to compile it via the {@link CompiledScriptCache}.
+	 * The stream will be closed by this method.
+	 * @param s
+	 * @return the script text
+	 * @throws IOException
+	 */
+	protected static String readScript(InputStream s) throws IOException {
+		final StringBuilder buf = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(s))) {
+			final char[] chars = new char[4096];
+			int len;
+			while((len = reader.read(chars)) >= 0)
+				buf.append(chars, 0, len);
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * @return the path of the script file for the {@link CompiledScriptCache},
+	 *         null for rules and embedded scripts.
+	 */
+	protected String getScriptCachePath() {
+		return absoluteScriptPath == null ? null : absoluteScriptPath.toString();
+	}
+
 	/**
 	 * Execute the script with script engine.
 	 * @param triggerPV  the PV that triggers this execution.
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
+
+/**Cache of compiled scripts, shared by all script stores.
+ *
+ * <p>Widgets of a display that is built from templates
+ * often use the same script file, or identical embedded scripts.
+ * The script is compiled once and the compiled script is then shared.
+ *
+ * <p>Compiled scripts are identified by the script engine,
+ * the path of the script file, and a hash of the script text.
+ * When a script file changes, its new content results in a new compiled
+ * script, replacing the previous one.
+ * The editor also removes the compiled scripts of a file
+ * when the file changes in the workspace, see {@link #invalidate(String)}.
+ * The least recently used compiled scripts are removed when the cache is full.
+ *
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CompiledScriptCache {
+
+	/** Compiler for a script */
+	public interface Compiler {
+		/**@param script Script text
+		 * @return Compiled script
+		 * @throws Exception on error
+		 */
+		public Object compile(String script) throws Exception;
+	}
+
+	/** Key for a compiled script */
+	private static class Key {
+		final Object engine;
+		final String path;
+		final String hash;
+
+		Key(final Object engine, final String path, final String hash) {
+			this.engine = engine;
+			this.path = path;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = engine.hashCode();
+			result = 31 * result + (path == null ? 0 : path.hashCode());
+			return 31 * result + hash.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if(!(obj instanceof Key))
+				return false;
+			final Key other = (Key) obj;
+			return engine.equals(other.engine) &&
+				   (path == null ? other.path == null : path.equals(other.path)) &&
+				   hash.equals(other.hash);
+		}
+	}
+
+	private static CompiledScriptCache instance;
+
+	/** Compiled scripts in access order. SYNC on this */
+	final private Map<Key, Object> cache;
+
+	/** Number of cache hits, misses. SYNC on this */
+	private long hits = 0, misses = 0;
+
+	/**@param capacity Maximum number of compiled scripts to keep */
+	CompiledScriptCache(final int capacity) {
+		cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/** @return Cache with size configured in preferences */
+	public synchronized static CompiledScriptCache getInstance() {
+		if(instance == null)
+			instance = new CompiledScriptCache(PreferencesHelper.getScriptCacheSize());
+		return instance;
+	}
+
+	/**Get compiled script
+	 * @param engine Script engine, or other key that identifies how the script is compiled
+	 * @param path Path of the script file, <code>null</code> for embedded scripts or rules
+	 * @param script Script text
+	 * @param compiler {@link Compiler} to use if the script has not been compiled
+	 * @return Compiled script
+	 * @throws Exception on error in compiler
+	 */
+	public Object getCompiledScript(final Object engine, final String path, final String script,
+			final Compiler compiler) throws Exception {
+		final Key key = new Key(engine, path, hash(script));
+		synchronized (this) {
+			final Object compiled = cache.get(key);
+			if(compiled != null){
+				++hits;
+				return compiled;
+			}
+			++misses;
+		}
+		final Object compiled = compiler.compile(script);
+		synchronized (this) {
+			// Script file changed? Drop previous content
+			if(path != null)
+				remove(engine, path);
+			cache.put(key, compiled);
+		}
+		return compiled;
+	}
+
+	/**Remove compiled scripts for a file that changed or was deleted
+	 * @param path Path of the script file, as used by the script stores
+	 */
+	public synchronized void invalidate(final String path) {
+		remove(null, path);
+	}
+
+	/** Remove all compiled scripts */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**@param engine Engine, <code>null</code> for any engine
+	 * @param path Path of the script file
+	 */
+	private void remove(final Object engine, final String path) {
+		final Iterator<Key> keys = cache.keySet().iterator();
+		while(keys.hasNext()){
+			final Key key = keys.next();
+			if(path.equals(key.path) && (engine == null || engine.equals(key.engine)))
+				keys.remove();
+		}
+	}
+
+	/** @return Number of compiled scripts in cache */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/** @return Number of requests that used a cached script */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/** @return Number of requests that compiled the script */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/** @return Hash of the script text */
+	private static String hash(final String script) throws Exception {
+		final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		return new BigInteger(1, digest.digest(script.getBytes("UTF-8"))).toString(16);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Compiled script cache: " + cache.size() + " scripts, " + hits + " hits, " + misses + " misses";
+	}
+}
@@ -1,8 +1,6 @@
 package org.csstudio.opibuilder.script;
 
-import java.io.BufferedReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import javax.script.Bindings;
 import javax.script.Compilable;
@@ -41,15 +39,19 @@ public class JavaScriptStore extends AbstractScriptStore {
 
 	@Override
 	protected void compileString(String string) throws Exception {
-		script = ((Compilable) engine).compile(string);
+		// Compiled scripts belong to the engine, which is per display
+		script = (CompiledScript) CompiledScriptCache.getInstance().getCompiledScript(
+				engine, getScriptCachePath(), string,
+				new CompiledScriptCache.Compiler() {
+					public Object compile(String script) throws Exception {
+						return ((Compilable) engine).compile(script);
+					}
+				});
 	}
 
 	@Override
 	protected void compileInputStream(InputStream s) throws Exception {
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(s))) {
-			script = ((Compilable) engine).compile(reader);
-		}
-		
+		compileString(readScript(s));
 	}
 
 	@Override
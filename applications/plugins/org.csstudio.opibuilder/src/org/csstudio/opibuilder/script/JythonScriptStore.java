@@ -60,12 +60,18 @@ public class JythonScriptStore extends AbstractScriptStore{
 	
 	@Override
 	protected void compileString(String string) throws Exception {
-		code = interpreter.compile(string);
+		code = (PyCode) CompiledScriptCache.getInstance().getCompiledScript(
+				JythonScriptStore.class, getScriptCachePath(), string,
+				new CompiledScriptCache.Compiler() {
+					public Object compile(String script) throws Exception {
+						return interpreter.compile(script);
+					}
+				});
 	}
 
 	@Override
 	protected void compileInputStream(InputStream s) throws Exception {
-		code = interpreter.compile(s);
+		compileString(readScript(s));
 	}
 
 	@Override
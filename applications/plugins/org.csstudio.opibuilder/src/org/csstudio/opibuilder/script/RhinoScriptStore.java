@@ -7,10 +7,7 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.script;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
 import org.csstudio.simplepv.IPV;
@@ -61,15 +58,29 @@ public class RhinoScriptStore extends AbstractScriptStore{
 	
 	@Override
 	protected void compileString(String string) throws Exception{
-		script = scriptContext.compileString(string, "rule", 1, null);		
+		script = compile(string, "rule"); //$NON-NLS-1$
 	}
 
 	@Override
-	protected void compileInputStream(InputStream s) throws IOException {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(s));
-		script = scriptContext.compileReader(reader, "script", 1, null); //$NON-NLS-1$
-		s.close();
-		reader.close();
+	protected void compileInputStream(InputStream s) throws Exception {
+		script = compile(readScript(s), "script"); //$NON-NLS-1$
+	}
+
+	/**Compile script or get it from the {@link CompiledScriptCache}.
+	 * Compiled Rhino scripts do not depend on the context, so they are shared by all displays.
+	 * @param string
+	 * @param sourceName
+	 * @return compiled script
+	 * @throws Exception
+	 */
+	private Script compile(String string, final String sourceName) throws Exception {
+		return (Script) CompiledScriptCache.getInstance().getCompiledScript(
+				RhinoScriptStore.class, getScriptCachePath(), string,
+				new CompiledScriptCache.Compiler() {
+					public Object compile(String script) throws Exception {
+						return scriptContext.compileString(script, sourceName, 1, null);
+					}
+				});
 	}
 
 	@Override
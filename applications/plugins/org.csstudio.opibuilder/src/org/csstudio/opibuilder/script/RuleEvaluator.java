@@ -0,0 +1,540 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
+import org.csstudio.apputil.formula.node.AddNode;
+import org.csstudio.apputil.formula.node.ConstantNode;
+import org.csstudio.apputil.formula.node.DivNode;
+import org.csstudio.apputil.formula.node.EqualNode;
+import org.csstudio.apputil.formula.node.GreaterEqualNode;
+import org.csstudio.apputil.formula.node.GreaterThanNode;
+import org.csstudio.apputil.formula.node.LessEqualNode;
+import org.csstudio.apputil.formula.node.LessThanNode;
+import org.csstudio.apputil.formula.node.MathFuncNode;
+import org.csstudio.apputil.formula.node.MulNode;
+import org.csstudio.apputil.formula.node.NotEqualNode;
+import org.csstudio.apputil.formula.node.SubNode;
+import org.csstudio.opibuilder.scriptUtil.PVUtil;
+import org.csstudio.simplepv.IPV;
+
+/**Evaluator for a {@link RuleData} that does not need a script engine.
+ *
+ * <p>The boolean expressions of the rule and, if the rule outputs
+ * the expression value, the value expressions are parsed once
+ * into a tree of {@link Node}s from the formula package.
+ * Each evaluation then only fetches the PV values and walks the trees.
+ *
+ * <p>Supported is the subset of JavaScript that rules typically use:
+ * Numbers, <code>true</code>, <code>false</code>,
+ * the variables <code>pv0</code>, <code>pvInt0</code>, <code>pvSev0</code>, ...,
+ * <code>( )</code>, <code>+ - * /</code>, comparisons, <code>! && ||</code>,
+ * <code>Math.</code> functions with numeric result,
+ * and comparisons of <code>pvStr0</code>, ... with <code>==</code> or <code>!=</code>.
+ * The constructor throws an exception for anything else,
+ * in which case the rule needs to be executed as a script.
+ *
+ * <p>Like JavaScript, <code>! && ||</code> treat 0 and NaN as false,
+ * and <code>&& ||</code> result in the value of one of their operands.
+ *
+ * @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RuleEvaluator {
+
+	/** Node for a string: Either a constant or the string value of a PV */
+	private static class StringNode implements Node {
+		final String constant;
+		String value;
+
+		StringNode(final String constant) {
+			this.constant = constant;
+			value = constant;
+		}
+
+		@Override
+		public double eval() {
+			return Double.NaN;
+		}
+
+		@Override
+		public boolean hasSubnode(final Node node) {
+			return false;
+		}
+
+		@Override
+		public boolean hasSubnode(final String name) {
+			return false;
+		}
+	}
+
+	/** Node that compares two strings */
+	private static class StringEqualNode implements Node {
+		final StringNode left, right;
+		final boolean equal;
+
+		StringEqualNode(final StringNode left, final StringNode right, final boolean equal) {
+			this.left = left;
+			this.right = right;
+			this.equal = equal;
+		}
+
+		@Override
+		public double eval() {
+			final boolean same = left.value == null ? right.value == null : left.value.equals(right.value);
+			return same == equal ? 1.0 : 0.0;
+		}
+
+		@Override
+		public boolean hasSubnode(final Node node) {
+			return left == node || right == node;
+		}
+
+		@Override
+		public boolean hasSubnode(final String name) {
+			return false;
+		}
+	}
+
+	/** JavaScript '!': 0 and NaN are false */
+	private static class JSNotNode implements Node {
+		final Node node;
+
+		JSNotNode(final Node node) {
+			this.node = node;
+		}
+
+		@Override
+		public double eval() {
+			return isTrue(node.eval()) ? 0.0 : 1.0;
+		}
+
+		@Override
+		public boolean hasSubnode(final Node node) {
+			return this.node == node || this.node.hasSubnode(node);
+		}
+
+		@Override
+		public boolean hasSubnode(final String name) {
+			return node.hasSubnode(name);
+		}
+	}
+
+	/** JavaScript '&&' or '||': Value of the left operand if that decides the result,
+	 *  otherwise value of the right operand
+	 */
+	private static class JSLogicNode implements Node {
+		final Node left, right;
+		final boolean and;
+
+		JSLogicNode(final Node left, final Node right, final boolean and) {
+			this.left = left;
+			this.right = right;
+			this.and = and;
+		}
+
+		@Override
+		public double eval() {
+			final double value = left.eval();
+			if(isTrue(value) != and)
+				return value;
+			return right.eval();
+		}
+
+		@Override
+		public boolean hasSubnode(final Node node) {
+			return left == node || right == node || left.hasSubnode(node) || right.hasSubnode(node);
+		}
+
+		@Override
+		public boolean hasSubnode(final String name) {
+			return left.hasSubnode(name) || right.hasSubnode(name);
+		}
+	}
+
+	/** One 'if (condition) value' of the rule */
+	private static class Condition {
+		final Node condition;
+		final Object value;
+		final Node value_node;
+
+		Condition(final Node condition, final Object value, final Node value_node) {
+			this.condition = condition;
+			this.value = value;
+			this.value_node = value_node;
+		}
+	}
+
+	final private int pv_count;
+
+	/** Variables for the PVs, <code>null</code> for values that are not used */
+	final private VariableNode[] doubles, longs, severities;
+
+	/** PV strings, <code>null</code> if not used */
+	final private StringNode[] strings;
+
+	final private List<Condition> conditions = new ArrayList<Condition>();
+
+	/** Value when no condition is met */
+	final private Object default_value;
+
+	/** Parser position in the current expression */
+	private String text;
+	private int pos;
+
+	/**Compile rule
+	 * @param rule {@link RuleData}
+	 * @throws Exception if the rule uses expressions that are not supported
+	 */
+	public RuleEvaluator(final RuleData rule) throws Exception {
+		pv_count = rule.getPVList().size();
+		doubles = new VariableNode[pv_count];
+		longs = new VariableNode[pv_count];
+		severities = new VariableNode[pv_count];
+		strings = new StringNode[pv_count];
+		for(Expression exp : rule.getExpressionList()){
+			final Node condition = parse(exp.getBooleanExpression());
+			if(condition instanceof StringNode)
+				throw new Exception("Unsupported string condition '" + exp.getBooleanExpression() + "'");
+			if(rule.isOutputExpValue())
+				conditions.add(new Condition(condition, null, parse(exp.getValue().toString())));
+			else
+				conditions.add(new Condition(condition, exp.getValue(), null));
+		}
+		default_value = rule.getProperty().getPropertyValue();
+	}
+
+	/**Evaluate rule
+	 * @param pvs PVs of the rule
+	 * @return Value for the property of the rule
+	 * @throws Exception on error, for example when a PV has no value
+	 */
+	public Object evaluate(final IPV[] pvs) throws Exception {
+		for(int i=0; i<pv_count; ++i){
+			if(doubles[i] != null)
+				doubles[i].setValue(PVUtil.getDouble(pvs[i]));
+			if(longs[i] != null)
+				longs[i].setValue(PVUtil.getLong(pvs[i]));
+			if(severities[i] != null)
+				severities[i].setValue(PVUtil.getSeverity(pvs[i]));
+			if(strings[i] != null)
+				strings[i].value = PVUtil.getString(pvs[i]);
+		}
+		return evaluate();
+	}
+
+	/**Set the value of the PV variables, for tests
+	 * @param index PV index
+	 * @param value Value of <code>pv</code><i>index</i> and <code>pvInt</code><i>index</i>
+	 * @param severity Value of <code>pvSev</code><i>index</i>
+	 * @param string Value of <code>pvStr</code><i>index</i>
+	 */
+	void setInputs(final int index, final double value, final int severity, final String string) {
+		if(doubles[index] != null)
+			doubles[index].setValue(value);
+		if(longs[index] != null)
+			longs[index].setValue((long) value);
+		if(severities[index] != null)
+			severities[index].setValue(severity);
+		if(strings[index] != null)
+			strings[index].value = string;
+	}
+
+	/** @return Value for the property of the rule, based on current variables */
+	Object evaluate() {
+		for(Condition cond : conditions){
+			if(!isTrue(cond.condition.eval()))
+				continue;
+			if(cond.value_node == null)
+				return cond.value;
+			return getValue(cond.value_node);
+		}
+		return default_value;
+	}
+
+	/** @return Value of a value expression with the type that a script would provide */
+	private Object getValue(final Node node) {
+		if(node instanceof StringNode)
+			return ((StringNode) node).value;
+		final double value = node.eval();
+		if(isBoolean(node))
+			return isTrue(value);
+		for(VariableNode var : longs)
+			if(var == node)
+				return Long.valueOf((long) value);
+		return Double.valueOf(value);
+	}
+
+	/** @return <code>true</code> if value is 'true' in JavaScript */
+	private static boolean isTrue(final double value) {
+		return value != 0.0 && !Double.isNaN(value);
+	}
+
+	/** @return <code>true</code> if node has a boolean result */
+	private static boolean isBoolean(final Node node) {
+		if(node instanceof JSLogicNode)
+			return isBoolean(((JSLogicNode) node).left) && isBoolean(((JSLogicNode) node).right);
+		return node instanceof JSNotNode ||
+			   node instanceof EqualNode || node instanceof NotEqualNode ||
+			   node instanceof LessThanNode || node instanceof LessEqualNode ||
+			   node instanceof GreaterThanNode || node instanceof GreaterEqualNode ||
+			   node instanceof StringEqualNode;
+	}
+
+	/**Parse expression
+	 * @param expression JavaScript expression
+	 * @return {@link Node}
+	 * @throws Exception if expression is not supported
+	 */
+	private Node parse(final String expression) throws Exception {
+		text = expression;
+		pos = 0;
+		final Node node = parseOr();
+		skipSpace();
+		if(pos < text.length())
+			throw new Exception("Unsupported rule expression '" + text + "' at '" + text.substring(pos) + "'");
+		return node;
+	}
+
+	private void skipSpace() {
+		while(pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+			++pos;
+	}
+
+	/** @return <code>true</code> if next token is <code>op</code>, which is then consumed */
+	private boolean accept(final String op) {
+		skipSpace();
+		if(!text.startsWith(op, pos))
+			return false;
+		pos += op.length();
+		return true;
+	}
+
+	/** @return Numeric node
+	 *  @throws Exception if node is a string
+	 */
+	private Node numeric(final Node node) throws Exception {
+		if(node instanceof StringNode)
+			throw new Exception("Unsupported use of string in '" + text + "'");
+		return node;
+	}
+
+	private Node parseOr() throws Exception {
+		Node node = parseAnd();
+		while(accept("||"))
+			node = new JSLogicNode(numeric(node), numeric(parseAnd()), false);
+		return node;
+	}
+
+	private Node parseAnd() throws Exception {
+		Node node = parseEquality();
+		while(accept("&&"))
+			node = new JSLogicNode(numeric(node), numeric(parseEquality()), true);
+		return node;
+	}
+
+	private Node parseEquality() throws Exception {
+		Node node = parseRelational();
+		while(true){
+			final boolean equal;
+			if(accept("===") || accept("=="))
+				equal = true;
+			else if(accept("!==") || accept("!="))
+				equal = false;
+			else
+				break;
+			final Node right = parseRelational();
+			if(node instanceof StringNode && right instanceof StringNode)
+				node = new StringEqualNode((StringNode) node, (StringNode) right, equal);
+			else if(equal)
+				node = new EqualNode(numeric(node), numeric(right));
+			else
+				node = new NotEqualNode(numeric(node), numeric(right));
+		}
+		return node;
+	}
+
+	private Node parseRelational() throws Exception {
+		Node node = parseAdditive();
+		while(true){
+			if(accept("<="))
+				node = new LessEqualNode(numeric(node), numeric(parseAdditive()));
+			else if(accept(">="))
+				node = new GreaterEqualNode(numeric(node), numeric(parseAdditive()));
+			else if(accept("<"))
+				node = new LessThanNode(numeric(node), numeric(parseAdditive()));
+			else if(accept(">"))
+				node = new GreaterThanNode(numeric(node), numeric(parseAdditive()));
+			else
+				return node;
+		}
+	}
+
+	private Node parseAdditive() throws Exception {
+		Node node = parseMultiplicative();
+		while(true){
+			if(accept("+"))
+				node = new AddNode(numeric(node), numeric(parseMultiplicative()));
+			else if(accept("-"))
+				node = new SubNode(numeric(node), numeric(parseMultiplicative()));
+			else
+				return node;
+		}
+	}
+
+	private Node parseMultiplicative() throws Exception {
+		Node node = parseUnary();
+		while(true){
+			if(accept("*"))
+				node = new MulNode(numeric(node), numeric(parseUnary()));
+			else if(accept("/"))
+				node = new DivNode(numeric(node), numeric(parseUnary()));
+			else
+				return node;
+		}
+	}
+
+	private Node parseUnary() throws Exception {
+		// '!=' is handled by parseEquality, so '!' at this point is 'not'
+		if(accept("!"))
+			return new JSNotNode(numeric(parseUnary()));
+		if(accept("-"))
+			return new SubNode(new ConstantNode(0), numeric(parseUnary()));
+		if(accept("+"))
+			return numeric(parseUnary());
+		return parsePrimary();
+	}
+
+	private Node parsePrimary() throws Exception {
+		skipSpace();
+		if(pos >= text.length())
+			throw new Exception("Unexpected end of rule expression '" + text + "'");
+		final char c = text.charAt(pos);
+		if(c == '('){
+			++pos;
+			final Node node = parseOr();
+			if(!accept(")"))
+				throw new Exception("Missing ')' in rule expression '" + text + "'");
+			return node;
+		}
+		if(c == '"' || c == '\'')
+			return parseString(c);
+		if(Character.isDigit(c) || c == '.')
+			return parseNumber();
+		if(Character.isJavaIdentifierStart(c))
+			return parseName();
+		throw new Exception("Unsupported rule expression '" + text + "' at '" + text.substring(pos) + "'");
+	}
+
+	private Node parseString(final char quote) throws Exception {
+		final int end = text.indexOf(quote, pos+1);
+		if(end < 0)
+			throw new Exception("Missing closing quote in rule expression '" + text + "'");
+		final String value = text.substring(pos+1, end);
+		if(value.indexOf('\\') >= 0)
+			throw new Exception("Unsupported escape sequence in rule expression '" + text + "'");
+		pos = end + 1;
+		return new StringNode(value);
+	}
+
+	private Node parseNumber() throws Exception {
+		final int start = pos;
+		while(pos < text.length()){
+			final char c = text.charAt(pos);
+			if(Character.isDigit(c) || c == '.')
+				++pos;
+			else if((c == 'e' || c == 'E') && pos > start){
+				++pos;
+				if(pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-'))
+					++pos;
+			}
+			else
+				break;
+		}
+		if(pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos)))
+			throw new Exception("Unsupported number in rule expression '" + text + "'");
+		return new ConstantNode(Double.parseDouble(text.substring(start, pos)));
+	}
+
+	private Node parseName() throws Exception {
+		final int start = pos;
+		while(pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos)))
+			++pos;
+		final String name = text.substring(start, pos);
+		if("true".equals(name))
+			return new JSNotNode(new ConstantNode(0));
+		if("false".equals(name))
+			return new JSNotNode(new ConstantNode(1));
+		if("Math".equals(name) && accept("."))
+			return parseMathFunction();
+		if(name.startsWith("pvInt"))
+			return getVariable(longs, name, 5);
+		if(name.startsWith("pvSev"))
+			return getVariable(severities, name, 5);
+		if(name.startsWith("pvStr")){
+			final int index = getIndex(name, 5);
+			if(strings[index] == null)
+				strings[index] = new StringNode(null);
+			return strings[index];
+		}
+		if(name.startsWith("pv"))
+			return getVariable(doubles, name, 2);
+		throw new Exception("Unsupported name '" + name + "' in rule expression '" + text + "'");
+	}
+
+	/** @return Index of PV for variable name
+	 *  @throws Exception if name has no valid index
+	 */
+	private int getIndex(final String name, final int prefix) throws Exception {
+		final String digits = name.substring(prefix);
+		if(digits.length() > 0 && digits.matches("[0-9]+")){
+			final int index = Integer.parseInt(digits);
+			if(index < pv_count)
+				return index;
+		}
+		throw new Exception("Unknown variable '" + name + "' in rule expression '" + text + "'");
+	}
+
+	private VariableNode getVariable(final VariableNode[] variables, final String name, final int prefix) throws Exception {
+		final int index = getIndex(name, prefix);
+		if(variables[index] == null)
+			variables[index] = new VariableNode(name);
+		return variables[index];
+	}
+
+	private Node parseMathFunction() throws Exception {
+		skipSpace();
+		final int start = pos;
+		while(pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos)))
+			++pos;
+		final String function = text.substring(start, pos);
+		if(!accept("("))
+			throw new Exception("Unsupported use of Math." + function + " in rule expression '" + text + "'");
+		final List<Node> args = new ArrayList<Node>();
+		if(!accept(")")){
+			do
+				args.add(numeric(parseOr()));
+			while(accept(","));
+			if(!accept(")"))
+				throw new Exception("Missing ')' in rule expression '" + text + "'");
+		}
+		// Only support functions that take and return double, e.g. not Math.round(double) which returns long
+		final Class<?>[] arg_types = new Class<?>[args.size()];
+		for(int i=0; i<arg_types.length; ++i)
+			arg_types[i] = double.class;
+		final Method method = Math.class.getMethod(function, arg_types);
+		if(method.getReturnType() != double.class)
+			throw new Exception("Unsupported function Math." + function + " in rule expression '" + text + "'");
+		return new MathFuncNode(function, args.toArray(new Node[args.size()]));
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
+import org.csstudio.simplepv.IPV;
+
+/**
+ * Implementation of {@link AbstractScriptStore} for rules that a {@link RuleEvaluator}
+ * can handle without a script engine.
+ * @author Kay Kasemir
+ *
+ */
+public class RuleScriptStore extends AbstractScriptStore{
+
+	private RuleEvaluator evaluator;
+
+	/**
+	 * @throws Exception if the rule cannot be handled by a {@link RuleEvaluator}
+	 */
+	public RuleScriptStore(final RuleScriptData scriptData, final AbstractBaseEditPart editpart,
+			final IPV[] pvArray) throws Exception {
+		super(scriptData, editpart, pvArray);
+	}
+
+	@Override
+	protected void initScriptEngine() throws Exception {
+		// No script engine
+	}
+
+	/** {@inheritDoc}
+	 * <p>Since the store is only created for {@link RuleScriptData},
+	 * it is always called with the script generated for the rule,
+	 * never for a script file.
+	 */
+	@Override
+	protected void compileString(String string) throws Exception {
+		// Compile the rule itself, not the generated script
+		evaluator = new RuleEvaluator(((RuleScriptData)getScriptData()).getRuleData());
+	}
+
+	@Override
+	protected void execScript(final IPV triggerPV) throws Exception {
+		final RuleData rule = ((RuleScriptData)getScriptData()).getRuleData();
+		// Like the generated script, a rule without expressions does nothing
+		if(rule.getExpressionList().isEmpty())
+			return;
+		getEditPart().setPropertyValue(rule.getPropId(), evaluator.evaluate(getPvArray()));
+	}
+}
@@ -4,6 +4,7 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.logging.Level;
 
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -154,6 +155,14 @@ public class ScriptStoreFactory {
 		if(!scriptData.isEmbedded() && 
 				(scriptData.getPath() == null || scriptData.getPath().getFileExtension() == null)){
 			if(scriptData instanceof RuleScriptData){
+				try {
+					return new RuleScriptStore((RuleScriptData)scriptData, editpart, pvArray);
+				} catch (Exception e) {
+					// Rule uses expressions that require a script engine
+					OPIBuilderPlugin.getLogger().log(Level.FINE,
+							"Executing rule " + ((RuleScriptData)scriptData).getRuleData().getName() + //$NON-NLS-1$
+							" as script: " + e.getMessage()); //$NON-NLS-1$
+				}
 				return getJavaScriptStore(scriptData, editpart, pvArray);
 			}
 			else
@@ -7,7 +7,12 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.util;
 
-import java.util.LinkedHashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 import org.csstudio.opibuilder.OPIBuilderPlugin;
@@ -23,7 +28,15 @@ import org.eclipse.swt.widgets.Display;
  * This thread sleeps for a time which can be set in the preference page. It can
  * help throttle the unnecessary repaint caused by fast PV value updating.
  *
+ * <p>Tasks are kept per display in a {@link RefreshTaskQueue}, and only the latest task for each
+ * identify object is executed. Adding a task does not lock.
+ * Once per refresh cycle, one 'frame' is scheduled on each display that has tasks.
+ * A frame executes tasks for at most half of the refresh cycle,
+ * the remaining tasks are deferred to the next frame,
+ * so the UI thread stays responsive even when many widgets need an update.
+ *
  * @author Xihui Chen
+ * @author Kay Kasemir Lock-free task map, time-budgeted frames
  *
  */
 public final class GUIRefreshThread implements Runnable {
@@ -36,26 +49,115 @@ public final class GUIRefreshThread implements Runnable {
 	 * The singleton instance for Editing, whose GUI refresh cycle is fixed 100 ms.
 	 */
 	private static GUIRefreshThread editingInstance;
-	
+
 	/**
-	 * A LinkedHashset, which contains {@link WidgetIgnorableUITask}.
-	 * It will be processed by this thread periodically. Use hashset
-	 * can help to improve the performance.
+	 * Statistics of the frames executed on a display.
 	 */
-	//private ConcurrentLinkedQueue<WidgetIgnorableUITask> tasksQueue;
-	private LinkedHashSet<WidgetIgnorableUITask> tasksQueue;
-	private Thread thread;
+	public static final class FrameStatistics {
+		private long frames = 0;
+		private long tasks = 0;
+		private long maxTasks = 0;
+		private long nanos = 0;
+		private long maxNanos = 0;
+		private long overruns = 0;
+
+		synchronized void update(final int frameTasks, final long frameNanos, final boolean overrun) {
+			++frames;
+			tasks += frameTasks;
+			maxTasks = Math.max(maxTasks, frameTasks);
+			nanos += frameNanos;
+			maxNanos = Math.max(maxNanos, frameNanos);
+			if(overrun)
+				++overruns;
+		}
 
-	private int guiRefreshCycle = 100;
+		/** @return Number of frames */
+		public synchronized long getFrameCount() {
+			return frames;
+		}
+
+		/** @return Average number of tasks per frame */
+		public synchronized double getAverageTasksPerFrame() {
+			return frames > 0 ? (double) tasks / frames : 0.0;
+		}
+
+		/** @return Maximum number of tasks in one frame */
+		public synchronized long getMaxTasksPerFrame() {
+			return maxTasks;
+		}
+
+		/** @return Average frame duration in seconds */
+		public synchronized double getAverageFrameDuration() {
+			return frames > 0 ? nanos / 1e9 / frames : 0.0;
+		}
+
+		/** @return Maximum frame duration in seconds */
+		public synchronized double getMaxFrameDuration() {
+			return maxNanos / 1e9;
+		}
+
+		/** @return Number of frames that ran out of time and deferred tasks to the next frame */
+		public synchronized long getOverrunCount() {
+			return overruns;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		public synchronized String toString() {
+			return String.format("%d frames, %.1f tasks/frame (max %d), %.1f ms/frame (max %.1f), %d overruns",
+					frames, getAverageTasksPerFrame(), maxTasks,
+					getAverageFrameDuration() * 1000, getMaxFrameDuration() * 1000, overruns);
+		}
+	}
+
+	/**
+	 * Tasks of one display, executed in frames on the UI thread.
+	 */
+	private final class DisplayTasks implements Runnable {
+		final Display display;
+
+		final RefreshTaskQueue queue = new RefreshTaskQueue();
+
+		/** Is a frame in the display's async queue? */
+		final AtomicBoolean scheduled = new AtomicBoolean();
+
+		DisplayTasks(final Display display) {
+			this.display = display;
+		}
+
+		/** Schedule a frame unless one is already waiting to run */
+		void schedule() {
+			if(queue.isEmpty() || !scheduled.compareAndSet(false, true))
+				return;
+			try {
+				display.asyncExec(this);
+			} catch (Exception e) {
+				scheduled.set(false);
+				OPIBuilderPlugin.getLogger().log(Level.WARNING,
+						"Display has been disposed.", e); //$NON-NLS-1$
+			}
+		}
+
+		/** Execute a frame on the UI thread */
+		public void run() {
+			try {
+				queue.runFrame(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(guiRefreshCycle) / 2);
+			} finally {
+				// Allow next frame even if a task failed in an unexpected way
+				scheduled.set(false);
+			}
+		}
+	}
 
-	private long start;
+	/** Tasks for each display */
+	private final ConcurrentHashMap<Display, DisplayTasks> displayTasks = new ConcurrentHashMap<Display, DisplayTasks>();
 
-	private volatile boolean asyncEmpty = true;
+	private Thread thread;
 
-	private Runnable resetAsyncEmpty;
+	private volatile int guiRefreshCycle = 100;
 
 	private Display rcpDisplay;
-	
+
 	private boolean isRuntime;
 
 	/**
@@ -63,17 +165,9 @@ public final class GUIRefreshThread implements Runnable {
 	 */
 	private GUIRefreshThread(boolean isRuntime) {
 		this.isRuntime = isRuntime;
-		//tasksQueue = new ConcurrentLinkedQueue<WidgetIgnorableUITask>();
 		if(!OPIBuilderPlugin.isRAP()){
-			rcpDisplay = DisplayUtils.getDisplay();			
+			rcpDisplay = DisplayUtils.getDisplay();
 		}
-		tasksQueue = new LinkedHashSet<WidgetIgnorableUITask>();
-		resetAsyncEmpty = new Runnable() {
-
-			public void run() {
-				asyncEmpty = true;
-			}
-		};
 		reLoadGUIRefreshCycle();
 		thread = new Thread(this, "OPI GUI Refresh Thread"); //$NON-NLS-1$
 		thread.start();
@@ -88,12 +182,12 @@ public final class GUIRefreshThread implements Runnable {
 		if (isRuntime){
 			if(runTimeInstance == null)
 				runTimeInstance = new GUIRefreshThread(isRuntime);
-			return runTimeInstance;	
+			return runTimeInstance;
 		}else {
-			if(editingInstance == null) 
-				editingInstance = new GUIRefreshThread(isRuntime);			
+			if(editingInstance == null)
+				editingInstance = new GUIRefreshThread(isRuntime);
 			return editingInstance;
-		}	
+		}
 	}
 
 	/**
@@ -103,99 +197,52 @@ public final class GUIRefreshThread implements Runnable {
 		if(isRuntime)
 			guiRefreshCycle = PreferencesHelper.getGUIRefreshCycle();
 	}
-	
-	/**Set GUI Refresh Cycle. This should be temporarily used only. It must be 
+
+	/**Set GUI Refresh Cycle. This should be temporarily used only. It must be
 	 * reset by calling {@link #reLoadGUIRefreshCycle()} to ensure consistency.
 	 * @param guiRefreshCycle
 	 */
 	public void setGUIRefreshCycle(int guiRefreshCycle) {
 		this.guiRefreshCycle = guiRefreshCycle;
-	}	
-	
+	}
+
 	public int getGUIRefreshCycle() {
 		return guiRefreshCycle;
 	}
 
 	/**
-	 * {@inheritDoc}.
+	 * @return Frame statistics for each display.
 	 */
-	public void run() {
-		boolean isEmpty;
-		while (true) {
-			synchronized (this){
-					isEmpty = tasksQueue.isEmpty();
-			}
-			if(!isEmpty){
-					start = System.currentTimeMillis();
-					if(OPIBuilderPlugin.isRAP())
-						rapProcessQueue();
-					else
-						rcpProcessQueue();
-					
-				try {
-					long current = System.currentTimeMillis();
-					if(current - start < guiRefreshCycle)
-						Thread.sleep(guiRefreshCycle - (current -start));
-					} catch (InterruptedException e) {
-						//ignore
-					}
-			}else
-				try {
-						Thread.sleep(guiRefreshCycle);
-					} catch (InterruptedException e) {
-						//ignore
-					}
-
-		}
+	public Map<Display, FrameStatistics> getStatistics() {
+		final Map<Display, FrameStatistics> result = new HashMap<Display, FrameStatistics>();
+		for(DisplayTasks tasks : displayTasks.values())
+			result.put(tasks.display, tasks.queue.getStatistics());
+		return Collections.unmodifiableMap(result);
 	}
 
 	/**
-	 * Process the complete queue in RCP.
+	 * {@inheritDoc}.
 	 */
-	private void rcpProcessQueue() {
-		//avoid add too many stuff to Display async queue.		
-		if(!asyncEmpty)
-			return;
-		asyncEmpty = false;		
-		Object[] tasksArray;
-		//copy the tasks queue.
-		synchronized (this) {
-			tasksArray = tasksQueue.toArray();
-			tasksQueue.clear();
-		}
-		if (rcpDisplay == null || rcpDisplay.isDisposed())
-			return;
-		for (Object o : tasksArray) {
+	public void run() {
+		while (true) {
+			final long start = System.currentTimeMillis();
+			for(DisplayTasks tasks : displayTasks.values()){
+				if(tasks.display.isDisposed()){
+					displayTasks.remove(tasks.display);
+					OPIBuilderPlugin.getLogger().log(Level.FINE,
+							"GUI refresh of closed display: {0}", tasks.queue.getStatistics()); //$NON-NLS-1$
+				}
+				else
+					tasks.schedule();
+			}
 			try {
-				rcpDisplay.asyncExec(((WidgetIgnorableUITask) o)
-						.getRunnableTask());
-			} catch (Exception e) {
-				OPIBuilderPlugin.getLogger().log(Level.WARNING,
-						"Display has been disposed.", e); //$NON-NLS-1$
+				final long current = System.currentTimeMillis();
+				if(current - start < guiRefreshCycle)
+					Thread.sleep(guiRefreshCycle - (current - start));
+			} catch (InterruptedException e) {
+				//ignore
 			}
 		}
-		rcpDisplay.asyncExec(resetAsyncEmpty);
-	}
-	
-	/**
-	 * Process the complete queue in RAP.
-	 */
-	private void rapProcessQueue() {
-		Object[] tasksArray;
-		//copy the tasks queue.
-		synchronized (this) {
-			tasksArray = tasksQueue.toArray();
-			tasksQueue.clear();
-		}
-		for(Object o : tasksArray){
-			Display display = ((WidgetIgnorableUITask)o).getDisplay();
-				if(display!=null && !display.isDisposed())
-					try {
-						display.asyncExec(((WidgetIgnorableUITask) o).getRunnableTask());
-					} catch (Exception e) {
-					    OPIBuilderPlugin.getLogger().log(Level.WARNING, "GUI refresh error", e); //$NON-NLS-1$
-					}
-		}
 	}
 
 	/**
@@ -204,13 +251,17 @@ public final class GUIRefreshThread implements Runnable {
 	 * @param task
 	 *            the ignorable UI task.
 	 */
-	public synchronized void addIgnorableTask(final WidgetIgnorableUITask task) {
-		tasksQueue.remove(task);
-		tasksQueue.add(task);
-
+	public void addIgnorableTask(final WidgetIgnorableUITask task) {
+		final Display display = OPIBuilderPlugin.isRAP() ? task.getDisplay() : rcpDisplay;
+		if(display == null || display.isDisposed())
+			return;
+		DisplayTasks tasks = displayTasks.get(display);
+		if(tasks == null){
+			final DisplayTasks newTasks = new DisplayTasks(display);
+			tasks = displayTasks.putIfAbsent(display, newTasks);
+			if(tasks == null)
+				tasks = newTasks;
+		}
+		tasks.queue.add(task);
 	}
-
-
-
-
 }
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.util;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import org.csstudio.opibuilder.OPIBuilderPlugin;
+import org.csstudio.opibuilder.datadefinition.WidgetIgnorableUITask;
+import org.csstudio.opibuilder.util.GUIRefreshThread.FrameStatistics;
+
+/**
+ * Pending GUI refresh tasks of one display, executed in time-budgeted frames.
+ *
+ * <p>Only the latest task for each identify object is kept,
+ * in the order in which the identify object was first added.
+ * Adding a task does not lock, and may happen while a frame executes.
+ *
+ * @author Kay Kasemir
+ */
+final class RefreshTaskQueue {
+
+	/** Latest task for each identify object */
+	private final Map<WidgetIgnorableUITask, WidgetIgnorableUITask> pending =
+			new ConcurrentHashMap<WidgetIgnorableUITask, WidgetIgnorableUITask>();
+
+	/** Pending tasks, in the order they were first added. Used as keys into the pending map */
+	private final Queue<WidgetIgnorableUITask> order = new ConcurrentLinkedQueue<WidgetIgnorableUITask>();
+
+	private final FrameStatistics statistics = new FrameStatistics();
+
+	/**@param task Task to add, replacing a pending task with the same identify object */
+	void add(final WidgetIgnorableUITask task) {
+		if(pending.put(task, task) == null)
+			order.add(task);
+	}
+
+	/** @return <code>true</code> if there are no pending tasks */
+	boolean isEmpty() {
+		return order.isEmpty();
+	}
+
+	/** @return Statistics of the executed frames */
+	FrameStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**Execute a frame.
+	 *
+	 * <p>Executes pending tasks until all are done or the deadline has passed.
+	 * At least one task is executed, the remaining ones are deferred to the next frame.
+	 * An error in a task is logged and does not prevent executing the remaining tasks.
+	 * @param deadline Deadline for the frame in {@link System#nanoTime()} nanoseconds
+	 * @return <code>true</code> if tasks were deferred because the deadline passed
+	 */
+	boolean runFrame(final long deadline) {
+		final long start = System.nanoTime();
+		int count = 0;
+		boolean overrun = false;
+		WidgetIgnorableUITask key;
+		while((key = order.poll()) != null){
+			final WidgetIgnorableUITask task = pending.remove(key);
+			if(task != null){
+				try {
+					task.getRunnableTask().run();
+				} catch (Throwable e) {
+					OPIBuilderPlugin.getLogger().log(Level.WARNING, "GUI refresh error", e); //$NON-NLS-1$
+				}
+				++count;
+			}
+			if(System.nanoTime() >= deadline && !order.isEmpty()){
+				overrun = true;
+				break;
+			}
+		}
+		statistics.update(count, System.nanoTime() - start, overrun);
+		return overrun;
+	}
+}
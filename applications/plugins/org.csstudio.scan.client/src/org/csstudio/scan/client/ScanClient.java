@@ -17,6 +17,7 @@ package org.csstudio.scan.client;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
@@ -35,7 +36,9 @@ import javax.xml.parsers.SAXParserFactory;
 import org.csstudio.scan.PathUtil;
 import org.csstudio.scan.SystemSettings;
 import org.csstudio.scan.command.DOMHelper;
+import org.csstudio.scan.data.IncrementalScanData;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataEncoding;
 import org.csstudio.scan.device.DeviceInfo;
 import org.csstudio.scan.server.Scan;
 import org.csstudio.scan.server.ScanInfo;
@@ -86,9 +89,20 @@ public class ScanClient
      *  @throws Exception on error
      */
     private HttpURLConnection connect(final String path) throws Exception
+    {
+        return connect(path, null);
+    }
+
+    /** Connect to "http://server:port/path?query"
+     *  @param path Path to use in scan server REST interface
+     *  @param query Query or <code>null</code>
+     *  @return {@link HttpURLConnection}
+     *  @throws Exception on error
+     */
+    private HttpURLConnection connect(final String path, final String query) throws Exception
     {
         // URI will properly escape content of path
-        final URI uri = new URI("http", null, host, port, path, null, null);
+        final URI uri = new URI("http", null, host, port, path, query, null);
         final URL url = uri.toURL();
         final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setRequestProperty("Content-Type", "text/xml");
@@ -306,6 +320,47 @@ public class ScanClient
         }
     }
 
+    /** Obtain data logged by a scan after a given serial
+     *
+     *  <p>Fetches only the samples that are newer than
+     *  <code>last_serial</code>, using a compact binary encoding.
+     *
+     *  @param id ID that uniquely identifies a scan (within JVM of the scan engine)
+     *  @param last_serial Serial of last sample that the caller already has, -1 for all samples
+     *  @return {@link ScanData} with samples that have a serial above <code>last_serial</code>
+     *  @throws Exception on error
+     *  @see #updateScanData(long, IncrementalScanData)
+     */
+    public ScanData getScanData(final long id, final long last_serial) throws Exception
+    {
+        final HttpURLConnection connection = connect("/scan/" + id + "/data/" + last_serial, "format=binary");
+        try
+        {
+            checkResponse(connection);
+            final InputStream stream = new BufferedInputStream(connection.getInputStream());
+            return ScanDataEncoding.read(stream);
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    /** Update scan data with the samples that were logged since
+     *
+     *  <p>Fetches only the new samples and appends them
+     *  to the data that the caller already has.
+     *
+     *  @param id ID that uniquely identifies a scan (within JVM of the scan engine)
+     *  @param data {@link IncrementalScanData} for that scan, initially empty
+     *  @return <code>true</code> if new samples were appended
+     *  @throws Exception on error
+     */
+    public boolean updateScanData(final long id, final IncrementalScanData data) throws Exception
+    {
+        return data.append(getScanData(id, data.getLastSerial()));
+    }
+
     /** Get serial of last logged sample.
      *
      *  <p>Can be used to determine if there are new samples
@@ -7,6 +7,12 @@
  ******************************************************************************/
 package org.csstudio.scan.log.derby;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.data.ScanSample;
 import org.csstudio.scan.log.DataLog;
@@ -17,14 +23,29 @@ import org.csstudio.scan.log.DataLog;
  *  Creates a logger on <code>doLog()</code> and keeps that open
  *  until <code>close()</code>
  *
+ *  <p>With asynchronous logging, samples are queued
+ *  and written by an {@link RDBDataLogWriter} in the background.
+ *  Reading the scan data never waits for the queue.
+ *  Readers get the samples that have been written,
+ *  plus those that are still in the queue.
+ *  Errors in writing queued samples are only reported by
+ *  <code>log</code>, <code>flush</code> and <code>close</code>,
+ *  not to readers.
+ *
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class DerbyDataLog extends DataLog
 {
 	final private long scan_id;
 
+	final private boolean async = Preferences.isAsyncLogging();
+
 	private RDBDataLogger logger = null;
 
+	/** Writer for asynchronous logging. SYNC on this */
+	private RDBDataLogWriter writer = null;
+
 	/** Initialize
 	 *  @param scan_id ID of scan for which this logger should operate
 	 */
@@ -47,20 +68,93 @@ public class DerbyDataLog extends DataLog
 	@Override
 	public void doLog(final String device, final ScanSample sample) throws Exception
 	{
+	    if (async)
+	    {
+	        getWriter().log(device, sample);
+	        return;
+	    }
 		if (logger == null)
 			logger = new DerbyDataLogger();
 		logger.log(scan_id, device, sample);
 	}
 
+	/** @return {@link RDBDataLogWriter}, created on first call
+	 *  @throws Exception on error
+	 */
+	private synchronized RDBDataLogWriter getWriter() throws Exception
+	{
+	    if (writer == null)
+	        writer = new RDBDataLogWriter(scan_id, new DerbyDataLogger(), Preferences.getBatchSize());
+	    return writer;
+	}
+
+	/** @param last_serial Only get samples with a serial above this one, -1 for all
+	 *  @return Samples that are queued for writing, <code>null</code> if there are none
+	 */
+	private Map<String, List<ScanSample>> getPendingSamples(final long last_serial)
+	{
+	    final RDBDataLogWriter current;
+	    synchronized (this)
+	    {
+	        current = writer;
+	    }
+	    if (current == null)
+	        return null;
+	    final Map<String, List<ScanSample>> pending = current.getPendingSamples(last_serial);
+	    return pending.isEmpty() ? null : pending;
+	}
+
+	/** @param data Samples read from the RDB
+	 *  @param pending Samples that were queued before reading the RDB, or <code>null</code>
+	 *  @return {@link ScanData} with samples from the RDB followed by those that were not written, yet
+	 */
+	private static ScanData addPendingSamples(final ScanData data, final Map<String, List<ScanSample>> pending)
+	{
+	    if (pending == null)
+	        return data;
+	    final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+	    for (String device : data.getDevices())
+	        device_logs.put(device, new ArrayList<>(data.getSamples(device)));
+	    for (Map.Entry<String, List<ScanSample>> entry : pending.entrySet())
+	    {
+	        List<ScanSample> samples = device_logs.get(entry.getKey());
+	        if (samples == null)
+	        {
+	            samples = new ArrayList<>();
+	            device_logs.put(entry.getKey(), samples);
+	        }
+	        // Skip samples that were written while reading the RDB
+	        final long last_written = samples.isEmpty() ? -1 : samples.get(samples.size()-1).getSerial();
+	        for (ScanSample sample : entry.getValue())
+	            if (sample.getSerial() > last_written)
+	                samples.add(sample);
+	    }
+	    return new ScanData(device_logs);
+	}
+
+	/** @return Number of samples waiting to be written */
+	public synchronized long getQueueDepth()
+	{
+	    return writer == null ? 0 : writer.getQueueDepth();
+	}
+
+	/** @return Maximum number of samples that were waiting to be written */
+	public synchronized long getMaxQueueDepth()
+	{
+	    return writer == null ? 0 : writer.getMaxQueueDepth();
+	}
+
     /** {@inheritDoc} */
 	@Override
 	public ScanData getScanData() throws Exception
 	{
+	    // Check queue before reading, so samples written meanwhile are in the RDB
+	    final Map<String, List<ScanSample>> pending = getPendingSamples(-1);
 	    // Can be called without doLog(), so use separate logger just for this call
 		final RDBDataLogger logger = new DerbyDataLogger();
 		try
 		{
-			return logger.getScanData(scan_id);
+			return addPendingSamples(logger.getScanData(scan_id), pending);
 		}
 		finally
 		{
@@ -69,14 +163,58 @@ public class DerbyDataLog extends DataLog
 	}
 
     /** {@inheritDoc} */
-	@Override
-	public synchronized void close()
-	{
-		if (logger != null)
-		{
-			logger.close();
-			logger = null;
-		}
-		super.close();
-	}
+    @Override
+    public ScanData getScanData(final long last_serial) throws Exception
+    {
+        final Map<String, List<ScanSample>> pending = getPendingSamples(last_serial);
+        final RDBDataLogger logger = new DerbyDataLogger();
+        try
+        {
+            return addPendingSamples(logger.getScanData(scan_id, last_serial), pending);
+        }
+        finally
+        {
+            logger.close();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void flush() throws Exception
+    {
+        final RDBDataLogWriter current;
+        synchronized (this)
+        {
+            current = writer;
+        }
+        // Report errors of samples written so far, but don't wait for queued samples
+        if (current != null)
+            current.checkError();
+        super.flush();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            if (writer != null)
+                writer.close();
+        }
+        catch (Exception ex)
+        {
+            throw new IOException("Cannot write samples of scan " + scan_id, ex);
+        }
+        finally
+        {
+            writer = null;
+            if (logger != null)
+            {
+                logger.close();
+                logger = null;
+            }
+            super.close();
+        }
+    }
 }
@@ -35,4 +35,24 @@ public class Preferences
 			port = prefs.getInt(Activator.ID, "server_port", port, null);
 		return port;
 	}
+
+    /** @return <code>true</code> to write samples in background thread */
+    public static boolean isAsyncLogging()
+    {
+        boolean async = true;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            async = prefs.getBoolean(Activator.ID, "async_logging", async, null);
+        return async;
+    }
+
+    /** @return Maximum number of samples written in one batch */
+    public static int getBatchSize()
+    {
+        int size = 1000;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs != null)
+            size = prefs.getInt(Activator.ID, "batch_size", size, null);
+        return size;
+    }
 }
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.log.derby;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.csstudio.scan.data.ScanSample;
+
+/** Asynchronous writer for samples of one scan
+ *
+ *  <p>Samples are added to a queue, so the scan never
+ *  waits for the RDB.
+ *  A background thread writes all samples that accumulated
+ *  in the queue with one JDBC batch and one commit,
+ *  up to a maximum batch size.
+ *  When the RDB is slow, batches grow, and the commit overhead is
+ *  shared by more samples.
+ *
+ *  <p>Samples that are queued or being written remain available
+ *  via {@link #getPendingSamples(long)}, so readers can see them
+ *  without waiting for the RDB.
+ *
+ *  <p>When a batch cannot be written, its samples are dropped
+ *  and the error is reported by the next call to
+ *  <code>log</code>, <code>checkError</code>, <code>waitForWrites</code> or <code>close</code>.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RDBDataLogWriter
+{
+    /** Sample for a device, queued for writing */
+    private static class QueuedSample
+    {
+        final String device;
+        final ScanSample sample;
+
+        QueuedSample(final String device, final ScanSample sample)
+        {
+            this.device = device;
+            this.sample = sample;
+        }
+    }
+
+    /** Queue entry that stops the writer thread */
+    final private static QueuedSample END = new QueuedSample(null, null);
+
+    final private long scan_id;
+
+    final private RDBDataLogger logger;
+
+    final private int batch_size;
+
+    final private BlockingQueue<QueuedSample> queue = new LinkedBlockingQueue<>();
+
+    final private Thread thread;
+
+    /** Samples that were added but not yet written or dropped, in order. SYNC on this */
+    final private Deque<QueuedSample> pending = new ArrayDeque<>();
+
+    /** Number of samples that were added. SYNC on this */
+    private long added = 0;
+
+    /** Number of samples that were written. SYNC on this */
+    private long written = 0;
+
+    /** Number of samples that were dropped because of write errors. SYNC on this */
+    private long failed = 0;
+
+    /** Number of batches that were written. SYNC on this */
+    private long batches = 0;
+
+    /** Maximum number of samples waiting to be written. SYNC on this */
+    private long max_queue_depth = 0;
+
+    /** Most recent write error, or <code>null</code>. SYNC on this */
+    private Exception error = null;
+
+    /** Initialize and start writer thread
+     *  @param scan_id ID of scan for which this writer logs samples
+     *  @param logger {@link RDBDataLogger} that will be used by the writer thread
+     *                and closed when the writer is closed
+     *  @param batch_size Maximum number of samples to write in one batch
+     */
+    public RDBDataLogWriter(final long scan_id, final RDBDataLogger logger, final int batch_size)
+    {
+        this.scan_id = scan_id;
+        this.logger = logger;
+        this.batch_size = Math.max(1, batch_size);
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeSamples();
+            }
+        }, "RDBDataLogWriter " + scan_id);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Add sample to queue
+     *  @param device Device name
+     *  @param sample {@link ScanSample}
+     *  @throws Exception if an earlier write failed
+     */
+    public void log(final String device, final ScanSample sample) throws Exception
+    {
+        final QueuedSample queued = new QueuedSample(device, sample);
+        synchronized (this)
+        {
+            checkError();
+            ++added;
+            max_queue_depth = Math.max(max_queue_depth, added - written - failed);
+            pending.add(queued);
+            queue.add(queued);
+        }
+    }
+
+    /** Get samples that have been added but are not written, yet.
+     *
+     *  <p>Does not wait for the RDB and does not report write errors.
+     *
+     *  @param last_serial Only include samples with a serial above this one, -1 for all
+     *  @return Map from device name to pending samples, ordered by serial
+     */
+    public synchronized Map<String, List<ScanSample>> getPendingSamples(final long last_serial)
+    {
+        final Map<String, List<ScanSample>> result = new HashMap<>();
+        for (QueuedSample queued : pending)
+        {
+            if (queued.sample.getSerial() <= last_serial)
+                continue;
+            List<ScanSample> samples = result.get(queued.device);
+            if (samples == null)
+            {
+                samples = new ArrayList<>();
+                result.put(queued.device, samples);
+            }
+            samples.add(queued.sample);
+        }
+        return result;
+    }
+
+    /** Throw and clear pending write error
+     *  @throws Exception if an earlier write failed
+     */
+    public synchronized void checkError() throws Exception
+    {
+        if (error != null)
+        {
+            final Exception ex = error;
+            error = null;
+            throw new Exception("Error writing samples of scan " + scan_id, ex);
+        }
+    }
+
+    /** Wait until all samples that have been added so far are written
+     *  @throws InterruptedException when interrupted
+     *  @throws Exception if samples could not be written
+     */
+    public void waitForWrites() throws Exception
+    {
+        synchronized (this)
+        {
+            final long target = added;
+            while (written + failed < target  &&  thread.isAlive())
+                wait(100);
+            checkError();
+        }
+    }
+
+    /** @return Number of samples waiting to be written */
+    public synchronized long getQueueDepth()
+    {
+        return added - written - failed;
+    }
+
+    /** @return Maximum number of samples that were waiting to be written */
+    public synchronized long getMaxQueueDepth()
+    {
+        return max_queue_depth;
+    }
+
+    /** @return Number of samples that were written */
+    public synchronized long getSampleCount()
+    {
+        return written;
+    }
+
+    /** @return Number of samples that could not be written */
+    public synchronized long getFailedCount()
+    {
+        return failed;
+    }
+
+    /** @return Number of batches that were written */
+    public synchronized long getBatchCount()
+    {
+        return batches;
+    }
+
+    /** Write remaining samples, stop writer thread, close the {@link RDBDataLogger}
+     *  @throws Exception if samples could not be written
+     */
+    public void close() throws Exception
+    {
+        queue.add(END);
+        try
+        {
+            thread.join();
+        }
+        finally
+        {
+            logger.close();
+            Logger.getLogger(getClass().getName()).log(Level.FINE, "{0}", this);
+        }
+        checkError();
+    }
+
+    /** Writer thread: Write batches of samples until closed */
+    private void writeSamples()
+    {
+        final List<QueuedSample> batch = new ArrayList<>(batch_size);
+        final List<String> devices = new ArrayList<>(batch_size);
+        final List<ScanSample> samples = new ArrayList<>(batch_size);
+        boolean running = true;
+        while (running)
+        {
+            try
+            {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException ex)
+            {
+                break;
+            }
+            queue.drainTo(batch, batch_size - 1);
+
+            for (QueuedSample queued : batch)
+            {
+                if (queued == END)
+                {   // Write what was queued before END, then quit
+                    running = false;
+                    break;
+                }
+                devices.add(queued.device);
+                samples.add(queued.sample);
+            }
+
+            if (! samples.isEmpty())
+            {
+                Exception write_error = null;
+                try
+                {
+                    logger.log(scan_id, devices, samples);
+                }
+                catch (Exception ex)
+                {
+                    Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                            "Cannot write " + samples.size() + " samples of scan " + scan_id, ex);
+                    write_error = ex;
+                }
+                synchronized (this)
+                {
+                    if (write_error == null)
+                    {
+                        written += samples.size();
+                        ++batches;
+                    }
+                    else
+                    {
+                        failed += samples.size();
+                        error = write_error;
+                    }
+                    for (int i=samples.size(); i>0; --i)
+                        pending.removeFirst();
+                    notifyAll();
+                }
+            }
+            batch.clear();
+            devices.clear();
+            samples.clear();
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "RDBDataLogWriter for scan " + scan_id + ": " +
+               written + " samples in " + batches + " batches, " +
+               failed + " failed, " +
+               "queue depth " + (added - written - failed) + " (max " + max_queue_depth + ")";
+    }
+}
@@ -247,6 +247,57 @@ abstract public class RDBDataLogger
 				throw new Exception("Sample insert affected " + rows + " rows");
     }
 
+    /** Log several samples in one transaction
+     *
+     *  <p>Uses a JDBC batch and a single commit,
+     *  which is much faster than logging each sample
+     *  with its own auto-commit.
+     *
+     *  @param scan_id ID of associated scan
+     *  @param device_names Device names
+     *  @param samples Samples to log, one for each device name
+     *  @throws Exception on error
+     */
+    public void log(final long scan_id, final List<String> device_names, final List<ScanSample> samples) throws Exception
+    {
+        if (samples.isEmpty())
+            return;
+        connection.setAutoCommit(false);
+        try
+        {
+            if (insert_sample_statement == null)
+                insert_sample_statement = connection.prepareStatement(
+                        "INSERT INTO samples(scan_id, device_id, serial, timestamp, value)" +
+                        " VALUES (?,?,?,?,?)");
+            final int count = samples.size();
+            for (int i=0; i<count; ++i)
+            {
+                final ScanSample sample = samples.get(i);
+                insert_sample_statement.setLong(1, scan_id);
+                insert_sample_statement.setInt(2, getDevice(device_names.get(i)));
+                insert_sample_statement.setLong(3, sample.getSerial());
+                insert_sample_statement.setTimestamp(4, new Timestamp(sample.getTimestamp().getTime()));
+                insert_sample_statement.setObject(5, new SampleValue(sample.getValues()));
+                insert_sample_statement.addBatch();
+            }
+            insert_sample_statement.executeBatch();
+            connection.commit();
+        }
+        catch (Exception ex)
+        {
+            if (insert_sample_statement != null)
+                insert_sample_statement.clearBatch();
+            connection.rollback();
+            // Device IDs that were inserted in this transaction are no longer valid
+            devices.clear();
+            throw ex;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
     /** Get serial of last logged sample.
      *
      *  <p>Can be used to determine if there are new samples
@@ -304,6 +355,51 @@ abstract public class RDBDataLogger
 		return new ScanData(device_logs);
     }
 
+    /** Obtain samples that were logged after a given serial
+     *
+     *  <p>Fetches the samples of all devices in one query.
+     *
+     *  @param scan_id ID of the scan
+     *  @param last_serial Serial of last sample that the caller already has, -1 for all samples
+     *  @return {@link ScanData} with samples that have a serial above <code>last_serial</code>
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long scan_id, final long last_serial) throws Exception
+    {
+        final Map<String, List<ScanSample>> device_logs = new HashMap<String, List<ScanSample>>();
+        try
+        (
+            final PreparedStatement statement = connection.prepareStatement(
+                "SELECT d.name, s.serial, s.timestamp, s.value FROM samples s JOIN devices d ON s.device_id = d.id" +
+                " WHERE s.scan_id=? AND s.serial>? ORDER BY s.serial");
+        )
+        {
+            statement.setLong(1, scan_id);
+            statement.setLong(2, last_serial);
+            try
+            (
+                final ResultSet result = statement.executeQuery();
+            )
+            {
+                while (result.next())
+                {
+                    final String device = result.getString(1);
+                    final long serial = result.getLong(2);
+                    final Date timestamp = result.getTimestamp(3);
+                    final SampleValue value = (SampleValue) result.getObject(4);
+                    List<ScanSample> samples = device_logs.get(device);
+                    if (samples == null)
+                    {
+                        samples = new ArrayList<ScanSample>();
+                        device_logs.put(device, samples);
+                    }
+                    samples.add(ScanSampleFactory.createSample(timestamp, serial, value.getValues()));
+                }
+            }
+        }
+        return new ScanData(device_logs);
+    }
+
     /** Get samples
      *  @param scan_id ID of the scan
      *  @param device_name Name of the device
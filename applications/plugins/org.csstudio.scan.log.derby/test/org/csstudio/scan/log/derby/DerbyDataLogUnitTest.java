@@ -99,6 +99,34 @@ public class DerbyDataLogUnitTest
 		System.out.println("Writing " + vals_per_sec + " vals/sec");
 	}
 
+	@Test(timeout=80000)
+	public void testBatchedSampleLogging() throws Exception
+	{
+	    // Queueing allows about 600000 samples/second,
+	    // batches are written at about 3 times the rate of testSampleLogging
+	    final long scan_id = scan.getId();
+	    final RDBDataLogWriter writer = new RDBDataLogWriter(scan_id, new DerbyDataLogger(), 1000);
+	    final long start = System.nanoTime();
+	    for (long serial = 1; serial < 50000; ++serial)
+	        writer.log("readback", ScanSampleFactory.createSample(new Date(), serial, 3.14 + serial * 0.01));
+	    final long queued = System.nanoTime() - start;
+	    writer.waitForWrites();
+	    final long nanos = System.nanoTime() - start;
+	    System.out.println(writer);
+	    assertEquals(0, writer.getQueueDepth());
+	    assertEquals(50000 - 1, writer.getSampleCount());
+	    assertEquals(0, writer.getFailedCount());
+	    writer.close();
+
+	    System.out.println("Queueing " + 50000L * 1000000000L / queued + " vals/sec");
+	    System.out.println("Writing " + 50000L * 1000000000L / nanos + " vals/sec");
+
+	    final DerbyDataLogger reader = new DerbyDataLogger();
+	    final ScanData data = reader.getScanData(scan_id, -1);
+	    reader.close();
+	    assertEquals(50000 - 1, data.getSamples("readback").size());
+	}
+
 	@Test(timeout=50000)
 	public void testSampleRetrieval() throws Exception
 	{
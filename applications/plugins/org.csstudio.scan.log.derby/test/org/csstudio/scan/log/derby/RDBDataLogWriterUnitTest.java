@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.log.derby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.csstudio.scan.data.ScanSample;
+import org.csstudio.scan.data.ScanSampleFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link RDBDataLogWriter} error handling
+ *
+ *  <p>Uses a logger that fails to write, no database required.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RDBDataLogWriterUnitTest
+{
+    /** Logger that cannot write samples */
+    private static class FailingLogger extends RDBDataLogger
+    {
+        public FailingLogger() throws Exception
+        {
+            super();
+        }
+
+        @Override
+        protected Connection connect() throws Exception
+        {
+            return null;
+        }
+
+        @Override
+        public void log(final long scan_id, final List<String> device_names,
+                final List<ScanSample> samples) throws Exception
+        {
+            throw new Exception("Test error");
+        }
+
+        @Override
+        public void close()
+        {
+            // Nothing to close
+        }
+    }
+
+    /** Logger that waits until released, then fails */
+    private static class BlockedLogger extends FailingLogger
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        public BlockedLogger() throws Exception
+        {
+            super();
+        }
+
+        @Override
+        public void log(final long scan_id, final List<String> device_names,
+                final List<ScanSample> samples) throws Exception
+        {
+            release.await();
+            super.log(scan_id, device_names, samples);
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testPendingSamples() throws Exception
+    {
+        final BlockedLogger logger = new BlockedLogger();
+        final RDBDataLogWriter writer = new RDBDataLogWriter(1, logger, 100);
+        for (long serial = 1; serial <= 10; ++serial)
+            writer.log(serial % 2 == 0 ? "even" : "odd",
+                       ScanSampleFactory.createSample(new Date(), serial, serial));
+
+        // Queued samples are available without waiting for the RDB
+        Map<String, List<ScanSample>> pending = writer.getPendingSamples(-1);
+        assertEquals(5, pending.get("even").size());
+        assertEquals(5, pending.get("odd").size());
+        assertEquals(2, pending.get("even").get(0).getSerial());
+        pending = writer.getPendingSamples(8);
+        assertEquals(1, pending.get("even").size());
+        assertEquals(10, pending.get("even").get(0).getSerial());
+        assertEquals(1, pending.get("odd").size());
+
+        // Failed samples are no longer pending
+        logger.release.countDown();
+        while (writer.getQueueDepth() > 0)
+            Thread.sleep(10);
+        assertEquals(0, writer.getPendingSamples(-1).size());
+
+        // Reading pending samples does not consume the error
+        writer.getPendingSamples(-1);
+        try
+        {
+            writer.close();
+            fail("Did not report write error");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage() + ": " + ex.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testWaitForWrites() throws Exception
+    {
+        final RDBDataLogWriter writer = new RDBDataLogWriter(1, new FailingLogger(), 100);
+        for (long serial = 1; serial <= 10; ++serial)
+            writer.log("readback", ScanSampleFactory.createSample(new Date(), serial, serial));
+        try
+        {
+            writer.waitForWrites();
+            fail("Did not report write error");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage() + ": " + ex.getCause().getMessage());
+        }
+        System.out.println(writer);
+        // Failed samples are not counted as written
+        assertEquals(0, writer.getSampleCount());
+        assertEquals(10, writer.getFailedCount());
+        assertEquals(0, writer.getQueueDepth());
+        // Error was reported, nothing left to report
+        writer.close();
+    }
+
+    @Test(timeout=10000)
+    public void testClose() throws Exception
+    {
+        final RDBDataLogWriter writer = new RDBDataLogWriter(1, new FailingLogger(), 100);
+        writer.log("readback", ScanSampleFactory.createSample(new Date(), 1, 3.14));
+        // Error in last batch is reported by close()
+        try
+        {
+            writer.close();
+            fail("Did not report write error");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage() + ": " + ex.getCause().getMessage());
+        }
+        assertEquals(1, writer.getFailedCount());
+    }
+}
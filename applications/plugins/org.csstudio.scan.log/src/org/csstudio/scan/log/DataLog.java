@@ -16,7 +16,11 @@
 package org.csstudio.scan.log;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.csstudio.scan.data.ScanData;
@@ -90,8 +94,10 @@ abstract public class DataLog implements Closeable
      *  
      *  <p>Implementation may override, but must call base implementation
      *  at the end to notify listeners.
+     *
+     *  @throws Exception on error, for example when samples could not be written
      */
-    public void flush()
+    public void flush() throws Exception
     {
         for (DataLogListener listener : listeners)
             listener.logDataChanged(this);
@@ -115,11 +121,51 @@ abstract public class DataLog implements Closeable
      */
     abstract public ScanData getScanData() throws Exception;
 
+    /** Get samples that were logged after a given serial
+     *
+     *  <p>Allows clients to fetch only the new samples
+     *  of a running scan.
+     *  Default implementation filters the complete {@link ScanData},
+     *  derived classes may override with a more efficient lookup.
+     *
+     *  @param last_serial Serial of last sample that the caller already has, -1 for all samples
+     *  @return {@link ScanData} with copy of samples that have a serial above <code>last_serial</code>
+     *          or <code>null</code>
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long last_serial) throws Exception
+    {
+        final ScanData data = getScanData();
+        if (data == null  ||  last_serial < 0)
+            return data;
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+        for (String device : data.getDevices())
+            addSamplesAfter(device_logs, device, data.getSamples(device), last_serial);
+        return new ScanData(device_logs);
+    }
+
+    /** @param device_logs Map from device name to samples, will be updated
+     *  @param device Device name
+     *  @param samples Samples of that device, ordered by serial
+     *  @param last_serial Serial of last sample that the caller already has
+     */
+    protected static void addSamplesAfter(final Map<String, List<ScanSample>> device_logs,
+            final String device, final List<ScanSample> samples, final long last_serial)
+    {
+        // Samples are logged in order of serial, so new samples are at the end
+        int start = samples.size();
+        while (start > 0  &&  samples.get(start-1).getSerial() > last_serial)
+            --start;
+        if (start < samples.size())
+            device_logs.put(device, new ArrayList<>(samples.subList(start, samples.size())));
+    }
+
     /** Should be called when done logging samples
      *  to allow logging mechanism to release resources.
+     *  @throws IOException on error, for example when samples could not be written
      */
 	@Override
-    public void close()
+    public void close() throws IOException
 	{
 		// NOP
 	}
@@ -63,4 +63,14 @@ public class MemoryDataLog extends DataLog
 	{
 		return new ScanData(new HashMap<String, List<ScanSample>>(device_logs));
 	}
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized ScanData getScanData(final long last_serial) throws Exception
+    {
+        final Map<String, List<ScanSample>> update = new HashMap<String, List<ScanSample>>();
+        for (Map.Entry<String, List<ScanSample>> entry : device_logs.entrySet())
+            addSamplesAfter(update, entry.getKey(), entry.getValue(), last_serial);
+        return new ScanData(update);
+    }
 }
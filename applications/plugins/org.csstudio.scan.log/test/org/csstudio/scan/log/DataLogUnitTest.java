@@ -24,6 +24,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import java.util.Date;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.csstudio.scan.data.IncrementalScanData;
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.data.ScanDataIterator;
 import org.csstudio.scan.data.ScanSample;
@@ -88,6 +89,34 @@ public class DataLogUnitTest
         assertThat(events.get(), equalTo(1));
     }
 
+    @Test
+    public void testDataSinceSerial() throws Exception
+    {
+        final DataLog logger = new MemoryDataLog();
+        logData(logger);
+        final long last_serial = logger.getLastScanDataSerial();
+
+        // Serials 0..4 were logged
+        final ScanData old_data = logger.getScanData(2);
+        assertEquals(2, old_data.getDevices().length);
+        assertEquals(2, old_data.getSamples("x").size());
+        assertEquals(2*5, old_data.getSamples("y").size());
+        assertEquals(last_serial, old_data.getSamples("y").get(2*5-1).getSerial());
+
+        assertEquals(0, logger.getScanData(last_serial).getDevices().length);
+        assertEquals(5, logger.getScanData(-1).getSamples("x").size());
+
+        // Append new samples to data obtained so far
+        final IncrementalScanData data = new IncrementalScanData();
+        data.append(logger.getScanData(-1));
+        assertEquals(last_serial, data.getLastSerial());
+        logData(logger);
+        data.append(logger.getScanData(data.getLastSerial()));
+        assertEquals(2*5, data.getScanData().getSamples("x").size());
+        assertEquals(2*5*5, data.getScanData().getSamples("y").size());
+        assertEquals(logger.getLastScanDataSerial(), data.getLastSerial());
+    }
+
 	@Test
 	public void testSpreadsheet() throws Exception
 	{
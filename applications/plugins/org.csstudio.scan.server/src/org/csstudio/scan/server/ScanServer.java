@@ -99,6 +99,18 @@ public interface ScanServer
      */
     public ScanData getScanData(long id) throws Exception;
 
+    /** Query server for scan data that was logged after a given serial
+     *
+     *  <p>Allows clients to only fetch the new samples of a running scan.
+     *
+     *  @param id ID that uniquely identifies a scan
+     *  @param last_serial Serial of last sample that the client already has, -1 for all samples
+     *  @return Samples with a serial above <code>last_serial</code> or <code>null</code>
+     *  @throws Exception on error
+     *  @see #getLastScanDataSerial(long)
+     */
+    public ScanData getScanData(long id, long last_serial) throws Exception;
+
     /** Ask server to update a command parameter to a new value
      *  @param id ID that uniquely identifies a scan
      *  @param address Address of the command
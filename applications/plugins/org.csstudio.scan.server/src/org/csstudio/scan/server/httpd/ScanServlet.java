@@ -20,6 +20,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.csstudio.scan.command.DOMHelper;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataEncoding;
 import org.csstudio.scan.device.DeviceInfo;
 import org.csstudio.scan.server.ScanInfo;
 import org.csstudio.scan.server.ScanServer;
@@ -177,6 +178,8 @@ public class ScanServlet extends HttpServlet
      *  <p>GET scan/{id} - get scan info
      *  <p>GET scan/{id}/commands - get scan commands
      *  <p>GET scan/{id}/data - get scan data
+     *  <p>GET scan/{id}/data/{serial} - get scan data logged after that serial,
+     *     add <code>?format=binary</code> for compact binary encoding
      *  <p>GET scan/{id}/last_serial - get scan data's last serial
      *  <p>GET scan/{id}/devices - get devices used by a scan
      */
@@ -220,6 +223,23 @@ public class ScanServlet extends HttpServlet
                 out.print(scan_server.getScanCommands(id));
                 out.flush();
             }
+            else if ("data".equalsIgnoreCase(object)  &&  path.size() > 2)
+            {   // Get data since serial
+                final ScanData data = scan_server.getScanData(id, path.getLong(2));
+                if ("binary".equalsIgnoreCase(request.getParameter("format")))
+                {
+                    response.setContentType("application/octet-stream");
+                    final ServletOutputStream out = response.getOutputStream();
+                    ScanDataEncoding.write(data, out);
+                    out.flush();
+                }
+                else
+                {
+                    final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+                    doc.appendChild(ServletHelper.createXMLElement(doc, data));
+                    ServletHelper.submitXML(doc, response);
+                }
+            }
             else if ("data".equalsIgnoreCase(object))
             {   // Get data
                 final ScanData data = scan_server.getScanData(id);
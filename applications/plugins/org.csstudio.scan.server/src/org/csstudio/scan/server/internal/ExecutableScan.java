@@ -367,11 +367,23 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     
     /** {@inheritDoc} */
     @Override
-    public synchronized ScanData getScanData() throws Exception
+    public ScanData getScanData() throws Exception
     {
-        if (data_logger == null)
+        // Read without holding the lock, which the scan needs to log data
+        final DataLog logger = getDataLog();
+        if (logger == null)
             return super.getScanData();
-        return data_logger.getScanData();
+        return logger.getScanData();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long last_serial) throws Exception
+    {
+        final DataLog logger = getDataLog();
+        if (logger == null)
+            return super.getScanData(last_serial);
+        return logger.getScanData(last_serial);
     }
     
     /** Callable for executing all commands on the scan,
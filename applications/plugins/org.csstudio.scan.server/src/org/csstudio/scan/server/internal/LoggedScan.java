@@ -77,6 +77,23 @@ public class LoggedScan extends Scan
 	    }
 	}
 
+    /** Get samples that were logged after a given serial.
+     *  @param last_serial Serial of last sample that the caller already has, -1 for all samples
+     *  @return {@link ScanData} with samples that have a serial above <code>last_serial</code>
+     *  @throws Exception on error
+     *  @see #getLastScanDataSerial()
+     */
+    public ScanData getScanData(final long last_serial) throws Exception
+    {
+        try
+        (
+            final DataLog logger = DataLogFactory.getDataLog(this);
+        )
+        {
+            return logger.getScanData(last_serial);
+        }
+    }
+
     // Compare by ID
     @Override
     public boolean equals(final Object obj)
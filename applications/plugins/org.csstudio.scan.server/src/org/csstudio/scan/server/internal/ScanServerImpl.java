@@ -311,6 +311,21 @@ public class ScanServerImpl implements ScanServer
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long id, final long last_serial) throws Exception
+    {
+        try
+        {
+            final LoggedScan scan = scan_engine.getScan(id);
+            return scan.getScanData(last_serial);
+        }
+        catch (Exception ex)
+        {
+            throw new Exception("Error retrieving log data", ex);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateScanProperty(final long id, final long address,
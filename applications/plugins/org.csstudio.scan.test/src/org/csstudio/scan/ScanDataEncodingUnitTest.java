@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The scan engine idea is based on the "ScanEngine" developed
+ * by the Software Services Group (SSG),  Advanced Photon Source,
+ * Argonne National Laboratory,
+ * Copyright (c) 2011 , UChicago Argonne, LLC.
+ *
+ * This implementation, however, contains no SSG "ScanEngine" source code
+ * and is not endorsed by the SSG authors.
+ ******************************************************************************/
+package org.csstudio.scan;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.scan.data.IncrementalScanData;
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataEncoding;
+import org.csstudio.scan.data.ScanSample;
+import org.csstudio.scan.data.ScanSampleFactory;
+import org.csstudio.scan.data.ScanSampleFormatter;
+import org.junit.Test;
+
+/** JUnit test of the {@link ScanDataEncoding}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScanDataEncodingUnitTest
+{
+    private ScanData createData(final int count)
+    {
+        final List<ScanSample> x = new ArrayList<>();
+        final List<ScanSample> y = new ArrayList<>();
+        final List<ScanSample> text = new ArrayList<>();
+        final Date now = new Date();
+        for (int i=0; i<count; ++i)
+        {
+            x.add(ScanSampleFactory.createSample(now, i, Double.valueOf(i)));
+            y.add(ScanSampleFactory.createSample(now, i, 2.0*i, 3.0*i));
+        }
+        text.add(ScanSampleFactory.createSample(now, 0, "Hello", "Dolly"));
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+        device_logs.put("x", x);
+        device_logs.put("y", y);
+        device_logs.put("text", text);
+        return new ScanData(device_logs);
+    }
+
+    private ScanData roundTrip(final ScanData data) throws IOException
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ScanDataEncoding.write(data, buf);
+        return ScanDataEncoding.read(new ByteArrayInputStream(buf.toByteArray()));
+    }
+
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final ScanData data = roundTrip(createData(10));
+        assertThat(data.getDevices().length, equalTo(3));
+        assertThat(data.getSamples("x").size(), equalTo(10));
+        assertThat(data.getSamples("y").get(9).getSerial(), equalTo(9L));
+        assertThat(ScanSampleFormatter.asDouble(data.getSamples("x").get(5)), equalTo(5.0));
+        assertThat((Double) data.getSamples("y").get(5).getValues()[1], equalTo(15.0));
+        assertThat((String) data.getSamples("text").get(0).getValues()[1], equalTo("Dolly"));
+    }
+
+    @Test
+    public void testIncrementalData() throws Exception
+    {
+        final IncrementalScanData data = new IncrementalScanData();
+        assertThat(data.getLastSerial(), equalTo(-1L));
+        assertThat(data.append(roundTrip(createData(5))), equalTo(true));
+        assertThat(data.getLastSerial(), equalTo(4L));
+        final ScanData initial = data.getScanData();
+
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+        final List<ScanSample> samples = new ArrayList<>();
+        samples.add(ScanSampleFactory.createSample(new Date(), 5, 42.0));
+        device_logs.put("x", samples);
+        device_logs.put("z", samples);
+        assertThat(data.append(new ScanData(device_logs)), equalTo(true));
+
+        final ScanData updated = data.getScanData();
+        assertThat(updated.getDevices().length, equalTo(4));
+        assertThat(updated.getSamples("x").size(), equalTo(6));
+        assertThat(updated.getSamples("z").size(), equalTo(1));
+        assertThat(data.getLastSerial(), equalTo(5L));
+        // Data obtained earlier is unchanged
+        assertThat(initial.getDevices().length, equalTo(3));
+        assertThat(initial.getSamples("x").size(), equalTo(5));
+
+        // Nothing to append
+        assertThat(data.append(new ScanData(new HashMap<String, List<ScanSample>>())), equalTo(false));
+
+        // Grow beyond initial array size
+        for (int i=0; i<100; ++i)
+        {
+            final Map<String, List<ScanSample>> more = new HashMap<>();
+            more.put("x", Arrays.asList(ScanSampleFactory.createSample(new Date(), 6+i, (double) i)));
+            data.append(new ScanData(more));
+        }
+        assertThat(data.getScanData().getSamples("x").size(), equalTo(106));
+        assertThat(data.getScanData().getSamples("x").get(105).getSerial(), equalTo(105L));
+        assertThat(updated.getSamples("x").size(), equalTo(6));
+        assertThat(data.getLastSerial(), equalTo(105L));
+    }
+
+    @Test
+    public void testLongText() throws Exception
+    {
+        // Beyond the 64k limit of writeUTF, with 2 and 3 byte UTF-8 characters
+        final StringBuilder buf = new StringBuilder();
+        while (buf.length() < 100000)
+            buf.append("Text \u00b0 \u20ac ");
+        final String text = buf.toString();
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>();
+        device_logs.put(text, Arrays.asList(ScanSampleFactory.createSample(new Date(), 0, "", text)));
+        final ScanData data = roundTrip(new ScanData(device_logs));
+        assertThat(data.getDevices().length, equalTo(1));
+        assertThat(data.getDevices()[0], equalTo(text));
+        final Object[] values = data.getSamples(text).get(0).getValues();
+        assertThat((String) values[0], equalTo(""));
+        assertThat((String) values[1], equalTo(text));
+    }
+
+    @Test(expected=IOException.class)
+    public void testTruncated() throws Exception
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ScanDataEncoding.write(createData(10), buf);
+        final byte[] data = buf.toByteArray();
+        ScanDataEncoding.read(new ByteArrayInputStream(data, 0, data.length - 4));
+    }
+}
@@ -14,6 +14,7 @@ import java.util.logging.Logger;
 
 import org.csstudio.scan.client.ScanClient;
 import org.csstudio.scan.client.ScanInfoModel;
+import org.csstudio.scan.data.IncrementalScanData;
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.server.ScanInfo;
 import org.eclipse.swt.widgets.Display;
@@ -56,6 +57,16 @@ public class PlotDataModel implements Runnable
      */
     private volatile long last_serial = -1;
 
+    /** ID of scan for which <code>scan_data</code> was fetched
+     *  <p>Only accessed by update thread
+     */
+    private long scan_data_id = -1;
+
+    /** Data fetched so far, updated with new samples
+     *  <p>Only accessed by update thread
+     */
+    private IncrementalScanData scan_data = null;
+
     /** Device used for the X axis
      *  SYNC on this
      */
@@ -207,18 +218,20 @@ public class PlotDataModel implements Runnable
                     final long current_serial = client.getLastScanDataSerial(scan.getId());
                     if (last_serial != current_serial)
                     {
-                        final ScanData scan_data = client.getScanData(scan.getId());
+                        // Only fetch new samples of the same scan
+                        if (scan_data == null  ||  scan_data_id != scan.getId())
+                        {
+                            scan_data_id = scan.getId();
+                            scan_data = new IncrementalScanData();
+                        }
+                        client.updateScanData(scan.getId(), scan_data);
                         last_serial = current_serial;
-                        if (scan_data == null)
-                            devices = null;
-                        else
+                        final ScanData current_data = scan_data.getScanData();
+                        devices = current_data.getDevices();
+                        synchronized (this)
                         {
-                            devices = scan_data.getDevices();
-                            synchronized (this)
-                            {
-                                for (PlotDataProvider data : plot_data)
-                                    data.update(scan_data);
-                            }
+                            for (PlotDataProvider data : plot_data)
+                                data.update(current_data);
                         }
                     }
                     // else: Skip fetching the same data. No data.update, no events
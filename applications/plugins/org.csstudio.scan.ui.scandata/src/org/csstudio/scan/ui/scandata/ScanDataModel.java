@@ -14,6 +14,7 @@ import java.util.logging.Logger;
 import org.csstudio.scan.client.ScanClient;
 import org.csstudio.scan.client.ScanInfoModelListener;
 import org.csstudio.scan.client.ScanInfoModel;
+import org.csstudio.scan.data.IncrementalScanData;
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.server.ScanInfo;
 import org.csstudio.scan.server.ScanServerInfo;
@@ -39,6 +40,11 @@ public class ScanDataModel implements ScanInfoModelListener
 	/** Scan client */
 	final private ScanInfoModel scan_info_model;
 
+	/** Samples fetched so far, appended as new samples are logged.
+	 *  Only accessed in scanUpdate()
+	 */
+	final private IncrementalScanData fetched_data = new IncrementalScanData();
+
 	/** Most recent scan data */
 	private ScanData scan_data = null;
 
@@ -93,8 +99,9 @@ public class ScanDataModel implements ScanInfoModelListener
 			if (serial == last_scan_data_serial)
 				return;
 
-			// Get data
-			final ScanData data = client.getScanData(scan_id);
+			// Get new samples, append to data we already have
+			client.updateScanData(scan_id, fetched_data);
+			final ScanData data = fetched_data.getScanData();
 			synchronized (this)
 			{
 				scan_data = data;
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/** Scan data that grows as new samples are appended.
+ *
+ *  <p>Used by clients that monitor a running scan:
+ *  Each update only fetches the samples logged since the last serial,
+ *  and appending them does not copy the samples already held.
+ *  The serial of the last sample is tracked as samples are appended.
+ *
+ *  <p>{@link #getScanData()} provides the current data.
+ *  It shares the sample arrays, but is not affected by samples
+ *  appended later, so it can be handed to other threads.
+ *
+ *  <p>Appending is not thread-safe,
+ *  the data is meant to be updated by one thread.
+ *
+ *  @author Kay Kasemir
+ */
+public class IncrementalScanData
+{
+    /** Append-only array of samples for one device */
+    private static class DeviceSamples
+    {
+        private ScanSample[] samples = new ScanSample[16];
+        private int size = 0;
+
+        void addAll(final List<ScanSample> add)
+        {
+            final int needed = size + add.size();
+            if (needed > samples.length)
+                samples = Arrays.copyOf(samples, Math.max(needed, 2*samples.length));
+            for (ScanSample sample : add)
+                samples[size++] = sample;
+        }
+
+        /** @return List of the samples added so far */
+        List<ScanSample> getSamples()
+        {
+            return new SampleList(samples, size);
+        }
+    }
+
+    /** Read-only list of the first samples in an array
+     *
+     *  <p>Array elements below the size are never changed.
+     *  When samples are added, they are placed beyond the size,
+     *  or into a new array.
+     */
+    private static class SampleList extends AbstractList<ScanSample> implements RandomAccess
+    {
+        final private ScanSample[] samples;
+        final private int size;
+
+        SampleList(final ScanSample[] samples, final int size)
+        {
+            this.samples = samples;
+            this.size = size;
+        }
+
+        @SuppressWarnings("nls")
+        @Override
+        public ScanSample get(final int index)
+        {
+            if (index < 0  ||  index >= size)
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            return samples[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /** Map from device name to samples for that device */
+    final private Map<String, DeviceSamples> device_logs = new HashMap<>();
+
+    /** Serial of last sample, -1 if there are no samples */
+    private long last_serial = -1;
+
+    /** @return Serial of last sample in this data or -1 if there are no samples */
+    public long getLastSerial()
+    {
+        return last_serial;
+    }
+
+    /** Append samples
+     *
+     *  <p>Samples of the update are appended to the samples
+     *  of the same device.
+     *
+     *  @param update {@link ScanData} with samples that are newer than {@link #getLastSerial()}
+     *  @return <code>true</code> if there were samples to append
+     */
+    public boolean append(final ScanData update)
+    {
+        boolean added = false;
+        for (String device : update.getDevices())
+        {
+            final List<ScanSample> samples = update.getSamples(device);
+            if (samples.isEmpty())
+                continue;
+            DeviceSamples device_samples = device_logs.get(device);
+            if (device_samples == null)
+            {
+                device_samples = new DeviceSamples();
+                device_logs.put(device, device_samples);
+            }
+            device_samples.addAll(samples);
+            for (ScanSample sample : samples)
+                if (sample.getSerial() > last_serial)
+                    last_serial = sample.getSerial();
+            added = true;
+        }
+        return added;
+    }
+
+    /** @return {@link ScanData} with the samples appended so far */
+    public ScanData getScanData()
+    {
+        final Map<String, List<ScanSample>> data = new HashMap<>();
+        for (Map.Entry<String, DeviceSamples> entry : device_logs.entrySet())
+            data.put(entry.getKey(), entry.getValue().getSamples());
+        return new ScanData(data);
+    }
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * The scan engine idea is based on the "ScanEngine" developed
+ * by the Software Services Group (SSG),  Advanced Photon Source,
+ * Argonne National Laboratory,
+ * Copyright (c) 2011 , UChicago Argonne, LLC.
+ *
+ * This implementation, however, contains no SSG "ScanEngine" source code
+ * and is not endorsed by the SSG authors.
+ ******************************************************************************/
+package org.csstudio.scan.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Compact binary encoding of {@link ScanData}
+ *
+ *  <p>Used to transfer large numeric scans, where the
+ *  XML representation of each sample is much bigger than
+ *  the sample itself.
+ *
+ *  <p>Encoding:
+ *  <pre>
+ *  byte    version
+ *  int     number of devices
+ *  for each device:
+ *     text    device name
+ *     int     number of samples
+ *     for each sample:
+ *        long    serial
+ *        long    time stamp, milliseconds since epoch
+ *        byte    type, NUMBERS or STRINGS
+ *        int     number of values
+ *        double  value, or text, for each value
+ *  </pre>
+ *  Text is encoded as the count of UTF-8 bytes, followed by the bytes.
+ *  Unlike <code>writeUTF</code>, this is not limited to 64k.
+ *  Counts of text bytes use 7 bits per byte, least significant bits first,
+ *  with the high bit set for all but the last byte.
+ *
+ *  <p>Numbers are decoded as {@link Double}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScanDataEncoding
+{
+    /** Version of the encoding */
+    final private static byte VERSION = 2;
+
+    final private static byte NUMBERS = 0;
+
+    final private static byte STRINGS = 1;
+
+    /** Write scan data
+     *  @param data {@link ScanData}
+     *  @param stream Stream, will be flushed but not closed
+     *  @throws IOException on error
+     */
+    public static void write(final ScanData data, final OutputStream stream) throws IOException
+    {
+        final DataOutputStream out = new DataOutputStream(stream);
+        out.writeByte(VERSION);
+        final String[] devices = data.getDevices();
+        out.writeInt(devices.length);
+        for (String device : devices)
+        {
+            writeString(out, device);
+            final List<ScanSample> samples = data.getSamples(device);
+            out.writeInt(samples.size());
+            for (ScanSample sample : samples)
+                writeSample(out, sample);
+        }
+        out.flush();
+    }
+
+    private static void writeSample(final DataOutputStream out, final ScanSample sample) throws IOException
+    {
+        out.writeLong(sample.getSerial());
+        out.writeLong(sample.getTimestamp().getTime());
+        final Object[] values = sample.getValues();
+        if (sample instanceof NumberScanSample)
+        {
+            out.writeByte(NUMBERS);
+            out.writeInt(values.length);
+            for (Object value : values)
+                out.writeDouble(((Number) value).doubleValue());
+        }
+        else
+        {
+            out.writeByte(STRINGS);
+            out.writeInt(values.length);
+            for (Object value : values)
+                writeString(out, String.valueOf(value));
+        }
+    }
+
+    /** @param out Stream
+     *  @param text Text to write
+     *  @throws IOException on error
+     */
+    private static void writeString(final DataOutputStream out, final String text) throws IOException
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int count = bytes.length;
+        while (count > 0x7F)
+        {
+            out.writeByte((count & 0x7F) | 0x80);
+            count >>>= 7;
+        }
+        out.writeByte(count);
+        out.write(bytes);
+    }
+
+    /** Read scan data
+     *  @param stream Stream, will not be closed
+     *  @return {@link ScanData}
+     *  @throws IOException on error, for example unknown version or truncated data
+     */
+    public static ScanData read(final InputStream stream) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(stream);
+        final byte version = in.readByte();
+        if (version != VERSION)
+            throw new IOException("Cannot decode scan data version " + version);
+        final int device_count = checkCount(in.readInt());
+        final Map<String, List<ScanSample>> device_logs = new HashMap<>(device_count);
+        for (int d=0; d<device_count; ++d)
+        {
+            final String device = readString(in);
+            final int sample_count = checkCount(in.readInt());
+            final List<ScanSample> samples = new ArrayList<>(sample_count);
+            for (int s=0; s<sample_count; ++s)
+                samples.add(readSample(in));
+            device_logs.put(device, samples);
+        }
+        return new ScanData(device_logs);
+    }
+
+    private static ScanSample readSample(final DataInputStream in) throws IOException
+    {
+        final long serial = in.readLong();
+        final Date timestamp = new Date(in.readLong());
+        final byte type = in.readByte();
+        final int count = checkCount(in.readInt());
+        switch (type)
+        {
+        case NUMBERS:
+        {
+            final Number[] numbers = new Number[count];
+            for (int i=0; i<count; ++i)
+                numbers[i] = in.readDouble();
+            return new NumberScanSample(timestamp, serial, numbers);
+        }
+        case STRINGS:
+        {
+            final String[] texts = new String[count];
+            for (int i=0; i<count; ++i)
+                texts[i] = readString(in);
+            return new StringScanSample(timestamp, serial, texts);
+        }
+        default:
+            throw new IOException("Unknown sample type " + type);
+        }
+    }
+
+    /** @param in Stream
+     *  @return Text
+     *  @throws IOException on error
+     */
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        int count = 0, shift = 0, b;
+        do
+        {
+            if (shift > 28)
+                throw new IOException("Invalid text length");
+            b = in.readUnsignedByte();
+            count |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        final byte[] bytes = new byte[checkCount(count)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkCount(final int count) throws IOException
+    {
+        if (count < 0)
+            throw new IOException("Invalid count " + count);
+        return count;
+    }
+}
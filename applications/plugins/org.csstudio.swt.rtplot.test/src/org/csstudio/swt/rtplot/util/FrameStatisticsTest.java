@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/** JUnit test of {@link FrameStatistics}
+ *  @author Kay Kasemir
+ */
+public class FrameStatisticsTest
+{
+    @Test
+    public void testStatistics()
+    {
+        final FrameStatistics stats = new FrameStatistics();
+        final long period = TimeUnit.MILLISECONDS.toNanos(50);
+
+        // 5 requests result in 2 frames
+        for (int i=0; i<5; ++i)
+            stats.requested();
+        stats.drawn(TimeUnit.MILLISECONDS.toNanos(10), period);
+        stats.drawn(TimeUnit.MILLISECONDS.toNanos(70), period);
+        System.out.println(stats);
+
+        assertThat(stats.getRequestCount(), equalTo(5L));
+        assertThat(stats.getFrameCount(), equalTo(2L));
+        assertThat(stats.getDroppedFrameCount(), equalTo(3L));
+        assertThat(stats.getOverrunCount(), equalTo(1L));
+        assertThat(stats.getLastFrameTime(), equalTo(70.0));
+        assertThat(stats.getAverageFrameTime(), equalTo(40.0));
+        assertThat(stats.getMaxFrameTime(), equalTo(70.0));
+
+        stats.reset();
+        assertThat(stats.getFrameCount(), equalTo(0L));
+        assertThat(stats.getAverageFrameTime(), equalTo(0.0));
+    }
+}
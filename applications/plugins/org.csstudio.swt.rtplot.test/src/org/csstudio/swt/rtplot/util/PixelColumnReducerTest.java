@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+
+import org.csstudio.swt.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataColumns;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.SimpleDataItem;
+import org.csstudio.swt.rtplot.internal.util.LinearScreenTransform;
+import org.csstudio.swt.rtplot.internal.util.PixelColumnReducer;
+import org.csstudio.swt.rtplot.internal.util.TimeScreenTransform;
+import org.junit.Test;
+
+/** JUnit test of {@link PixelColumnReducer}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PixelColumnReducerTest
+{
+    @Test
+    public void testReduction()
+    {
+        // 1M samples on 0..1000 screen pixels
+        final int N = 1000000;
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        for (int i=0; i<N; ++i)
+            data.add(new SimpleDataItem<Double>((double) i, Math.sin(i * 0.001)));
+        final LinearScreenTransform x_transform = new LinearScreenTransform();
+        x_transform.config(0.0, (double) N, 0, 1000);
+
+        final PixelColumnReducer<Double> reducer = new PixelColumnReducer<>();
+        final long start = System.nanoTime();
+        reducer.reduce(data, x_transform, 0, 1000, -1000, 2000);
+        final long nanos = System.nanoTime() - start;
+        System.out.println("Reduced " + reducer.getSampleCount() + " samples to " +
+                           reducer.getValueCount() + " points in " + nanos/1e6 + " ms");
+        // At most 4 points per pixel column
+        assertTrue(reducer.getValueCount() <= 4 * 1001);
+        // Points are ordered, first and last sample kept
+        assertThat(reducer.getValue(0), equalTo(Math.sin(0)));
+        assertThat(reducer.getValue(reducer.getValueCount()-1), equalTo(Math.sin((N-1) * 0.001)));
+        for (int i=1; i<reducer.getValueCount(); ++i)
+            assertTrue(reducer.getValueX(i-1) <= reducer.getValueX(i));
+        // No min/max in data
+        assertThat(reducer.getRangeCount(), equalTo(0));
+
+        // Zoom in: Only samples in the visible range are inspected
+        x_transform.config(1000.0, 1100.0, 0, 1000);
+        reducer.reduce(data, x_transform, 0, 1000, -1000, 2000);
+        assertThat(reducer.getSampleCount(), equalTo(101));
+        assertThat(reducer.getValueCount(), equalTo(101));
+    }
+
+    @Test
+    public void testMinMaxAndGaps()
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        // Four samples in pixel 0
+        data.add(new SimpleDataItem<Double>(0.0, 2.0, Double.NaN, 1.0, 3.0, ""));
+        data.add(new SimpleDataItem<Double>(0.1, 5.0, Double.NaN, 4.0, 6.0, ""));
+        data.add(new SimpleDataItem<Double>(0.2, 1.0, Double.NaN, 0.0, 2.0, ""));
+        data.add(new SimpleDataItem<Double>(0.3, 3.0, Double.NaN, 2.0, 4.0, ""));
+        // Gap in pixel 1
+        data.add(new SimpleDataItem<Double>(1.0, Double.NaN));
+        data.add(new SimpleDataItem<Double>(1.1, Double.NaN));
+        // One sample in pixel 2
+        data.add(new SimpleDataItem<Double>(2.0, 7.0));
+        final LinearScreenTransform x_transform = new LinearScreenTransform();
+        x_transform.config(0.0, 10.0, 0, 10);
+
+        final PixelColumnReducer<Double> reducer = new PixelColumnReducer<>();
+        reducer.reduce(data, x_transform, 0, 10, -10, 20);
+        assertThat(reducer.getSampleCount(), equalTo(7));
+
+        // first=2, max=5, min=1, last=3, one gap, 7
+        assertThat(reducer.getValueCount(), equalTo(6));
+        assertThat(reducer.getValue(0), equalTo(2.0));
+        assertThat(reducer.getValue(1), equalTo(5.0));
+        assertThat(reducer.getValue(2), equalTo(1.0));
+        assertThat(reducer.getValue(3), equalTo(3.0));
+        assertTrue(Double.isNaN(reducer.getValue(4)));
+        assertThat(reducer.getValueX(4), equalTo(1));
+        assertThat(reducer.getValue(5), equalTo(7.0));
+
+        // Min/max of pixel 0 combined, then gap
+        assertThat(reducer.getRangeCount(), equalTo(2));
+        assertThat(reducer.getMin(0), equalTo(0.0));
+        assertThat(reducer.getMax(0), equalTo(6.0));
+        assertTrue(Double.isNaN(reducer.getMin(1)));
+    }
+
+    /** Time-based data with primitive columns that counts calls to get() */
+    private static class ColumnData extends ArrayPlotDataProvider<Instant> implements PlotDataColumns
+    {
+        int gets = 0;
+
+        @Override
+        public PlotDataItem<Instant> get(final int index)
+        {
+            ++gets;
+            return super.get(index);
+        }
+
+        private PlotDataItem<Instant> item(final int index)
+        {
+            return super.get(index);
+        }
+
+        @Override
+        public long getEpochNanos(final int index)
+        {
+            final Instant time = item(index).getPosition();
+            return time.getEpochSecond() * 1000000000L + time.getNano();
+        }
+
+        @Override
+        public double getValue(final int index)
+        {
+            return item(index).getValue();
+        }
+
+        @Override
+        public double getStdDev(final int index)
+        {
+            return item(index).getStdDev();
+        }
+
+        @Override
+        public double getMin(final int index)
+        {
+            return item(index).getMin();
+        }
+
+        @Override
+        public double getMax(final int index)
+        {
+            return item(index).getMax();
+        }
+    }
+
+    @Test
+    public void testColumns()
+    {
+        // 10000 samples, 1 ms apart, on 0..100 screen pixels
+        final int N = 10000;
+        final Instant start = Instant.ofEpochSecond(1420070400L);
+        final ColumnData data = new ColumnData();
+        for (int i=0; i<N; ++i)
+            data.add(new SimpleDataItem<Instant>(start.plusMillis(i), i % 100, Double.NaN, i % 100 - 1, i % 100 + 1, ""));
+        final TimeScreenTransform x_transform = new TimeScreenTransform();
+        x_transform.config(start, start.plusMillis(N), 0, 100);
+
+        final PixelColumnReducer<Instant> reducer = new PixelColumnReducer<>();
+        reducer.reduce(data, x_transform, 0, 100, -100, 200);
+        assertThat(reducer.getSampleCount(), equalTo(N));
+        // Samples were read from the columns, get() only used to locate the visible range
+        assertTrue(data.gets < 100);
+
+        // Same result as reading the samples
+        final ArrayPlotDataProvider<Instant> items = new ArrayPlotDataProvider<>();
+        for (int i=0; i<N; ++i)
+            items.add(data.item(i));
+        final PixelColumnReducer<Instant> expected = new PixelColumnReducer<>();
+        expected.reduce(items, x_transform, 0, 100, -100, 200);
+        assertThat(reducer.getValueCount(), equalTo(expected.getValueCount()));
+        for (int i=0; i<expected.getValueCount(); ++i)
+        {
+            assertThat(reducer.getValueX(i), equalTo(expected.getValueX(i)));
+            assertThat(reducer.getValue(i), equalTo(expected.getValue(i)));
+        }
+        assertThat(reducer.getRangeCount(), equalTo(expected.getRangeCount()));
+        for (int i=0; i<expected.getRangeCount(); ++i)
+        {
+            assertThat(reducer.getRangeX(i), equalTo(expected.getRangeX(i)));
+            assertThat(reducer.getMin(i), equalTo(expected.getMin(i)));
+            assertThat(reducer.getMax(i), equalTo(expected.getMax(i)));
+        }
+    }
+}
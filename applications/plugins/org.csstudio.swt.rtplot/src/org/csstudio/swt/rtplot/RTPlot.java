@@ -23,6 +23,7 @@ import org.csstudio.swt.rtplot.internal.ToggleToolbarAction;
 import org.csstudio.swt.rtplot.internal.ToolbarHandler;
 import org.csstudio.swt.rtplot.internal.TraceImpl;
 import org.csstudio.swt.rtplot.undo.UndoableActionManager;
+import org.csstudio.swt.rtplot.util.FrameStatistics;
 import org.eclipse.jface.action.Action;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.FontData;
@@ -292,6 +293,12 @@ public class RTPlot<XTYPE extends Comparable<XTYPE>> extends Composite
         plot.requestUpdate();
     }
 
+    /** @return Frame time and dropped frame statistics for this plot */
+    public FrameStatistics getFrameStatistics()
+    {
+        return plot.getFrameStatistics();
+    }
+
     /** @param trace Trace to which an annotation should be added
      *  @param text Text for the annotation
      */
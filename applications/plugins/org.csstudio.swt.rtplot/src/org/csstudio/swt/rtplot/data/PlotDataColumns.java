@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.data;
+
+/** Primitive access to the samples of a time-based {@link PlotDataProvider}
+ *
+ *  <p>Optional interface for a {@link PlotDataProvider} with
+ *  {@link java.time.Instant} positions.
+ *  When implemented, the plot reads the samples through these methods
+ *  instead of fetching a {@link PlotDataItem} for each sample.
+ *
+ *  <p>Index range and locking are the same as for {@link PlotDataProvider#get(int)}.
+ *
+ *  @author Kay Kasemir
+ */
+public interface PlotDataColumns
+{
+    /** @param index Sample index
+     *  @return Time stamp of sample as nanoseconds since 1970 epoch
+     */
+    public long getEpochNanos(int index);
+
+    /** @param index Sample index
+     *  @return Value, see {@link PlotDataItem#getValue()}
+     */
+    public double getValue(int index);
+
+    /** @param index Sample index
+     *  @return Standard deviation, see {@link PlotDataItem#getStdDev()}
+     */
+    public double getStdDev(int index);
+
+    /** @param index Sample index
+     *  @return Minimum, see {@link PlotDataItem#getMin()}
+     */
+    public double getMin(int index);
+
+    /** @param index Sample index
+     *  @return Maximum, see {@link PlotDataItem#getMax()}
+     */
+    public double getMax(int index);
+}
@@ -94,6 +94,7 @@ public abstract class AxisPart<T extends Comparable<T>> extends PlotPart impleme
     public void setGridVisible(final boolean grid)
     {
         show_grid = grid;
+        requestRefresh();
     }
 
     /** {@inheritDoc} */
@@ -11,10 +11,13 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -28,10 +31,12 @@ import org.csstudio.swt.rtplot.SWTMediaPool;
 import org.csstudio.swt.rtplot.Trace;
 import org.csstudio.swt.rtplot.YAxis;
 import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.internal.util.PixelColumnReducer;
 import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.csstudio.swt.rtplot.undo.ChangeAxisRanges;
 import org.csstudio.swt.rtplot.undo.UndoableActionManager;
 import org.csstudio.swt.rtplot.undo.UpdateAnnotationAction;
+import org.csstudio.swt.rtplot.util.FrameStatistics;
 import org.csstudio.swt.rtplot.util.UpdateThrottle;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
@@ -102,8 +107,32 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
      */
     private volatile Optional<Image> plot_image = Optional.empty();
 
+    /** Layer with background, axes and plot area.
+     *
+     *  <p>Re-used for updates while the axes don't change,
+     *  typically when only the trace data changed.
+     *  Only accessed by updateImageBuffer(), i.e. the UpdateThrottle thread.
+     */
+    private Image background_layer = null;
+
+    /** Trace names, colors etc. that are painted into the background_layer */
+    private List<Object> background_key = new ArrayList<>();
+
+    /** Do axes or plot area need to be re-painted? */
+    final private AtomicBoolean need_background = new AtomicBoolean(true);
+
+    /** Reduced data of each trace, re-used for each update.
+     *  Only accessed by updateImageBuffer().
+     */
+    final private Map<Trace<XTYPE>, PixelColumnReducer<XTYPE>> reduced_traces = new HashMap<>();
+
     final private UpdateThrottle update_throttle;
 
+    /** Update period, used to detect frames that take too long */
+    private volatile long update_period_nanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+    final private FrameStatistics frame_statistics = new FrameStatistics();
+
     final private List<Trace<XTYPE>> traces = new CopyOnWriteArrayList<>();
     final private AxisPart<XTYPE> x_axis;
     final private List<YAxisImpl<XTYPE>> y_axes = new CopyOnWriteArrayList<>();
@@ -155,6 +184,7 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         @Override
         public void refreshPlotPart(final PlotPart plotPart)
         {
+            need_background.set(true);
             updateCursor();
             requestUpdate();
         }
@@ -171,6 +201,7 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         @Override
         public void refreshPlotPart(final PlotPart plotPart)
         {
+            need_background.set(true);
             requestUpdate();
         }
     };
@@ -213,7 +244,7 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         setMouseMode(MouseMode.PAN);
 
         // 50Hz default throttle
-        update_throttle = new UpdateThrottle(50, TimeUnit.MILLISECONDS,
+        update_throttle = new UpdateThrottle(update_period_nanos, TimeUnit.NANOSECONDS,
         () ->
         {
             plot_processor.autoscale();
@@ -365,12 +396,20 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
      */
     public void setUpdateThrottle(final long dormant_time, final TimeUnit unit)
     {
+        update_period_nanos = unit.toNanos(dormant_time);
         update_throttle.setDormantTime(dormant_time, unit);
     }
 
+    /** @return Frame time and dropped frame statistics for this plot */
+    public FrameStatistics getFrameStatistics()
+    {
+        return frame_statistics;
+    }
+
     /** Request a complete redraw of the plot */
     final public void requestUpdate()
     {
+        frame_statistics.requested();
         update_throttle.trigger();
     }
 
@@ -531,38 +570,82 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         plot_area.setBounds(total_left_axes_width, 0, plot_width, y_axis_height);
     }
 
-    /** Draw all components into image buffer */
+    /** Draw all components into image buffer
+     *
+     *  <p>The data of all traces is reduced in parallel,
+     *  then the traces are painted onto the background layer
+     *  with axes and plot area, which is only re-painted when it changed.
+     */
     private void updateImageBuffer()
     {
         final Rectangle area_copy = area;
         if (area_copy.width <= 0  ||  area_copy.height <= 0)
             return;
+        final long start = System.nanoTime();
 
         final Image image = new Image(display, area_copy);
         final GC gc = new GC(image);
 
+        boolean repaint_background = need_background.getAndSet(false);
         if (need_layout.getAndSet(false))
+        {
             computeLayout(gc, area_copy);
+            repaint_background = true;
+        }
 
         final Rectangle plot_bounds = plot_area.getBounds();
 
-        gc.setBackground(media.get(background));
-        gc.fillRectangle(area_copy);
-
         // Fetch x_axis transformation and use that to paint all traces,
         // because X Axis tends to change from scrolling
         // while we're painting traces
-        x_axis.paint(gc, media, label_font, scale_font, plot_bounds);
         final ScreenTransform<XTYPE> x_transform = x_axis.getScreenTransform();
-        for (YAxisImpl<XTYPE> y_axis : y_axes)
-            y_axis.paint(gc, media, label_font, scale_font, plot_bounds);
-
-        gc.setClipping(plot_bounds);
-        plot_area.paint(gc, media);
 
+        // Start to reduce the data of all traces in parallel
+        final List<YAxisImpl<XTYPE>> trace_axes = new ArrayList<>();
+        final List<Trace<XTYPE>> trace_list = new ArrayList<>();
         for (YAxisImpl<XTYPE> y_axis : y_axes)
             for (Trace<XTYPE> trace : y_axis.getTraces())
-                trace_painter.paint(gc, media, plot_area.getBounds(), x_transform, y_axis, trace);
+            {
+                trace_axes.add(y_axis);
+                trace_list.add(trace);
+            }
+        reduced_traces.keySet().retainAll(trace_list);
+        final List<Future<PixelColumnReducer<XTYPE>>> reduced = new ArrayList<>(trace_list.size());
+        for (Trace<XTYPE> trace : trace_list)
+        {
+            PixelColumnReducer<XTYPE> reducer = reduced_traces.get(trace);
+            if (reducer == null)
+            {
+                reducer = new PixelColumnReducer<>();
+                reduced_traces.put(trace, reducer);
+            }
+            reduced.add(plot_processor.reduceTrace(trace, reducer, plot_bounds, x_transform));
+        }
+
+        // Meanwhile, update the background layer if necessary
+        final List<Object> key = getBackgroundKey(area_copy);
+        if (repaint_background  ||  background_layer == null  ||  ! key.equals(background_key))
+            updateBackgroundLayer(area_copy, plot_bounds, key);
+        gc.drawImage(background_layer, 0, 0);
+
+        // Paint traces in their original order as their data becomes available
+        gc.setClipping(plot_bounds);
+        for (int i=0; i<trace_list.size(); ++i)
+        {
+            try
+            {
+                trace_painter.paint(gc, media, plot_bounds, trace_axes.get(i), trace_list.get(i), reduced.get(i).get());
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot paint trace " + trace_list.get(i).getName(), ex);
+            }
+        }
 
         // Annotations use label font
         gc.setFont(label_font);
@@ -581,6 +664,57 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
                 old_image.dispose();
             }
         }
+
+        frame_statistics.drawn(System.nanoTime() - start, update_period_nanos);
+    }
+
+    /** @param area Area of the plot
+     *  @return Key for what's painted in the background layer,
+     *          beyond the axis changes that are reported by their {@link PlotPartListener}
+     */
+    private List<Object> getBackgroundKey(final Rectangle area)
+    {
+        final List<Object> key = new ArrayList<>();
+        key.add(area);
+        key.add(background);
+        key.add(label_font);
+        key.add(scale_font);
+        // Y axis labels show the name and color of their traces
+        for (YAxisImpl<XTYPE> y_axis : y_axes)
+        {
+            key.add(y_axis);
+            for (Trace<XTYPE> trace : y_axis.getTraces())
+            {
+                key.add(trace.getName());
+                key.add(trace.getColor());
+            }
+        }
+        return key;
+    }
+
+    /** Paint background, axes and plot area into new background layer
+     *  @param area Area of the plot
+     *  @param plot_bounds Bounds of the plot area
+     *  @param key Key for the new background layer
+     */
+    private void updateBackgroundLayer(final Rectangle area, final Rectangle plot_bounds, final List<Object> key)
+    {
+        if (background_layer != null)
+            background_layer.dispose();
+        background_layer = new Image(display, area);
+        background_key = key;
+
+        final GC gc = new GC(background_layer);
+        gc.setBackground(media.get(background));
+        gc.fillRectangle(area);
+
+        x_axis.paint(gc, media, label_font, scale_font, plot_bounds);
+        for (YAxisImpl<XTYPE> y_axis : y_axes)
+            y_axis.paint(gc, media, label_font, scale_font, plot_bounds);
+
+        gc.setClipping(plot_bounds);
+        plot_area.paint(gc, media);
+        gc.dispose();
     }
 
     /** PaintListener: {@inheritDoc} */
@@ -744,6 +878,11 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
             {
                 old_image.dispose();
             }
+        if (background_layer != null)
+        {
+            background_layer.dispose();
+            background_layer = null;
+        }
         media.dispose();
     }
 
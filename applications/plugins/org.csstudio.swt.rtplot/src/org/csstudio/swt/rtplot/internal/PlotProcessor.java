@@ -22,14 +22,18 @@ import org.csstudio.swt.rtplot.Axis;
 import org.csstudio.swt.rtplot.AxisRange;
 import org.csstudio.swt.rtplot.Messages;
 import org.csstudio.swt.rtplot.Trace;
+import org.csstudio.swt.rtplot.data.PlotDataColumns;
 import org.csstudio.swt.rtplot.data.PlotDataItem;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
 import org.csstudio.swt.rtplot.data.PlotDataSearch;
 import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.swt.rtplot.internal.util.Log10;
+import org.csstudio.swt.rtplot.internal.util.PixelColumnReducer;
+import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.csstudio.swt.rtplot.undo.AddAnnotationAction;
 import org.csstudio.swt.rtplot.undo.ChangeAxisRanges;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 
 /** Helper for processing traces of a plot
  *  in a thread pool to avoid blocking UI thread.
@@ -66,10 +70,12 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
                 try
                 {
                     final int N = data.size();
+                    final PlotDataColumns columns = data instanceof PlotDataColumns
+                                                  ? (PlotDataColumns) data : null;
                     for (int i=0; i<N; ++i)
                     {
-                        final PlotDataItem<XTYPE> item = data.get(i);
-                        final double value = item.getValue();
+                        final double value = columns != null
+                                           ? columns.getValue(i) : data.get(i).getValue();
                         if (! Double.isFinite(value))
                             continue;
                         if (value < low)
@@ -119,6 +125,23 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
         });
     }
 
+    /** Submit background job to reduce the data of a trace for painting
+     *  @param trace {@link Trace} to reduce
+     *  @param reducer {@link PixelColumnReducer} to use
+     *  @param bounds Bounds within which the trace will be painted
+     *  @param x_transform Coordinate transform used by the x axis
+     *  @return {@link Future} to the reducer, holding the reduced data
+     */
+    public Future<PixelColumnReducer<XTYPE>> reduceTrace(final Trace<XTYPE> trace, final PixelColumnReducer<XTYPE> reducer,
+                                                         final Rectangle bounds, final ScreenTransform<XTYPE> x_transform)
+    {
+        return thread_pool.submit(() ->
+        {
+            TracePainter.reduce(reducer, bounds, x_transform, trace);
+            return reducer;
+        });
+    }
+
     /** Stagger the range of axes */
     public void stagger()
     {
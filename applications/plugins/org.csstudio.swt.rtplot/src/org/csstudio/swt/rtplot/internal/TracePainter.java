@@ -12,9 +12,9 @@ import org.csstudio.swt.rtplot.PointType;
 import org.csstudio.swt.rtplot.SWTMediaPool;
 import org.csstudio.swt.rtplot.Trace;
 import org.csstudio.swt.rtplot.TraceType;
-import org.csstudio.swt.rtplot.data.PlotDataItem;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
 import org.csstudio.swt.rtplot.internal.util.IntList;
+import org.csstudio.swt.rtplot.internal.util.PixelColumnReducer;
 import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
@@ -22,6 +22,10 @@ import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Rectangle;
 
 /** Helper for painting a {@link Trace}
+ *
+ *  <p>The data of traces can be reduced in parallel,
+ *  while a painter instance is used by one thread at a time.
+ *
  *  @param <XTYPE> Data type of horizontal {@link Axis}
  *  @author Kay Kasemir
  */
@@ -46,16 +50,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  lines with the clip region, but this is much easier to implement.
      */
     final private static int OUTSIDE = 1000;
-    private int x_min, x_max, y_min, y_max;
-
-    final private int clipX(final double x)
-    {
-        if (x < x_min)
-            return x_min;
-        if (x > x_max)
-            return x_max;
-        return (int)x;
-    }
+    private int y_min, y_max;
 
     final private int clipY(final int y)
     {
@@ -66,16 +61,44 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         return y;
     }
 
+    /** Reduce the visible samples of a trace to what's needed for each pixel column
+     *
+     *  <p>Holds the lock of the trace data while reducing.
+     *  Does not use any state of the painter, so the data of
+     *  several traces can be reduced in parallel.
+     *
+     *  @param data {@link PixelColumnReducer} to use
+     *  @param bounds Clipping bounds within which the trace will be painted
+     *  @param x_transform Coordinate transform used by the x axis
+     *  @param trace Trace
+     */
+    public static <XTYPE extends Comparable<XTYPE>> void reduce(final PixelColumnReducer<XTYPE> data,
+            final Rectangle bounds, final ScreenTransform<XTYPE> x_transform, final Trace<XTYPE> trace)
+    {
+        final PlotDataProvider<XTYPE> samples = trace.getData();
+        samples.getLock().lock();
+        try
+        {
+            data.reduce(samples, x_transform, bounds.x, bounds.x + bounds.width,
+                        bounds.x - OUTSIDE, bounds.x + bounds.width + OUTSIDE);
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+    }
+
     /** @param gc GC
      *  @param media
      *  @param bounds Clipping bounds within which to paint
-     *  @param x_transform Coordinate transform used by the x axis
-     *  @param trace Trace, has reference to its value axis
+     *  @param y_axis Value axis of the trace
+     *  @param trace Trace
+     *  @param data Data of the trace, reduced for the same bounds
      */
-    final public void paint(final GC gc, final SWTMediaPool media, final Rectangle bounds, final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis, final Trace<XTYPE> trace)
+    final public void paint(final GC gc, final SWTMediaPool media, final Rectangle bounds,
+                            final YAxisImpl<XTYPE> y_axis, final Trace<XTYPE> trace,
+                            final PixelColumnReducer<XTYPE> data)
     {
-        x_min = bounds.x - OUTSIDE;
-        x_max = bounds.x + bounds.width + OUTSIDE;
         y_min = bounds.y - OUTSIDE;
         y_max = bounds.y + bounds.height + OUTSIDE;
 
@@ -91,77 +114,59 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         gc.setAdvanced(true);
         gc.setAntialias(SWT.ON);
 
-        // TODO Optimize drawing
-        //
-        // Determine first sample to draw via PlotDataSearch.findSampleLessOrEqual(),
-        // then end drawing when reaching right end of area.
-        //
-        // Loop only once, performing drawMinMax, drawStdDev, drawValueStaircase in one loop
-        //
-        // For now, main point is that this happens in non-UI thread,
-        // so the slower the better to test UI responsiveness.
-        final PlotDataProvider<XTYPE> data = trace.getData();
-        data.getLock().lock();
-        try
+        final TraceType type = trace.getType();
+        switch (type)
         {
-            final TraceType type = trace.getType();
-            switch (type)
-            {
-            case NONE:
-                break;
-            case AREA:
-                gc.setAlpha(50);
-            	drawMinMaxArea(gc, x_transform, y_axis, data);
-                gc.setAlpha(255);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            case AREA_DIRECT:
-                gc.setAlpha(50);
-                drawMinMaxArea(gc, x_transform, y_axis, data);
-                gc.setAlpha(255);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            case LINES:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
-                gc.setAlpha(50);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                gc.setAlpha(255);
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            case LINES_DIRECT:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
-                gc.setAlpha(50);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                gc.setAlpha(255);
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            case SINGLE_LINE:
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            case SINGLE_LINE_DIRECT:
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
-                break;
-            }
-
-            final PointType point_type = trace.getPointType();
-            switch (point_type)
-            {
-            case NONE:
-                break;
-            case SQUARES:
-            case CIRCLES:
-            case DIAMONDS:
-            case XMARKS:
-            case TRIANGLES:
-                drawPoints(gc, x_transform, y_axis, data, point_type, trace.getPointSize());
-                break;
-            }
+        case NONE:
+            break;
+        case AREA:
+            gc.setAlpha(50);
+        	drawMinMaxArea(gc, y_axis, data);
+            gc.setAlpha(255);
+            drawStdDevLines(gc, y_axis, data, trace.getWidth());
+            drawValueStaircase(gc, y_axis, data, trace.getWidth());
+            break;
+        case AREA_DIRECT:
+            gc.setAlpha(50);
+            drawMinMaxArea(gc, y_axis, data);
+            gc.setAlpha(255);
+            drawStdDevLines(gc, y_axis, data, trace.getWidth());
+            drawValueLines(gc, y_axis, data, trace.getWidth());
+            break;
+        case LINES:
+            drawMinMaxLines(gc, y_axis, data, trace.getWidth());
+            gc.setAlpha(50);
+            drawStdDevLines(gc, y_axis, data, trace.getWidth());
+            gc.setAlpha(255);
+            drawValueStaircase(gc, y_axis, data, trace.getWidth());
+            break;
+        case LINES_DIRECT:
+            drawMinMaxLines(gc, y_axis, data, trace.getWidth());
+            gc.setAlpha(50);
+            drawStdDevLines(gc, y_axis, data, trace.getWidth());
+            gc.setAlpha(255);
+            drawValueLines(gc, y_axis, data, trace.getWidth());
+            break;
+        case SINGLE_LINE:
+            drawValueStaircase(gc, y_axis, data, trace.getWidth());
+            break;
+        case SINGLE_LINE_DIRECT:
+            drawValueLines(gc, y_axis, data, trace.getWidth());
+            break;
         }
-        finally
+
+        final PointType point_type = trace.getPointType();
+        switch (point_type)
         {
-            data.getLock().unlock();
+        case NONE:
+            break;
+        case SQUARES:
+        case CIRCLES:
+        case DIAMONDS:
+        case XMARKS:
+        case TRIANGLES:
+            drawPoints(gc, y_axis, data, point_type, trace.getPointSize());
+            break;
         }
         gc.setLineWidth(old_width);
         gc.setBackground(old_bg);
@@ -170,24 +175,22 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw values of data as staircase line
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      *  @param line_width
      */
     final private void drawValueStaircase(final GC gc,
-            final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data, final int line_width)
     {
         final IntList value_poly = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
+        final int N = data.getValueCount();
         int last_x = -1, last_y = -1;
         gc.setLineWidth(line_width);
         for (int i=0; i<N; ++i)
         {
-        	final PlotDataItem<XTYPE> item = data.get(i);
-        	final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
-        	final double value = item.getValue();
+        	final int x = data.getValueX(i);
+        	final double value = data.getValue(i);
         	if (value_poly.size() > 0  && x != last_x)
         	{   // Staircase from last 'y'..
         	    value_poly.add(x);
@@ -211,24 +214,22 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw values of data as direct line
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      *  @param line_width
      */
     final private void drawValueLines(final GC gc,
-            final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data, final int line_width)
     {
         final IntList value_poly = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
+        final int N = data.getValueCount();
         gc.setLineWidth(line_width);
         int last_x = -1, last_y = -1;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
-            final double value = item.getValue();
+            final int x = data.getValueX(i);
+            final double value = data.getValue(i);
             if (Double.isNaN(value))
                 flushPolyLine(gc, value_poly, line_width);
             else
@@ -247,29 +248,27 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw min/max outline
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      */
     final private void drawMinMaxArea(final GC gc,
-            final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data)
+            final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data)
     {
     	final IntList pos = new IntList(INITIAL_ARRAY_SIZE);
     	final IntList min = new IntList(INITIAL_ARRAY_SIZE);
     	final IntList max = new IntList(INITIAL_ARRAY_SIZE);
 
-        final int N = data.size();
+        final int N = data.getRangeCount();
         for (int i = 0;  i < N;  ++i)
         {
-        	final PlotDataItem<XTYPE> item = data.get(i);
-        	double ymin = item.getMin();
-        	double ymax = item.getMax();
+        	double ymin = data.getMin(i);
+        	double ymax = data.getMax(i);
         	if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
                 flushPolyFill(gc, pos, min, max);
         	else
         	{
-        		final int x1 = clipX(x_transform.transform(item.getPosition()));
+        		final int x1 = data.getRangeX(i);
         		final int y1min = clipY(y_axis.getScreenCoord(ymin));
         		final int y1max = clipY(y_axis.getScreenCoord(ymax));
         		pos.add(x1);
@@ -282,23 +281,21 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw min/max outline
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      */
     final private void drawMinMaxLines(final GC gc,
-            final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data, final int line_width)
     {
         final IntList min = new IntList(INITIAL_ARRAY_SIZE);
         final IntList max = new IntList(INITIAL_ARRAY_SIZE);
 
-        final int N = data.size();
+        final int N = data.getRangeCount();
         for (int i = 0;  i < N;  ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            double ymin = item.getMin();
-            double ymax = item.getMax();
+            double ymin = data.getMin(i);
+            double ymax = data.getMax(i);
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
             {
                 flushPolyLine(gc, min, line_width);
@@ -306,7 +303,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             }
             else
             {
-                final int x1 = clipX(x_transform.transform(item.getPosition()));
+                final int x1 = data.getRangeX(i);
                 final int y1min = clipY(y_axis.getScreenCoord(ymin));
                 final int y1max = clipY(y_axis.getScreenCoord(ymax));
                 min.add(x1);   min.add(y1min);
@@ -319,23 +316,21 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw std. deviation outline
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      *  @param line_width
      */
-    final private void drawStdDevLines(final GC gc, final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+    final private void drawStdDevLines(final GC gc, final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data, final int line_width)
     {
         final IntList lower_poly = new IntList(INITIAL_ARRAY_SIZE);
         final IntList upper_poly = new IntList(INITIAL_ARRAY_SIZE);
 
-        final int N = data.size();
+        final int N = data.getValueCount();
         for (int i = 0;  i < N;  ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            double value = item.getValue();
-            double dev = item.getStdDev();
+            double value = data.getValue(i);
+            double dev = data.getStdDev(i);
             if (Double.isNaN(value) ||  ! (dev > 0))
             {
                 flushPolyLine(gc, lower_poly, line_width);
@@ -343,7 +338,7 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             }
             else
             {
-                final int x = clipX(x_transform.transform(item.getPosition()));
+                final int x = data.getValueX(i);
                 final int low_y = clipY(y_axis.getScreenCoord(value - dev));
                 final int upp_y = clipY(y_axis.getScreenCoord(value + dev));
                 lower_poly.add(x);  lower_poly.add(low_y);
@@ -370,23 +365,21 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
 
     /** Draw values of data as direct line
      *  @param gc GC
-     *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
-     *  @param data Data
+     *  @param data Reduced data
      *  @param point_type
      *  @param size
      */
     final private void drawPoints(final GC gc,
-            final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, PointType point_type, final int size)
+            final YAxisImpl<XTYPE> y_axis,
+            final PixelColumnReducer<XTYPE> data, PointType point_type, final int size)
     {
-        final int N = data.size();
+        final int N = data.getValueCount();
         int last_x = -1, last_y = -1;
         for (int i=0; i<N; ++i)
         {
-            final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
-            final double value = item.getValue();
+            final int x = data.getValueX(i);
+            final double value = data.getValue(i);
             if (!Double.isNaN(value))
             {
                 final int y = clipY(y_axis.getScreenCoord(value));
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.internal.util;
+
+import java.util.Arrays;
+
+/** List of <code>double</code>
+ *
+ *  <p>Fundamentally like <code>List<Double></code>,
+ *  but avoids boxing operations.
+ *
+ *  @author Kay Kasemir
+ */
+public class DoubleList
+{
+    private double[] data;
+    private int size;
+
+    /** @param capacity Initial capacity */
+    public DoubleList(final int capacity)
+    {
+        data = new double[capacity];
+        size = 0;
+    }
+
+    /** @return Size */
+    final public int size()
+    {
+        return size;
+    }
+
+    /** @param value Value to add */
+    final public void add(final double value)
+    {
+        if (size == data.length)
+            data = Arrays.copyOf(data, 2*data.length);
+        data[size++] = value;
+    }
+
+    /** @param index Index of value to get
+     *  @return Value at that index
+     */
+    final public double get(final int index)
+    {
+        return data[index];
+    }
+
+    /** Clear array elements */
+    final public void clear()
+    {
+        size = 0;
+    }
+}
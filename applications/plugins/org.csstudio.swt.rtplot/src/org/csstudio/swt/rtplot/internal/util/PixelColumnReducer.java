@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.internal.util;
+
+import org.csstudio.swt.rtplot.data.PlotDataColumns;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataSearch;
+
+/** Reduce samples to what's visible in each pixel column
+ *
+ *  <p>Locates the samples within the visible horizontal range,
+ *  then passes once over them.
+ *  For each pixel column, only the first, minimum, maximum and last
+ *  value are kept ('M4'), so a line drawn through the remaining
+ *  points covers the same pixels as one drawn through all samples.
+ *  Min/max ranges are combined into one range per pixel column.
+ *  Gaps, i.e. samples with a NaN value or min/max, are preserved.
+ *
+ *  <p>The number of remaining points is thus limited by the
+ *  screen width, not the number of samples.
+ *  Samples need to be ordered by position, as for the {@link PlotDataSearch}.
+ *  Time-based data that implements {@link PlotDataColumns} is read
+ *  through its primitive accessors.
+ *
+ *  <p>Not thread-safe.
+ *
+ *  @param <XTYPE> Data type of horizontal axis
+ *  @author Kay Kasemir
+ */
+public class PixelColumnReducer<XTYPE extends Comparable<XTYPE>>
+{
+    /** Initial list size */
+    private static final int INITIAL_ARRAY_SIZE = 2048;
+
+    /** Value points: Screen x, value (NaN for gap), std. deviation */
+    final private IntList value_x = new IntList(INITIAL_ARRAY_SIZE);
+    final private DoubleList values = new DoubleList(INITIAL_ARRAY_SIZE);
+    final private DoubleList stddevs = new DoubleList(INITIAL_ARRAY_SIZE);
+
+    /** Min/max ranges: Screen x, minimum and maximum (NaN for gap) */
+    final private IntList range_x = new IntList(INITIAL_ARRAY_SIZE);
+    final private DoubleList mins = new DoubleList(INITIAL_ARRAY_SIZE);
+    final private DoubleList maxs = new DoubleList(INITIAL_ARRAY_SIZE);
+
+    /** Number of samples that were inspected */
+    private int sample_count;
+
+    /** Pixel column of current value column, have_value == false if none */
+    private boolean have_value;
+    private int column_x;
+    /** Index, value and std.dev. of first, min, max, last sample in column */
+    final private int[] column_index = new int[4];
+    final private double[] column_value = new double[4];
+    final private double[] column_dev = new double[4];
+    private static final int FIRST = 0, MIN = 1, MAX = 2, LAST = 3;
+
+    /** Pixel column of current min/max range, have_range == false if none */
+    private boolean have_range;
+    private int range_column;
+    private double range_min, range_max;
+
+    /** Reduce samples
+     *
+     *  <p>Caller must hold the lock of the data.
+     *  Results can be read after releasing the lock.
+     *
+     *  @param data Data
+     *  @param x_transform Horizontal transformation
+     *  @param left Left end of visible area in screen coordinates
+     *  @param right Right end of visible area
+     *  @param x_min Minimum screen coordinate, smaller ones are clipped
+     *  @param x_max Maximum screen coordinate
+     */
+    public void reduce(final PlotDataProvider<XTYPE> data, final ScreenTransform<XTYPE> x_transform,
+                       final int left, final int right, final int x_min, final int x_max)
+    {
+        value_x.clear();
+        values.clear();
+        stddevs.clear();
+        range_x.clear();
+        mins.clear();
+        maxs.clear();
+        have_value = false;
+        have_range = false;
+        sample_count = 0;
+
+        final int N = data.size();
+        if (N <= 0)
+            return;
+
+        // Locate visible samples, including one beyond each end
+        // so that lines leave the visible area
+        XTYPE start = x_transform.inverse(left);
+        XTYPE end = x_transform.inverse(right);
+        if (start.compareTo(end) > 0)
+        {
+            final XTYPE tmp = start;
+            start = end;
+            end = tmp;
+        }
+        final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
+        int first = search.findSampleLessOrEqual(data, start);
+        if (first < 0)
+            first = 0;
+        int last = search.findSampleGreaterOrEqual(data, end);
+        if (last < 0)
+            last = N-1;
+
+        // Read primitive columns where supported
+        final PlotDataColumns columns;
+        final TimeScreenTransform time_transform;
+        if (data instanceof PlotDataColumns  &&  x_transform instanceof TimeScreenTransform)
+        {
+            columns = (PlotDataColumns) data;
+            time_transform = (TimeScreenTransform) x_transform;
+        }
+        else
+        {
+            columns = null;
+            time_transform = null;
+        }
+
+        for (int i=first; i<=last; ++i)
+        {
+            final double position, value, dev, min, max;
+            if (columns != null)
+            {
+                position = time_transform.transform(columns.getEpochNanos(i));
+                value = columns.getValue(i);
+                dev = columns.getStdDev(i);
+                min = columns.getMin(i);
+                max = columns.getMax(i);
+            }
+            else
+            {
+                final PlotDataItem<XTYPE> item = data.get(i);
+                position = x_transform.transform(item.getPosition());
+                value = item.getValue();
+                dev = item.getStdDev();
+                min = item.getMin();
+                max = item.getMax();
+            }
+            final long pos = Math.round(position);
+            final int x = (int) (pos < x_min ? x_min : (pos > x_max ? x_max : pos));
+
+            if (Double.isNaN(value))
+            {
+                flushValueColumn();
+                // Keep only the first of consecutive gaps
+                final int n = values.size();
+                if (n <= 0  ||  !Double.isNaN(values.get(n-1)))
+                    addValue(x, Double.NaN, Double.NaN);
+            }
+            else
+                addToValueColumn(i, x, value, dev);
+
+            if (Double.isNaN(min)  ||  Double.isNaN(max))
+            {
+                flushRangeColumn();
+                final int n = mins.size();
+                if (n > 0  &&  !Double.isNaN(mins.get(n-1)))
+                    addRange(x, Double.NaN, Double.NaN);
+            }
+            else
+                addToRangeColumn(x, min, max);
+        }
+        flushValueColumn();
+        flushRangeColumn();
+        sample_count = last - first + 1;
+    }
+
+    /** Add sample to current value column, starting a new one if necessary */
+    private void addToValueColumn(final int index, final int x, final double value, final double dev)
+    {
+        if (have_value  &&  x != column_x)
+            flushValueColumn();
+        if (! have_value)
+        {
+            have_value = true;
+            column_x = x;
+            for (int i=FIRST; i<=LAST; ++i)
+                setColumnPoint(i, index, value, dev);
+            return;
+        }
+        if (value < column_value[MIN])
+            setColumnPoint(MIN, index, value, dev);
+        if (value > column_value[MAX])
+            setColumnPoint(MAX, index, value, dev);
+        setColumnPoint(LAST, index, value, dev);
+    }
+
+    private void setColumnPoint(final int which, final int index, final double value, final double dev)
+    {
+        column_index[which] = index;
+        column_value[which] = value;
+        column_dev[which] = dev;
+    }
+
+    /** Add points of current value column in sample order */
+    private void flushValueColumn()
+    {
+        if (! have_value)
+            return;
+        have_value = false;
+        // FIRST and LAST are first and last by index, sort MIN and MAX
+        final int mid1, mid2;
+        if (column_index[MIN] <= column_index[MAX])
+        {
+            mid1 = MIN;
+            mid2 = MAX;
+        }
+        else
+        {
+            mid1 = MAX;
+            mid2 = MIN;
+        }
+        addColumnPoint(FIRST, -1);
+        addColumnPoint(mid1, column_index[FIRST]);
+        addColumnPoint(mid2, column_index[mid1]);
+        addColumnPoint(LAST, column_index[mid2]);
+    }
+
+    /** @param which Point of current column to add
+     *  @param previous Index of previously added sample, skip if same
+     */
+    private void addColumnPoint(final int which, final int previous)
+    {
+        if (column_index[which] != previous)
+            addValue(column_x, column_value[which], column_dev[which]);
+    }
+
+    private void addValue(final int x, final double value, final double dev)
+    {
+        value_x.add(x);
+        values.add(value);
+        stddevs.add(dev);
+    }
+
+    /** Add min/max to current range column, starting a new one if necessary */
+    private void addToRangeColumn(final int x, final double min, final double max)
+    {
+        if (have_range  &&  x != range_column)
+            flushRangeColumn();
+        if (! have_range)
+        {
+            have_range = true;
+            range_column = x;
+            range_min = min;
+            range_max = max;
+            return;
+        }
+        if (min < range_min)
+            range_min = min;
+        if (max > range_max)
+            range_max = max;
+    }
+
+    /** Add current range column */
+    private void flushRangeColumn()
+    {
+        if (! have_range)
+            return;
+        have_range = false;
+        addRange(range_column, range_min, range_max);
+    }
+
+    private void addRange(final int x, final double min, final double max)
+    {
+        range_x.add(x);
+        mins.add(min);
+        maxs.add(max);
+    }
+
+    /** @return Number of samples that were inspected by the last reduction */
+    public int getSampleCount()
+    {
+        return sample_count;
+    }
+
+    /** @return Number of value points */
+    public int getValueCount()
+    {
+        return value_x.size();
+    }
+
+    /** @param i Value point index
+     *  @return Screen x coordinate
+     */
+    public int getValueX(final int i)
+    {
+        return value_x.get(i);
+    }
+
+    /** @param i Value point index
+     *  @return Value, NaN for gap
+     */
+    public double getValue(final int i)
+    {
+        return values.get(i);
+    }
+
+    /** @param i Value point index
+     *  @return Standard deviation
+     */
+    public double getStdDev(final int i)
+    {
+        return stddevs.get(i);
+    }
+
+    /** @return Number of min/max ranges */
+    public int getRangeCount()
+    {
+        return range_x.size();
+    }
+
+    /** @param i Range index
+     *  @return Screen x coordinate
+     */
+    public int getRangeX(final int i)
+    {
+        return range_x.get(i);
+    }
+
+    /** @param i Range index
+     *  @return Minimum, NaN for gap
+     */
+    public double getMin(final int i)
+    {
+        return mins.get(i);
+    }
+
+    /** @param i Range index
+     *  @return Maximum, NaN for gap
+     */
+    public double getMax(final int i)
+    {
+        return maxs.get(i);
+    }
+}
@@ -46,6 +46,15 @@ public class TimeScreenTransform implements ScreenTransform<Instant>
         return a*x + b;
     }
 
+    /** @param epoch_nanos Time as nanoseconds since 1970 epoch
+     *  @return Returns time transformed into the y range.
+     */
+    public synchronized double transform(final long epoch_nanos)
+    {
+        final double x = Math.floorDiv(epoch_nanos, 1000000000L) + 1e-9*Math.floorMod(epoch_nanos, 1000000000L);
+        return a*x + b;
+    }
+
     /** {@inheritDoc} */
     @Override
     public synchronized Instant inverse(double y)
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Statistics for the frames drawn by a plot.
+ *
+ *  <p>Counts update requests and the frames that were drawn for them.
+ *  Requests that arrive while an update is pending are combined
+ *  into one frame, so the difference is the number of 'dropped' frames.
+ *  Frames that take longer than the update period are counted as 'overruns'.
+ *
+ *  <p>Thread-safe.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FrameStatistics
+{
+    final private AtomicLong requests = new AtomicLong();
+
+    private long frames = 0;
+    private long overruns = 0;
+    private long total_nanos = 0;
+    private long last_nanos = 0;
+    private long max_nanos = 0;
+
+    /** Note a request for a new frame */
+    public void requested()
+    {
+        requests.incrementAndGet();
+    }
+
+    /** Note a completed frame
+     *  @param nanos Time it took to draw the frame in nanoseconds
+     *  @param period_nanos Update period in nanoseconds. Frames that take longer are overruns
+     */
+    public synchronized void drawn(final long nanos, final long period_nanos)
+    {
+        ++frames;
+        total_nanos += nanos;
+        last_nanos = nanos;
+        if (nanos > max_nanos)
+            max_nanos = nanos;
+        if (nanos > period_nanos)
+            ++overruns;
+    }
+
+    /** @return Number of requested frames */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /** @return Number of drawn frames */
+    public synchronized long getFrameCount()
+    {
+        return frames;
+    }
+
+    /** @return Number of requested frames that were combined with others instead of being drawn */
+    public synchronized long getDroppedFrameCount()
+    {
+        return Math.max(0, requests.get() - frames);
+    }
+
+    /** @return Number of frames that took longer than the update period */
+    public synchronized long getOverrunCount()
+    {
+        return overruns;
+    }
+
+    /** @return Time it took to draw the last frame in milliseconds */
+    public synchronized double getLastFrameTime()
+    {
+        return last_nanos / 1e6;
+    }
+
+    /** @return Average time it took to draw a frame in milliseconds */
+    public synchronized double getAverageFrameTime()
+    {
+        return frames > 0 ? total_nanos / 1e6 / frames : 0.0;
+    }
+
+    /** @return Maximum time it took to draw a frame in milliseconds */
+    public synchronized double getMaxFrameTime()
+    {
+        return max_nanos / 1e6;
+    }
+
+    /** Reset all counters */
+    public synchronized void reset()
+    {
+        requests.set(0);
+        frames = overruns = 0;
+        total_nanos = last_nanos = max_nanos = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d frames for %d requests (%d dropped, %d overruns), frame time avg. %.1f ms, max. %.1f ms",
+                             frames, requests.get(), getDroppedFrameCount(), overruns,
+                             getAverageFrameTime(), getMaxFrameTime());
+    }
+}
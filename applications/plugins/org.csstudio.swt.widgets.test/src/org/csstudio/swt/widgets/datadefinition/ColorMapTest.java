@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.datadefinition;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.csstudio.swt.widgets.datadefinition.ColorMap.PredefinedColorMap;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.junit.Test;
+
+/** JUnit test and benchmark of {@link ColorMap#drawImage}
+ *
+ *  <p>Compares the image with one drawn pixel by pixel
+ *  for each type of array wrapper, with and without shrinking.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ColorMapTest {
+	private static final PaletteData PALETTE = new PaletteData(0xff, 0xff00, 0xff0000);
+
+	/** Values -1000 .. 1000 with some out-of-range values */
+	private static double getValue(final int x, final int y) {
+		return 1100 * Math.sin(x * 0.01) * Math.cos(y * 0.02);
+	}
+
+	private static IPrimaryArrayWrapper[] createData(final int width, final int height) {
+		final int N = width * height;
+		final byte[] b = new byte[N];
+		final short[] s = new short[N];
+		final int[] i = new int[N];
+		final long[] l = new long[N];
+		final float[] f = new float[N];
+		final double[] d = new double[N];
+		for (int y=0; y<height; y++)
+			for (int x=0; x<width; x++) {
+				final int n = y*width + x;
+				d[n] = getValue(x, y);
+				f[n] = (float) d[n];
+				l[n] = i[n] = s[n] = (short) d[n];
+				b[n] = (byte) (d[n] / 10);
+			}
+		return new IPrimaryArrayWrapper[] {
+			new ByteArrayWrapper(b), new ShortArrayWrapper(s), new IntArrayWrapper(i),
+			new LongArrayWrapper(l), new FloatArrayWrapper(f), new DoubleArrayWrapper(d),
+			// Wrapper without a specialized kernel
+			new IPrimaryArrayWrapper() {
+				public int getSize() {
+					return d.length;
+				}
+				public double get(int index) {
+					return d[index];
+				}
+			}
+		};
+	}
+
+	/** Draw pixel by pixel, as ColorMap did before it used the {@link ColorMapKernel} */
+	private static ImageData drawReference(final ColorMap map, final IPrimaryArrayWrapper data,
+			final int dataWidth, final int dataHeight, final double max, final double min,
+			final ImageData imageData, final boolean shrink) {
+		map.getColorsLookupTable();
+		final int[] pixels = new int[256];
+		for (int k=0; k<256; k++)
+			pixels[k] = PALETTE.getPixel(map.getColorsLookupTable()[k]);
+		final int width = shrink ? imageData.width : dataWidth;
+		final int height = shrink ? imageData.height : dataHeight;
+		final int x_ratio = (int)((dataWidth<<16)/width) +1;
+		final int y_ratio = (int)((dataHeight<<16)/height) +1;
+		for (int i=0; i<height; i++)
+			for (int j=0; j<width; j++) {
+				final int x2 = shrink ? (j*x_ratio)>>16 : j;
+				final int y2 = shrink ? (i*y_ratio)>>16 : i;
+				int index = (int) ((data.get(y2 * dataWidth + x2) - min) / (max - min) * 255);
+				if (index < 0)
+					index = 0;
+				else if (index > 255)
+					index = 255;
+				imageData.setPixel(j, i, pixels[index]);
+			}
+		return imageData;
+	}
+
+	private void check(final int dataWidth, final int dataHeight, final int width, final int height) {
+		final boolean shrink = width < dataWidth;
+		final ColorMap map = new ColorMap(PredefinedColorMap.JET, true, true);
+		for (IPrimaryArrayWrapper data : createData(dataWidth, dataHeight)) {
+			final ImageData expected = drawReference(map, data, dataWidth, dataHeight, 1000, -1000,
+					new ImageData(width, height, 24, PALETTE), shrink);
+			final ImageData image = map.drawImage(data, dataWidth, dataHeight, 1000, -1000,
+					new ImageData(width, height, 24, PALETTE), shrink);
+			assertArrayEquals(data.getClass().getName(), expected.data, image.data);
+			// Again, using the cached lookup tables
+			final ImageData again = map.drawImage(data, dataWidth, dataHeight, 1000, -1000,
+					new ImageData(width, height, 24, PALETTE), shrink);
+			assertArrayEquals(data.getClass().getName(), expected.data, again.data);
+		}
+	}
+
+	@Test
+	public void testSmallImage() {
+		check(100, 80, 100, 80);
+		check(100, 80, 33, 21);
+	}
+
+	@Test
+	public void testLargeImage() {
+		// Large enough to be drawn in parallel
+		check(1000, 700, 1000, 700);
+		check(1000, 700, 640, 480);
+	}
+
+	@Test
+	public void testOtherDepth() {
+		final ColorMap map = new ColorMap(PredefinedColorMap.GrayScale, true, true);
+		final IPrimaryArrayWrapper data = createData(50, 40)[5];
+		final PaletteData palette = new PaletteData(0xff0000, 0xff00, 0xff);
+		final ImageData expected = drawReference(map, data, 50, 40, 1000, -1000,
+				new ImageData(50, 40, 32, palette), false);
+		final ImageData image = map.drawImage(data, 50, 40, 1000, -1000,
+				new ImageData(50, 40, 32, palette), false);
+		assertArrayEquals(expected.data, image.data);
+	}
+
+	@Test
+	public void benchmark() {
+		final int dataWidth = 2048, dataHeight = 2048;
+		final ColorMap map = new ColorMap(PredefinedColorMap.JET, true, true);
+		final ImageData full = new ImageData(dataWidth, dataHeight, 24, PALETTE);
+		final ImageData shrunk = new ImageData(800, 600, 24, PALETTE);
+		for (IPrimaryArrayWrapper data : createData(dataWidth, dataHeight)) {
+			final String type = data.getClass().getSimpleName();
+			for (int run=0; run<2; run++) {
+				// Second run is after the JIT warmed up
+				long start = System.nanoTime();
+				drawReference(map, data, dataWidth, dataHeight, 1000, -1000, full, false);
+				final double ref_full = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				map.drawImage(data, dataWidth, dataHeight, 1000, -1000, full, false);
+				final double new_full = (System.nanoTime() - start) / 1e6;
+
+				start = System.nanoTime();
+				drawReference(map, data, dataWidth, dataHeight, 1000, -1000, shrunk, true);
+				final double ref_shrunk = (System.nanoTime() - start) / 1e6;
+				start = System.nanoTime();
+				map.drawImage(data, dataWidth, dataHeight, 1000, -1000, shrunk, true);
+				final double new_shrunk = (System.nanoTime() - start) / 1e6;
+				if (run > 0)
+					System.out.println(String.format(
+						"%-20s 2048x2048: %6.1f ms (setPixel: %6.1f ms), shrink to 800x600: %5.1f ms (setPixel: %5.1f ms)",
+						type.length() == 0 ? "IPrimaryArrayWrapper" : type, new_full, ref_full, new_shrunk, ref_shrunk));
+			}
+		}
+	}
+}
@@ -24,6 +24,13 @@ public class ByteArrayWrapper implements IPrimaryArrayWrapper {
 	public void setData(byte[] data) {
 		this.data = data;
 	}
+
+	/**
+	 * @return the wrapped array.
+	 */
+	public byte[] getData() {
+		return data;
+	}
 	
 	public double get(int i) {
 		return data[i];
@@ -86,6 +86,11 @@ public class ColorMap {
 	private PaletteData palette = new PaletteData(0xff, 0xff00, 0xff0000);
 	private double colorMapMin;
 	private double colorMapMax;
+	/** Pixel for each raw byte or short value, cached between frames */
+	private int[] scaledLookupTable;
+	/** The pixelLookupTable, min and max used for the scaledLookupTable */
+	private int[] scaledPixelLookupTable;
+	private double scaledMin, scaledMax;
 	
 	public ColorMap() {
 		colorMap = new LinkedHashMap<Double, RGB>();
@@ -202,47 +207,9 @@ public class ColorMap {
 			min = colorMapMin;
 			max = colorMapMax;
 		}
-			if(shrink){				
-				int height = imageData.height;
-				int width = imageData.width;
-				    // EDIT: added +1 to account for an early rounding problem
-				    int x_ratio = (int)((dataWidth<<16)/width) +1;
-				    int y_ratio = (int)((dataHeight<<16)/height) +1;
-				    //int x_ratio = (int)((w1<<16)/w2) ;
-				    //int y_ratio = (int)((h1<<16)/h2) ;
-				    int x2, y2 ;
-				    for (int i=0;i<height;i++) {
-				        for (int j=0;j<width;j++) {
-				            x2 = ((j*x_ratio)>>16) ;
-				            y2 = ((i*y_ratio)>>16) ;
-				            int index = (int) ((dataArray.get(y2 * dataWidth + x2) - min) / (max - min) * 255);
-							if (index < 0)
-								index = 0;
-							else if (index > 255)
-								index = 255;
-							int pixel = pixelLookupTable[index];
-				            imageData.setPixel(j,i,pixel); ;
-				        }                
-				    }  
-				
-					
-			}else{
-				for (int y = 0; y < dataHeight; y++) {
-					for (int x = 0; x < dataWidth; x++) {
-						// the index of the value in the color table array
-						int index = (int) ((dataArray.get(y * dataWidth + x) - min) / (max - min) * 255);
-						if (index < 0)
-							index = 0;
-						else if (index > 255)
-							index = 255;
-						int pixel = pixelLookupTable[index];
-						imageData.setPixel(x, y, pixel);
-					}
-				}
-			}
-				
-			
-			return imageData;
+		new ColorMapKernel(dataArray, dataWidth, dataHeight, imageData, shrink, min, max,
+				pixelLookupTable, getScaledLookupTable(dataArray, min, max, dataWidth*dataHeight)).draw();
+		return imageData;
 	}
 		
 	/**Calculate the image data from source data based on the color map.
@@ -258,6 +225,39 @@ public class ColorMap {
 			int dataWidth, int dataHeight, double max, double min){
 		return drawImage(new DoubleArrayWrapper(dataArray), dataWidth, dataHeight, max, min, null, false);
 	}
+
+	/**Get the lookup table with the pixel for each raw value of byte or short data.
+	 * The table is kept between frames until the limits or the colors change.
+	 * @param dataArray the source data
+	 * @param max the upper limit of the data in dataArray
+	 * @param min the lower limit of the data in dataArray
+	 * @param pixels number of pixels to draw
+	 * @return the scaled lookup table. null if dataArray holds neither byte nor short data,
+	 * or short data for a small image.
+	 */
+	private synchronized int[] getScaledLookupTable(IPrimaryArrayWrapper dataArray, double min, double max, int pixels){
+		final boolean shortData;
+		// Only worth computing 64k entries for a larger image,
+		// unless it's already cached
+		if(dataArray instanceof ShortArrayWrapper)
+			shortData = true;
+		else if(dataArray instanceof ByteArrayWrapper)
+			shortData = false;
+		else
+			return null;
+		if(scaledLookupTable == null || scaledPixelLookupTable != pixelLookupTable
+				|| scaledLookupTable.length != (shortData ? 0x10000 : 0x100)
+				|| Double.compare(scaledMin, min) != 0 || Double.compare(scaledMax, max) != 0){
+			if(shortData && pixels < 0x10000)
+				return null;
+			scaledLookupTable = ColorMapKernel.createScaledLookupTable(shortData, min, max, pixelLookupTable);
+			scaledPixelLookupTable = pixelLookupTable;
+			scaledMin = min;
+			scaledMax = max;
+		}
+		return scaledLookupTable;
+	}
+	
 	/**
 	 * @param colorTupleArray
 	 * @param keyArray
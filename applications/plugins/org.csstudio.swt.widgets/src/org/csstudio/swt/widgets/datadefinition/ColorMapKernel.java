@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.datadefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.swt.graphics.ImageData;
+
+/**Maps the values of an array to the pixels of an image,
+ * using the pixel lookup table of a {@link ColorMap}.
+ * <p>
+ * For 24 bit images, the pixels are written straight into the
+ * {@link ImageData#data} byte array, row by row, with a loop that is
+ * specialized for each type of {@link IPrimaryArrayWrapper}.
+ * Large images are split into bands of rows that are mapped in parallel.
+ * Other images are mapped via {@link ImageData#setPixel(int, int, int)}.
+ * <p>
+ * Byte and short data can use a 'scaled' lookup table
+ * with the pixel for each possible raw value,
+ * which the {@link ColorMap} keeps between frames.
+ *
+ * @author Kay Kasemir
+ */
+final class ColorMapKernel {
+	/** Images with more pixels are mapped in parallel */
+	private static final int PARALLEL_THRESHOLD = 256*256;
+
+	/** Number of threads used for large images */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	/** Thread pool, created when first needed */
+	private static ExecutorService pool = null;
+
+	private final IPrimaryArrayWrapper dataArray;
+	private final int dataWidth;
+	private final ImageData imageData;
+	/** Size of the image area to fill */
+	private final int width, height;
+	/** Source column for each image column, source row for each image row */
+	private final int[] columns, rows;
+	private final double min, max;
+	private final int[] pixelLookupTable;
+	/** Pixel for each raw byte resp. short value, or null */
+	private final int[] scaledLookupTable;
+
+	/**Initialize
+	 * @param dataArray the source data
+	 * @param dataWidth number of columns of dataArray
+	 * @param dataHeight number of rows of dataArray
+	 * @param imageData the image data to fill
+	 * @param shrink true to scale the data down to the size of the image data,
+	 *        using nearest neighbor scaling
+	 * @param min the lower limit of the data
+	 * @param max the upper limit of the data
+	 * @param pixelLookupTable pixel for each of the 256 color map indices
+	 * @param scaledLookupTable scaled lookup table for byte or short data, or null
+	 * @see #createScaledLookupTable(boolean, double, double, int[])
+	 */
+	ColorMapKernel(final IPrimaryArrayWrapper dataArray, final int dataWidth, final int dataHeight,
+			final ImageData imageData, final boolean shrink, final double min, final double max,
+			final int[] pixelLookupTable, final int[] scaledLookupTable) {
+		this.dataArray = dataArray;
+		this.dataWidth = dataWidth;
+		this.imageData = imageData;
+		this.min = min;
+		this.max = max;
+		this.pixelLookupTable = pixelLookupTable;
+		this.scaledLookupTable = scaledLookupTable;
+		if (shrink) {
+			// Nearest neighbor image scaling as described at
+			// http://tech-algorithm.com/articles/nearest-neighbor-image-scaling/,
+			// with +1 to account for an early rounding problem
+			width = imageData.width;
+			height = imageData.height;
+			final int x_ratio = (int)((dataWidth<<16)/width) +1;
+			final int y_ratio = (int)((dataHeight<<16)/height) +1;
+			columns = new int[width];
+			for (int j=0; j<width; j++)
+				columns[j] = (j*x_ratio)>>16;
+			rows = new int[height];
+			for (int i=0; i<height; i++)
+				rows[i] = (i*y_ratio)>>16;
+		} else {
+			width = dataWidth;
+			height = dataHeight;
+			columns = new int[width];
+			for (int j=0; j<width; j++)
+				columns[j] = j;
+			rows = new int[height];
+			for (int i=0; i<height; i++)
+				rows[i] = i;
+		}
+	}
+
+	/**Create lookup table with the pixel for each raw value of byte or short data
+	 * @param shortData true for short data, false for byte data
+	 * @param min the lower limit of the data
+	 * @param max the upper limit of the data
+	 * @param pixelLookupTable pixel for each of the 256 color map indices
+	 * @return Pixel for each raw value, indexed by <code>value & 0xff</code>
+	 *         resp. <code>value & 0xffff</code>
+	 */
+	static int[] createScaledLookupTable(final boolean shortData, final double min, final double max,
+			final int[] pixelLookupTable) {
+		final int[] table = new int[shortData ? 0x10000 : 0x100];
+		for (int k=0; k<table.length; k++) {
+			final double value = shortData ? (short) k : (byte) k;
+			table[k] = pixelLookupTable[getIndex(value, min, max)];
+		}
+		return table;
+	}
+
+	/**@param value Data value
+	 * @param min the lower limit of the data
+	 * @param max the upper limit of the data
+	 * @return Index 0..255 into the color map lookup table
+	 */
+	private static int getIndex(final double value, final double min, final double max) {
+		final int index = (int) ((value - min) / (max - min) * 255);
+		if (index < 0)
+			return 0;
+		if (index > 255)
+			return 255;
+		return index;
+	}
+
+	/**Map all data into the image */
+	void draw() {
+		if (imageData.depth != 24  ||  THREADS <= 1  ||  width * height < PARALLEL_THRESHOLD) {
+			drawRows(0, height);
+			return;
+		}
+		// Split rows into bands, a few per thread to balance the load
+		final int bands = Math.min(height, 4*THREADS);
+		final List<Future<?>> done = new ArrayList<Future<?>>(bands);
+		for (int b=0; b<bands; b++) {
+			final int first = (int) ((long)height * b / bands);
+			final int last = (int) ((long)height * (b+1) / bands);
+			done.add(getPool().submit(new Runnable() {
+				public void run() {
+					drawRows(first, last);
+				}
+			}));
+		}
+		try {
+			for (Future<?> band : done)
+				band.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Cannot draw image", e.getCause()); //$NON-NLS-1$
+		}
+	}
+
+	/**@return Thread pool for mapping bands of rows */
+	private static synchronized ExecutorService getPool() {
+		if (pool == null)
+			pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				private int count = 0;
+				public synchronized Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "ColorMap" + (++count)); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		return pool;
+	}
+
+	/**Map rows of the image
+	 * @param first Index of first row
+	 * @param last Index after the last row
+	 */
+	private void drawRows(final int first, final int last) {
+		if (imageData.depth != 24) {
+			for (int i=first; i<last; i++) {
+				final int src = rows[i] * dataWidth;
+				for (int j=0; j<width; j++)
+					imageData.setPixel(j, i, pixelLookupTable[getIndex(dataArray.get(src + columns[j]), min, max)]);
+			}
+			return;
+		}
+		final byte[] out = imageData.data;
+		final int bpl = imageData.bytesPerLine;
+		if (dataArray instanceof ByteArrayWrapper) {
+			final byte[] data = ((ByteArrayWrapper) dataArray).getData();
+			final int[] table = scaledLookupTable != null  &&  scaledLookupTable.length == 0x100
+					? scaledLookupTable
+					: createScaledLookupTable(false, min, max, pixelLookupTable);
+			for (int i=first; i<last; i++)
+				drawRow(data, table, rows[i] * dataWidth, out, i * bpl);
+		} else if (dataArray instanceof ShortArrayWrapper) {
+			final short[] data = ((ShortArrayWrapper) dataArray).getData();
+			if (scaledLookupTable != null  &&  scaledLookupTable.length == 0x10000) {
+				for (int i=first; i<last; i++)
+					drawRow(data, scaledLookupTable, rows[i] * dataWidth, out, i * bpl);
+			} else {
+				for (int i=first; i<last; i++)
+					drawRow(data, rows[i] * dataWidth, out, i * bpl);
+			}
+		} else if (dataArray instanceof IntArrayWrapper) {
+			final int[] data = ((IntArrayWrapper) dataArray).getData();
+			for (int i=first; i<last; i++)
+				drawRow(data, rows[i] * dataWidth, out, i * bpl);
+		} else if (dataArray instanceof LongArrayWrapper) {
+			final long[] data = ((LongArrayWrapper) dataArray).getData();
+			for (int i=first; i<last; i++)
+				drawRow(data, rows[i] * dataWidth, out, i * bpl);
+		} else if (dataArray instanceof FloatArrayWrapper) {
+			final float[] data = ((FloatArrayWrapper) dataArray).getData();
+			for (int i=first; i<last; i++)
+				drawRow(data, rows[i] * dataWidth, out, i * bpl);
+		} else if (dataArray instanceof DoubleArrayWrapper) {
+			final double[] data = ((DoubleArrayWrapper) dataArray).getData();
+			for (int i=first; i<last; i++)
+				drawRow(data, rows[i] * dataWidth, out, i * bpl);
+		} else {
+			for (int i=first; i<last; i++)
+				drawRow(dataArray, rows[i] * dataWidth, out, i * bpl);
+		}
+	}
+
+	// Type-specific row loops.
+	// 24 bit pixels are stored in the same byte order as ImageData.setPixel()
+
+	private void drawRow(final byte[] data, final int[] table, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = table[data[src + columns[j]] & 0xff];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final short[] data, final int[] table, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = table[data[src + columns[j]] & 0xffff];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final short[] data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data[src + columns[j]], min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final int[] data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data[src + columns[j]], min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final long[] data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data[src + columns[j]], min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final float[] data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data[src + columns[j]], min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final double[] data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data[src + columns[j]], min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+
+	private void drawRow(final IPrimaryArrayWrapper data, final int src, final byte[] out, int o) {
+		for (int j=0; j<width; j++) {
+			final int pixel = pixelLookupTable[getIndex(data.get(src + columns[j]), min, max)];
+			out[o++] = (byte) (pixel >> 16);
+			out[o++] = (byte) (pixel >> 8);
+			out[o++] = (byte) pixel;
+		}
+	}
+}
@@ -24,6 +24,13 @@ public class FloatArrayWrapper implements IPrimaryArrayWrapper {
 	public void setData(float[] data) {
 		this.data = data;
 	}
+
+	/**
+	 * @return the wrapped array.
+	 */
+	public float[] getData() {
+		return data;
+	}
 	
 	public double get(int i) {
 		return data[i];
@@ -24,6 +24,13 @@ public class ShortArrayWrapper implements IPrimaryArrayWrapper {
 	public void setData(short[] data) {
 		this.data = data;
 	}
+
+	/**
+	 * @return the wrapped array.
+	 */
+	public short[] getData() {
+		return data;
+	}
 	
 	public double get(int i) {
 		return data[i];
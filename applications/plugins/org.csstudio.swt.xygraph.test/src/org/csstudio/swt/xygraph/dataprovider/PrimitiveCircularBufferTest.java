@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.csstudio.swt.xygraph.linearscale.Range;
+import org.junit.Test;
+
+/** JUnit test of {@link PrimitiveCircularBuffer}
+ *  @author Kay Kasemir
+ */
+public class PrimitiveCircularBufferTest {
+
+	/** @return Buffer's y values as text */
+	private String dump(final PrimitiveCircularBuffer buffer) {
+		final StringBuilder buf = new StringBuilder("[");
+		for (int i=0; i<buffer.size(); ++i) {
+			if (i > 0)
+				buf.append(", ");
+			buf.append((int) buffer.getYValue(i));
+		}
+		return buf.append("]").toString();
+	}
+
+	@Test
+	public void testAdd() {
+		final PrimitiveCircularBuffer buffer = new PrimitiveCircularBuffer(5);
+		assertEquals(0, buffer.size());
+		assertNull(buffer.getYRange());
+		for (int i=0; i<10; i++)
+			buffer.add(i, i);
+		assertEquals(5, buffer.size());
+		assertEquals("[5, 6, 7, 8, 9]", dump(buffer));
+		assertEquals(5.0, buffer.getXValue(0), 0.0);
+		assertEquals(0, buffer.getTimestamp(0));
+		assertEquals("", buffer.getInfo(0));
+
+		buffer.clear();
+		assertEquals(0, buffer.size());
+		assertNull(buffer.getXRange());
+	}
+
+	@Test
+	public void testSetBufferSize() {
+		final PrimitiveCircularBuffer buffer = new PrimitiveCircularBuffer(5);
+		for (int i=0; i<2; i++)
+			buffer.add(i, i);
+		// Expand
+		buffer.setBufferSize(8, false);
+		for (int i=0; i<6; i++)
+			buffer.add(i+2, i+2);
+		assertEquals("[0, 1, 2, 3, 4, 5, 6, 7]", dump(buffer));
+		// Shrink
+		buffer.setBufferSize(5, false);
+		assertEquals("[0, 1, 2, 3, 4]", dump(buffer));
+		assertEquals(4.0, buffer.getYRange().getUpper(), 0.0);
+		for (int i=0; i<2; i++)
+			buffer.add(i, i);
+		assertEquals("[2, 3, 4, 0, 1]", dump(buffer));
+		// Clear
+		buffer.setBufferSize(3, true);
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	public void testErrorsAndInfo() {
+		final PrimitiveCircularBuffer buffer = new PrimitiveCircularBuffer(3);
+		buffer.add(1, 2);
+		buffer.add(new Sample(2, 5, 1, 2, 0.5, 0.25, "Info"));
+		buffer.add(3, 4, 1000L);
+
+		final ISample sample = buffer.getSample(1);
+		assertEquals(5.0, sample.getYValue(), 0.0);
+		assertEquals(1.0, sample.getYPlusError(), 0.0);
+		assertEquals(2.0, sample.getYMinusError(), 0.0);
+		assertEquals(0.5, sample.getXPlusError(), 0.0);
+		assertEquals(0.25, sample.getXMinusError(), 0.0);
+		assertEquals("Info", sample.getInfo());
+		assertEquals(0.0, buffer.getYPlusError(0), 0.0);
+		assertEquals("", buffer.getInfo(2));
+		assertEquals(1000L, buffer.getTimestamp(2));
+
+		// Ranges include the errors
+		assertEquals(new Range(2, 6), buffer.getYRange());
+		assertEquals(new Range(1, 3), buffer.getXRange());
+	}
+
+	@Test
+	public void testIncrementalRange() {
+		// Compare incremental range with a rescan of all values
+		final int size = 100;
+		final PrimitiveCircularBuffer buffer = new PrimitiveCircularBuffer(size);
+		for (int i=0; i<10000; ++i) {
+			final double value = (i % 7 == 0) ? Double.NaN : Math.sin(i * 0.37) * (i % 13);
+			buffer.add(i, value);
+			double low = Double.POSITIVE_INFINITY, high = Double.NEGATIVE_INFINITY;
+			for (int j=0; j<buffer.size(); ++j) {
+				final double y = buffer.getYValue(j);
+				if (Double.isNaN(y))
+					continue;
+				low = Math.min(low, y);
+				high = Math.max(high, y);
+			}
+			final Range range = buffer.getYRange();
+			if (Double.isInfinite(low)) {
+				assertNull(range);
+				continue;
+			}
+			assertEquals(low, range.getLower(), 0.0);
+			assertEquals(high, range.getUpper(), 0.0);
+			assertEquals(Math.max(0, i - size + 1), buffer.getXRange().getLower(), 0.0);
+			assertEquals(i, buffer.getXRange().getUpper(), 0.0);
+		}
+	}
+}
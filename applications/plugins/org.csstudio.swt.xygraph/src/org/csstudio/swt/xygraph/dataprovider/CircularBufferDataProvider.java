@@ -9,17 +9,21 @@ package org.csstudio.swt.xygraph.dataprovider;
 
 import java.util.Calendar;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
-import org.csstudio.swt.xygraph.linearscale.Range;
 import org.eclipse.swt.widgets.Display;
 
 
 /**
  * Provides data to a trace. 
+ * <p>
+ * Samples are kept in a {@link PrimitiveCircularBuffer},
+ * so adding samples does not allocate memory and the data range
+ * is maintained incrementally.
  * @author Xihui Chen
  *
  */
-public class CircularBufferDataProvider extends AbstractDataProvider{
+public class CircularBufferDataProvider extends AbstractDataProvider implements IPrimitiveDataProvider{
 	
 	public enum UpdateMode{
 		X_OR_Y("X or Y"),
@@ -68,7 +72,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 		}
 	}
 	
-	private CircularBuffer<ISample> traceData;	
+	private PrimitiveCircularBuffer traceData;	
 	
 	private double currentXData;
 	
@@ -97,11 +101,6 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 	
 	private boolean concatenate_data = true;
 	
-	/**
-	 * this indicates if the max and min of the data need to be recalculated.
-	 */
-	private boolean dataRangedirty = false;
-	
 	private UpdateMode updateMode = UpdateMode.X_AND_Y;
 	
 	private PlotMode plotMode = PlotMode.LAST_N;
@@ -110,7 +109,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 	
 	public CircularBufferDataProvider(boolean chronological) {
 		super(chronological);
-		traceData = new CircularBuffer<ISample>(100);
+		traceData = new PrimitiveCircularBuffer(100);
 		fireUpdate = new Runnable(){
 			public void run() {
 				for(IDataProviderListener listener : listeners){
@@ -229,12 +228,12 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 				if(traceData.size() == 0)
 					newXValue = 0;
 				else
-					newXValue = traceData.getTail().getXValue() +1;
+					newXValue = traceData.getXValue(traceData.size()-1) +1;
 			}					
 		}else{
 			newXValue = currentXData;
 		}
-			traceData.add(new Sample(newXValue, currentYData));
+			traceData.add(newXValue, currentYData);
 			currentXDataChanged = false;
 			currentYDataChanged = false;
 //			currentYDataTimestampChanged = false;
@@ -311,11 +310,11 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 				}
 			else
 				for(int i=1; i<currentYDataArray.length+1; i++){
-					newXValueArray[i-1] = traceData.getTail().getXValue() + i;
+					newXValueArray[i-1] = traceData.getXValue(traceData.size()-1) + i;
 				}
 			for(int i=0; i<Math.min(traceData.getBufferSize(), 
 					Math.min(newXValueArray.length, currentYDataArray.length)); i++){
-				traceData.add(new Sample(newXValueArray[i], currentYDataArray[i]));
+				traceData.add(newXValueArray[i], currentYDataArray[i]);
 			}		
 		}else{			
 			//newXValueArray = currentXDataArray;
@@ -324,7 +323,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 			//just ignore the tail data.
 			for(int i=0; i<Math.min(traceData.getBufferSize(),
 					Math.min(currentXDataArray.length, currentYDataArray.length)); i++){
-				traceData.add(new Sample(currentXDataArray[i], currentYDataArray[i]));
+				traceData.add(currentXDataArray[i], currentYDataArray[i]);
 			}
 		}
 		
@@ -341,7 +340,21 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 	}
 	
 	public Iterator<ISample> iterator() {
-		return traceData.iterator();
+		return new Iterator<ISample>(){
+			private int index=0;
+
+			public boolean hasNext() {
+				return index < traceData.size();
+			}
+			public ISample next() {
+				if(!hasNext())
+					throw new NoSuchElementException();
+				return traceData.getSample(index++);
+			}
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
@@ -381,42 +394,13 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 
 	@Override
 	protected void innerUpdate() {
-		dataRangedirty = true;
+		// Range is updated as samples are added
 	}
 	
 	@Override
     protected void updateDataRange(){
-		if(!dataRangedirty)
-			return;
-		dataRangedirty = false;
-		if(getSize() > 0){
-			double xMin;
-			double xMax;
-			xMin = traceData.getHead().getXValue();
-			xMax = xMin;
-			
-			double yMin;
-			double yMax;
-			yMin = traceData.getHead().getYValue();
-			yMax = yMin;
-			for(ISample dp : traceData){
-				if(xMin > dp.getXValue()-dp.getXMinusError())
-					xMin = dp.getXValue()-dp.getXMinusError();
-				if(xMax < dp.getXValue()+dp.getXPlusError())
-					xMax = dp.getXValue()+ dp.getXPlusError();	
-				
-				if(yMin > dp.getYValue() - dp.getYMinusError())
-					yMin = dp.getYValue() - dp.getYMinusError();
-				if(yMax < dp.getYValue() + dp.getYPlusError())
-					yMax = dp.getYValue() + dp.getYPlusError();	
-			}
-			
-			xDataMinMax = new Range(xMin, xMax);
-			yDataMinMax = new Range(yMin, yMax);
-		}else {
-			xDataMinMax = null;
-			yDataMinMax = null;
-		}
+		xDataMinMax = traceData.getXRange();
+		yDataMinMax = traceData.getYRange();
 	}
 
 	/**
@@ -427,12 +411,24 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 	}
 
 	@Override
-	public ISample getSample(int index) {
-		return traceData.getElement(index);
+	public synchronized ISample getSample(int index) {
+		if(index >= traceData.size())
+			return null;
+		return traceData.getSample(index);
+	}
+
+	@Override
+	public synchronized double getXValue(int index) {
+		return traceData.getXValue(index);
+	}
+
+	@Override
+	public synchronized double getYValue(int index) {
+		return traceData.getYValue(index);
 	}
 
 	@Override
-	public int getSize() {
+	public synchronized int getSize() {
 		return traceData.size();
 	}
 
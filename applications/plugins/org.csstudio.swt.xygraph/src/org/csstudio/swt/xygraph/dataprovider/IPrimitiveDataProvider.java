@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+
+/**
+ * Data provider that offers direct access to the x/y values of its samples.
+ * <p>
+ * The XY Graph uses this to read sample positions, for example when searching
+ * the visible samples of a trace, without creating an {@link ISample} for each one.
+ * The same synchronization as for {@link IDataProvider#getSample(int)} applies.
+ *
+ * @author Kay Kasemir
+ */
+public interface IPrimitiveDataProvider extends IDataProvider {
+
+	/**Get x value of a sample
+	 * @param index Sample index, 0...<code>getSize()-1</code>
+	 * @return X value, same as <code>getSample(index).getXValue()</code>
+	 */
+	public double getXValue(int index);
+
+	/**Get y value of a sample
+	 * @param index Sample index, 0...<code>getSize()-1</code>
+	 * @return Y value, same as <code>getSample(index).getYValue()</code>
+	 */
+	public double getYValue(int index);
+}
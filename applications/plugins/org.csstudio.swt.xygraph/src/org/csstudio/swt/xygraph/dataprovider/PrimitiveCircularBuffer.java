@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+
+import java.util.Arrays;
+
+import org.csstudio.swt.xygraph.linearscale.Range;
+
+/**A circular buffer for samples, kept in columns of primitive arrays.
+ * <p>
+ * Like the {@link CircularBuffer}, new data is appended to the tail of the buffer,
+ * and when the buffer is full, the oldest data is dropped.
+ * Instead of one {@link ISample} object per sample, the x/y values,
+ * error ranges, time stamps and info texts are kept in parallel arrays,
+ * so adding a sample does not allocate any memory.
+ * Error, time stamp and info columns are only allocated once
+ * a sample that uses them is added.
+ * <p>
+ * The minimum and maximum of the x and y values, including their error ranges,
+ * are tracked incrementally as samples are added and dropped,
+ * using one monotonic queue per limit.
+ * NaN values are ignored for the ranges.
+ * <p>
+ * Not synchronized. The {@link CircularBufferDataProvider} synchronizes
+ * on itself, as required by the {@link IDataProvider}.
+ *
+ * @author Kay Kasemir
+ */
+public class PrimitiveCircularBuffer {
+
+	/**Queue of sample sequence numbers for tracking the minimum or maximum
+	 * of a sliding window of values.
+	 * <p>
+	 * Values of the queued samples are strictly increasing (for a minimum)
+	 * or decreasing (for a maximum) from head to tail,
+	 * so the head is always the current minimum or maximum.
+	 */
+	private static class MonotonicQueue {
+		final private boolean maximum;
+		private long[] sequence;
+		private double[] values;
+		private int head = 0;
+		private int count = 0;
+
+		MonotonicQueue(final boolean maximum, final int capacity) {
+			this.maximum = maximum;
+			sequence = new long[capacity];
+			values = new double[capacity];
+		}
+
+		/**@param seq Sequence number of added sample
+		 * @param value Value of the sample
+		 */
+		void add(final long seq, final double value) {
+			if (Double.isNaN(value))
+				return;
+			// Drop queued values that can no longer be the min. resp. max.
+			while (count > 0) {
+				final double last = values[(head + count - 1) % values.length];
+				if (maximum ? last > value : last < value)
+					break;
+				--count;
+			}
+			final int tail = (head + count) % values.length;
+			sequence[tail] = seq;
+			values[tail] = value;
+			++count;
+		}
+
+		/**@param first_seq Sequence number of the oldest sample still in the buffer */
+		void drop(final long first_seq) {
+			while (count > 0  &&  sequence[head] < first_seq) {
+				head = (head + 1) % values.length;
+				--count;
+			}
+		}
+
+		/**@return Minimum resp. maximum, or NaN if there are no values */
+		double get() {
+			return count > 0 ? values[head] : Double.NaN;
+		}
+
+		void clear(final int capacity) {
+			if (values.length != capacity) {
+				sequence = new long[capacity];
+				values = new double[capacity];
+			}
+			head = 0;
+			count = 0;
+		}
+	}
+
+	private int bufferSize;
+	private double[] xValues;
+	private double[] yValues;
+	/** Error columns, allocated for the first sample with errors */
+	private double[] xPlusErrors, xMinusErrors, yPlusErrors, yMinusErrors;
+	/** Time stamps, allocated for the first sample with a time stamp */
+	private long[] timestamps;
+	/** Info texts, allocated for the first sample with info */
+	private String[] infos;
+
+	/** Index of the oldest sample */
+	private int head;
+	/** Number of samples */
+	private int count;
+	/** Sequence number of the next sample to add */
+	private long nextSequence;
+
+	final private MonotonicQueue xMin = new MonotonicQueue(false, 1);
+	final private MonotonicQueue xMax = new MonotonicQueue(true, 1);
+	final private MonotonicQueue yMin = new MonotonicQueue(false, 1);
+	final private MonotonicQueue yMax = new MonotonicQueue(true, 1);
+
+	/**@param bufferSize Maximum number of samples */
+	public PrimitiveCircularBuffer(final int bufferSize) {
+		if(bufferSize <=0)
+			throw new IllegalArgumentException("Buffer size must be greater than zero."); //$NON-NLS-1$
+		this.bufferSize = bufferSize;
+		allocate();
+	}
+
+	/** Allocate empty columns for the current buffer size */
+	private void allocate() {
+		xValues = new double[bufferSize];
+		yValues = new double[bufferSize];
+		xPlusErrors = xMinusErrors = yPlusErrors = yMinusErrors = null;
+		timestamps = null;
+		infos = null;
+		head = 0;
+		count = 0;
+		nextSequence = 0;
+		xMin.clear(bufferSize);
+		xMax.clear(bufferSize);
+		yMin.clear(bufferSize);
+		yMax.clear(bufferSize);
+	}
+
+	/**Add a sample
+	 * @param x X value
+	 * @param y Y value
+	 */
+	public void add(final double x, final double y) {
+		add(x, y, 0, 0, 0, 0, 0, null);
+	}
+
+	/**Add a sample with time stamp
+	 * @param x X value
+	 * @param y Y value
+	 * @param timestamp Time stamp in milliseconds
+	 */
+	public void add(final double x, final double y, final long timestamp) {
+		add(x, y, 0, 0, 0, 0, timestamp, null);
+	}
+
+	/**Add a sample
+	 * @param sample Sample to add, data is copied
+	 */
+	public void add(final ISample sample) {
+		add(sample.getXValue(), sample.getYValue(),
+			sample.getYPlusError(), sample.getYMinusError(),
+			sample.getXPlusError(), sample.getXMinusError(),
+			0, sample.getInfo());
+	}
+
+	/**Add a sample
+	 * @param x X value
+	 * @param y Y value
+	 * @param yPlusError Positive error of y value
+	 * @param yMinusError Negative error of y value
+	 * @param xPlusError Positive error of x value
+	 * @param xMinusError Negative error of x value
+	 * @param timestamp Time stamp in milliseconds, 0 if not known
+	 * @param info Info text, may be <code>null</code>
+	 */
+	public void add(final double x, final double y,
+			final double yPlusError, final double yMinusError,
+			final double xPlusError, final double xMinusError,
+			final long timestamp, final String info) {
+		final int index;
+		if (count == bufferSize) {
+			// Buffer is full, replace the oldest sample
+			index = head;
+			head = (head + 1) % bufferSize;
+		} else
+			index = (head + count++) % bufferSize;
+		xValues[index] = x;
+		yValues[index] = y;
+
+		if (xPlusErrors != null  ||  xPlusError != 0  ||  xMinusError != 0  ||
+			yPlusError != 0  ||  yMinusError != 0) {
+			if (xPlusErrors == null) {
+				xPlusErrors = new double[bufferSize];
+				xMinusErrors = new double[bufferSize];
+				yPlusErrors = new double[bufferSize];
+				yMinusErrors = new double[bufferSize];
+			}
+			xPlusErrors[index] = xPlusError;
+			xMinusErrors[index] = xMinusError;
+			yPlusErrors[index] = yPlusError;
+			yMinusErrors[index] = yMinusError;
+		}
+		if (timestamps != null  ||  timestamp != 0) {
+			if (timestamps == null)
+				timestamps = new long[bufferSize];
+			timestamps[index] = timestamp;
+		}
+		if (infos != null  ||  (info != null  &&  !info.isEmpty())) {
+			if (infos == null)
+				infos = new String[bufferSize];
+			infos[index] = info;
+		}
+
+		// Update ranges
+		final long seq = nextSequence++;
+		final long firstSequence = nextSequence - count;
+		xMin.drop(firstSequence);
+		xMax.drop(firstSequence);
+		yMin.drop(firstSequence);
+		yMax.drop(firstSequence);
+		xMin.add(seq, x - xMinusError);
+		xMax.add(seq, x + xPlusError);
+		yMin.add(seq, y - yMinusError);
+		yMax.add(seq, y + yPlusError);
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Index into the columns
+	 */
+	private int getIndex(final int i) {
+		if (i < 0  ||  i >= count)
+			throw new IndexOutOfBoundsException("Index " + i + ", size " + count); //$NON-NLS-1$ //$NON-NLS-2$
+		return (head + i) % bufferSize;
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return X value
+	 */
+	public double getXValue(final int i) {
+		return xValues[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Y value
+	 */
+	public double getYValue(final int i) {
+		return yValues[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Positive error of x value
+	 */
+	public double getXPlusError(final int i) {
+		return xPlusErrors == null ? 0 : xPlusErrors[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Negative error of x value
+	 */
+	public double getXMinusError(final int i) {
+		return xMinusErrors == null ? 0 : xMinusErrors[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Positive error of y value
+	 */
+	public double getYPlusError(final int i) {
+		return yPlusErrors == null ? 0 : yPlusErrors[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Negative error of y value
+	 */
+	public double getYMinusError(final int i) {
+		return yMinusErrors == null ? 0 : yMinusErrors[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Time stamp in milliseconds, 0 if not known
+	 */
+	public long getTimestamp(final int i) {
+		return timestamps == null ? 0 : timestamps[getIndex(i)];
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return Info text, empty if not known
+	 */
+	public String getInfo(final int i) {
+		if (infos == null)
+			return ""; //$NON-NLS-1$
+		final String info = infos[getIndex(i)];
+		return info == null ? "" : info; //$NON-NLS-1$
+	}
+
+	/**@param i Sample index, 0 for the oldest sample
+	 * @return {@link ISample} for the sample
+	 */
+	public ISample getSample(final int i) {
+		final int index = getIndex(i);
+		if (xPlusErrors == null  &&  infos == null)
+			return new Sample(xValues[index], yValues[index]);
+		return new Sample(xValues[index], yValues[index],
+				getYPlusError(i), getYMinusError(i),
+				getXPlusError(i), getXMinusError(i), getInfo(i));
+	}
+
+	/**@return Range of x values including their errors, or <code>null</code> if there are no values */
+	public Range getXRange() {
+		return getRange(xMin, xMax);
+	}
+
+	/**@return Range of y values including their errors, or <code>null</code> if there are no values */
+	public Range getYRange() {
+		return getRange(yMin, yMax);
+	}
+
+	private Range getRange(final MonotonicQueue min, final MonotonicQueue max) {
+		final double low = min.get(), high = max.get();
+		if (Double.isNaN(low)  ||  Double.isNaN(high))
+			return null;
+		return new Range(low, high);
+	}
+
+	/**@return Number of samples */
+	public int size() {
+		return count;
+	}
+
+	/**@return Maximum number of samples */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**Set the buffer size.
+	 * @param bufferSize the bufferSize to set
+	 * @param clear clear the buffer if true. Otherwise keep the exist data;
+	 * Extra data on the end would be omitted if the new bufferSize is less
+	 * than the exist data count.
+	 */
+	public void setBufferSize(final int bufferSize, final boolean clear) {
+		if(bufferSize <=0)
+			throw new IllegalArgumentException("Buffer size must be greater than zero."); //$NON-NLS-1$
+		if (this.bufferSize == bufferSize)
+			return;
+		if (clear) {
+			this.bufferSize = bufferSize;
+			allocate();
+			return;
+		}
+		// Keep the oldest samples, like CircularBuffer
+		final PrimitiveCircularBuffer old = new PrimitiveCircularBuffer(this);
+		this.bufferSize = bufferSize;
+		allocate();
+		final int keep = Math.min(bufferSize, old.count);
+		for (int i=0; i<keep; ++i)
+			add(old.xValues[i], old.yValues[i],
+				old.getYPlusError(i), old.getYMinusError(i),
+				old.getXPlusError(i), old.getXMinusError(i),
+				old.getTimestamp(i), old.infos == null ? null : old.infos[i]);
+	}
+
+	/**Create copy of other buffer's current columns, with the oldest sample at index 0
+	 * @param other Buffer to copy
+	 */
+	private PrimitiveCircularBuffer(final PrimitiveCircularBuffer other) {
+		bufferSize = other.bufferSize;
+		count = other.count;
+		head = 0;
+		xValues = other.unwrap(other.xValues);
+		yValues = other.unwrap(other.yValues);
+		xPlusErrors = other.unwrap(other.xPlusErrors);
+		xMinusErrors = other.unwrap(other.xMinusErrors);
+		yPlusErrors = other.unwrap(other.yPlusErrors);
+		yMinusErrors = other.unwrap(other.yMinusErrors);
+		if (other.timestamps != null) {
+			timestamps = new long[other.count];
+			for (int i=0; i<other.count; ++i)
+				timestamps[i] = other.timestamps[(other.head + i) % other.bufferSize];
+		}
+		if (other.infos != null) {
+			infos = new String[other.count];
+			for (int i=0; i<other.count; ++i)
+				infos[i] = other.infos[(other.head + i) % other.bufferSize];
+		}
+	}
+
+	/**@param column Column of this buffer, may be <code>null</code>
+	 * @return Copy of the column's samples with the oldest sample at index 0
+	 */
+	private double[] unwrap(final double[] column) {
+		if (column == null)
+			return null;
+		final double[] copy = new double[count];
+		final int first = Math.min(count, bufferSize - head);
+		System.arraycopy(column, head, copy, 0, first);
+		System.arraycopy(column, 0, copy, first, count - first);
+		return copy;
+	}
+
+	/**Clear the buffer, keeping the allocated columns */
+	public void clear() {
+		head = 0;
+		count = 0;
+		nextSequence = 0;
+		if (infos != null)
+			Arrays.fill(infos, null);
+		xMin.clear(bufferSize);
+		xMax.clear(bufferSize);
+		yMin.clear(bufferSize);
+		yMax.clear(bufferSize);
+	}
+}
@@ -18,6 +18,7 @@ import org.csstudio.swt.xygraph.Messages;
 import org.csstudio.swt.xygraph.Preferences;
 import org.csstudio.swt.xygraph.dataprovider.IDataProvider;
 import org.csstudio.swt.xygraph.dataprovider.IDataProviderListener;
+import org.csstudio.swt.xygraph.dataprovider.IPrimitiveDataProvider;
 import org.csstudio.swt.xygraph.dataprovider.ISample;
 import org.csstudio.swt.xygraph.dataprovider.Sample;
 import org.csstudio.swt.xygraph.linearscale.AbstractScale.LabelSide;
@@ -521,7 +522,10 @@ public class Trace extends Figure implements IDataProviderListener,
 			graphics.setAntialias(antiAliasing ? SWT.ON : SWT.OFF);
 		graphics.setForegroundColor(traceColor);
 		graphics.setLineWidth(lineWidth);
-		ISample predp = null;
+		// Previous data point, index of its sample or -1 when computed
+		boolean havePredp = false;
+		double predX = 0, predY = 0;
+		int predIndex = -1;
 		boolean predpInRange = false;
 		Point dpPos = null;
 		hotSampleist.clear();
@@ -563,14 +567,19 @@ public class Trace extends Figure implements IDataProviderListener,
 				Point lastInRegion = null;
 				
 				for (int i = startIndex; i <= endIndex; i++) {
-					ISample dp = traceDataProvider.getSample(i);
-					final boolean dpInXRange = xAxis.getRange().inRange(
-							dp.getXValue());
+					// Read x/y directly. ISample is only fetched for the
+					// hot sample list and where the errors are needed
+					double dpX = getXValue(i);
+					double dpY = getYValue(i);
+					// Index of sample at dpX/dpY, -1 when patched or clipped
+					int dpIndex = i;
+					final boolean dpInXRange = xAxis.getRange().inRange(dpX);
 					// Mark 'NaN' samples on X axis
-					final boolean valueIsNaN = Double.isNaN(dp.getYValue());
+					final boolean valueIsNaN = Double.isNaN(dpY);
 					if (dpInXRange && valueIsNaN) {
+						final ISample dp = traceDataProvider.getSample(i);
 						Point markPos = new Point(
-								xAxis.getValuePosition(dp.getXValue(), false),
+								xAxis.getValuePosition(dpX, false),
 								yAxis.getValuePosition(
 										xAxis.getTickLablesSide() == LabelSide.Primary ? yAxis
 												.getRange().getLower() : yAxis
@@ -580,7 +589,7 @@ public class Trace extends Figure implements IDataProviderListener,
 								markPos.y - MARKER_SIZE / 2, MARKER_SIZE,
 								MARKER_SIZE);
 						Sample nanSample = new Sample(
-								dp.getXValue(),
+								dpX,
 								xAxis.getTickLablesSide() == LabelSide.Primary ? yAxis
 										.getRange().getLower() : yAxis
 										.getRange().getUpper(),
@@ -590,12 +599,12 @@ public class Trace extends Figure implements IDataProviderListener,
 					}
 					// Is data point in the plot area?
 					boolean dpInRange = dpInXRange
-							&& yAxis.getRange().inRange(dp.getYValue());
+							&& yAxis.getRange().inRange(dpY);
 					// draw point
 					if (dpInRange) {
-						dpPos = new Point(xAxis.getValuePosition(
-								dp.getXValue(), false), yAxis.getValuePosition(
-								dp.getYValue(), false));
+						dpPos = new Point(xAxis.getValuePosition(dpX, false),
+								yAxis.getValuePosition(dpY, false));
+						final ISample dp = traceDataProvider.getSample(i);
 						hotSampleist.add(dp);
 						
 						// Do not draw points in the same place to improve performance
@@ -612,94 +621,107 @@ public class Trace extends Figure implements IDataProviderListener,
 
 					// draw line
 					if (traceType == TraceType.BAR) {
+						predX = dpX;
 						switch (baseLine) {
 						case NEGATIVE_INFINITY:
-							predp = new Sample(dp.getXValue(), yAxis.getRange()
-									.getLower());
+							predY = yAxis.getRange().getLower();
 							break;
 						case POSITIVE_INFINITY:
-							predp = new Sample(dp.getXValue(), yAxis.getRange()
-									.getUpper());
+							predY = yAxis.getRange().getUpper();
 							break;
 						default:
-							predp = new Sample(dp.getXValue(), 0);
+							predY = 0;
 							break;
 						}
-						predpInRange = xAxis.getRange().inRange(
-								predp.getXValue())
-								&& yAxis.getRange().inRange(predp.getYValue());
+						predIndex = -1;
+						havePredp = true;
+						predpInRange = xAxis.getRange().inRange(predX)
+								&& yAxis.getRange().inRange(predY);
 					}
-					if (predp == null) { // No previous data point from which to
-											// draw a line
-						predp = dp;
+					if (!havePredp) { // No previous data point from which to
+										// draw a line
+						predX = dpX;
+						predY = dpY;
+						predIndex = i;
 						predpInRange = dpInRange;
+						havePredp = true;
 						continue;
 					}
 
 					// Save original dp info because handling of NaN or
 					// axis intersections might patch it
-					final ISample origin_dp = dp;
+					final double originX = dpX, originY = dpY;
 					final boolean origin_dpInRange = dpInRange;
 
 					// In 'STEP' modes, if there was a value, now there is none,
 					// continue that last value until the NaN location
 					if (valueIsNaN
-							&& !Double.isNaN(predp.getYValue())
+							&& !Double.isNaN(predY)
 							&& (traceType == TraceType.STEP_HORIZONTALLY || traceType == TraceType.STEP_VERTICALLY)) {
 						// Patch 'y' of dp, re-compute dpInRange for new 'y'
-						dp = new Sample(dp.getXValue(), predp.getYValue());
-						dpInRange = yAxis.getRange().inRange(dp.getYValue());
+						dpY = predY;
+						dpIndex = -1;
+						dpInRange = yAxis.getRange().inRange(dpY);
 					}
 
 					if (traceType != TraceType.AREA) {
 						if (!predpInRange && !dpInRange) { // both are out of
 															// plot area
-							ISample[] dpTuple = getIntersection(predp, dp);
+							ISample[] dpTuple = getIntersection(new Sample(predX, predY),
+									new Sample(dpX, dpY));
 							if (dpTuple[0] == null || dpTuple[1] == null) { // no
 																			// intersection
 																			// with
 																			// plot
 																			// area
-								predp = origin_dp;
+								predX = originX;
+								predY = originY;
+								predIndex = i;
 								predpInRange = origin_dpInRange;
 								continue;
 							} else {
-								predp = dpTuple[0];
-								dp = dpTuple[1];
+								predX = dpTuple[0].getXValue();
+								predY = dpTuple[0].getYValue();
+								predIndex = -1;
+								dpX = dpTuple[1].getXValue();
+								dpY = dpTuple[1].getYValue();
+								dpIndex = -1;
 							}
 						} else if (!predpInRange || !dpInRange) { // one in and
 																	// one out
 							// calculate the intersection point with the
 							// boundary of plot area.
+							final ISample intersection = getIntersection(
+									new Sample(predX, predY), new Sample(dpX, dpY))[0];
+							if (intersection == null) { // no intersection
+								predX = originX;
+								predY = originY;
+								predIndex = i;
+								predpInRange = origin_dpInRange;
+								continue;
+							}
 							if (!predpInRange) {
-								predp = getIntersection(predp, dp)[0];
-								if (predp == null) { // no intersection
-									predp = origin_dp;
-									predpInRange = origin_dpInRange;
-									continue;
-								}
+								predX = intersection.getXValue();
+								predY = intersection.getYValue();
+								predIndex = -1;
 							} else {
-								dp = getIntersection(predp, dp)[0];
-								if (dp == null) { // no intersection
-									predp = origin_dp;
-									predpInRange = origin_dpInRange;
-									continue;
-								}
+								dpX = intersection.getXValue();
+								dpY = intersection.getYValue();
+								dpIndex = -1;
 							}
 						}
 					}
 
 					final Point predpPos = new Point(xAxis.getValuePosition(
-							predp.getXValue(), false), yAxis.getValuePosition(
-							predp.getYValue(), false));
-					dpPos = new Point(xAxis.getValuePosition(dp.getXValue(),
-							false), yAxis.getValuePosition(dp.getYValue(),
-							false));
+							predX, false), yAxis.getValuePosition(predY, false));
+					dpPos = new Point(xAxis.getValuePosition(dpX, false),
+							yAxis.getValuePosition(dpY, false));
 
 					if (!dpPos.equals(predpPos)) {
 						if (errorBarEnabled && drawYErrorInArea
 								&& traceType != TraceType.BAR)
-							drawYErrorArea(graphics, predp, dp, predpPos, dpPos);
+							drawYErrorArea(graphics, getPaintSample(predIndex, predX, predY),
+									getPaintSample(dpIndex, dpX, dpY), predpPos, dpPos);
 						
 						switch (traceType) {
 						case SOLID_LINE:
@@ -867,7 +889,9 @@ public class Trace extends Figure implements IDataProviderListener,
 						}
 					}
 
-					predp = origin_dp;
+					predX = originX;
+					predY = originY;
+					predIndex = i;
 					predpInRange = origin_dpInRange;
 				}
 				
@@ -1348,16 +1372,15 @@ public class Trace extends Figure implements IDataProviderListener,
 		double max = axisRange.getUpper() > axisRange.getLower() ? axisRange
 				.getUpper() : axisRange.getLower();
 
-		if (min > traceDataProvider.getSample(traceDataProvider.getSize() - 1)
-				.getXValue()
-				|| max < traceDataProvider.getSample(0).getXValue())
+		if (min > getXValue(traceDataProvider.getSize() - 1)
+				|| max < getXValue(0))
 			return null;
 
 		int lowIndex = 0;
 		int highIndex = traceDataProvider.getSize() - 1;
-		if (min > traceDataProvider.getSample(0).getXValue())
+		if (min > getXValue(0))
 			lowIndex = nearBinarySearchX(min, true);
-		if (max < traceDataProvider.getSample(highIndex).getXValue())
+		if (max < getXValue(highIndex))
 			highIndex = nearBinarySearchX(max, false);
 		return new Range(lowIndex, highIndex);
 	}
@@ -1371,7 +1394,7 @@ public class Trace extends Figure implements IDataProviderListener,
 
 		while (low <= high) {
 			int mid = (low + high) >>> 1;
-			double midVal = traceDataProvider.getSample(mid).getXValue();
+			double midVal = getXValue(mid);
 
 			int cmp;
 			if (midVal < key) {
@@ -1388,8 +1411,7 @@ public class Trace extends Figure implements IDataProviderListener,
 
 			if (cmp < 0) {
 				if (mid < traceDataProvider.getSize() - 1
-						&& key < traceDataProvider.getSample(mid + 1)
-								.getXValue()) {
+						&& key < getXValue(mid + 1)) {
 					if (left)
 						return mid;
 					else
@@ -1400,8 +1422,7 @@ public class Trace extends Figure implements IDataProviderListener,
 
 			else if (cmp > 0) {
 				if (mid > 0
-						&& key > traceDataProvider.getSample(mid - 1)
-								.getXValue())
+						&& key > getXValue(mid - 1))
 					if (left)
 						return mid - 1;
 					else
@@ -1415,6 +1436,38 @@ public class Trace extends Figure implements IDataProviderListener,
 		return -(low + 1); // key not found.
 	}
 
+	/**
+	 * @param index Sample index
+	 * @return X value of the sample, read directly if the data provider supports it
+	 */
+	private double getXValue(final int index) {
+		if (traceDataProvider instanceof IPrimitiveDataProvider)
+			return ((IPrimitiveDataProvider) traceDataProvider).getXValue(index);
+		return traceDataProvider.getSample(index).getXValue();
+	}
+
+	/**
+	 * @param index Sample index
+	 * @return Y value of the sample, read directly if the data provider supports it
+	 */
+	private double getYValue(final int index) {
+		if (traceDataProvider instanceof IPrimitiveDataProvider)
+			return ((IPrimitiveDataProvider) traceDataProvider).getYValue(index);
+		return traceDataProvider.getSample(index).getYValue();
+	}
+
+	/**
+	 * @param index Sample index, -1 for a computed point
+	 * @param x X value of the point
+	 * @param y Y value of the point
+	 * @return Sample of the data provider, or sample without errors for a computed point
+	 */
+	private ISample getPaintSample(final int index, final double x, final double y) {
+		if (index >= 0)
+			return traceDataProvider.getSample(index);
+		return new Sample(x, y);
+	}
+
 	public void axisRevalidated(Axis axis) {
 		repaint();
 	}
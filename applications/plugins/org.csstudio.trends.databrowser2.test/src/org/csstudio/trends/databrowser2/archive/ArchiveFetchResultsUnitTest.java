@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.trends.databrowser2.model.PlotSample;
+import org.csstudio.trends.databrowser2.model.PlotSampleChunks;
+import org.csstudio.trends.databrowser2.model.PlotSampleColumns;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.VType;
+import org.epics.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArchiveFetchResults}
+ *
+ *  <p>Two data sources with overlapping time ranges.
+ *  Samples of the second data source must replace
+ *  those of the first one, no matter which one completes first.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveFetchResultsUnitTest
+{
+    /** @param secs Time stamp in seconds
+     *  @param value Value
+     *  @return Sample
+     */
+    private static VType makeValue(final int secs, final double value)
+    {
+        return ValueFactory.newVDouble(value, ValueFactory.newTime(Timestamp.of(secs, 0)));
+    }
+
+    /** First data source: Values 0..20 at times 0..20 */
+    private static List<VType> getFirstSource()
+    {
+        final List<VType> samples = new ArrayList<>();
+        for (int i=0; i<=20; ++i)
+            samples.add(makeValue(i, i));
+        return samples;
+    }
+
+    /** Second data source: Values 110..130 at times 10..30 */
+    private static List<VType> getSecondSource()
+    {
+        final List<VType> samples = new ArrayList<>();
+        for (int i=10; i<=30; ++i)
+            samples.add(makeValue(i, 100.0 + i));
+        return samples;
+    }
+
+    /** Merge samples like the historic samples of an item
+     *  @param samples Samples to update
+     *  @return {@link ArchiveFetchResults} that merge into the samples
+     */
+    private static ArchiveFetchResults createResults(final PlotSampleChunks samples)
+    {
+        return new ArchiveFetchResults(2, (final String server_name, final List<VType> values, final Optional<Instant> replace_after) ->
+        {
+            final PlotSampleColumns columns = new PlotSampleColumns(server_name, new AtomicInteger(), values.size());
+            for (VType value : values)
+                columns.add(value);
+            samples.merge(columns, replace_after);
+        });
+    }
+
+    /** Check that samples up to time 9 are from the first,
+     *  later samples from the second data source
+     */
+    private static void checkSamples(final PlotSampleChunks samples)
+    {
+        assertEquals(31, samples.size());
+        for (int i=0; i<samples.size(); ++i)
+        {
+            final PlotSample sample = samples.get(i);
+            assertEquals(i, sample.getPosition().getEpochSecond());
+            assertEquals(i < 10 ? i : 100.0 + i, sample.getValue(), 0.001);
+            assertEquals(i < 10 ? "first" : "second", sample.getSource());
+        }
+    }
+
+    @Test
+    public void testInOrder() throws Exception
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        final ArchiveFetchResults results = createResults(samples);
+        results.complete(0, "first", getFirstSource());
+        results.complete(1, "second", getSecondSource());
+        checkSamples(samples);
+    }
+
+    @Test
+    public void testOutOfOrder() throws Exception
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        final ArchiveFetchResults results = createResults(samples);
+        results.complete(1, "second", getSecondSource());
+        results.complete(0, "first", getFirstSource());
+        checkSamples(samples);
+    }
+
+    @Test
+    public void testChunksOutOfOrder() throws Exception
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        final ArchiveFetchResults results = createResults(samples);
+        // First data source publishes chunks of 5 samples,
+        // second one completes while the first one is still fetched
+        final List<VType> first = getFirstSource();
+        final List<VType> received = new ArrayList<>();
+        for (VType value : first)
+        {
+            received.add(value);
+            if (received.size() % 5 == 0)
+                results.publish(0, "first", received);
+            if (received.size() == 12)
+                results.complete(1, "second", getSecondSource());
+        }
+        results.complete(0, "first", received);
+        checkSamples(samples);
+    }
+
+    @Test
+    public void testChunksInOrder() throws Exception
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        final ArchiveFetchResults results = createResults(samples);
+        final List<VType> received = new ArrayList<>();
+        for (VType value : getFirstSource())
+        {
+            received.add(value);
+            if (received.size() % 5 == 0)
+                results.publish(0, "first", received);
+        }
+        results.complete(0, "first", received);
+        results.complete(1, "second", getSecondSource());
+        checkSamples(samples);
+    }
+}
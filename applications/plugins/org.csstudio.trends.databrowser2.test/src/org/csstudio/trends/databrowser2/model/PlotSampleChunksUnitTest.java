@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.junit.Test;
+
+/** JUnit test for PlotSampleChunks
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PlotSampleChunksUnitTest
+{
+    /** @param start First time stamp in seconds
+     *  @param end Last time stamp
+     *  @param value Value for all samples
+     *  @return Samples start, start+1, ..., end
+     */
+    private PlotSampleColumns makeSamples(final int start, final int end, final double value)
+    {
+        final int times[] = new int[end - start + 1];
+        for (int i=0; i<times.length; ++i)
+            times[i] = start + i;
+        return makeSamplesAt(value, times);
+    }
+
+    /** @param value Value for all samples
+     *  @param times Time stamps in seconds
+     *  @return Samples
+     */
+    private PlotSampleColumns makeSamplesAt(final double value, final int... times)
+    {
+        final PlotSampleColumns samples = new PlotSampleColumns("Test", new AtomicInteger(), times.length);
+        for (int time : times)
+            samples.add(new ArchiveVNumber(Timestamp.of(time, 0), AlarmSeverity.NONE, "", null, value));
+        return samples;
+    }
+
+    /** @return Samples as text "time:value, ..." */
+    private String dump(final PlotSampleChunks samples)
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (int i=0; i<samples.size(); ++i)
+        {
+            if (i > 0)
+                buf.append(", ");
+            final PlotSample sample = samples.get(i);
+            buf.append(sample.getPosition().getEpochSecond()).append(':').append((int) sample.getValue());
+        }
+        return buf.toString();
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        assertEquals(0, samples.size());
+
+        samples.merge(makeSamples(10, 14, 1), Optional.empty());
+        assertEquals("10:1, 11:1, 12:1, 13:1, 14:1", dump(samples));
+
+        // Before existing samples
+        samples.merge(makeSamples(7, 8, 2), Optional.empty());
+        assertEquals("7:2, 8:2, 10:1, 11:1, 12:1, 13:1, 14:1", dump(samples));
+
+        // Within existing samples, replacing them
+        samples.merge(makeSamples(11, 12, 3), Optional.empty());
+        assertEquals("7:2, 8:2, 10:1, 11:3, 12:3, 13:1, 14:1", dump(samples));
+
+        // Overlapping the end
+        samples.merge(makeSamples(14, 16, 4), Optional.empty());
+        assertEquals("7:2, 8:2, 10:1, 11:3, 12:3, 13:1, 14:4, 15:4, 16:4", dump(samples));
+
+        // Covering everything
+        samples.merge(makeSamples(0, 20, 5), Optional.empty());
+        assertEquals(21, samples.size());
+        assertEquals(1, samples.getChunkCount());
+
+        samples.clear();
+        assertEquals(0, samples.size());
+    }
+
+    @Test
+    public void testChunkedMerge()
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        samples.merge(makeSamples(0, 10, 1), Optional.empty());
+
+        // New request for 2..8 arrives in chunks.
+        // Old samples between chunks must also be replaced
+        samples.merge(makeSamplesAt(2, 2, 3), Optional.empty());
+        samples.merge(makeSamplesAt(2, 6, 8), Optional.of(Instant.ofEpochSecond(3)));
+        assertEquals("0:1, 1:1, 2:2, 3:2, 6:2, 8:2, 9:1, 10:1", dump(samples));
+    }
+
+    @Test
+    public void testSearch()
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        samples.merge(makeSamples(0, 4, 1), Optional.empty());
+        samples.merge(makeSamples(5, 9, 1), Optional.empty());
+        assertEquals(2, samples.getChunkCount());
+        assertEquals(-1, samples.findSampleLessThan(Instant.ofEpochSecond(0)));
+        assertEquals(4, samples.findSampleLessThan(Instant.ofEpochSecond(5)));
+        assertEquals(9, samples.findSampleLessThan(Instant.ofEpochSecond(100)));
+    }
+
+    @Test
+    public void testManyChunks()
+    {
+        final PlotSampleChunks samples = new PlotSampleChunks();
+        final int chunks = 5000, per_chunk = 10;
+        for (int c=0; c<chunks; ++c)
+            samples.merge(makeSamples(c*per_chunk, (c+1)*per_chunk - 1, c), Optional.empty());
+        assertEquals(chunks * per_chunk, samples.size());
+        for (int i=0; i<samples.size(); ++i)
+            assertEquals(i, samples.get(i).getPosition().getEpochSecond());
+    }
+}
@@ -10,7 +10,10 @@ package org.csstudio.trends.databrowser2.archive;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
@@ -52,6 +55,20 @@ public class ArchiveFetchJob extends Job
     /** Listener that's notified when (if) we completed OK */
     final private ArchiveFetchJobListener listener;
 
+    /** Limits of concurrent requests per data server URL,
+     *  shared by all fetch jobs
+     */
+    final private static ConcurrentHashMap<String, Semaphore> server_limits = new ConcurrentHashMap<>();
+
+    /** @param url Data server URL
+     *  @return Semaphore that limits the concurrent requests to that server
+     */
+    private static Semaphore getServerLimit(final String url)
+    {
+        return server_limits.computeIfAbsent(url,
+                key -> new Semaphore(Preferences.getConcurrentRequests(), true));
+    }
+
     /** Thread that performs the actual background work.
      *
      *  Instead of directly accessing the archive, ArchiveFetchJob launches
@@ -59,16 +76,24 @@ public class ArchiveFetchJob extends Job
      *  can then poll the progress monitor for cancellation and if
      *  necessary interrupt the WorkerThread which might be 'stuck'
      *  in a long running operation.
+     *
+     *  All archive data sources of the item are queried in parallel,
+     *  limited by the number of concurrent requests per data server.
+     *  Samples are merged as soon as a data source completes,
+     *  in the order of the data sources, see {@link ArchiveFetchResults}.
      */
     class WorkerThread implements Runnable
     {
         private String message = ""; //$NON-NLS-1$
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried.
-         *  Synchronize 'this' on access.
+        /** Archive readers that are currently queried.
+         *  Synchronize on access.
          */
-        private ArchiveReader reader = null;
+        final private List<ArchiveReader> readers = new ArrayList<>();
+
+        /** Samples of the archive data sources */
+        private volatile ArchiveFetchResults results;
 
         /** @return Message that somehow indicates progress */
         public synchronized String getMessage()
@@ -77,12 +102,12 @@ public class ArchiveFetchJob extends Job
         }
 
         /** Request thread to cancel its operation */
-        public synchronized void cancel()
+        public void cancel()
         {
             cancelled = true;
-            synchronized (this)
+            synchronized (readers)
             {
-                if (reader != null)
+                for (ArchiveReader reader : readers)
                     reader.cancel();
             }
         }
@@ -93,64 +118,120 @@ public class ArchiveFetchJob extends Job
         {
             Activator.getLogger().log(Level.FINE, "Starting {0}", ArchiveFetchJob.this); //$NON-NLS-1$
             final int bins = Preferences.getPlotBins();
+            final int chunk_size = Preferences.getArchiveFetchChunkSize();
             final ArchiveDataSource archives[] = item.getArchiveDataSources();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            results = new ArchiveFetchResults(archives.length, item::mergeArchivedSamples);
+            if (archives.length == 1)
+                fetch(archives, 0, bins, chunk_size);
+            else
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
+                final List<Future<?>> fetches = new ArrayList<>(archives.length);
+                for (int i=0; i<archives.length; ++i)
+                {
+                    final int index = i;
+                    fetches.add(Activator.getThreadPool().submit(() -> fetch(archives, index, bins, chunk_size)));
+                }
+                for (Future<?> fetch : fetches)
+                {
+                    try
+                    {
+                        fetch.get();
+                    }
+                    catch (Exception ex)
+                    {
+                        Activator.getLogger().log(Level.WARNING, "Archive fetch failed for " + item.getName(), ex); //$NON-NLS-1$
+                    }
+                }
+            }
+            results.close();
+            if (!cancelled)
+                listener.fetchCompleted(ArchiveFetchJob.this);
+            Activator.getLogger().log(Level.FINE, "Ended {0}", ArchiveFetchJob.this); //$NON-NLS-1$
+        }
+
+        /** Fetch samples from one archive data source
+         *  @param archives All archive data sources of the item
+         *  @param index Index of the data source to fetch
+         *  @param bins Number of bins for optimized requests
+         *  @param chunk_size Number of samples to merge while still fetching, 0 to merge all at the end
+         */
+        private void fetch(final ArchiveDataSource archives[], final int index, final int bins,
+                           final int chunk_size)
+        {
+            final ArchiveDataSource archive = archives[index];
+            final String url = archive.getUrl();
+            // Wait for permission to query the data server
+            final Semaphore limit = getServerLimit(url);
+            try
+            {
+                while (! limit.tryAcquire(POLL_PERIOD_MS, TimeUnit.MILLISECONDS))
+                    if (cancelled)
+                        return;
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            ArchiveReader the_reader = null;
+            try
+            {
+                if (cancelled)
+                    return;
                 // Display "N/total", using '1' for the first sub-archive.
-                synchronized  (this)
+                synchronized (this)
                 {
                     message = NLS.bind(Messages.ArchiveFetchDetailFmt,
                             new Object[]
                             {
                                 archive.getName(),
-                                (i+1),
+                                (index+1),
                                 archives.length
                             });
                 }
-                try
+                the_reader = ArchiveRepository.getInstance().getArchiveReader(url);
+                synchronized (readers)
                 {
-                    final ArchiveReader the_reader;
-                    synchronized (this)
-                    {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
-                    }
-                    final ValueIterator value_iter;
-                    if (item.getRequestType() == RequestType.RAW)
-                        value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
-                                                             TimeHelper.toTimestamp(start), TimeHelper.toTimestamp(end));
-                    else
-                        value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
-                                                                   TimeHelper.toTimestamp(start), TimeHelper.toTimestamp(end), bins);
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
+                    readers.add(the_reader);
                 }
-                catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
+                final ValueIterator value_iter;
+                if (item.getRequestType() == RequestType.RAW)
+                    value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
+                                                         TimeHelper.toTimestamp(start), TimeHelper.toTimestamp(end));
+                else
+                    value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
+                                                               TimeHelper.toTimestamp(start), TimeHelper.toTimestamp(end), bins);
+                // Get samples into array.
+                // With a chunk size, publish each chunk as it arrives
+                // so the plot can update while the request continues.
+                final List<VType> result = new ArrayList<VType>();
+                while (value_iter.hasNext()  &&  !cancelled)
+                {
+                    result.add(value_iter.next());
+                    if (chunk_size > 0  &&  result.size() % chunk_size == 0)
+                        results.publish(index, the_reader.getServerName(), result);
                 }
-                finally
+                value_iter.close();
+                if (! cancelled)
+                    results.complete(index, the_reader.getServerName(), result);
+            }
+            catch (Exception ex)
+            {   // Tell listener unless it's the result of a 'cancel'?
+                if (! cancelled)
+                    listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
+                // Other data sources continue
+            }
+            finally
+            {
+                if (the_reader != null)
                 {
-                    synchronized (this)
+                    synchronized (readers)
                     {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
+                        readers.remove(the_reader);
                     }
+                    the_reader.close();
                 }
+                limit.release();
             }
-            if (!cancelled)
-                listener.fetchCompleted(ArchiveFetchJob.this);
-            Activator.getLogger().log(Level.FINE, "Ended {0}", ArchiveFetchJob.this); //$NON-NLS-1$
         }
 
         @SuppressWarnings("nls")
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.model.TimeHelper;
+import org.epics.vtype.VType;
+
+/** Samples of the archive data sources of an item,
+ *  merged in the order of the data sources.
+ *
+ *  <p>Where their time ranges overlap, samples of data sources
+ *  that are listed later replace those of earlier data sources.
+ *  Data sources may complete in any order.
+ *  If a data source completes after a later one,
+ *  its samples are merged again in full,
+ *  followed by those of the later data sources.
+ *
+ *  <p>While a data source is still being fetched,
+ *  the samples received so far can be published in chunks.
+ *
+ *  @author Kay Kasemir
+ */
+class ArchiveFetchResults
+{
+    /** Merges samples into the item */
+    @FunctionalInterface
+    interface Merger
+    {
+        /** @param server_name Name of the data server
+         *  @param samples Samples to merge
+         *  @param replace_after Time of the last sample in the previous chunk
+         *                       of the same data source, or empty
+         */
+        public void merge(String server_name, List<VType> samples, Optional<Instant> replace_after);
+    }
+
+    final private Merger merger;
+
+    /** Samples of each data source once completed, <code>null</code> before.
+     *  <code>null</code> when closed.
+     */
+    private List<VType>[] results;
+
+    /** Server names of each completed data source */
+    final private String[] server_names;
+
+    /** Number of samples of each data source that have been published in chunks */
+    final private int[] published;
+
+    /** @param sources Number of data sources
+     *  @param merger {@link Merger} for the samples
+     */
+    @SuppressWarnings("unchecked")
+    public ArchiveFetchResults(final int sources, final Merger merger)
+    {
+        this.merger = merger;
+        results = new List[sources];
+        server_names = new String[sources];
+        published = new int[sources];
+    }
+
+    /** Publish samples of a data source that is still being fetched
+     *  @param index Index of the data source
+     *  @param server_name Name of the data server
+     *  @param samples All samples received so far.
+     *                 Samples that were already published are skipped.
+     */
+    public synchronized void publish(final int index, final String server_name, final List<VType> samples)
+    {
+        if (results == null  ||  samples.size() <= published[index])
+            return;
+        merger.merge(server_name, samples.subList(published[index], samples.size()),
+                     getReplaceAfter(index, samples));
+        published[index] = samples.size();
+    }
+
+    /** Merge the samples of a completed data source
+     *  @param index Index of the data source
+     *  @param server_name Name of the data server
+     *  @param samples All samples of the data source
+     */
+    public synchronized void complete(final int index, final String server_name, final List<VType> samples)
+    {
+        if (results == null)
+            return; // Closed
+        results[index] = samples;
+        server_names[index] = server_name;
+        boolean later_completed = false;
+        for (int i=index+1; i<results.length; ++i)
+            if (results[i] != null)
+                later_completed = true;
+        if (! later_completed)
+        {   // Add what's not published, yet
+            publish(index, server_name, samples);
+            return;
+        }
+        // Merge this one in full, then restore the later ones
+        merger.merge(server_name, samples, Optional.empty());
+        for (int i=index+1; i<results.length; ++i)
+            if (results[i] != null)
+                merger.merge(server_names[i], results[i], Optional.empty());
+    }
+
+    /** Release the samples, ignore further data */
+    public synchronized void close()
+    {
+        results = null;
+    }
+
+    /** @param index Index of the data source
+     *  @param samples Samples of the data source
+     *  @return Time of the last published sample, or empty
+     */
+    private Optional<Instant> getReplaceAfter(final int index, final List<VType> samples)
+    {
+        if (published[index] <= 0)
+            return Optional.empty();
+        return Optional.of(TimeHelper.fromTimestamp(VTypeHelper.getTimestamp(samples.get(published[index]-1))));
+    }
+}
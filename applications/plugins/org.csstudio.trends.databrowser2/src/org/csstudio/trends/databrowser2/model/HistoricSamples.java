@@ -36,7 +36,7 @@ public class HistoricSamples extends PlotSamples
     // No locking in here, all access is via PVSamples
 
     /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    final private PlotSampleChunks samples = new PlotSampleChunks();
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
@@ -72,12 +72,11 @@ public class HistoricSamples extends PlotSamples
     {
         if (border_time.isPresent())
         {
-            final int last_index = PlotSampleSearch.findSampleLessThan(
-                    samples, border_time.get());
+            final int last_index = samples.findSampleLessThan(border_time.get());
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = samples.size();
     }
 
     /** {@inheritDoc} */
@@ -87,7 +86,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i);
     }
 
     /** {@inheritDoc} */
@@ -97,11 +96,46 @@ public class HistoricSamples extends PlotSamples
         return visible_size;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public long getEpochNanos(final int i)
+    {
+        return samples.getEpochNanos(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int i)
+    {
+        return samples.getValue(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getStdDev(final int i)
+    {
+        return samples.getStdDev(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMin(final int i)
+    {
+        return samples.getMin(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMax(final int i)
+    {
+        return samples.getMax(i);
+    }
+
     /**
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-    	return samples.length;
+    	return samples.size();
     }
 
     /**
@@ -111,7 +145,7 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-    	return samples[i];
+    	return samples.get(i);
     }
 
     /** Merge newly received archive data into historic samples
@@ -119,19 +153,33 @@ public class HistoricSamples extends PlotSamples
      *  @param result Samples to add/merge
      */
     public void mergeArchivedData(final String source, final List<VType> result)
+    {
+        mergeArchivedData(source, result, Optional.empty());
+    }
+
+    /** Merge newly received archive data into historic samples
+     *
+     *  <p>To add the samples of one request in several chunks,
+     *  pass the time of the last sample in the previous chunk,
+     *  so that old samples between the chunks are also replaced.
+     *
+     *  @param source Info about data source
+     *  @param result Samples to add/merge
+     *  @param replace_after Time after which old samples are replaced,
+     *                       or empty to replace from the first new sample on
+     */
+    public void mergeArchivedData(final String source, final List<VType> result,
+                                  final Optional<Instant> replace_after)
     {
         // Anything new at all?
         if (result.size() <= 0)
             return;
-        // Turn IValues into PlotSamples
-        final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
+        // Turn IValues into columns of PlotSamples
+        final PlotSampleColumns new_samples = new PlotSampleColumns(source, waveform_index, result.size());
+        for (VType value : result)
+            new_samples.add(value);
         // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
-        if (merged == samples)
-            return;
-        samples = merged;
+        samples.merge(new_samples, replace_after);
         computeVisibleSize();
     }
 
@@ -139,6 +187,6 @@ public class HistoricSamples extends PlotSamples
     public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples.clear();
     }
 }
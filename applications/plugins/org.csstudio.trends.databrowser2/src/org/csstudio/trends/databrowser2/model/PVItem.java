@@ -12,8 +12,10 @@ import static org.epics.pvmanager.vtype.ExpressionLanguage.vType;
 import static org.epics.util.time.TimeDuration.ofSeconds;
 
 import java.io.PrintWriter;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -422,12 +424,24 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
      */
     public void mergeArchivedSamples(final String server_name,
             final List<VType> new_samples)
+    {
+        mergeArchivedSamples(server_name, new_samples, Optional.empty());
+    }
+
+    /** Add data retrieved from an archive to the 'historic' section
+     *  @param server_name Archive server that provided these samples
+     *  @param new_samples Historic data
+     *  @param replace_after Time of the last sample in the previous chunk
+     *                       of the same request, or empty
+     */
+    public void mergeArchivedSamples(final String server_name,
+            final List<VType> new_samples, final Optional<Instant> replace_after)
     {
         final boolean need_refresh;
         samples.lockForWriting();
         try
         {
-            samples.mergeArchivedData(server_name, new_samples);
+            samples.mergeArchivedData(server_name, new_samples, replace_after);
             need_refresh = automaticRefresh && model.isPresent() &&
                            samples.isHistoryRefreshNeeded(model.get().getStartTime(), model.get().getEndTime());
         }
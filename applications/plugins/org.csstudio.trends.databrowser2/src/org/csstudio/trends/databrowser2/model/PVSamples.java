@@ -114,6 +114,51 @@ public class PVSamples extends PlotSamples
         	return new PlotSample(sample.getSource(), VTypeHelper.transformTimestampToNow(sample.getVType()));
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public long getEpochNanos(final int index)
+    {
+        if (index < history.size())
+            return history.getEpochNanos(index);
+        return super.getEpochNanos(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int index)
+    {
+        if (index < history.size())
+            return history.getValue(index);
+        return super.getValue(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getStdDev(final int index)
+    {
+        if (index < history.size())
+            return history.getStdDev(index);
+        return super.getStdDev(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMin(final int index)
+    {
+        if (index < history.size())
+            return history.getMin(index);
+        return super.getMin(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMax(final int index)
+    {
+        if (index < history.size())
+            return history.getMax(index);
+        return super.getMax(index);
+    }
+
     /** Get 'raw' sample, no continuation until 'now'
      *  @param index 0... getRawSize()-1
      *  @return Sample from historic or live sample subsection
@@ -156,6 +201,19 @@ public class PVSamples extends PlotSamples
      */
     public void mergeArchivedData(final String source,
             final List<VType> result)
+    {
+        mergeArchivedData(source, result, Optional.empty());
+    }
+
+    /** Add data retrieved from an archive to the 'historic' section
+     *  @param source Source of the samples
+     *  @param result Historic data
+     *  @param replace_after Time after which old samples are replaced,
+     *                       or empty to replace from the first new sample on
+     *  @see HistoricSamples#mergeArchivedData(String, List, Optional)
+     */
+    public void mergeArchivedData(final String source,
+            final List<VType> result, final Optional<Instant> replace_after)
     {
         lockForWriting();
         try
@@ -165,7 +223,7 @@ public class PVSamples extends PlotSamples
         		emptyHistoryOnAdd = false;
         		history.clear();
         	}
-            history.mergeArchivedData(source, result);
+            history.mergeArchivedData(source, result, replace_after);
         }
         finally
         {
@@ -68,6 +68,15 @@ public class PlotSample implements PlotDataItem<Instant>
         this(waveform_index, source, value, null);
     }
 
+    /** Initialize for a derived class that provides the value
+     *  @param waveform_index Waveform index
+     *  @param source Info about the source of this sample
+     */
+    PlotSample(final AtomicInteger waveform_index, final  String source)
+    {
+        this(waveform_index, source, null, null);
+    }
+
     /** Initialize with valid control system value
      *  @param source Info about the source of this sample
      *  @param value
@@ -100,6 +109,12 @@ public class PlotSample implements PlotDataItem<Instant>
     	this.waveform_index = index;
     }
 
+    /** @return Waveform index to plot */
+    int getWaveformIndex()
+    {
+        return waveform_index.get();
+    }
+
     /** @return Source of the data */
     public String getSource()
     {
@@ -112,24 +127,28 @@ public class PlotSample implements PlotDataItem<Instant>
         return value;
     }
 
-    /** @return Control system time stamp */
-    private Timestamp getTime()
+    /** @param value Control system value
+     *  @return Control system time stamp
+     */
+    static Instant getPosition(final VType value)
     {
         // NOT checking if time.isValid()
         // because that actually takes quite some time.
         // We just plot what we have, and that includes
         // the case where the time stamp is invalid.
         if (value instanceof Time)
-            return ((Time) value).getTimestamp();
-        return Timestamp.now();
+        {
+            final Timestamp time = ((Time) value).getTimestamp();
+            return Instant.ofEpochSecond(time.getSec(), time.getNanoSec());
+        }
+        return Instant.now();
     }
 
     /** {@inheritDoc} */
     @Override
     public Instant getPosition()
     {
-        final Timestamp time = getTime();
-        return Instant.ofEpochSecond(time.getSec(), time.getNanoSec());
+        return getPosition(value);
     }
 
     /** {@inheritDoc} */
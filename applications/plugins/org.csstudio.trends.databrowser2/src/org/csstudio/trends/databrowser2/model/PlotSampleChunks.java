@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/** Time-ordered samples, kept in chunks of {@link PlotSampleColumns}.
+ *  <p>
+ *  Merging new samples has the same result as the {@link PlotSampleMerger}:
+ *  Where the time ranges overlap, the new samples replace the old ones.
+ *  Instead of copying all samples into a new array,
+ *  the chunks that hold the old samples are re-used,
+ *  so the cost of a merge depends on the number of chunks,
+ *  not the number of samples.
+ *  <p>
+ *  Not thread-safe, caller needs to synchronize.
+ *
+ *  @author Kay Kasemir
+ */
+public class PlotSampleChunks
+{
+    /** When there are more chunks, adjacent chunks from the same source are combined */
+    final private static int MAX_CHUNKS = 1000;
+
+    /** Section of sample columns */
+    private static class Chunk
+    {
+        final PlotSampleColumns samples;
+        final int start;
+        final int length;
+
+        Chunk(final PlotSampleColumns samples, final int start, final int length)
+        {
+            this.samples = samples;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /** Chunks, ordered by time */
+    private List<Chunk> chunks = new ArrayList<>();
+
+    /** Index of the first sample in each chunk */
+    private int offsets[] = new int[0];
+
+    /** Total number of samples */
+    private int size = 0;
+
+    /** @return Number of samples */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return Number of chunks */
+    public int getChunkCount()
+    {
+        return chunks.size();
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Sample
+     */
+    @SuppressWarnings("nls")
+    public PlotSample get(final int i)
+    {
+        if (i < 0  ||  i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " exceeds size " + size);
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.get(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Time stamp of sample as nanoseconds since epoch
+     */
+    public long getEpochNanos(final int i)
+    {
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.getEpochNanos(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Value of sample
+     */
+    public double getValue(final int i)
+    {
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.getValue(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Standard deviation of sample
+     */
+    public double getStdDev(final int i)
+    {
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.getStdDev(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Minimum of sample
+     */
+    public double getMin(final int i)
+    {
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.getMin(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Maximum of sample
+     */
+    public double getMax(final int i)
+    {
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        return chunk.samples.getMax(chunk.start + i - offsets[c]);
+    }
+
+    /** @param i Sample index 0 ... size()-1
+     *  @return Index of chunk that holds the sample
+     */
+    private int findChunk(final int i)
+    {
+        // Binary search for the last chunk that starts at or before i
+        int low = 0, high = offsets.length - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= i)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /** @param goal Time to locate
+     *  @param inclusive Count samples at the goal time as 'before' the goal?
+     *  @return Number of samples before the goal, i.e. index of the first sample after it
+     */
+    private int countBefore(final Instant goal, final boolean inclusive)
+    {
+        final long nanos = PlotSampleColumns.toEpochNanos(goal);
+        int low = 0, high = size;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            final long time = getEpochNanos(mid);
+            if (time < nanos  ||  (inclusive  &&  time == nanos))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** @param goal Time to locate
+     *  @return Index of the last sample before the goal time, or -1
+     */
+    public int findSampleLessThan(final Instant goal)
+    {
+        return countBefore(goal, false) - 1;
+    }
+
+    /** Merge new samples
+     *  <p>
+     *  Old samples in the time range of the new samples are replaced.
+     *  When a time is provided for <code>replace_after</code>,
+     *  old samples are replaced from just after that time on,
+     *  which allows adding the samples of one request in several chunks.
+     *
+     *  @param add Time-ordered samples to add. Columns are used, not copied.
+     *  @param replace_after Time after which to replace old samples,
+     *                       or empty to use the time of the first new sample
+     */
+    public void merge(final PlotSampleColumns add, final Optional<Instant> replace_after)
+    {
+        final int count = add.size();
+        if (count <= 0)
+            return;
+        // Old samples before the new ones
+        final int keep_before = replace_after.isPresent()
+                ? countBefore(replace_after.get(), true)
+                : countBefore(add.getPosition(0), false);
+        // Old samples after the new ones
+        final int keep_after = Math.max(keep_before,
+                                        countBefore(add.getPosition(count-1), true));
+        final List<Chunk> merged = new ArrayList<>(chunks.size() + 2);
+        slice(merged, 0, keep_before);
+        merged.add(new Chunk(add, 0, count));
+        slice(merged, keep_after, size);
+        set(merged);
+        if (chunks.size() > MAX_CHUNKS)
+            compact();
+    }
+
+    /** Add chunks for a range of samples
+     *  @param result List of chunks to extend
+     *  @param from Index of first sample
+     *  @param to Index after the last sample
+     */
+    private void slice(final List<Chunk> result, final int from, final int to)
+    {
+        for (int c=0; c<chunks.size()  &&  from < to; ++c)
+        {
+            final Chunk chunk = chunks.get(c);
+            final int first = Math.max(from, offsets[c]);
+            final int last = Math.min(to, offsets[c] + chunk.length);
+            if (first >= last)
+                continue;
+            if (first == offsets[c]  &&  last == offsets[c] + chunk.length)
+                result.add(chunk);
+            else
+                result.add(new Chunk(chunk.samples, chunk.start + first - offsets[c], last - first));
+        }
+    }
+
+    /** @param new_chunks Chunks to use, updating offsets and size */
+    private void set(final List<Chunk> new_chunks)
+    {
+        chunks = new_chunks;
+        offsets = new int[chunks.size()];
+        size = 0;
+        for (int c=0; c<offsets.length; ++c)
+        {
+            offsets[c] = size;
+            size += chunks.get(c).length;
+        }
+    }
+
+    /** Combine adjacent chunks that have the same source */
+    private void compact()
+    {
+        final List<Chunk> compacted = new ArrayList<>();
+        int first = 0;
+        while (first < chunks.size())
+        {
+            // Locate run of chunks first .. last-1 with same source
+            final String source = chunks.get(first).samples.getSource();
+            int last = first + 1;
+            int count = chunks.get(first).length;
+            while (last < chunks.size()  &&
+                   Objects.equals(chunks.get(last).samples.getSource(), source))
+                count += chunks.get(last++).length;
+            if (last - first == 1)
+                compacted.add(chunks.get(first));
+            else
+            {
+                final PlotSampleColumns combined = new PlotSampleColumns(source,
+                        chunks.get(first).samples.getWaveformIndex(), count);
+                for (int c=first; c<last; ++c)
+                {
+                    final Chunk chunk = chunks.get(c);
+                    for (int i=0; i<chunk.length; ++i)
+                        combined.add(chunk.samples, chunk.start + i);
+                }
+                compacted.add(new Chunk(combined, 0, count));
+            }
+            first = last;
+        }
+        set(compacted);
+    }
+
+    /** Delete all samples */
+    public void clear()
+    {
+        set(new ArrayList<>());
+    }
+}
@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.epics.util.time.Timestamp;
+import org.epics.vtype.AlarmSeverity;
+import org.epics.vtype.Display;
+import org.epics.vtype.VType;
+
+/** Archived samples, stored in columns of primitive arrays.
+ *  <p>
+ *  Scalar numbers and statistics are kept as time stamp,
+ *  value, min/max/std.dev., severity and status.
+ *  Status texts are interned, source and display
+ *  information are shared by all samples.
+ *  Samples that cannot be represented like that,
+ *  for example arrays or strings, are kept as {@link VType}.
+ *  <p>
+ *  {@link #get(int)} returns a {@link PlotSample} that reads
+ *  from the columns.
+ *  The {@link VType} of a sample is only re-created when requested,
+ *  for example by the sample table or for export.
+ *  <p>
+ *  Samples are added once, then only read.
+ *
+ *  @author Kay Kasemir
+ */
+public class PlotSampleColumns
+{
+    /** Sample is an {@link ArchiveVNumber} with Double value */
+    final private static byte KIND_DOUBLE = 0;
+    /** Sample is an {@link ArchiveVNumber} with Long value */
+    final private static byte KIND_LONG = 1;
+    /** Sample is an {@link ArchiveVNumber} with Integer value */
+    final private static byte KIND_INT = 2;
+    /** Sample is an {@link ArchiveVStatistics} */
+    final private static byte KIND_STATS = 3;
+    /** Sample is kept as {@link VType} */
+    final private static byte KIND_VTYPE = 4;
+
+    final private static AlarmSeverity[] severities = AlarmSeverity.values();
+
+    /** Source of all samples */
+    final private String source;
+
+    /** Waveform index */
+    final private AtomicInteger waveform_index;
+
+    /** Display info for all numeric samples, set by the first one */
+    private Display display = null;
+    private boolean have_display = false;
+
+    /** Number of samples */
+    private int size = 0;
+
+    final private long[] times;
+    final private double[] values;
+    final private byte[] kinds;
+    final private byte[] severity;
+    final private short[] status;
+
+    /** Statistics, allocated for the first statistics sample */
+    private double[] mins = null, maxs = null, stddevs = null;
+    private int[] counts = null;
+
+    /** Samples kept as {@link VType}, allocated when needed */
+    private VType[] others = null;
+
+    /** Interned status texts */
+    final private List<String> status_texts = new ArrayList<>();
+    final private Map<String, Short> status_ids = new HashMap<>();
+
+    /** View of one sample */
+    private class Sample extends PlotSample
+    {
+        final private int index;
+        /** Time stamp, created when first requested */
+        private Instant position = null;
+
+        Sample(final int index)
+        {
+            super(waveform_index, source);
+            this.index = index;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            return PlotSampleColumns.this.getVType(index);
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            if (position == null)
+                position = PlotSampleColumns.this.getPosition(index);
+            return position;
+        }
+
+        @Override
+        public double getValue()
+        {
+            return PlotSampleColumns.this.getValue(index);
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            return PlotSampleColumns.this.getStdDev(index);
+        }
+
+        @Override
+        public double getMin()
+        {
+            return PlotSampleColumns.this.getMin(index);
+        }
+
+        @Override
+        public double getMax()
+        {
+            return PlotSampleColumns.this.getMax(index);
+        }
+
+        @Override
+        public String toString()
+        {
+            return VTypeHelper.toString(getVType());
+        }
+    }
+
+    /** Initialize
+     *  @param source Source of the samples
+     *  @param waveform_index Waveform index
+     *  @param capacity Number of samples that will be added
+     */
+    public PlotSampleColumns(final String source, final AtomicInteger waveform_index, final int capacity)
+    {
+        this.source = source;
+        this.waveform_index = waveform_index;
+        times = new long[capacity];
+        values = new double[capacity];
+        kinds = new byte[capacity];
+        severity = new byte[capacity];
+        status = new short[capacity];
+    }
+
+    /** @return Source of the samples */
+    public String getSource()
+    {
+        return source;
+    }
+
+    /** @return Waveform index */
+    AtomicInteger getWaveformIndex()
+    {
+        return waveform_index;
+    }
+
+    /** @return Number of samples */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @param time Time stamp
+     *  @return Nanoseconds since epoch
+     */
+    static long toEpochNanos(final Instant time)
+    {
+        return time.getEpochSecond() * 1000000000L + time.getNano();
+    }
+
+    /** @param i Sample index
+     *  @return Time stamp of sample as nanoseconds since epoch
+     */
+    public long getEpochNanos(final int i)
+    {
+        return times[i];
+    }
+
+    /** @param i Sample index
+     *  @return Time stamp of sample
+     */
+    public Instant getPosition(final int i)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(times[i], 1000000000L),
+                                     Math.floorMod(times[i], 1000000000L));
+    }
+
+    /** @param i Sample index
+     *  @return Value of sample for the current waveform index
+     */
+    public double getValue(final int i)
+    {
+        if (kinds[i] == KIND_VTYPE)
+            return VTypeHelper.toDouble(others[i], waveform_index.get());
+        return waveform_index.get() == 0 ? values[i] : Double.NaN;
+    }
+
+    /** @param i Sample index
+     *  @return Standard deviation of statistics sample, else NaN
+     */
+    public double getStdDev(final int i)
+    {
+        return (kinds[i] == KIND_STATS  &&  waveform_index.get() == 0) ? stddevs[i] : Double.NaN;
+    }
+
+    /** @param i Sample index
+     *  @return Minimum of statistics sample, else NaN
+     */
+    public double getMin(final int i)
+    {
+        return (kinds[i] == KIND_STATS  &&  waveform_index.get() == 0) ? mins[i] : Double.NaN;
+    }
+
+    /** @param i Sample index
+     *  @return Maximum of statistics sample, else NaN
+     */
+    public double getMax(final int i)
+    {
+        return (kinds[i] == KIND_STATS  &&  waveform_index.get() == 0) ? maxs[i] : Double.NaN;
+    }
+
+    /** @param i Sample index
+     *  @return Sample
+     */
+    public PlotSample get(final int i)
+    {
+        return new Sample(i);
+    }
+
+    /** @param i Sample index
+     *  @return {@link VType} of the sample
+     */
+    public VType getVType(final int i)
+    {
+        final byte kind = kinds[i];
+        if (kind == KIND_VTYPE)
+            return others[i];
+        final Timestamp time = Timestamp.of(Math.floorDiv(times[i], 1000000000L),
+                                            (int) Math.floorMod(times[i], 1000000000L));
+        final AlarmSeverity sevr = severities[severity[i]];
+        final String stat = status_texts.get(status[i]);
+        switch (kind)
+        {
+        case KIND_LONG:
+            return new ArchiveVNumber(time, sevr, stat, display, Long.valueOf((long) values[i]));
+        case KIND_INT:
+            return new ArchiveVNumber(time, sevr, stat, display, Integer.valueOf((int) values[i]));
+        case KIND_STATS:
+            return new ArchiveVStatistics(time, sevr, stat, display,
+                                          values[i], mins[i], maxs[i], stddevs[i], counts[i]);
+        default:
+            return new ArchiveVNumber(time, sevr, stat, display, Double.valueOf(values[i]));
+        }
+    }
+
+    /** Add a sample
+     *  @param value Sample to add
+     */
+    public void add(final VType value)
+    {
+        final int i = size++;
+        final Instant time = PlotSample.getPosition(value);
+        times[i] = toEpochNanos(time);
+        if (value.getClass() == ArchiveVNumber.class  &&  useDisplay((Display) value))
+        {
+            final ArchiveVNumber number = (ArchiveVNumber) value;
+            final Number num = number.getValue();
+            if (num instanceof Double)
+                kinds[i] = KIND_DOUBLE;
+            else if (num instanceof Integer)
+                kinds[i] = KIND_INT;
+            else if (num instanceof Long  &&  Math.abs(num.longValue()) < (1L << 53))
+                kinds[i] = KIND_LONG;
+            else
+            {
+                addOther(i, value);
+                return;
+            }
+            values[i] = num.doubleValue();
+            if (! addAlarm(i, number.getAlarmSeverity(), number.getAlarmName()))
+                addOther(i, value);
+        }
+        else if (value.getClass() == ArchiveVStatistics.class  &&  useDisplay((Display) value))
+        {
+            final ArchiveVStatistics stats = (ArchiveVStatistics) value;
+            allocateStatistics();
+            kinds[i] = KIND_STATS;
+            values[i] = stats.getAverage();
+            mins[i] = stats.getMin();
+            maxs[i] = stats.getMax();
+            stddevs[i] = stats.getStdDev();
+            counts[i] = stats.getNSamples();
+            if (! addAlarm(i, stats.getAlarmSeverity(), stats.getAlarmName()))
+                addOther(i, value);
+        }
+        else
+            addOther(i, value);
+    }
+
+    /** Add a sample from other columns
+     *  @param other Columns to copy from
+     *  @param i Index of sample in other columns
+     */
+    public void add(final PlotSampleColumns other, final int i)
+    {
+        final byte kind = other.kinds[i];
+        if (kind == KIND_VTYPE  ||  ! useDisplay(other.display))
+        {
+            add(other.getVType(i));
+            return;
+        }
+        final int n = size++;
+        times[n] = other.times[i];
+        values[n] = other.values[i];
+        kinds[n] = kind;
+        if (kind == KIND_STATS)
+        {
+            allocateStatistics();
+            mins[n] = other.mins[i];
+            maxs[n] = other.maxs[i];
+            stddevs[n] = other.stddevs[i];
+            counts[n] = other.counts[i];
+        }
+        if (! addAlarm(n, severities[other.severity[i]], other.status_texts.get(other.status[i])))
+            addOther(n, other.getVType(i));
+    }
+
+    /** Allocate statistics columns */
+    private void allocateStatistics()
+    {
+        if (mins != null)
+            return;
+        mins = new double[times.length];
+        maxs = new double[times.length];
+        stddevs = new double[times.length];
+        counts = new int[times.length];
+    }
+
+    /** @param i Sample index
+     *  @param value Sample to keep as {@link VType}
+     */
+    private void addOther(final int i, final VType value)
+    {
+        if (others == null)
+            others = new VType[times.length];
+        kinds[i] = KIND_VTYPE;
+        others[i] = value;
+        values[i] = Double.NaN;
+    }
+
+    /** @param i Sample index
+     *  @param sevr Severity
+     *  @param text Status text
+     *  @return <code>true</code> if added, <code>false</code> if too many status texts
+     */
+    private boolean addAlarm(final int i, final AlarmSeverity sevr, final String text)
+    {
+        Short id = status_ids.get(text);
+        if (id == null)
+        {
+            if (status_texts.size() >= Short.MAX_VALUE)
+                return false;
+            id = (short) status_texts.size();
+            status_texts.add(text);
+            status_ids.put(text, id);
+        }
+        severity[i] = (byte) sevr.ordinal();
+        status[i] = id;
+        return true;
+    }
+
+    /** @param value Display info of a sample
+     *  @return <code>true</code> if it matches the shared display info
+     */
+    private boolean useDisplay(final Display value)
+    {
+        if (! have_display)
+        {
+            display = value;
+            have_display = true;
+            return true;
+        }
+        return isSameDisplay(display, value);
+    }
+
+    /** @param a Display info
+     *  @param b Other display info
+     *  @return <code>true</code> if both describe the same display info
+     */
+    private static boolean isSameDisplay(final Display a, final Display b)
+    {
+        if (a == b)
+            return true;
+        if (a == null  ||  b == null)
+            return false;
+        return Objects.equals(a.getLowerDisplayLimit(), b.getLowerDisplayLimit())  &&
+               Objects.equals(a.getUpperDisplayLimit(), b.getUpperDisplayLimit())  &&
+               Objects.equals(a.getLowerCtrlLimit(), b.getLowerCtrlLimit())  &&
+               Objects.equals(a.getUpperCtrlLimit(), b.getUpperCtrlLimit())  &&
+               Objects.equals(a.getLowerAlarmLimit(), b.getLowerAlarmLimit())  &&
+               Objects.equals(a.getUpperAlarmLimit(), b.getUpperAlarmLimit())  &&
+               Objects.equals(a.getLowerWarningLimit(), b.getLowerWarningLimit())  &&
+               Objects.equals(a.getUpperWarningLimit(), b.getUpperWarningLimit())  &&
+               Objects.equals(a.getUnits(), b.getUnits())  &&
+               Objects.equals(a.getFormat(), b.getFormat());
+    }
+}
@@ -13,14 +13,19 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.csstudio.swt.rtplot.data.PlotDataColumns;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
 
 /** Base for classes that hold plot samples
  *  in a way accessible as {@link PlotDataProvider}
+ *  <p>
+ *  The {@link PlotDataColumns} methods read from {@link #get(int)}.
+ *  Derived classes that store samples in columns
+ *  override them to avoid creating a {@link PlotSample}.
  *
  *  @author Kay Kasemir
  */
-abstract public class PlotSamples implements PlotDataProvider<Instant>
+abstract public class PlotSamples implements PlotDataProvider<Instant>, PlotDataColumns
 {
     final private ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -57,6 +62,41 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
     @Override
     abstract public PlotSample get(int index);
 
+    /** {@inheritDoc} */
+    @Override
+    public long getEpochNanos(final int index)
+    {
+        return PlotSampleColumns.toEpochNanos(get(index).getPosition());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getValue(final int index)
+    {
+        return get(index).getValue();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getStdDev(final int index)
+    {
+        return get(index).getStdDev();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMin(final int index)
+    {
+        return get(index).getMin();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMax(final int index)
+    {
+        return get(index).getMax();
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
@@ -50,6 +50,14 @@ public class TimeHelper
         return Timestamp.of(time.getEpochSecond(), time.getNano());
     }
 
+    /** @param time Old epics {@link Timestamp}
+     *  @return {@link Instant}
+     */
+    public static Instant fromTimestamp(final Timestamp time)
+    {
+        return Instant.ofEpochSecond(time.getSec(), time.getNanoSec());
+    }
+
     final public static ZoneId zone = ZoneId.systemDefault();
 
     /** Format instant as local time for persisting as string or debug printouts
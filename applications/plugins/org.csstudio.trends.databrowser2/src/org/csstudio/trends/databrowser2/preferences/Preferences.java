@@ -53,7 +53,8 @@ public class Preferences
 			UPDATE_PERIOD = "update_period", LINE_WIDTH = "line_width",
 			TRACE_TYPE = "trace_type",
 			ARCHIVE_FETCH_DELAY = "archive_fetch_delay",
-			PLOT_BINS = "plot_bins", URLS = "urls", ARCHIVES = "archives",
+			PLOT_BINS = "plot_bins", CONCURRENT_REQUESTS = "concurrent_requests",
+			ARCHIVE_FETCH_CHUNK_SIZE = "archive_fetch_chunk_size", URLS = "urls", ARCHIVES = "archives",
 			USE_DEFAULT_ARCHIVES = "use_default_archives",
 			PROMPT_FOR_ERRORS = "prompt_for_errors",
 			ARCHIVE_RESCALE = "archive_rescale",
@@ -157,6 +158,20 @@ public class Preferences
         return prefs.getInt(Activator.PLUGIN_ID, PLOT_BINS, 800, null);
     }
 
+    /** @return Maximum number of concurrent requests to one data server */
+    public static int getConcurrentRequests()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        return Math.max(1, prefs.getInt(Activator.PLUGIN_ID, CONCURRENT_REQUESTS, 4, null));
+    }
+
+    /** @return Number of archived samples to merge into the plot while still fetching, 0 to merge all at the end */
+    public static int getArchiveFetchChunkSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        return Math.max(0, prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_FETCH_CHUNK_SIZE, 10000, null));
+    }
+
     public static ArchiveServerURL[] getArchiveServerURLs()
     {
         final IPreferencesService prefs = Platform.getPreferencesService();
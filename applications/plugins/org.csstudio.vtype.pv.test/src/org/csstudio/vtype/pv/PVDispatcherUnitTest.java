@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.epics.vtype.VType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** JUnit test of the {@link PVDispatcher}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PVDispatcherUnitTest
+{
+    /** PV that allows test to send updates */
+    private static class TestPV extends PV
+    {
+        TestPV()
+        {
+            super("test");
+        }
+
+        void update(final VType value)
+        {
+            notifyListenersOfValue(value);
+        }
+
+        void disconnect()
+        {
+            notifyListenersOfDisconnect();
+        }
+
+        @Override
+        public void write(final Object new_value) throws Exception
+        {
+            // NOP
+        }
+    }
+
+    /** Listener that takes some time for each value */
+    private static class SlowListener extends PVListenerAdapter
+    {
+        final AtomicInteger values = new AtomicInteger();
+        final CountDownLatch disconnected = new CountDownLatch(1);
+        volatile VType last_value = null;
+
+        @Override
+        public void valueChanged(final PV pv, final VType value)
+        {
+            values.incrementAndGet();
+            last_value = value;
+            try
+            {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        }
+
+        @Override
+        public void disconnected(final PV pv)
+        {
+            disconnected.countDown();
+        }
+    }
+
+    @Before
+    public void setup()
+    {
+        PVDispatcher.setThreadCount(2);
+    }
+
+    @After
+    public void shutdown()
+    {
+        PVDispatcher.setThreadCount(0);
+    }
+
+    @Test(timeout=10000)
+    public void testCoalescing() throws Exception
+    {
+        final TestPV pv = new TestPV();
+        final SlowListener slow = new SlowListener();
+        final SlowListener other = new SlowListener();
+        pv.addListener(slow);
+        pv.addListener(other);
+
+        final int N = 100;
+        final VType[] values = new VType[N];
+        final long start = System.nanoTime();
+        for (int i=0; i<N; ++i)
+        {
+            values[i] = new VType() {};
+            pv.update(values[i]);
+        }
+        final long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        pv.disconnect();
+        System.out.println(N + " updates sent in " + ms + " ms");
+        // Sending did not wait for the slow listeners, 10ms per value
+        assertTrue(ms < N * 10 / 2);
+
+        assertTrue(slow.disconnected.await(5, TimeUnit.SECONDS));
+        assertTrue(other.disconnected.await(5, TimeUnit.SECONDS));
+
+        // Slow listeners skipped values, but received the last one
+        System.out.println("Listener received " + slow.values.get() + " values, " +
+                           pv.getDroppedUpdates() + " updates dropped, max latency " +
+                           pv.getMaxDispatchLatency() + " s");
+        assertTrue(slow.values.get() < N);
+        assertThat(slow.last_value, sameInstance(values[N-1]));
+        assertThat(other.last_value, sameInstance(values[N-1]));
+        assertThat(pv.getDroppedUpdates() + pv.getDispatchedUpdates(), equalTo(2L * N));
+    }
+
+    @Test(timeout=10000)
+    public void testRemovedListener() throws Exception
+    {
+        final TestPV pv = new TestPV();
+        final SlowListener slow = new SlowListener();
+        pv.addListener(slow);
+        pv.update(new VType() {});
+        pv.removeListener(slow);
+        pv.update(new VType() {});
+        pv.disconnect();
+        // Removed listener does not receive the disconnect
+        assertThat(slow.disconnected.await(500, TimeUnit.MILLISECONDS), equalTo(false));
+        assertTrue(slow.values.get() <= 1);
+    }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** JUnit test of the {@link PVPool}
+ *
+ *  <p>Uses a PV factory that takes some time to create PVs.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PVPoolUnitTest
+{
+    /** Time to create a PV */
+    final private static long CREATE_MS = 200;
+
+    final private static AtomicInteger creations = new AtomicInteger();
+
+    private static class SlowPV extends PV
+    {
+        SlowPV(final String name)
+        {
+            super(name);
+        }
+
+        @Override
+        public void write(final Object new_value) throws Exception
+        {
+            // NOP
+        }
+    }
+
+    @BeforeClass
+    public static void setup()
+    {
+        PVPool.addPVFactory(new PVFactory()
+        {
+            @Override
+            public String getType()
+            {
+                return "slow";
+            }
+
+            @Override
+            public PV createPV(final String name, final String base_name) throws Exception
+            {
+                creations.incrementAndGet();
+                Thread.sleep(CREATE_MS);
+                if (base_name.startsWith("bad"))
+                    throw new Exception("Cannot create " + name);
+                return new SlowPV(name);
+            }
+        });
+    }
+
+    @After
+    public void shutdown()
+    {
+        assertThat(PVPool.getPVReferences().size(), equalTo(0));
+    }
+
+    /** @param names PV names to get concurrently
+     *  @return PVs
+     *  @throws Exception on error
+     */
+    private List<PV> getConcurrently(final String... names) throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(names.length);
+        final List<Future<PV>> futures = new ArrayList<>();
+        for (final String name : names)
+            futures.add(executor.submit(new Callable<PV>()
+            {
+                @Override
+                public PV call() throws Exception
+                {
+                    return PVPool.getPV(name);
+                }
+            }));
+        final List<PV> pvs = new ArrayList<>();
+        for (Future<PV> future : futures)
+            pvs.add(future.get());
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return pvs;
+    }
+
+    @Test(timeout=10000)
+    public void testSharedCreation() throws Exception
+    {
+        creations.set(0);
+        final long hits = PVPool.getHitCount();
+        final String[] names = new String[10];
+        for (int i=0; i<names.length; ++i)
+            names[i] = "slow://shared";
+        final List<PV> pvs = getConcurrently(names);
+
+        // Created once, all requests received the same PV
+        assertThat(creations.get(), equalTo(1));
+        for (PV pv : pvs)
+            assertThat(pv, sameInstance(pvs.get(0)));
+        assertThat(PVPool.getHitCount() - hits, equalTo(names.length - 1L));
+        assertThat(PVPool.getPVReferences().iterator().next().getReferences(), equalTo(names.length));
+
+        for (PV pv : pvs)
+            PVPool.releasePV(pv);
+    }
+
+    @Test(timeout=10000)
+    public void testParallelCreation() throws Exception
+    {
+        creations.set(0);
+        final String[] names = new String[10];
+        for (int i=0; i<names.length; ++i)
+            names[i] = "slow://pv" + i;
+        final long start = System.currentTimeMillis();
+        final List<PV> pvs = getConcurrently(names);
+        final long ms = System.currentTimeMillis() - start;
+        System.out.println("Created " + names.length + " PVs in " + ms + " ms");
+        System.out.println("Average creation time: " + PVPool.getAverageCreationTime() + " s");
+
+        // Different PVs were created in parallel, not one after the other
+        assertThat(creations.get(), equalTo(names.length));
+        assertTrue(ms < names.length * CREATE_MS / 2);
+        assertTrue(PVPool.getMaxCreationTime() >= CREATE_MS / 1000.0);
+
+        for (PV pv : pvs)
+            PVPool.releasePV(pv);
+    }
+
+    @Test(timeout=10000)
+    public void testFailedCreation() throws Exception
+    {
+        creations.set(0);
+        for (int attempt=0; attempt<2; ++attempt)
+        {
+            try
+            {
+                PVPool.getPV("slow://bad");
+                fail("Created bad PV");
+            }
+            catch (Exception ex)
+            {
+                assertThat(ex.getMessage(), equalTo("Cannot create slow://bad"));
+            }
+        }
+        // Failed PV was not kept in pool, so each attempt tried to create it
+        assertThat(creations.get(), equalTo(2));
+    }
+}
@@ -7,9 +7,14 @@
  ******************************************************************************/
 package org.csstudio.vtype.pv;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,15 +29,152 @@ import org.epics.vtype.VType;
  *  <p>The name of the PV is the name by which it was created.
  *  The underlying implementation might use a slightly different name.
  *  
+ *  <p>Listeners are notified in the thread of the PV implementation,
+ *  or by the {@link PVDispatcher} if that has been enabled.
+ *  
  *  @author Kay Kasemir
  */
 abstract public class PV
 {
     final private static Logger logger = Logger.getLogger(PV.class.getName());
+
+    /** Event for a listener to indicate a disconnect */
+    final private static Object DISCONNECTED = new Object();
+
+    /** Listener with its pending events
+     *
+     *  <p>Events are delivered in order,
+     *  but a value that is followed by another value before
+     *  it could be delivered is dropped.
+     */
+    private class ListenerEntry implements Runnable
+    {
+        final PVListener listener;
+
+        /** Pending events. SYNC on this */
+        final private ArrayDeque<Object> events = new ArrayDeque<>();
+
+        /** Time when each pending event was posted. SYNC on this */
+        final private ArrayDeque<Long> times = new ArrayDeque<>();
+
+        /** Executor used to deliver pending events, <code>null</code> when idle. SYNC on this */
+        private Executor executor = null;
+
+        private volatile boolean removed = false;
+
+        ListenerEntry(final PVListener listener)
+        {
+            this.listener = listener;
+        }
+
+        /** @param executor Executor to use for delivering the event
+         *  @param event Event to deliver
+         */
+        void post(final Executor executor, final Object event)
+        {
+            final Long now = System.nanoTime();
+            synchronized (this)
+            {
+                if (event instanceof VType  &&  events.peekLast() instanceof VType)
+                {   // Replace pending value with newer one
+                    events.pollLast();
+                    times.pollLast();
+                    dropped_updates.incrementAndGet();
+                }
+                events.add(event);
+                times.add(now);
+                if (this.executor != null)
+                    return; // Already scheduled
+                this.executor = executor;
+            }
+            schedule(executor);
+        }
+
+        private void schedule(final Executor executor)
+        {
+            try
+            {
+                executor.execute(this);
+            }
+            catch (RejectedExecutionException ex)
+            {   // Dispatcher was reconfigured, deliver in this thread
+                run();
+            }
+        }
+
+        /** Deliver pending events */
+        @Override
+        public void run()
+        {
+            final List<Object> batch;
+            final List<Long> batch_times;
+            synchronized (this)
+            {
+                batch = new ArrayList<>(events);
+                batch_times = new ArrayList<>(times);
+                events.clear();
+                times.clear();
+            }
+            final int count = batch.size();
+            for (int i=0; i<count; ++i)
+            {
+                if (removed)
+                    break;
+                final Object event = batch.get(i);
+                if (event instanceof VType)
+                    recordLatency(System.nanoTime() - batch_times.get(i));
+                deliver(event);
+            }
+            // Re-schedule if more events arrived, giving other listeners a turn
+            final Executor next;
+            synchronized (this)
+            {
+                if (events.isEmpty())
+                {
+                    executor = null;
+                    return;
+                }
+                next = executor;
+            }
+            schedule(next);
+        }
+
+        /** Invoke listener
+         *  @param event Event to deliver
+         */
+        void deliver(final Object event)
+        {
+            try
+            {
+                if (event == DISCONNECTED)
+                    listener.disconnected(PV.this);
+                else if (event instanceof Boolean)
+                    listener.permissionsChanged(PV.this, (Boolean) event);
+                else
+                    listener.valueChanged(PV.this, (VType) event);
+            }
+            catch (Throwable ex)
+            {
+                logger.log(Level.WARNING, name + " PVListener error", ex);
+            }
+        }
+    }
     
     final private String name;
     
-    final private List<PVListener> listeners = new CopyOnWriteArrayList<>();
+    final private List<ListenerEntry> listeners = new CopyOnWriteArrayList<>();
+
+    /** Number of values that dispatched listeners skipped */
+    final private AtomicLong dropped_updates = new AtomicLong();
+
+    /** Number of values that were dispatched to listeners */
+    final private AtomicLong dispatched_updates = new AtomicLong();
+
+    /** Total time that dispatched values waited for delivery */
+    final private AtomicLong dispatch_nanos = new AtomicLong();
+
+    /** Longest time that a dispatched value waited for delivery */
+    final private AtomicLong max_dispatch_nanos = new AtomicLong();
 
     private volatile boolean is_readonly = false;
 
@@ -65,17 +207,24 @@ abstract public class PV
      */
     public void addListener(final PVListener listener)
     {
+        final ListenerEntry entry = new ListenerEntry(listener);
         // If there is a known value, perform initial update
         final VType value = last_value;
         if (value != null)
-            listener.valueChanged(this, value);
-        listeners.add(listener);
+            notifyListener(entry, value);
+        listeners.add(entry);
     }
 
     /** @param listener Listener that will no longer receive value updates */
     public void removeListener(final PVListener listener)
     {
-        listeners.remove(listener);
+        for (ListenerEntry entry : listeners)
+            if (entry.listener.equals(listener))
+            {
+                entry.removed = true;
+                listeners.remove(entry);
+                return;
+            }
     }
     
     /** Read current value
@@ -142,51 +291,80 @@ abstract public class PV
     protected void notifyListenersOfDisconnect()
     {
         last_value = null;
-        for (PVListener listener : listeners)
-        {
-            try
-            {
-                listener.disconnected(this);
-            }
-            catch (Throwable ex)
-            {
-                logger.log(Level.WARNING, name + " PVListener error", ex);
-            }
-        }
+        notifyListeners(DISCONNECTED);
     }
 
     /** Helper for PV implementation to notify listeners */
     protected void notifyListenersOfPermissions(final boolean readonly)
     {
         is_readonly = readonly;
-        for (PVListener listener : listeners)
-        {
-            try
-            {
-                listener.permissionsChanged(this, readonly);
-            }
-            catch (Throwable ex)
-            {
-                logger.log(Level.WARNING, name + " PVListener error", ex);
-            }
-        }
+        notifyListeners(Boolean.valueOf(readonly));
     }
 
     /** Helper for PV implementation to notify listeners */
     protected void notifyListenersOfValue(final VType value)
     {
         last_value = value;
-        for (PVListener listener : listeners)
-        {
-            try
-            {
-                listener.valueChanged(this, value);
-            }
-            catch (Throwable ex)
-            {
-                logger.log(Level.WARNING, name + " PVListener error", ex);
-            }
-        }
+        notifyListeners(value);
+    }
+
+    /** @param event Event to deliver to all listeners */
+    private void notifyListeners(final Object event)
+    {
+        for (ListenerEntry entry : listeners)
+            notifyListener(entry, event);
+    }
+
+    /** @param entry Listener to notify, directly or via {@link PVDispatcher}
+     *  @param event Event to deliver
+     */
+    private void notifyListener(final ListenerEntry entry, final Object event)
+    {
+        final Executor executor = PVDispatcher.getExecutor();
+        if (executor == null)
+            entry.deliver(event);
+        else
+            entry.post(executor, event);
+    }
+
+    /** @param nanos Time that a value waited for delivery */
+    private void recordLatency(final long nanos)
+    {
+        dispatched_updates.incrementAndGet();
+        dispatch_nanos.addAndGet(nanos);
+        long max = max_dispatch_nanos.get();
+        while (nanos > max  &&  !max_dispatch_nanos.compareAndSet(max, nanos))
+            max = max_dispatch_nanos.get();
+    }
+
+    /** @return Number of values that listeners skipped
+     *          because a newer value arrived before they could be notified
+     *  @see PVDispatcher
+     */
+    public long getDroppedUpdates()
+    {
+        return dropped_updates.get();
+    }
+
+    /** @return Number of values that were delivered via the {@link PVDispatcher} */
+    public long getDispatchedUpdates()
+    {
+        return dispatched_updates.get();
+    }
+
+    /** @return Average time in seconds that dispatched values waited for delivery */
+    public double getAverageDispatchLatency()
+    {
+        final long count = dispatched_updates.get();
+        if (count <= 0)
+            return 0.0;
+        return dispatch_nanos.get() / 1e9 / count;
+    }
+
+    /** @return Longest time in seconds that a dispatched value waited for delivery */
+    public double getMaxDispatchLatency()
+    {
+        return max_dispatch_nanos.get() / 1e9;
     }
     
     /** Close the PV, releasing underlying resources.
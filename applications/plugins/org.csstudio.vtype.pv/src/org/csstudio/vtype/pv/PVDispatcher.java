@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Dispatcher for {@link PVListener} notifications
+ *
+ *  <p>By default, a {@link PV} notifies its listeners
+ *  in the thread of the control system library.
+ *  When the dispatcher is enabled, listeners are
+ *  invoked by a pool of worker threads.
+ *  Each listener has at most one pending value:
+ *  A listener that falls behind skips intermediate values
+ *  and receives the most recent one,
+ *  without holding up the control system library or other listeners.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PVDispatcher
+{
+    /** Executor for listener notifications, <code>null</code> if disabled */
+    private static volatile ExecutorService executor = null;
+
+    /** Singleton */
+    private PVDispatcher()
+    {
+    }
+
+    /** Configure the dispatcher
+     *
+     *  <p>Listeners that were already notified via the previous
+     *  worker threads will complete their pending notifications.
+     *
+     *  @param threads Number of worker threads. 0 to notify listeners in the thread of the PV
+     */
+    public static synchronized void setThreadCount(final int threads)
+    {
+        if (executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
+        if (threads <= 0)
+            return;
+        final AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "PVDispatcher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /** @return {@link Executor} for listener notifications, <code>null</code> if disabled */
+    static Executor getExecutor()
+    {
+        return executor;
+    }
+}
@@ -7,9 +7,17 @@
  ******************************************************************************/
 package org.csstudio.vtype.pv;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.csstudio.vtype.pv.RefCountMap.ReferencedEntry;
 
@@ -35,6 +43,10 @@ import org.csstudio.vtype.pv.RefCountMap.ReferencedEntry;
  *  <p>Note also that "loc://x(3.14)" and "loc://x(14)" will be treated
  *  as different PVs.
  *
+ *  <p>The pool does not hold a lock while PVs are created.
+ *  Concurrent requests for the same PV share one creation,
+ *  while different PVs can be created in parallel.
+ *
  *  @author Kay Kasemir
  */
 public class PVPool
@@ -53,11 +65,80 @@ public class PVPool
     /** Default PV name type prefix */
     private static String default_type;
 
+    /** Entry in the pool: PV, created once, with reference count */
+    private static class PoolEntry
+    {
+        /** Reference count. Entry is dead once this dropped to 0 */
+        final AtomicInteger references = new AtomicInteger(1);
+
+        /** Creates the PV, run by the first thread that requested it */
+        final FutureTask<PV> pv;
+
+        PoolEntry(final String name)
+        {
+            pv = new FutureTask<>(new Callable<PV>()
+            {
+                @Override
+                public PV call() throws Exception
+                {
+                    return createPV(name);
+                }
+            });
+        }
+
+        /** @return <code>true</code> if reference was added,
+         *          <code>false</code> if entry has been released and must not be used
+         */
+        boolean addRef()
+        {
+            while (true)
+            {
+                final int current = references.get();
+                if (current <= 0)
+                    return false;
+                if (references.compareAndSet(current, current + 1))
+                    return true;
+            }
+        }
+
+        /** @return PV, waiting for its creation to complete
+         *  @throws Exception on error from PV creation
+         */
+        PV getPV() throws Exception
+        {
+            try
+            {
+                return pv.get();
+            }
+            catch (ExecutionException ex)
+            {
+                final Throwable cause = ex.getCause();
+                if (cause instanceof Exception)
+                    throw (Exception) cause;
+                throw new Exception("Cannot create PV", cause);
+            }
+        }
+    }
+
     /** PV Pool
-     *  SYNC on 'pool':
-     *  Otherwise, two threads concurrently looking for a new PV would both add it.
+     *
+     *  <p>Entries are added with <code>putIfAbsent</code>,
+     *  so two threads concurrently looking for a new PV
+     *  will use the same entry.
      */
-    final private static RefCountMap<String, PV> pool = new RefCountMap<>();
+    final private static ConcurrentHashMap<String, PoolEntry> pool = new ConcurrentHashMap<>();
+
+    /** Number of <code>getPV</code> calls that found the PV in the pool */
+    final private static AtomicLong hits = new AtomicLong();
+
+    /** Number of <code>getPV</code> calls that created a new PV */
+    final private static AtomicLong misses = new AtomicLong();
+
+    /** Total time spent in PV creation */
+    final private static AtomicLong creation_nanos = new AtomicLong();
+
+    /** Longest PV creation time */
+    final private static AtomicLong max_creation_nanos = new AtomicLong();
    
     /** Singleton */
     private PVPool()
@@ -100,17 +181,51 @@ public class PVPool
      */
     public static PV getPV(final String name) throws Exception
     {
-        PV pv;
-        synchronized (pool)
+        while (true)
         {
-            pv = pool.get(name);
-            if (pv == null)
+            final PoolEntry entry = pool.get(name);
+            if (entry == null)
+            {
+                final PoolEntry new_entry = new PoolEntry(name);
+                if (pool.putIfAbsent(name, new_entry) == null)
+                    return create(name, new_entry);
+                // Else: Other thread just added an entry, use that
+            }
+            else if (entry.addRef())
             {
-                pv = createPV(name);
-                pool.put(name, pv);
+                hits.incrementAndGet();
+                return entry.getPV();
             }
+            // Else: Entry was just released, try again
+            Thread.yield();
+        }
+    }
+
+    /** Create PV for new pool entry
+     *  @param name PV name
+     *  @param entry New entry that has been added to the pool
+     *  @return {@link PV}
+     *  @throws Exception on error
+     */
+    private static PV create(final String name, final PoolEntry entry) throws Exception
+    {
+        misses.incrementAndGet();
+        final long start = System.nanoTime();
+        entry.pv.run();
+        final long nanos = System.nanoTime() - start;
+        creation_nanos.addAndGet(nanos);
+        long max = max_creation_nanos.get();
+        while (nanos > max  &&  !max_creation_nanos.compareAndSet(max, nanos))
+            max = max_creation_nanos.get();
+        try
+        {
+            return entry.getPV();
+        }
+        catch (Exception ex)
+        {   // Remove failed entry, allowing later attempts to create the PV
+            pool.remove(name, entry);
+            throw ex;
         }
-        return pv;
     }
     
     /** Create 
@@ -152,21 +267,61 @@ public class PVPool
     /** @param pv PV to be released */
     public static void releasePV(final PV pv)
     {
-        final int references;
-        synchronized (pool)
+        final PoolEntry entry = pool.get(pv.getName());
+        if (entry == null)
+            throw new IllegalStateException("No reference found for " + pv.getName());
+        if (entry.references.decrementAndGet() == 0)
         {
-            references = pool.release(pv.getName());
-        }
-        if (references == 0)
+            pool.remove(pv.getName(), entry);
             pv.close();
+        }
     }
     
     /** @return PVs currently in the pool with reference count information */
     public static Collection<ReferencedEntry<PV>> getPVReferences()
     {
-        synchronized (pool)
+        final List<ReferencedEntry<PV>> refs = new ArrayList<>();
+        for (PoolEntry entry : pool.values())
         {
-            return pool.getEntries();
+            final int references = entry.references.get();
+            if (references <= 0  ||  ! entry.pv.isDone())
+                continue;
+            try
+            {
+                refs.add(new ReferencedEntry<PV>(entry.getPV(), references));
+            }
+            catch (Exception ex)
+            {
+                // Skip PV that failed to create
+            }
         }
+        return refs;
+    }
+
+    /** @return Number of <code>getPV</code> calls that found the PV in the pool */
+    public static long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of <code>getPV</code> calls that created a new PV */
+    public static long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /** @return Average time in seconds spent creating a PV */
+    public static double getAverageCreationTime()
+    {
+        final long count = misses.get();
+        if (count <= 0)
+            return 0.0;
+        return creation_nanos.get() / 1e9 / count;
+    }
+
+    /** @return Longest time in seconds spent creating a PV */
+    public static double getMaxCreationTime()
+    {
+        return max_creation_nanos.get() / 1e9;
     }
 }
@@ -34,6 +34,12 @@ public class RefCountMap<K, E>
         {
             this.entry = entry;
         }
+
+        ReferencedEntry(E entry, int references)
+        {
+            this.entry = entry;
+            this.references = references;
+        }
         
         /** @return Item */
         public E getEntry()
@@ -10,6 +10,7 @@ package org.csstudio.vtype.pv.internal;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.csstudio.vtype.pv.PVDispatcher;
 import org.csstudio.vtype.pv.PVFactory;
 import org.csstudio.vtype.pv.PVPool;
 import org.eclipse.core.runtime.IConfigurationElement;
@@ -49,11 +50,15 @@ public class Activator implements BundleActivator
         final String default_type = Preferences.defaultType();
         logger.log(Level.CONFIG, "Default PV type {0}", default_type);
         PVPool.setDefaultType(default_type);
+
+        final int dispatch_threads = Preferences.dispatchThreads();
+        logger.log(Level.CONFIG, "PV listener dispatch threads: {0}", dispatch_threads);
+        PVDispatcher.setThreadCount(dispatch_threads);
     }
 
     @Override
     public void stop(final BundleContext context) throws Exception
     {
-        // NOP
+        PVDispatcher.setThreadCount(0);
     }
 }
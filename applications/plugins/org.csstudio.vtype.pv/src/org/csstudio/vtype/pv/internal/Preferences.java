@@ -32,6 +32,11 @@ public class Preferences
         return getString(Activator.ID, "default_type", JCA_PVFactory.TYPE);
     }
         
+    public static int dispatchThreads()
+    {
+        return Integer.parseInt(getString(Activator.ID, "dispatch_threads", "0"));
+    }
+
     public static boolean usePureJava()
     {
         return Boolean.parseBoolean(getString(EpicsPlugin.ID, PreferenceConstants.PURE_JAVA, Boolean.TRUE.toString()));